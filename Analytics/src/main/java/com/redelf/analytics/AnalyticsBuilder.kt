@@ -1,5 +1,6 @@
 package com.redelf.analytics
 
+import com.redelf.analytics.dispatching.AnalyticsDispatcher
 import com.redelf.commons.sending.Sending
 
 class AnalyticsBuilder(private val backend: Analytics) : Sending {
@@ -73,6 +74,13 @@ class AnalyticsBuilder(private val backend: Analytics) : Sending {
         val event = parameters[AnalyticsArgument.EVENT]
         val multiple = parameters[AnalyticsArgument.MULTIPLE]
 
+        if (AnalyticsDispatcher.ENABLED.get()) {
+
+            AnalyticsDispatcher.enqueue(backend, event, value, multiple, pair)
+
+            return
+        }
+
         backend.log(event, value, multiple, pair)
     }
 
@@ -2,6 +2,9 @@ package com.redelf.analytics.application
 
 import com.facebook.FacebookSdk
 import com.facebook.LoggingBehavior
+import com.redelf.analytics.dispatching.AnalyticsDispatcher
+import com.redelf.analytics.implementation.facebook.FacebookAnalytics
+import com.redelf.analytics.implementation.firebase.FirebaseAnalytics
 import com.redelf.commons.application.BaseApplication
 import com.redelf.commons.logging.Console
 
@@ -11,6 +14,15 @@ abstract class AnalyticsApplication : BaseApplication() {
 
     override fun firebaseAnalyticsEnabled() = true
 
+    override fun onCreate() {
+
+        super.onCreate()
+
+        registerAnalyticsBackends()
+
+        AnalyticsDispatcher.start()
+    }
+
     override fun initFirebaseWithAnalytics() {
 
         Console.log("Analytics :: Init :: START")
@@ -25,4 +37,17 @@ abstract class AnalyticsApplication : BaseApplication() {
             FacebookSdk.addLoggingBehavior(LoggingBehavior.APP_EVENTS)
         }
     }
-}
\ No newline at end of file
+
+    /*
+        Backends of the persisted events must be registered before the dispatcher starts.
+    */
+    protected open fun registerAnalyticsBackends() {
+
+        AnalyticsDispatcher.register(FirebaseAnalytics.ID, FirebaseAnalytics())
+
+        if (facebookAnalyticsEnabled) {
+
+            AnalyticsDispatcher.register(FacebookAnalytics.ID, FacebookAnalytics())
+        }
+    }
+}
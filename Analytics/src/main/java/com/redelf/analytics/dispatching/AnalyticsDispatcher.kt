@@ -0,0 +1,515 @@
+package com.redelf.analytics.dispatching
+
+import android.os.Handler
+import android.os.Looper
+import androidx.lifecycle.DefaultLifecycleObserver
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.ProcessLifecycleOwner
+import com.redelf.analytics.Analytics
+import com.redelf.analytics.AnalyticsParameter
+import com.redelf.commons.application.BaseApplication
+import com.redelf.commons.extensions.recordException
+import com.redelf.commons.logging.Console
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/*
+    Sits between the AnalyticsBuilder and the Analytics backends.
+
+    The caller only takes a snapshot of the event and puts it into the queue. The events are
+    sampled (per event name) and, once a deduplication window is set, the same event sent again
+    within the window is dropped. The queue is drained on the dispatcher thread when the batch
+    is full, when the flush interval passes and when the application goes to background.
+
+    Events that could not be logged, or were still queued when the application went to
+    background, are written to disk and queued again on the next start. Only the events of the
+    registered backends are written, they are restored by the backend id; class names are not
+    stable once the code is obfuscated.
+*/
+object AnalyticsDispatcher {
+
+    val DEBUG = AtomicBoolean()
+
+    /*
+        When disabled the builder logs to the backends directly.
+    */
+    val ENABLED = AtomicBoolean(true)
+
+    private const val TAG = "Analytics :: Dispatcher ::"
+    private const val DIRECTORY = "analytics"
+    private const val FILE = "pending.jsonl"
+    private const val MAX_ATTEMPTS = 3
+    private const val MAX_QUEUED = 2000
+    private const val MAX_PERSISTED = 1000
+
+    private val batchSize = AtomicInteger(20)
+    private val flushInterval = AtomicLong(5000L)
+    private val deduplicationWindow = AtomicLong(0L)
+
+    private val queue = ConcurrentLinkedQueue<AnalyticsEvent>()
+    private val queued = AtomicInteger()
+    private val sampling = ConcurrentHashMap<String, Double>()
+    private val recent = ConcurrentHashMap<String, Long>()
+    private val backends = ConcurrentHashMap<String, Analytics>()
+
+    private val started = AtomicBoolean()
+    private val flushScheduled = AtomicBoolean()
+
+    private val enqueued = AtomicLong()
+    private val sampledOut = AtomicLong()
+    private val deduplicated = AtomicLong()
+    private val overflowed = AtomicLong()
+    private val dispatched = AtomicLong()
+    private val failed = AtomicLong()
+    private val persisted = AtomicLong()
+    private val restored = AtomicLong()
+    private val enqueueNanos = AtomicLong()
+    private val maxEnqueueNanos = AtomicLong()
+
+    private val scheduler: ScheduledExecutorService by lazy {
+
+        Executors.newSingleThreadScheduledExecutor()
+    }
+
+    private val lifecycleObserver = object : DefaultLifecycleObserver {
+
+        override fun onStop(owner: LifecycleOwner) {
+
+            flush(persist = true)
+        }
+    }
+
+    /*
+        The id is written with the persisted events, it must not change between the versions.
+    */
+    fun register(id: String, backend: Analytics) {
+
+        backends[id] = backend
+    }
+
+    /*
+        Restores the events persisted by the previous run and starts flushing on background.
+        Called on the application start, after the backends are registered.
+    */
+    fun start() {
+
+        if (!started.compareAndSet(false, true)) {
+
+            return
+        }
+
+        try {
+
+            scheduler.execute { restore() }
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+
+        Handler(Looper.getMainLooper()).post {
+
+            try {
+
+                ProcessLifecycleOwner.get().lifecycle.addObserver(lifecycleObserver)
+
+            } catch (e: Throwable) {
+
+                recordException(e)
+            }
+        }
+    }
+
+    fun setBatchSize(value: Int) = batchSize.set(value.coerceAtLeast(1))
+
+    fun setFlushInterval(value: Long) = flushInterval.set(value.coerceAtLeast(0L))
+
+    fun setDeduplicationWindow(value: Long) = deduplicationWindow.set(value.coerceAtLeast(0L))
+
+    /*
+        Keeps the given share (0.0 - 1.0) of the events with the name.
+    */
+    fun setSampling(event: String, rate: Double) {
+
+        sampling[event] = rate.coerceIn(0.0, 1.0)
+    }
+
+    fun clearSampling(event: String) {
+
+        sampling.remove(event)
+    }
+
+    /*
+        Returns false when the event was sampled out, deduplicated or the queue is full.
+    */
+    fun enqueue(backend: Analytics, vararg params: AnalyticsParameter<*>?): Boolean {
+
+        val began = System.nanoTime()
+
+        try {
+
+            start()
+
+            return enqueue(AnalyticsEvent.from(backend, identify(backend), params))
+
+        } finally {
+
+            val elapsed = System.nanoTime() - began
+
+            enqueueNanos.addAndGet(elapsed)
+            maxEnqueueNanos.accumulateAndGet(elapsed) { a, b -> maxOf(a, b) }
+        }
+    }
+
+    /*
+        Logs everything queued on the dispatcher thread.
+    */
+    fun flush(persist: Boolean = false) {
+
+        try {
+
+            scheduler.execute { drain(persist) }
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+    }
+
+    fun getStats(): Stats {
+
+        val count = enqueued.get()
+
+        return Stats(
+
+            enqueued = count,
+            sampledOut = sampledOut.get(),
+            deduplicated = deduplicated.get(),
+            overflowed = overflowed.get(),
+            dispatched = dispatched.get(),
+            failed = failed.get(),
+            persisted = persisted.get(),
+            restored = restored.get(),
+            queued = queued.get(),
+            averageEnqueueNanos = if (count > 0) enqueueNanos.get() / count else 0L,
+            maxEnqueueNanos = maxEnqueueNanos.get()
+        )
+    }
+
+    private fun enqueue(event: AnalyticsEvent): Boolean {
+
+        event.name?.let { name ->
+
+            sampling[name]?.let { rate ->
+
+                if (ThreadLocalRandom.current().nextDouble() >= rate) {
+
+                    sampledOut.incrementAndGet()
+
+                    return false
+                }
+            }
+        }
+
+        event.key?.let { key ->
+
+            val window = deduplicationWindow.get()
+
+            if (window > 0) {
+
+                val previous = recent.put(key, event.timestamp)
+
+                if (previous != null && event.timestamp - previous < window) {
+
+                    deduplicated.incrementAndGet()
+
+                    return false
+                }
+            }
+        }
+
+        if (queued.get() >= MAX_QUEUED) {
+
+            overflowed.incrementAndGet()
+
+            return false
+        }
+
+        queue.add(event)
+
+        enqueued.incrementAndGet()
+
+        if (queued.incrementAndGet() >= batchSize.get()) {
+
+            flush()
+
+        } else {
+
+            scheduleFlush()
+        }
+
+        return true
+    }
+
+    private fun scheduleFlush() {
+
+        if (!flushScheduled.compareAndSet(false, true)) {
+
+            return
+        }
+
+        try {
+
+            scheduler.schedule(
+
+                Runnable {
+
+                    flushScheduled.set(false)
+
+                    drain(persist = false)
+                },
+
+                flushInterval.get(),
+                TimeUnit.MILLISECONDS
+            )
+
+        } catch (e: Throwable) {
+
+            flushScheduled.set(false)
+
+            recordException(e)
+        }
+    }
+
+    /*
+        Runs on the dispatcher thread only.
+    */
+    private fun drain(persist: Boolean) {
+
+        val retry = mutableListOf<AnalyticsEvent>()
+        var count = 0
+
+        while (true) {
+
+            val event = queue.poll() ?: break
+
+            queued.decrementAndGet()
+
+            if (log(event)) {
+
+                count++
+
+            } else if (++event.attempts < MAX_ATTEMPTS) {
+
+                retry.add(event)
+            }
+        }
+
+        pruneRecent()
+
+        if (DEBUG.get()) Console.log(
+
+            "$TAG Drained :: Dispatched = $count, Retry = ${retry.size}, Persist = $persist"
+        )
+
+        if (persist || retry.isNotEmpty()) {
+
+            persist(retry)
+
+        } else {
+
+            getFile()?.delete()
+        }
+    }
+
+    private fun log(event: AnalyticsEvent): Boolean {
+
+        val backend = event.instance ?: event.backend?.let { backends[it] }
+
+        if (backend == null) {
+
+            failed.incrementAndGet()
+
+            Console.error("$TAG No backend :: $event")
+
+            return false
+        }
+
+        try {
+
+            backend.log(*event.getParameters())
+
+            dispatched.incrementAndGet()
+
+            return true
+
+        } catch (e: IllegalArgumentException) {
+
+            /*
+                The event itself is invalid, it would fail again.
+            */
+            event.attempts = MAX_ATTEMPTS
+
+            failed.incrementAndGet()
+
+            recordException(e)
+
+        } catch (e: Throwable) {
+
+            failed.incrementAndGet()
+
+            recordException(e)
+        }
+
+        return false
+    }
+
+    private fun identify(backend: Analytics): String? {
+
+        backends.forEach { (id, registered) ->
+
+            if (registered === backend || registered.javaClass == backend.javaClass) {
+
+                return id
+            }
+        }
+
+        return null
+    }
+
+    private fun persist(events: List<AnalyticsEvent>) {
+
+        val file = getFile() ?: return
+        val lines = events.mapNotNull { it.toJson() }.toMutableList()
+
+        /*
+            The events still waiting in memory are written too, in case the process dies.
+        */
+        queue.forEach { event -> event.toJson()?.let { lines.add(it) } }
+
+        try {
+
+            if (lines.isEmpty()) {
+
+                file.delete()
+
+                return
+            }
+
+            file.parentFile?.mkdirs()
+
+            val temporary = File(file.parentFile, "$FILE.tmp")
+
+            temporary.writeText(lines.takeLast(MAX_PERSISTED).joinToString("\n"))
+
+            if (!temporary.renameTo(file)) {
+
+                temporary.delete()
+
+                Console.error("$TAG Pending events not written")
+
+                return
+            }
+
+            persisted.addAndGet(events.size.toLong())
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+
+        events.forEach { queue.add(it) }
+
+        queued.addAndGet(events.size)
+
+        scheduleFlush()
+    }
+
+    private fun restore() {
+
+        val file = getFile() ?: return
+
+        if (!file.exists()) {
+
+            return
+        }
+
+        try {
+
+            file.readLines().forEach { line ->
+
+                if (line.isBlank()) {
+
+                    return@forEach
+                }
+
+                try {
+
+                    queue.add(AnalyticsEvent.fromJson(line))
+
+                    queued.incrementAndGet()
+                    restored.incrementAndGet()
+
+                } catch (e: IllegalArgumentException) {
+
+                    recordException(e)
+                }
+            }
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+
+        if (DEBUG.get()) Console.log("$TAG Restored :: Count = ${restored.get()}")
+
+        if (!queue.isEmpty()) {
+
+            scheduleFlush()
+        }
+    }
+
+    private fun pruneRecent() {
+
+        val threshold = System.currentTimeMillis() - deduplicationWindow.get()
+
+        recent.entries.removeIf { it.value < threshold }
+    }
+
+    private fun getFile(): File? {
+
+        return try {
+
+            File(File(BaseApplication.takeContext().filesDir, DIRECTORY), FILE)
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+
+            null
+        }
+    }
+
+    data class Stats(
+
+        val enqueued: Long,
+        val sampledOut: Long,
+        val deduplicated: Long,
+        val overflowed: Long,
+        val dispatched: Long,
+        val failed: Long,
+        val persisted: Long,
+        val restored: Long,
+        val queued: Int,
+        val averageEnqueueNanos: Long,
+        val maxEnqueueNanos: Long
+    )
+}
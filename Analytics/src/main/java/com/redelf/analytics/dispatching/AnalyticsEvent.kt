@@ -0,0 +1,222 @@
+package com.redelf.analytics.dispatching
+
+import com.redelf.analytics.Analytics
+import com.redelf.analytics.AnalyticsParameter
+import org.json.JSONArray
+import org.json.JSONObject
+
+/*
+    Event taken from the builder with its parameters already obtained, so it no longer depends
+    on the caller's objects and can be logged later from the dispatcher thread.
+
+    The parameter values keep their structure (strings, pairs, lists and nested parameters)
+    and are rebuilt into parameters when logged. Events made of those only, for a backend
+    registered with the dispatcher, can be written to disk: the backend is referenced by its
+    registered id. Anything else is kept as is and stays in memory.
+*/
+class AnalyticsEvent private constructor(
+
+    val backend: String?,
+    val instance: Analytics?,
+    val name: String?,
+    val timestamp: Long,
+    private val values: List<Any?>,
+    val persistable: Boolean,
+    val key: String?,
+    var attempts: Int = 0
+) {
+
+    companion object {
+
+        private const val TYPE = "t"
+        private const val VALUE = "v"
+        private const val FIRST = "f"
+        private const val SECOND = "s"
+
+        private const val TYPE_NULL = "n"
+        private const val TYPE_STRING = "s"
+        private const val TYPE_PAIR = "p"
+        private const val TYPE_LIST = "l"
+        private const val TYPE_PARAMETER = "a"
+
+        private const val KEY_BACKEND = "backend"
+        private const val KEY_TIMESTAMP = "timestamp"
+        private const val KEY_ATTEMPTS = "attempts"
+        private const val KEY_VALUES = "values"
+
+        fun from(
+
+            backend: Analytics,
+            id: String?,
+            params: Array<out AnalyticsParameter<*>?>,
+            timestamp: Long = System.currentTimeMillis()
+
+        ): AnalyticsEvent {
+
+            val values = params.map { snapshot(it) }
+            val json = toJson(values)
+
+            return AnalyticsEvent(
+
+                backend = id,
+                instance = backend,
+                name = (values.firstOrNull() as? Parameter)?.value as? String,
+                timestamp = timestamp,
+                values = values,
+                persistable = json != null && id != null,
+                key = json?.let { "${id ?: backend.javaClass.name}:$it" }
+            )
+        }
+
+        @Throws(IllegalArgumentException::class)
+        fun fromJson(json: String): AnalyticsEvent {
+
+            try {
+
+                val obj = JSONObject(json)
+                val array = obj.getJSONArray(KEY_VALUES)
+                val values = (0 until array.length()).map { fromJsonValue(array.get(it)) }
+
+                return AnalyticsEvent(
+
+                    backend = obj.getString(KEY_BACKEND),
+                    instance = null,
+                    name = (values.firstOrNull() as? Parameter)?.value as? String,
+                    timestamp = obj.getLong(KEY_TIMESTAMP),
+                    values = values,
+                    persistable = true,
+                    key = "${obj.getString(KEY_BACKEND)}:$array",
+                    attempts = obj.optInt(KEY_ATTEMPTS)
+                )
+
+            } catch (e: Throwable) {
+
+                throw IllegalArgumentException("Invalid analytics event", e)
+            }
+        }
+
+        private fun snapshot(value: Any?): Any? = when (value) {
+
+            null -> null
+            is String -> value
+            is AnalyticsParameter<*> -> Parameter(snapshot(value.obtain()))
+            is Pair<*, *> -> Pair(snapshot(value.first), snapshot(value.second))
+            is List<*> -> value.map { snapshot(it) }
+            else -> value
+        }
+
+        private fun rebuild(value: Any?): Any? = when (value) {
+
+            is Parameter -> {
+
+                val obtained = rebuild(value.value)
+
+                object : AnalyticsParameter<Any?> {
+
+                    override fun obtain() = obtained
+                }
+            }
+
+            is Pair<*, *> -> Pair(rebuild(value.first), rebuild(value.second))
+            is List<*> -> value.map { rebuild(it) }
+            else -> value
+        }
+
+        private fun toJson(values: List<Any?>): String? {
+
+            val array = JSONArray()
+
+            values.forEach {
+
+                array.put(toJsonValue(it) ?: return null)
+            }
+
+            return array.toString()
+        }
+
+        private fun toJsonValue(value: Any?): JSONObject? {
+
+            val obj = JSONObject()
+
+            when (value) {
+
+                null -> obj.put(TYPE, TYPE_NULL)
+
+                is String -> obj.put(TYPE, TYPE_STRING).put(VALUE, value)
+
+                is Parameter -> obj.put(TYPE, TYPE_PARAMETER)
+                    .put(VALUE, toJsonValue(value.value) ?: return null)
+
+                is Pair<*, *> -> obj.put(TYPE, TYPE_PAIR)
+                    .put(FIRST, toJsonValue(value.first) ?: return null)
+                    .put(SECOND, toJsonValue(value.second) ?: return null)
+
+                is List<*> -> {
+
+                    val array = JSONArray()
+
+                    value.forEach { array.put(toJsonValue(it) ?: return null) }
+
+                    obj.put(TYPE, TYPE_LIST).put(VALUE, array)
+                }
+
+                else -> return null
+            }
+
+            return obj
+        }
+
+        private fun fromJsonValue(json: Any?): Any? {
+
+            val obj = json as JSONObject
+
+            return when (val type = obj.getString(TYPE)) {
+
+                TYPE_NULL -> null
+                TYPE_STRING -> obj.getString(VALUE)
+                TYPE_PARAMETER -> Parameter(fromJsonValue(obj.get(VALUE)))
+
+                TYPE_PAIR -> Pair(
+
+                    fromJsonValue(obj.get(FIRST)),
+                    fromJsonValue(obj.get(SECOND))
+                )
+
+                TYPE_LIST -> {
+
+                    val array = obj.getJSONArray(VALUE)
+
+                    (0 until array.length()).map { fromJsonValue(array.get(it)) }
+                }
+
+                else -> throw IllegalArgumentException("Unknown value type: $type")
+            }
+        }
+    }
+
+    private class Parameter(val value: Any?)
+
+    fun getParameters(): Array<AnalyticsParameter<*>?> {
+
+        return values.map { rebuild(it) as AnalyticsParameter<*>? }.toTypedArray()
+    }
+
+    fun toJson(): String? {
+
+        if (!persistable) {
+
+            return null
+        }
+
+        val obj = JSONObject()
+
+        obj.put(KEY_BACKEND, backend)
+        obj.put(KEY_TIMESTAMP, timestamp)
+        obj.put(KEY_ATTEMPTS, attempts)
+        obj.put(KEY_VALUES, JSONArray(toJson(values)))
+
+        return obj.toString()
+    }
+
+    override fun toString() = "AnalyticsEvent(backend='$backend', name=$name, attempts=$attempts)"
+}
@@ -13,6 +13,14 @@ import com.redelf.commons.logging.Console
 
 class FacebookAnalytics : Analytics {
 
+    companion object {
+
+        /*
+            Id of the backend registered with the dispatcher.
+        */
+        const val ID = "facebook"
+    }
+
     private val tag = "Analytics :: Facebook ::"
 
     @Throws(IllegalArgumentException::class)
@@ -13,6 +13,14 @@ import com.redelf.commons.logging.Console
 
 class FirebaseAnalytics : Analytics {
 
+    companion object {
+
+        /*
+            Id of the backend registered with the dispatcher.
+        */
+        const val ID = "firebase"
+    }
+
     private val tag = "Analytics :: Firebase ::"
 
     @Throws(IllegalArgumentException::class)
@@ -32,9 +40,6 @@ class FirebaseAnalytics : Analytics {
 
             val analyticEvent = FirebaseAnalyticsEvent(param = Pair(key, value ?: ""))
 
-            val paramLog = "Bundle :: Key: = '${analyticEvent.param?.first}', " +
-                    "Value = '${analyticEvent.param?.second}'"
-
             analyticEvent.param?.let {
 
                 bundle.putString(analyticEvent.param.first, analyticEvent.param.second)
@@ -48,7 +53,11 @@ class FirebaseAnalytics : Analytics {
 
                 Firebase.analytics.logEvent(key, bundle)
 
-                Console.log("$tag Logged event :: $paramLog")
+                Console.log {
+
+                    "$tag Logged event :: Bundle :: Key: = '${analyticEvent.param?.first}', " +
+                            "Value = '${analyticEvent.param?.second}'"
+                }
             }
         }
 
@@ -23,6 +23,8 @@ class EchoInterprocessProcessor(private val ctx: Context) : InterprocessProcesso
         Console.log("$tag Created")
     }
 
+    override fun getFunctions() = setOf(ACTION_HELLO, ACTION_ECHO)
+
     override fun onData(data: InterprocessData) {
 
         Console.log("$tag Received data: $data")
@@ -0,0 +1,135 @@
+package com.redelf.commons.connectivity.indicator.test
+
+import com.redelf.commons.connectivity.indicator.stateful.StateAggregator
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.extensions.yieldWhile
+import com.redelf.commons.logging.Console
+import com.redelf.commons.net.connectivity.ConnectionState
+import com.redelf.commons.stateful.GetState
+import com.redelf.commons.stateful.State
+import com.redelf.commons.test.BaseTest
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+
+class StateAggregatorTest : BaseTest() {
+
+    private val aggregates = CopyOnWriteArrayList<State<Int>>()
+    private val servicesChanges = AtomicInteger()
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+
+        aggregates.clear()
+        servicesChanges.set(0)
+    }
+
+    @Test
+    fun testChangesAreCoalesced() {
+
+        val first = TestService(ConnectionState.Connected)
+        val second = TestService(ConnectionState.Connected)
+        val aggregator = instantiate()
+
+        aggregator.add(first)
+        aggregator.add(second)
+
+        yieldWhile(timeoutInMilliseconds = 3000) { aggregates.isEmpty() }
+
+        Assert.assertEquals(listOf(ConnectionState.Connected), aggregates.toList())
+
+        repeat(10) {
+
+            aggregator.onState(first, ConnectionState.Disconnected)
+            aggregator.onState(first, ConnectionState.Connected)
+        }
+
+        aggregator.onState(first, ConnectionState.Disconnected)
+
+        yieldWhile(timeoutInMilliseconds = 3000) { aggregates.size < 2 }
+
+        Assert.assertEquals(
+
+            listOf(ConnectionState.Connected, ConnectionState.Warning),
+            aggregates.toList()
+        )
+
+        Assert.assertEquals(ConnectionState.Warning, aggregator.getState())
+        Assert.assertTrue(aggregator.getStats().getCoalesced() > 0)
+
+        aggregator.onState(second, ConnectionState.Disconnected)
+
+        yieldWhile(timeoutInMilliseconds = 3000) { aggregates.size < 3 }
+
+        Assert.assertEquals(ConnectionState.Disconnected, aggregator.getState())
+    }
+
+    @Test
+    fun testServiceChangesKeepingTheAggregate() {
+
+        val first = TestService(ConnectionState.Connected)
+        val second = TestService(ConnectionState.Disconnected)
+        val aggregator = instantiate()
+
+        aggregator.add(first)
+        aggregator.add(second)
+
+        yieldWhile(timeoutInMilliseconds = 3000) { aggregates.isEmpty() }
+
+        Assert.assertEquals(listOf(ConnectionState.Warning), aggregates.toList())
+
+        val changes = servicesChanges.get()
+
+        /*
+            Other not connected state of the same service: the aggregate stays Warning.
+        */
+        aggregator.onState(second, ConnectionState.Unavailable)
+
+        yieldWhile(timeoutInMilliseconds = 3000) { servicesChanges.get() == changes }
+
+        Assert.assertEquals(changes + 1, servicesChanges.get())
+        Assert.assertEquals(listOf(ConnectionState.Warning), aggregates.toList())
+
+        /*
+            A new not connected service keeps the aggregate too.
+        */
+        aggregator.add(TestService(ConnectionState.Disconnected))
+
+        yieldWhile(timeoutInMilliseconds = 3000) { servicesChanges.get() == changes + 1 }
+
+        Assert.assertEquals(changes + 2, servicesChanges.get())
+        Assert.assertEquals(listOf(ConnectionState.Warning), aggregates.toList())
+
+        /*
+            The same state reported again is not a change.
+        */
+        aggregator.onState(second, ConnectionState.Unavailable)
+
+        Thread.sleep(500)
+
+        Assert.assertEquals(changes + 2, servicesChanges.get())
+    }
+
+    private fun instantiate() = StateAggregator(
+
+        debounce = 50L,
+        onServicesChanged = { servicesChanges.incrementAndGet() }
+
+    ) { state ->
+
+        aggregates.add(state)
+    }
+
+    private class TestService(private val state: State<Int>) : GetState<Int> {
+
+        override fun getState() = state
+    }
+}
@@ -0,0 +1,14 @@
+package com.redelf.commons.connectivity.indicator.test.suite
+
+import com.redelf.commons.connectivity.indicator.test.StateAggregatorTest
+import org.junit.runner.RunWith
+import org.junit.runners.Suite
+import org.junit.runners.Suite.SuiteClasses
+
+@SuiteClasses(
+
+    StateAggregatorTest::class
+
+)
+@RunWith(Suite::class)
+class ConnectionIndicatorAll
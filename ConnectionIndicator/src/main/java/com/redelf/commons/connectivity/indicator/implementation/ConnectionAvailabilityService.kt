@@ -20,6 +20,8 @@ import com.redelf.commons.obtain.Obtain
 import com.redelf.commons.stateful.State
 import java.util.concurrent.CopyOnWriteArraySet
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
 
 abstract class ConnectionAvailabilityService(
 
@@ -105,6 +107,10 @@ abstract class ConnectionAvailabilityService(
 
     protected var cHandler: StatefulBasicConnectionHandler? = null
 
+    private val evaluationScheduled = AtomicBoolean()
+    private val changesReceived = AtomicLong()
+    private val evaluations = AtomicLong()
+
     private val chainedStateListener = object : ConnectivityStateCallback() {
 
         override fun onStateChanged(whoseState: Class<*>?) = Unit
@@ -185,9 +191,26 @@ abstract class ConnectionAvailabilityService(
         return this
     }
 
+    /*
+        Changes arriving while an evaluation is already scheduled are coalesced into it.
+    */
     override fun onStateChanged(whoseState: Class<*>?) {
 
-        withConnectionHandler {
+        changesReceived.incrementAndGet()
+
+        if (!evaluationScheduled.compareAndSet(false, true)) {
+
+            return
+        }
+
+        withConnectionHandler(
+
+            onRejected = { evaluationScheduled.set(false) }
+
+        ) {
+
+            evaluationScheduled.set(false)
+            evaluations.incrementAndGet()
 
             if (it.isNetworkAvailable(takeContext())) {
 
@@ -251,11 +274,26 @@ abstract class ConnectionAvailabilityService(
         return ConnectionState.Disconnected
     }
 
-    protected fun withConnectionHandler(doWhat: (handler: ConnectivityHandler) -> Unit) {
+    /*
+        Received state changes versus the evaluations they have been coalesced into.
+    */
+    fun getEvaluationStats() = Pair(changesReceived.get(), evaluations.get())
+
+    protected fun withConnectionHandler(
+
+        onRejected: () -> Unit = {},
+        doWhat: (handler: ConnectivityHandler) -> Unit
+
+    ) {
 
         exec(
 
-            onRejected = { err -> recordException(err) }
+            onRejected = { err ->
+
+                onRejected()
+
+                recordException(err)
+            }
 
         ) {
 
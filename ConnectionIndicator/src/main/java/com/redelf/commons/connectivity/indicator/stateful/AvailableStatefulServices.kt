@@ -1,6 +1,9 @@
 package com.redelf.commons.connectivity.indicator.stateful
 
+import com.redelf.commons.callback.CallbackOperation
+import com.redelf.commons.callback.Callbacks
 import com.redelf.commons.connectivity.indicator.AvailableService
+import com.redelf.commons.connectivity.indicator.connection.ConnectivityStateCallback
 import com.redelf.commons.creation.instantiation.SingleInstantiated
 import com.redelf.commons.extensions.recordException
 import com.redelf.commons.lifecycle.termination.TerminationAsync
@@ -11,6 +14,7 @@ import com.redelf.commons.net.connectivity.ConnectivityStateChanges
 import com.redelf.commons.registration.Registration
 import com.redelf.commons.stateful.GetState
 import com.redelf.commons.stateful.State
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.CopyOnWriteArraySet
 
 class AvailableStatefulServices
@@ -25,6 +29,49 @@ constructor(
 
     private val services: CopyOnWriteArraySet<AvailableStatefulService> = CopyOnWriteArraySet()
 
+    private val listeners = ConcurrentHashMap<AvailableStatefulService, ConnectivityStateCallback>()
+
+    private val subscribers = Callbacks<ConnectivityStateChanges>("Available stateful services")
+
+    /*
+        Subscribers receive the aggregated state, coalesced within the debounce window, instead
+        of every change of every service. Changes of the services which keep the aggregate are
+        reported with onStateChanged, the services are then asked for their states.
+    */
+    private val aggregator = StateAggregator(
+
+        onServicesChanged = {
+
+            subscribers.doOnAll(
+
+                object : CallbackOperation<ConnectivityStateChanges> {
+
+                    override fun perform(callback: ConnectivityStateChanges) {
+
+                        callback.onStateChanged(AvailableStatefulServices::class.java)
+                    }
+                },
+
+                operationName = "Services_State_Changed"
+            )
+        }
+
+    ) { state ->
+
+        subscribers.doOnAll(
+
+            object : CallbackOperation<ConnectivityStateChanges> {
+
+                override fun perform(callback: ConnectivityStateChanges) {
+
+                    callback.onState(state, AvailableStatefulServices::class.java)
+                }
+            },
+
+            operationName = "Aggregated_State"
+        )
+    }
+
     init {
 
         services.clear()
@@ -42,41 +89,56 @@ constructor(
 
     override fun register(subscriber: ConnectivityStateChanges) {
 
-        services.forEach { service ->
-
-            service.register(subscriber)
-        }
+        subscribers.register(subscriber)
     }
 
     override fun unregister(subscriber: ConnectivityStateChanges) {
 
-        services.forEach { service ->
-
-            service.unregister(subscriber)
-        }
+        subscribers.unregister(subscriber)
     }
 
     override fun isRegistered(subscriber: ConnectivityStateChanges): Boolean {
 
-        services.forEach { service ->
+        return subscribers.isRegistered(subscriber)
+    }
+
+    fun addService(service: AvailableStatefulService) {
+
+        if (!services.add(service)) {
+
+            return
+        }
 
-            if (service.isRegistered(subscriber)) {
+        val listener = object : ConnectivityStateCallback() {
 
-                return true
+            override fun onStateChanged(whoseState: Class<*>?) {
+
+                aggregator.onChanged(service)
+            }
+
+            override fun onState(state: State<Int>, whoseState: Class<*>?) {
+
+                aggregator.onState(service, state)
             }
         }
 
-        return false
-    }
+        listeners[service] = listener
 
-    fun addService(service: AvailableStatefulService) {
+        service.register(listener)
 
-        services.add(service)
+        aggregator.add(service)
     }
 
     fun removeService(service: AvailableStatefulService) {
 
         services.remove(service)
+
+        listeners.remove(service)?.let {
+
+            service.unregister(it)
+        }
+
+        aggregator.remove(service)
     }
 
     fun hasService(service: AvailableService): Boolean {
@@ -101,8 +163,16 @@ constructor(
         return items.toList()
     }
 
+    /*
+        The incrementally maintained aggregate once the first evaluation has completed.
+    */
     override fun getState(): State<Int> {
 
+        if (aggregator.getStats().flushes > 0) {
+
+            return aggregator.getState()
+        }
+
         val tag = "$tag Get state ::"
 
         Console.log("$tag START")
@@ -145,6 +215,8 @@ constructor(
         return ConnectionState.Warning
     }
 
+    fun getAggregationStats() = aggregator.getStats()
+
     fun getState(clazz: Class<*>): State<Int> {
 
         val name = clazz.simpleName
@@ -179,6 +251,14 @@ constructor(
                     "- ${service.hashCode()}"
         )
 
+        listeners.forEach { (service, listener) ->
+
+            service.unregister(listener)
+        }
+
+        listeners.clear()
+        aggregator.clear()
+
         services.forEach { service ->
 
             /*
@@ -0,0 +1,275 @@
+package com.redelf.commons.connectivity.indicator.stateful
+
+import com.redelf.commons.extensions.exec
+import com.redelf.commons.extensions.recordException
+import com.redelf.commons.logging.Console
+import com.redelf.commons.net.connectivity.ConnectionState
+import com.redelf.commons.stateful.GetState
+import com.redelf.commons.stateful.State
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
+
+/*
+    Aggregates the states of the services.
+
+    Changes reported within the debounce window are coalesced: every service is evaluated
+    once per flush, no matter how many events it has produced. The aggregate is kept up to
+    date incrementally (the count of the services that are not connected) and it is emitted
+    only when it differs from the previously emitted one. When the states of the services
+    changed (or services were added or removed) without changing the aggregate, the services
+    change is emitted instead, so per-service views stay current.
+*/
+class StateAggregator(
+
+    private val debounce: Long = 250L,
+    private val onServicesChanged: () -> Unit = {},
+    private val onAggregate: (state: State<Int>) -> Unit
+
+) {
+
+    companion object {
+
+        val DEBUG = AtomicBoolean()
+
+        private const val TAG = "State aggregator ::"
+        private const val UNKNOWN = Int.MIN_VALUE
+
+        private val scheduler: ScheduledExecutorService by lazy {
+
+            Executors.newSingleThreadScheduledExecutor()
+        }
+    }
+
+    private val flushScheduled = AtomicBoolean()
+    private val membershipChanged = AtomicBoolean()
+    private val notConnected = AtomicInteger()
+
+    private val received = AtomicLong()
+    private val flushes = AtomicLong()
+    private val emitted = AtomicLong()
+
+    private val states = ConcurrentHashMap<GetState<Int>, Int>()
+    private val dirty = ConcurrentHashMap<GetState<Int>, Int>()
+    private val aggregate = AtomicReference<State<Int>>(ConnectionState.Unavailable)
+    private val lastEmitted = AtomicReference<State<Int>?>()
+
+    fun add(service: GetState<Int>) {
+
+        states.putIfAbsent(service, ConnectionState.Unavailable.getState())?.let {
+
+            return
+        }
+
+        notConnected.incrementAndGet()
+        membershipChanged.set(true)
+
+        onChanged(service)
+    }
+
+    fun remove(service: GetState<Int>) {
+
+        dirty.remove(service)
+
+        states.remove(service)?.let {
+
+            if (it != ConnectionState.Connected.getState()) {
+
+                notConnected.decrementAndGet()
+            }
+
+            membershipChanged.set(true)
+
+            recompute()
+            scheduleFlush()
+        }
+    }
+
+    /*
+        The service reported its new state.
+    */
+    fun onState(service: GetState<Int>, state: State<Int>) {
+
+        received.incrementAndGet()
+
+        dirty[service] = state.getState()
+
+        scheduleFlush()
+    }
+
+    /*
+        The service reported a change without the state, it is asked for it on the flush.
+    */
+    fun onChanged(service: GetState<Int>) {
+
+        received.incrementAndGet()
+
+        dirty.putIfAbsent(service, UNKNOWN)
+
+        scheduleFlush()
+    }
+
+    fun getState(): State<Int> = aggregate.get()
+
+    fun getStats() = Stats(
+
+        received = received.get(),
+        flushes = flushes.get(),
+        emitted = emitted.get()
+    )
+
+    fun clear() {
+
+        dirty.clear()
+        states.clear()
+        notConnected.set(0)
+        membershipChanged.set(false)
+        aggregate.set(ConnectionState.Unavailable)
+        lastEmitted.set(null)
+    }
+
+    private fun scheduleFlush() {
+
+        if (!flushScheduled.compareAndSet(false, true)) {
+
+            return
+        }
+
+        try {
+
+            scheduler.schedule(
+
+                Runnable {
+
+                    exec(
+
+                        onRejected = { e ->
+
+                            flushScheduled.set(false)
+
+                            recordException(e)
+                        }
+
+                    ) {
+
+                        flush()
+                    }
+                },
+
+                debounce,
+                TimeUnit.MILLISECONDS
+            )
+
+        } catch (e: Throwable) {
+
+            flushScheduled.set(false)
+
+            recordException(e)
+        }
+    }
+
+    @Synchronized
+    private fun flush() {
+
+        /*
+            Events arriving from now on are handled by the next flush.
+        */
+        flushScheduled.set(false)
+
+        flushes.incrementAndGet()
+
+        var changed = membershipChanged.getAndSet(false)
+
+        dirty.keys.forEach { service ->
+
+            val reported = dirty.remove(service) ?: return@forEach
+
+            val state = if (reported == UNKNOWN) {
+
+                service.getState().getState()
+
+            } else {
+
+                reported
+            }
+
+            if (apply(service, state)) {
+
+                changed = true
+            }
+        }
+
+        recompute()
+
+        val state = aggregate.get()
+
+        if (lastEmitted.getAndSet(state) != state) {
+
+            emitted.incrementAndGet()
+
+            if (DEBUG.get()) Console.log("$TAG Emit :: State = $state, Stats = ${getStats()}")
+
+            onAggregate(state)
+
+        } else if (changed) {
+
+            emitted.incrementAndGet()
+
+            if (DEBUG.get()) Console.log("$TAG Emit :: Services changed, Stats = ${getStats()}")
+
+            onServicesChanged()
+        }
+    }
+
+    /*
+        Returns true when the state of the service has changed.
+    */
+    private fun apply(service: GetState<Int>, state: Int): Boolean {
+
+        val connected = ConnectionState.Connected.getState()
+        val previous = states.replace(service, state) ?: return false
+
+        if (previous == connected && state != connected) {
+
+            notConnected.incrementAndGet()
+
+        } else if (previous != connected && state == connected) {
+
+            notConnected.decrementAndGet()
+        }
+
+        return previous != state
+    }
+
+    private fun recompute() {
+
+        val total = states.size
+        val failed = notConnected.get()
+
+        val state = when {
+
+            total == 0 -> ConnectionState.Unavailable
+            failed == 0 -> ConnectionState.Connected
+            failed >= total -> ConnectionState.Disconnected
+            else -> ConnectionState.Warning
+        }
+
+        aggregate.set(state)
+    }
+
+    data class Stats(
+
+        val received: Long,
+        val flushes: Long,
+        val emitted: Long
+
+    ) {
+
+        fun getCoalesced() = received - emitted
+    }
+}
@@ -3,6 +3,7 @@ package com.redelf.commons.connectivity.indicator.view
 import android.app.Activity
 import android.content.Context
 import android.util.AttributeSet
+import android.view.Choreographer
 import android.view.LayoutInflater
 import android.widget.ImageButton
 import android.widget.RelativeLayout
@@ -25,6 +26,7 @@ import com.redelf.commons.net.connectivity.ConnectionState
 import com.redelf.commons.net.connectivity.Reconnect
 import com.redelf.commons.stateful.State
 import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
 
 class ConnectivityIndicator :
 
@@ -50,6 +52,9 @@ class ConnectivityIndicator :
     var iconDisconnectedState = R.drawable.ic_link_off
 
     private val initializing = AtomicBoolean()
+    private val frameScheduled = AtomicBoolean()
+    private val updatesRequested = AtomicLong()
+    private val updatesRendered = AtomicLong()
     private var dialog: ServicesStatesDialog? = null
     private val layout = R.layout.layout_connectivity_indicator
     private var builder: AvailableStatefulServicesBuilder? = null
@@ -75,6 +80,13 @@ class ConnectivityIndicator :
         }
     }
 
+    private val frameCallback = Choreographer.FrameCallback {
+
+        frameScheduled.set(false)
+
+        renderStates()
+    }
+
     private val serviceCallback = object : ServicesStatesDialogCallback {
 
         private val tag = "${this@ConnectivityIndicator.tag()} Dialog callback ::"
@@ -140,6 +152,11 @@ class ConnectivityIndicator :
         }
     }
 
+    /*
+        Requested state updates versus the ones that have been rendered.
+    */
+    fun getRenderStats() = Pair(updatesRequested.get(), updatesRendered.get())
+
     fun getServices(): AvailableStatefulServices? {
 
         return statefulServices
@@ -246,33 +263,35 @@ class ConnectivityIndicator :
         }
     }
 
+    /*
+        Updates requested before the next frame are coalesced into it,
+        the indicator is redrawn at most once per frame.
+    */
     private fun applyStates(from: String) {
 
         Console.log("${tag()} Apply states :: From = $from")
 
+        updatesRequested.incrementAndGet()
+
         if (context is Activity) {
 
+            if (!frameScheduled.compareAndSet(false, true)) {
+
+                return
+            }
+
             val activity = context as Activity
 
             activity.runOnUiThread {
 
                 if (activity.isFinishing) {
 
+                    frameScheduled.set(false)
+
                     return@runOnUiThread
                 }
 
-                doApplyStates()
-
-                if (showDetails) {
-
-                    val button = findViewById<ImageButton?>(R.id.button)
-
-                    button?.setOnClickListener {
-
-                        doApplyStates()
-                        presentServiceState()
-                    }
-                }
+                Choreographer.getInstance().postFrameCallback(frameCallback)
             }
 
         } else {
@@ -283,6 +302,31 @@ class ConnectivityIndicator :
         }
     }
 
+    private fun renderStates() {
+
+        val activity = context as Activity
+
+        if (activity.isFinishing) {
+
+            return
+        }
+
+        updatesRendered.incrementAndGet()
+
+        doApplyStates()
+
+        if (showDetails) {
+
+            val button = findViewById<ImageButton?>(R.id.button)
+
+            button?.setOnClickListener {
+
+                doApplyStates()
+                presentServiceState()
+            }
+        }
+    }
+
     private fun doApplyStates() {
 
         exec {
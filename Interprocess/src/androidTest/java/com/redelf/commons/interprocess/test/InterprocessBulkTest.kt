@@ -0,0 +1,180 @@
+package com.redelf.commons.interprocess.test
+
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.interprocess.InterprocessBulk
+import com.redelf.commons.interprocess.InterprocessData
+import com.redelf.commons.logging.Console
+import com.redelf.commons.test.BaseTest
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.io.IOException
+
+class InterprocessBulkTest : BaseTest() {
+
+    private val chunkSize = 16 * 1024
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+
+        clear()
+    }
+
+    @Test
+    fun testOutOfOrderChunks() {
+
+        val content = createContent(100 * 1024)
+        val chunks = InterprocessBulk.toChunks("function", content.toByteArray(), chunkSize)
+
+        Assert.assertTrue(chunks.size > 2)
+
+        val received = mutableListOf<InterprocessData>()
+
+        chunks.reversed().forEachIndexed { index, chunk ->
+
+            val completed = InterprocessBulk.accept(chunk)
+
+            if (index < chunks.lastIndex) {
+
+                Assert.assertTrue(completed.isEmpty())
+            }
+
+            received.addAll(completed)
+        }
+
+        Assert.assertEquals(listOf(InterprocessData("function", content)), received)
+        Assert.assertEquals(0, InterprocessBulk.getPendingTransfers())
+    }
+
+    @Test
+    fun testRepeatedChunks() {
+
+        val content = createContent(30 * 1024)
+        val chunks = InterprocessBulk.toChunks(null, content.toByteArray(), chunkSize)
+
+        Assert.assertTrue(InterprocessBulk.accept(chunks[0]).isEmpty())
+        Assert.assertTrue(InterprocessBulk.accept(chunks[0]).isEmpty())
+        Assert.assertTrue(InterprocessBulk.accept(chunks[1]).isEmpty())
+        Assert.assertTrue(InterprocessBulk.accept(chunks[1]).isEmpty())
+
+        val received = InterprocessBulk.accept(chunks[2])
+
+        Assert.assertEquals(listOf(InterprocessData(null, content)), received)
+        Assert.assertEquals(0, InterprocessBulk.getPendingTransfers())
+    }
+
+    @Test
+    fun testWaitingTransfers() {
+
+        val contents = (0 until 6).map { createContent(20 * 1024, seed = it) }
+        val transfers = contents.map { InterprocessBulk.toChunks("f", it.toByteArray(), chunkSize) }
+
+        transfers.forEach { chunks ->
+
+            Assert.assertEquals(2, chunks.size)
+            Assert.assertTrue(InterprocessBulk.accept(chunks[0]).isEmpty())
+        }
+
+        Assert.assertEquals(4, InterprocessBulk.getPendingTransfers())
+        Assert.assertEquals(2, InterprocessBulk.getWaitingTransfers())
+
+        /*
+            The waiting transfers are not rejected, they are assembled once a slot is free.
+        */
+        Assert.assertTrue(InterprocessBulk.accept(transfers[5][1]).isEmpty())
+        Assert.assertEquals(2, InterprocessBulk.getWaitingTransfers())
+
+        Assert.assertEquals(
+
+            listOf(InterprocessData("f", contents[0])),
+            InterprocessBulk.accept(transfers[0][1])
+        )
+
+        Assert.assertEquals(4, InterprocessBulk.getPendingTransfers())
+        Assert.assertEquals(1, InterprocessBulk.getWaitingTransfers())
+
+        /*
+            Completing the next one lets the last waiting transfer in, all its chunks are there.
+        */
+        Assert.assertEquals(
+
+            listOf(InterprocessData("f", contents[1]), InterprocessData("f", contents[5])),
+            InterprocessBulk.accept(transfers[1][1])
+        )
+
+        val received = (2 until 5).flatMap { InterprocessBulk.accept(transfers[it][1]) }
+
+        Assert.assertEquals((2 until 5).map { InterprocessData("f", contents[it]) }, received)
+        Assert.assertEquals(0, InterprocessBulk.getPendingTransfers())
+        Assert.assertEquals(0, InterprocessBulk.getWaitingTransfers())
+    }
+
+    @Test
+    fun testExpiry() {
+
+        val content = createContent(20 * 1024)
+        val chunks = InterprocessBulk.toChunks("function", content.toByteArray(), chunkSize)
+
+        Assert.assertTrue(InterprocessBulk.accept(chunks[0]).isEmpty())
+        Assert.assertEquals(1, InterprocessBulk.getPendingTransfers())
+
+        InterprocessBulk.expire(System.currentTimeMillis() + InterprocessBulk.ASSEMBLY_TIMEOUT + 1)
+
+        Assert.assertEquals(0, InterprocessBulk.getPendingTransfers())
+
+        /*
+            The rest of an expired transfer starts a new one which never completes.
+        */
+        Assert.assertTrue(InterprocessBulk.accept(chunks[1]).isEmpty())
+        Assert.assertEquals(1, InterprocessBulk.getPendingTransfers())
+
+        clear()
+
+        Assert.assertEquals(0, InterprocessBulk.getPendingTransfers())
+    }
+
+    @Test
+    fun testInvalidChunks() {
+
+        val chunks = InterprocessBulk.toChunks("function", ByteArray(100), chunkSize)
+        val chunk = chunks.first()
+
+        val truncated = chunk.copyOf(chunk.size - 1)
+        val wrongVersion = chunk.copyOf().also { it[1] = 1 }
+        val extended = chunk.copyOf(chunk.size + 1)
+
+        listOf(truncated, wrongVersion, extended).forEach { payload ->
+
+            try {
+
+                InterprocessBulk.accept(payload)
+
+                Assert.fail("Invalid chunk accepted")
+
+            } catch (e: IOException) {
+
+                Assert.assertNotNull(e)
+            }
+        }
+
+        Assert.assertEquals(0, InterprocessBulk.getPendingTransfers())
+    }
+
+    private fun clear() {
+
+        InterprocessBulk.expire(System.currentTimeMillis() + InterprocessBulk.ASSEMBLY_TIMEOUT + 1)
+    }
+
+    private fun createContent(length: Int, seed: Int = 0): String {
+
+        val alphabet = "abcdefghijklmnopqrstuvwxyzčćžšđ✓"
+
+        return String(CharArray(length) { alphabet[(it + seed) % alphabet.length] })
+    }
+}
@@ -0,0 +1,137 @@
+package com.redelf.commons.interprocess.test
+
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.interprocess.InterprocessBulk
+import com.redelf.commons.interprocess.InterprocessCodec
+import com.redelf.commons.interprocess.InterprocessData
+import com.redelf.commons.logging.Console
+import com.redelf.commons.test.BaseTest
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.IOException
+
+class InterprocessCodecTest : BaseTest() {
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+    }
+
+    @Test
+    fun testRoundTrip() {
+
+        val items = listOf(
+
+            InterprocessData("function", "content"),
+            InterprocessData(null, "no function"),
+            InterprocessData("no content", null),
+            InterprocessData("", ""),
+            InterprocessData("unicode", "čćžšđ ✓ 😀")
+        )
+
+        val decoded = InterprocessCodec.decode(InterprocessCodec.encode(items))
+
+        Assert.assertEquals(items, decoded)
+        Assert.assertTrue(InterprocessCodec.decode(InterprocessCodec.encode(emptyList())).isEmpty())
+    }
+
+    @Test
+    fun testEncodedSize() {
+
+        listOf(
+
+            InterprocessData("function", "ascii"),
+            InterprocessData(null, null),
+            InterprocessData("two", "čćž"),
+            InterprocessData("three", "✓✓"),
+            InterprocessData("four", "😀"),
+            InterprocessData("unpaired", "a\uD83Db")
+
+        ).forEach { data ->
+
+            val encoded = InterprocessCodec.encode(listOf(data))
+
+            Assert.assertEquals(
+
+                encoded.size,
+                InterprocessCodec.HEADER_SIZE + InterprocessCodec.sizeOf(data)
+            )
+        }
+    }
+
+    @Test
+    fun testInvalidPayloads() {
+
+        val valid = InterprocessCodec.encode(listOf(InterprocessData("function", "content")))
+
+        val wrongMagic = valid.copyOf().also { it[0] = 0 }
+        val truncated = valid.copyOf(valid.size - 3)
+
+        val countTooLarge = encodeRaw { output ->
+
+            output.writeInt(1000)
+            output.writeInt(-1)
+            output.writeInt(-1)
+        }
+
+        val stringTooLong = encodeRaw { output ->
+
+            output.writeInt(1)
+            output.writeInt(Int.MAX_VALUE)
+            output.writeInt(-1)
+        }
+
+        listOf(wrongMagic, truncated, countTooLarge, stringTooLong).forEach { payload ->
+
+            try {
+
+                InterprocessCodec.decode(payload)
+
+                Assert.fail("Invalid payload decoded")
+
+            } catch (e: IOException) {
+
+                Assert.assertNotNull(e)
+            }
+        }
+    }
+
+    @Test
+    fun testBulkThreshold() {
+
+        val threshold = InterprocessBulk.THRESHOLD
+
+        Assert.assertFalse(InterprocessBulk.isBulk(null))
+        Assert.assertFalse(InterprocessBulk.isBulk("a".repeat(threshold)))
+        Assert.assertTrue(InterprocessBulk.isBulk("a".repeat(threshold + 1)))
+
+        /*
+            Measured in encoded bytes, not in characters.
+        */
+        Assert.assertFalse(InterprocessBulk.isBulk("✓".repeat(threshold / 3)))
+        Assert.assertTrue(InterprocessBulk.isBulk("✓".repeat(threshold / 3 + 1)))
+    }
+
+    private fun encodeRaw(body: (DataOutputStream) -> Unit): ByteArray {
+
+        val bytes = ByteArrayOutputStream()
+
+        DataOutputStream(bytes).use { output ->
+
+            output.writeByte(0x49)
+            output.writeByte(1)
+
+            body(output)
+        }
+
+        return bytes.toByteArray()
+    }
+}
@@ -0,0 +1,16 @@
+package com.redelf.commons.interprocess.test.suite
+
+import com.redelf.commons.interprocess.test.InterprocessBulkTest
+import com.redelf.commons.interprocess.test.InterprocessCodecTest
+import org.junit.runner.RunWith
+import org.junit.runners.Suite
+import org.junit.runners.Suite.SuiteClasses
+
+@SuiteClasses(
+
+    InterprocessCodecTest::class,
+    InterprocessBulkTest::class
+
+)
+@RunWith(Suite::class)
+class InterprocessAll
@@ -20,6 +20,6 @@ abstract class InterprocessApplication : BaseApplication() {
         )
     }
 
-    protected fun getInterprocessPermissionValue() =
+    fun getInterprocessPermissionValue(): String =
         applicationContext.getString(interprocessPermission)
 }
\ No newline at end of file
@@ -0,0 +1,453 @@
+package com.redelf.commons.interprocess
+
+import android.os.SharedMemory
+import android.system.OsConstants
+import com.redelf.commons.logging.Console
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.util.BitSet
+import java.util.UUID
+import java.util.concurrent.atomic.AtomicBoolean
+
+/*
+    Large message content, too big to travel inside a batch.
+
+    With the provider the content is put into a shared memory region and only its handle
+    crosses the process boundary, the receiver maps it and reads it once. Without it (or when
+    the receiver can't take the region) the content is streamed in chunks: every chunk is a
+    payload of its own carrying the transfer id, its index and the offset, the receiver
+    assembles them in any order (re-delivered chunks are ignored) and dispatches the message
+    once all the chunks have arrived. Only a few transfers are assembled at the same time,
+    chunks of the others wait (limited in total size) until a transfer completes or expires.
+
+    Chunk: magic, version, transfer id, total length, chunk index, chunk count, offset,
+    function, data length, data.
+*/
+object InterprocessBulk {
+
+    val DEBUG = AtomicBoolean()
+
+    /*
+        Content above this many bytes (UTF-8) goes through the bulk channel.
+    */
+    const val THRESHOLD = 128 * 1024
+
+    const val CHUNK_SIZE = 128 * 1024
+
+    private const val MAGIC = 0x43
+    private const val VERSION = 2
+    private const val MAX_CONTENT_BYTES = 64 * 1024 * 1024
+    private const val MAX_ASSEMBLIES = 4
+    private const val MAX_WAITING_BYTES = 64L * 1024 * 1024
+    internal const val ASSEMBLY_TIMEOUT = 60_000L
+    private const val TAG = "IPC :: Bulk ::"
+
+    private class Assembly(
+
+        val function: String?,
+        val data: ByteArray,
+        val count: Int
+    ) {
+
+        val received = BitSet(count)
+
+        var updated = System.currentTimeMillis()
+    }
+
+    private class Waiting {
+
+        val chunks = mutableListOf<Chunk>()
+
+        var bytes = 0L
+        var updated = System.currentTimeMillis()
+    }
+
+    /*
+        Guarded by the object's lock, the transfers are kept in arrival order.
+    */
+    private val assemblies = LinkedHashMap<String, Assembly>()
+    private val waiting = LinkedHashMap<String, Waiting>()
+    private var waitingBytes = 0L
+
+    fun isBulk(content: String?): Boolean {
+
+        val length = content?.length ?: 0
+
+        /*
+            Every character takes at least one byte and at most three.
+        */
+        return when {
+
+            length > THRESHOLD -> true
+            length * 3 <= THRESHOLD -> false
+            else -> InterprocessCodec.utf8Length(content) > THRESHOLD
+        }
+    }
+
+    /*
+        The region is read-only once created, the caller closes it after the delivery.
+    */
+    @Throws(IOException::class)
+    fun toSharedMemory(content: ByteArray): SharedMemory {
+
+        val memory = SharedMemory.create(TAG, content.size.coerceAtLeast(1))
+
+        try {
+
+            val buffer = memory.mapReadWrite()
+
+            try {
+
+                buffer.put(content)
+
+            } finally {
+
+                SharedMemory.unmap(buffer)
+            }
+
+            memory.setProtect(OsConstants.PROT_READ)
+
+            return memory
+
+        } catch (e: Throwable) {
+
+            memory.close()
+
+            throw IOException("Shared memory not written", e)
+        }
+    }
+
+    /*
+        Reads the content and closes the region.
+    */
+    @Throws(IOException::class)
+    fun fromSharedMemory(memory: SharedMemory, length: Int): String {
+
+        try {
+
+            if (length < 0 || length > memory.size) {
+
+                throw IOException("Invalid shared memory length: $length / ${memory.size}")
+            }
+
+            val buffer = memory.mapReadOnly()
+
+            try {
+
+                val bytes = ByteArray(length)
+
+                buffer.get(bytes)
+
+                return String(bytes, Charsets.UTF_8)
+
+            } finally {
+
+                SharedMemory.unmap(buffer)
+            }
+
+        } catch (e: IOException) {
+
+            throw e
+
+        } catch (e: Throwable) {
+
+            throw IOException("Shared memory not read", e)
+
+        } finally {
+
+            memory.close()
+        }
+    }
+
+    fun toChunks(
+
+        function: String?,
+        content: ByteArray,
+        chunkSize: Int = CHUNK_SIZE
+
+    ): List<ByteArray> {
+
+        val id = UUID.randomUUID().toString()
+        val size = chunkSize.coerceAtLeast(1)
+        val chunks = mutableListOf<ByteArray>()
+        val count = ((content.size + size - 1) / size).coerceAtLeast(1)
+        var offset = 0
+
+        do {
+
+            val length = (content.size - offset).coerceAtMost(size)
+            val bytes = ByteArrayOutputStream(length + 128)
+
+            DataOutputStream(bytes).use { output ->
+
+                output.writeByte(MAGIC)
+                output.writeByte(VERSION)
+                output.writeUTF(id)
+                output.writeInt(content.size)
+                output.writeInt(chunks.size)
+                output.writeInt(count)
+                output.writeInt(offset)
+                output.writeBoolean(function != null)
+                output.writeUTF(function ?: "")
+                output.writeInt(length)
+                output.write(content, offset, length)
+            }
+
+            chunks.add(bytes.toByteArray())
+
+            offset += length
+
+        } while (offset < content.size)
+
+        return chunks
+    }
+
+    fun isChunk(payload: ByteArray) = payload.isNotEmpty() && payload[0].toInt() == MAGIC
+
+    /*
+        Returns the messages completed by the chunk: the one it belongs to when it was the last
+        missing chunk and the waiting transfers which could be completed once a slot was free.
+    */
+    @Synchronized
+    @Throws(IOException::class)
+    fun accept(payload: ByteArray): List<InterprocessData> {
+
+        expire()
+
+        val chunk = Chunk.parse(payload)
+        val completed = mutableListOf<InterprocessData>()
+
+        /*
+            The waiting chunks go first, also when the chunk belongs to one of them.
+        */
+        promote(completed)
+
+        if (assemblies.containsKey(chunk.id) || assemblies.size < MAX_ASSEMBLIES) {
+
+            place(chunk)?.let { completed.add(it) }
+
+        } else {
+
+            park(chunk)
+        }
+
+        promote(completed)
+
+        return completed
+    }
+
+    @Synchronized
+    fun getPendingTransfers() = assemblies.size
+
+    @Synchronized
+    fun getWaitingTransfers() = waiting.size
+
+    /*
+        Drops the transfers which have not received a chunk for a while.
+    */
+    @Synchronized
+    internal fun expire(now: Long = System.currentTimeMillis()) {
+
+        assemblies.entries.removeIf { (id, assembly) ->
+
+            val expired = now - assembly.updated > ASSEMBLY_TIMEOUT
+
+            if (expired) {
+
+                Console.warning("$TAG Transfer expired :: Id = $id")
+            }
+
+            expired
+        }
+
+        waiting.entries.removeIf { (id, parked) ->
+
+            val expired = now - parked.updated > ASSEMBLY_TIMEOUT
+
+            if (expired) {
+
+                waitingBytes -= parked.bytes
+
+                Console.warning("$TAG Waiting transfer expired :: Id = $id")
+            }
+
+            expired
+        }
+    }
+
+    @Throws(IOException::class)
+    private fun place(chunk: Chunk): InterprocessData? {
+
+        val assembly = assemblies.getOrPut(chunk.id) {
+
+            Assembly(chunk.function, ByteArray(chunk.total), chunk.count)
+        }
+
+        if (assembly.data.size != chunk.total || assembly.count != chunk.count) {
+
+            throw IOException("IPC chunk does not match the transfer :: Id = ${chunk.id}")
+        }
+
+        if (assembly.received.get(chunk.index)) {
+
+            if (DEBUG.get()) Console.log(
+
+                "$TAG Chunk repeated :: Id = ${chunk.id}, Chunk = ${chunk.index}"
+            )
+
+            return null
+        }
+
+        System.arraycopy(
+
+            chunk.payload, chunk.dataOffset,
+            assembly.data, chunk.offset,
+            chunk.length
+        )
+
+        assembly.received.set(chunk.index)
+        assembly.updated = System.currentTimeMillis()
+
+        val received = assembly.received.cardinality()
+
+        if (DEBUG.get()) Console.log(
+
+            "$TAG Chunk :: Id = ${chunk.id}, Received = $received / ${chunk.count}"
+        )
+
+        if (received < chunk.count) {
+
+            return null
+        }
+
+        assemblies.remove(chunk.id)
+
+        return InterprocessData(assembly.function, String(assembly.data, Charsets.UTF_8))
+    }
+
+    /*
+        Keeps the chunk until a slot is free, the waiting chunks are limited in total size.
+    */
+    @Throws(IOException::class)
+    private fun park(chunk: Chunk) {
+
+        if (waitingBytes + chunk.payload.size > MAX_WAITING_BYTES) {
+
+            throw IOException("Too many IPC transfers in progress :: Rejected = ${chunk.id}")
+        }
+
+        val parked = waiting.getOrPut(chunk.id) { Waiting() }
+
+        parked.chunks.add(chunk)
+        parked.bytes += chunk.payload.size
+        parked.updated = System.currentTimeMillis()
+
+        waitingBytes += chunk.payload.size
+
+        if (DEBUG.get()) Console.log(
+
+            "$TAG Chunk waiting :: Id = ${chunk.id}, Waiting transfers = ${waiting.size}"
+        )
+    }
+
+    /*
+        Starts assembling the waiting transfers in arrival order while there are free slots.
+    */
+    private fun promote(completed: MutableList<InterprocessData>) {
+
+        while (assemblies.size < MAX_ASSEMBLIES && waiting.isNotEmpty()) {
+
+            val id = waiting.keys.first()
+            val parked = waiting.remove(id) ?: continue
+
+            waitingBytes -= parked.bytes
+
+            parked.chunks.forEach { chunk ->
+
+                try {
+
+                    place(chunk)?.let { completed.add(it) }
+
+                } catch (e: IOException) {
+
+                    Console.error("$TAG Waiting chunk rejected :: Id = $id, Error = ${e.message}")
+                }
+            }
+        }
+    }
+
+    private class Chunk(
+
+        val payload: ByteArray,
+        val id: String,
+        val total: Int,
+        val index: Int,
+        val count: Int,
+        val offset: Int,
+        val function: String?,
+        val length: Int,
+        val dataOffset: Int
+    ) {
+
+        companion object {
+
+            @Throws(IOException::class)
+            fun parse(payload: ByteArray): Chunk {
+
+                DataInputStream(ByteArrayInputStream(payload)).use { input ->
+
+                    if (input.readUnsignedByte() != MAGIC) {
+
+                        throw IOException("Not an IPC chunk")
+                    }
+
+                    val version = input.readUnsignedByte()
+
+                    if (version != VERSION) {
+
+                        throw IOException("Unsupported IPC chunk version: $version")
+                    }
+
+                    val id = input.readUTF()
+                    val total = input.readInt()
+                    val index = input.readInt()
+                    val count = input.readInt()
+                    val offset = input.readInt()
+                    val hasFunction = input.readBoolean()
+                    val function = input.readUTF().takeIf { hasFunction }
+                    val length = input.readInt()
+
+                    /*
+                        The data is the rest of the payload.
+                    */
+                    val dataOffset = payload.size - input.available()
+
+                    if (
+
+                        total < 0 || total > MAX_CONTENT_BYTES ||
+                        count < 1 || count > total.coerceAtLeast(1) ||
+                        index < 0 || index >= count ||
+                        offset < 0 || length < 0 || offset.toLong() + length > total ||
+                        length != payload.size - dataOffset
+
+                    ) {
+
+                        throw IOException(
+
+                            "Invalid IPC chunk :: Total = $total, Chunk = $index / $count, " +
+                                    "Offset = $offset"
+                        )
+                    }
+
+                    return Chunk(
+
+                        payload, id, total, index, count, offset, function, length, dataOffset
+                    )
+                }
+            }
+        }
+    }
+}
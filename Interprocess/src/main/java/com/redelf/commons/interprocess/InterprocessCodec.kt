@@ -0,0 +1,195 @@
+package com.redelf.commons.interprocess
+
+import android.content.Intent
+import com.google.gson.Gson
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+
+/*
+    Encoding of the IPC messages.
+
+    Batches are carried as one byte array: magic, version, count and for every message the
+    function and the content (length prefixed UTF-8, -1 for null). Single messages sent by
+    the older versions are JSON strings, they are parsed by one shared Gson instance.
+*/
+object InterprocessCodec {
+
+    const val BATCH_KEY = "batch"
+    const val HEADER_SIZE = 6
+
+    private const val MAGIC = 0x49
+    private const val VERSION = 1
+    private const val MIN_MESSAGE_SIZE = 8
+
+    private val gson: Gson by lazy { Gson() }
+
+    fun toJson(data: InterprocessData): String = gson.toJson(data)
+
+    fun fromJson(json: String): InterprocessData? = gson.fromJson(json, InterprocessData::class.java)
+
+    fun encode(items: List<InterprocessData>): ByteArray {
+
+        val bytes = ByteArrayOutputStream(64 + items.sumOf { (it.content?.length ?: 0) + 32 })
+
+        DataOutputStream(bytes).use { output ->
+
+            output.writeByte(MAGIC)
+            output.writeByte(VERSION)
+            output.writeInt(items.size)
+
+            items.forEach {
+
+                writeString(output, it.function)
+                writeString(output, it.content)
+            }
+        }
+
+        return bytes.toByteArray()
+    }
+
+    /*
+        Encoded size of the message inside a batch, without encoding it.
+    */
+    fun sizeOf(data: InterprocessData): Int {
+
+        return MIN_MESSAGE_SIZE + utf8Length(data.function) + utf8Length(data.content)
+    }
+
+    /*
+        Length of the UTF-8 form of the string, unpaired surrogates are encoded as one byte.
+    */
+    fun utf8Length(value: String?): Int {
+
+        if (value == null) {
+
+            return 0
+        }
+
+        var length = 0
+        var index = 0
+
+        while (index < value.length) {
+
+            val char = value[index]
+
+            length += when {
+
+                char.code < 0x80 -> 1
+                char.code < 0x800 -> 2
+
+                Character.isHighSurrogate(char) && index + 1 < value.length &&
+                        Character.isLowSurrogate(value[index + 1]) -> {
+
+                    index++
+
+                    4
+                }
+
+                Character.isSurrogate(char) -> 1
+                else -> 3
+            }
+
+            index++
+        }
+
+        return length
+    }
+
+    @Throws(IOException::class)
+    fun decode(payload: ByteArray): List<InterprocessData> {
+
+        DataInputStream(ByteArrayInputStream(payload)).use { input ->
+
+            if (input.readUnsignedByte() != MAGIC) {
+
+                throw IOException("Not an IPC batch")
+            }
+
+            val version = input.readUnsignedByte()
+
+            if (version > VERSION) {
+
+                throw IOException("Unsupported IPC batch version: $version")
+            }
+
+            val count = input.readInt()
+
+            /*
+                Every message takes at least its two length prefixes.
+            */
+            if (count < 0 || count > (payload.size - HEADER_SIZE) / MIN_MESSAGE_SIZE) {
+
+                throw IOException("Invalid IPC batch size: $count")
+            }
+
+            val items = ArrayList<InterprocessData>(count)
+
+            repeat(count) {
+
+                items.add(InterprocessData(readString(input), readString(input)))
+            }
+
+            return items
+        }
+    }
+
+    /*
+        The messages carried by the intent, the batch or the single JSON message.
+    */
+    @Throws(IOException::class)
+    fun fromIntent(intent: Intent): List<InterprocessData> {
+
+        intent.getByteArrayExtra(BATCH_KEY)?.let {
+
+            return decode(it)
+        }
+
+        val json = intent.getStringExtra(InterprocessData.BUNDLE_KEY)
+
+        if (json.isNullOrEmpty()) {
+
+            return emptyList()
+        }
+
+        return fromJson(json)?.let { listOf(it) } ?: emptyList()
+    }
+
+    private fun writeString(output: DataOutputStream, value: String?) {
+
+        if (value == null) {
+
+            output.writeInt(-1)
+
+            return
+        }
+
+        val bytes = value.toByteArray(Charsets.UTF_8)
+
+        output.writeInt(bytes.size)
+        output.write(bytes)
+    }
+
+    private fun readString(input: DataInputStream): String? {
+
+        val length = input.readInt()
+
+        if (length < 0) {
+
+            return null
+        }
+
+        if (length > input.available()) {
+
+            throw IOException("Invalid IPC string length: $length")
+        }
+
+        val bytes = ByteArray(length)
+
+        input.readFully(bytes)
+
+        return String(bytes, Charsets.UTF_8)
+    }
+}
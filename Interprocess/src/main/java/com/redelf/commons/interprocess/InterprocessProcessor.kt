@@ -1,8 +1,6 @@
 package com.redelf.commons.interprocess
 
 import android.content.Intent
-import com.google.gson.Gson
-import com.redelf.commons.extensions.isEmpty
 import com.redelf.commons.logging.Console
 import com.redelf.commons.processing.Process
 
@@ -10,26 +8,17 @@ abstract class InterprocessProcessor : Process<Intent> {
 
     override fun process(input: Intent) {
 
-        val data = input.getStringExtra(InterprocessData.BUNDLE_KEY)
-
-        if (isEmpty(data)) {
-
-            Console.error("Received empty data")
-            return
-        }
-
         try {
 
-            // FIXME: Shall use GsonParser with custom serialization support
-            val ipcData: InterprocessData? = Gson().fromJson(data, InterprocessData::class.java)
+            val items = InterprocessCodec.fromIntent(input)
 
-            if (ipcData == null) {
+            if (items.isEmpty()) {
 
-                Console.error("Failed to parse the IPC data")
+                Console.error("Received empty data")
                 return
             }
 
-            onData(ipcData)
+            items.forEach { onData(it) }
 
         } catch (e: Throwable) {
 
@@ -38,5 +27,11 @@ abstract class InterprocessProcessor : Process<Intent> {
         }
     }
 
+    /*
+        The functions the processor handles, the Interprocessor routes only those to it.
+        Processors with no functions receive the messages that no other processor handles.
+    */
+    open fun getFunctions(): Set<String> = emptySet()
+
     abstract fun onData(data: InterprocessData)
-}
\ No newline at end of file
+}
@@ -0,0 +1,196 @@
+package com.redelf.commons.interprocess
+
+import android.content.ContentProvider
+import android.content.ContentValues
+import android.content.Context
+import android.content.pm.PackageManager
+import android.database.Cursor
+import android.net.Uri
+import android.os.Bundle
+import android.os.SharedMemory
+import com.redelf.commons.logging.Console
+
+/*
+    Channel for the IPC batches, an alternative to the broadcasts. The delivery is a single
+    synchronous Binder call, it does not go through the broadcast queue.
+
+    The receiving application declares it next to the InterprocessReceiver:
+
+    <provider
+        android:name="com.redelf.commons.interprocess.InterprocessProvider"
+        android:authorities="${applicationId}.interprocess"
+        android:exported="true" />
+
+    Large content is handed over as a shared memory region (METHOD_DELIVER_SHARED), the call
+    carries only its handle.
+
+    The permission is checked on each call (manifest permissions do not apply to call()).
+    The sending application has to see the receiver (e.g. a <queries> package entry).
+*/
+class InterprocessProvider : ContentProvider() {
+
+    companion object {
+
+        const val METHOD_DELIVER = "deliver"
+        const val METHOD_DELIVER_SHARED = "deliver_shared"
+        const val KEY_ACCEPTED = "accepted"
+        const val KEY_FUNCTION = "function"
+        const val KEY_LENGTH = "length"
+        const val KEY_SHARED_MEMORY = "shared_memory"
+
+        private const val AUTHORITY_SUFFIX = ".interprocess"
+        private const val TAG = "IPC :: Provider ::"
+
+        fun getAuthority(packageName: String) = "$packageName$AUTHORITY_SUFFIX"
+
+        /*
+            Returns false when the receiver does not have the provider or it refused the batch.
+        */
+        fun deliver(ctx: Context, receiver: String, payload: ByteArray): Boolean {
+
+            val extras = Bundle()
+
+            extras.putByteArray(InterprocessCodec.BATCH_KEY, payload)
+
+            return call(ctx, receiver, METHOD_DELIVER, extras)
+        }
+
+        /*
+            The receiver gets its own handle to the region, the caller may close it afterwards.
+        */
+        fun deliver(
+
+            ctx: Context,
+            receiver: String,
+            function: String?,
+            memory: SharedMemory,
+            length: Int
+
+        ): Boolean {
+
+            val extras = Bundle()
+
+            extras.putString(KEY_FUNCTION, function)
+            extras.putInt(KEY_LENGTH, length)
+            extras.putParcelable(KEY_SHARED_MEMORY, memory)
+
+            return call(ctx, receiver, METHOD_DELIVER_SHARED, extras)
+        }
+
+        private fun call(ctx: Context, receiver: String, method: String, extras: Bundle): Boolean {
+
+            try {
+
+                val uri = Uri.parse("content://${getAuthority(receiver)}")
+                val result = ctx.contentResolver.call(uri, method, null, extras)
+
+                return result?.getBoolean(KEY_ACCEPTED) == true
+
+            } catch (e: Throwable) {
+
+                Console.warning(
+
+                    "$TAG Deliver :: Receiver = $receiver, Method = $method, Error = ${e.message}"
+                )
+            }
+
+            return false
+        }
+    }
+
+    override fun onCreate() = true
+
+    override fun call(method: String, arg: String?, extras: Bundle?): Bundle? {
+
+        if (method != METHOD_DELIVER && method != METHOD_DELIVER_SHARED) {
+
+            return super.call(method, arg, extras)
+        }
+
+        val result = Bundle()
+
+        if (extras == null || !isCallerPermitted()) {
+
+            Console.error("$TAG Call rejected :: Caller = $callingPackage")
+
+            result.putBoolean(KEY_ACCEPTED, false)
+
+            return result
+        }
+
+        val accepted = when (method) {
+
+            METHOD_DELIVER -> {
+
+                extras.getByteArray(InterprocessCodec.BATCH_KEY)?.let {
+
+                    Interprocessor.onPayload(it)
+
+                    true
+
+                } ?: false
+            }
+
+            else -> {
+
+                @Suppress("DEPRECATION")
+                val memory = extras.getParcelable<SharedMemory>(KEY_SHARED_MEMORY)
+
+                memory?.let {
+
+                    Interprocessor.onSharedMemory(
+
+                        extras.getString(KEY_FUNCTION),
+                        it,
+                        extras.getInt(KEY_LENGTH)
+                    )
+
+                    true
+
+                } ?: false
+            }
+        }
+
+        if (!accepted) {
+
+            Console.error("$TAG Call rejected :: No payload, Method = $method")
+        }
+
+        result.putBoolean(KEY_ACCEPTED, accepted)
+
+        return result
+    }
+
+    override fun query(
+
+        uri: Uri,
+        projection: Array<out String>?,
+        selection: String?,
+        selectionArgs: Array<out String>?,
+        sortOrder: String?
+
+    ): Cursor? = null
+
+    override fun getType(uri: Uri): String? = null
+
+    override fun insert(uri: Uri, values: ContentValues?): Uri? = null
+
+    override fun delete(uri: Uri, selection: String?, selectionArgs: Array<out String>?) = 0
+
+    override fun update(
+
+        uri: Uri,
+        values: ContentValues?,
+        selection: String?,
+        selectionArgs: Array<out String>?
+
+    ) = 0
+
+    private fun isCallerPermitted(): Boolean {
+
+        val application = context?.applicationContext as? InterprocessApplication ?: return false
+        val permission = application.getInterprocessPermissionValue()
+
+        return context?.checkCallingPermission(permission) == PackageManager.PERMISSION_GRANTED
+    }
+}
@@ -0,0 +1,15 @@
+package com.redelf.commons.interprocess
+
+enum class InterprocessTransport {
+
+    /*
+        One broadcast per transfer, the receiver must declare the InterprocessReceiver.
+    */
+    BROADCAST,
+
+    /*
+        Synchronous delivery through the InterprocessProvider of the receiver, falls back to
+        the broadcast when the receiver does not declare the provider.
+    */
+    PROVIDER
+}
@@ -5,4 +5,9 @@ import android.content.Intent
 interface Interprocessing {
 
     fun onIntent(intent: Intent)
-}
\ No newline at end of file
+
+    /*
+        The encoded batch received through any of the transports.
+    */
+    fun onPayload(payload: ByteArray)
+}
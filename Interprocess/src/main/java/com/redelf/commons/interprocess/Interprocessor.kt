@@ -1,15 +1,72 @@
 package com.redelf.commons.interprocess
 
 import android.content.Intent
+import android.os.SharedMemory
 import com.redelf.commons.application.BaseApplication
 import com.redelf.commons.extensions.exec
 import com.redelf.commons.extensions.recordException
+import com.redelf.commons.logging.Console
 import com.redelf.commons.registration.Registration
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CopyOnWriteArraySet
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
 
+/*
+    Sends and dispatches the IPC messages.
+
+    Messages given to enqueue() are collected per receiver for a short window and transferred
+    together as one binary batch, kept well below the Binder transaction limit. Received
+    messages are dispatched one at a time in the arrival order and routed by their function
+    to the processors handling it, the processors without functions get the rest.
+
+    Content above InterprocessBulk.THRESHOLD is not batched, it goes through the bulk channel:
+    shared memory with the provider, chunks otherwise.
+*/
 object Interprocessor : Interprocessing, Registration<InterprocessProcessor> {
 
+    val DEBUG = AtomicBoolean()
+
+    private const val TAG = "IPC :: Interprocessor ::"
+    private const val BATCH_WINDOW = 10L
+    private const val MAX_BATCH_SIZE = 64
+
+    /*
+        Encoded batch size limit. The Binder transaction buffer (1MB) is shared by all
+        the transactions in flight of the process.
+    */
+    private const val MAX_BATCH_BYTES = 256 * 1024L
+
     private val processors = ConcurrentHashMap<Int, InterprocessProcessor>()
+    private val routes = ConcurrentHashMap<String, CopyOnWriteArraySet<InterprocessProcessor>>()
+    private val fallbacks = CopyOnWriteArraySet<InterprocessProcessor>()
+    private val transport = AtomicReference(InterprocessTransport.BROADCAST)
+
+    private val queues = ConcurrentHashMap<String, ConcurrentLinkedQueue<InterprocessData>>()
+    private val queuedBytes = ConcurrentHashMap<String, AtomicLong>()
+    private val flushScheduled: MutableSet<String> = ConcurrentHashMap.newKeySet()
+    private val flushLocks = ConcurrentHashMap<String, Any>()
+
+    private val scheduler: ScheduledExecutorService by lazy {
+
+        Executors.newSingleThreadScheduledExecutor()
+    }
+
+    private val receiving: ExecutorService by lazy {
+
+        Executors.newSingleThreadExecutor()
+    }
+
+    fun setTransport(value: InterprocessTransport) = transport.set(value)
+
+    fun getTransport(): InterprocessTransport = transport.get()
 
     fun send(
 
@@ -19,15 +76,180 @@ object Interprocessor : Interprocessing, Registration<InterprocessProcessor> {
 
     ): Boolean {
 
-        return BaseApplication.takeContext().sendBroadcastIPC(
+        if (InterprocessBulk.isBulk(content)) {
 
-            content = content,
-            function = function,
-            receiver = receiver,
-            action = InterprocessReceiver.ACTION,
-            tag = "IPC :: Interprocessor :: Send ::",
-            receiverClass = InterprocessReceiver::class
-        )
+            return sendBulk(receiver, function, content ?: "")
+        }
+
+        if (transport.get() == InterprocessTransport.PROVIDER) {
+
+            return transfer(receiver, listOf(InterprocessData(function, content)))
+        }
+
+        val intent = Intent(InterprocessReceiver.ACTION)
+        val json = InterprocessCodec.toJson(InterprocessData(function, content))
+
+        intent.setClassName(receiver, InterprocessReceiver::class.java.name)
+        intent.putExtra(InterprocessData.BUNDLE_KEY, json)
+
+        if (DEBUG.get()) Console.log("$TAG Send :: Receiver = $receiver, Function = $function")
+
+        return BaseApplication.takeContext().sendBroadcastWithResult(intent, local = false)
+    }
+
+    /*
+        Queues the message, it is transferred with the other messages for the same receiver.
+    */
+    fun enqueue(
+
+        receiver: String,
+        function: String,
+        content: String? = null
+    ) {
+
+        if (InterprocessBulk.isBulk(content)) {
+
+            exec(
+
+                onRejected = { err -> recordException(err) }
+
+            ) {
+
+                sendBulk(receiver, function, content ?: "")
+            }
+
+            return
+        }
+
+        val queue = queues.getOrPut(receiver) { ConcurrentLinkedQueue() }
+        val bytes = queuedBytes.getOrPut(receiver) { AtomicLong() }
+        val data = InterprocessData(function, content)
+
+        queue.add(data)
+
+        val queued = bytes.addAndGet(InterprocessCodec.sizeOf(data).toLong())
+
+        if (queue.size >= MAX_BATCH_SIZE || queued >= MAX_BATCH_BYTES) {
+
+            exec(
+
+                onRejected = { err -> recordException(err) }
+
+            ) {
+
+                flush(receiver)
+            }
+
+            return
+        }
+
+        if (flushScheduled.add(receiver)) {
+
+            try {
+
+                scheduler.schedule(
+
+                    Runnable {
+
+                        flushScheduled.remove(receiver)
+
+                        flush(receiver)
+                    },
+
+                    BATCH_WINDOW,
+                    TimeUnit.MILLISECONDS
+                )
+
+            } catch (e: Throwable) {
+
+                flushScheduled.remove(receiver)
+
+                recordException(e)
+            }
+        }
+    }
+
+    /*
+        Transfers the queued messages of the receiver now. Returns false when the transfer
+        has failed, the messages are not queued again.
+
+        The transfers to the same receiver are serialized, so the batches arrive in order.
+    */
+    fun flush(receiver: String): Boolean {
+
+        val queue = queues[receiver] ?: return true
+        val success = synchronized(lockOf(receiver)) {
+
+            transferQueued(receiver, queue)
+        }
+
+        /*
+            Whatever arrived during the transfer (or did not fit into it) goes with the next one.
+        */
+        if (!queue.isEmpty()) {
+
+            exec(
+
+                onRejected = { err -> recordException(err) }
+
+            ) {
+
+                flush(receiver)
+            }
+        }
+
+        return success
+    }
+
+    fun flush() {
+
+        queues.keys.forEach { flush(it) }
+    }
+
+    private fun transferQueued(
+
+        receiver: String,
+        queue: ConcurrentLinkedQueue<InterprocessData>
+
+    ): Boolean {
+
+        val items = mutableListOf<InterprocessData>()
+        var bytes = 0L
+
+        /*
+            The receiver's lock is held, so the peeked message is the one polled. The message
+            which would exceed the limit stays queued for the next batch.
+        */
+        while (items.size < MAX_BATCH_SIZE) {
+
+            val item = queue.peek() ?: break
+            val size = InterprocessCodec.sizeOf(item).toLong()
+
+            if (
+
+                items.isNotEmpty() &&
+                InterprocessCodec.HEADER_SIZE + bytes + size > MAX_BATCH_BYTES
+
+            ) {
+
+                break
+            }
+
+            queue.poll()
+
+            items.add(item)
+
+            bytes += size
+        }
+
+        if (items.isEmpty()) {
+
+            return true
+        }
+
+        queuedBytes[receiver]?.addAndGet(-bytes)
+
+        return transfer(receiver, items)
     }
 
     override fun register(subscriber: InterprocessProcessor) {
@@ -38,6 +260,20 @@ object Interprocessor : Interprocessing, Registration<InterprocessProcessor> {
         }
 
         processors[subscriber.hashCode()] = subscriber
+
+        val functions = subscriber.getFunctions()
+
+        if (functions.isEmpty()) {
+
+            fallbacks.add(subscriber)
+
+        } else {
+
+            functions.forEach { function ->
+
+                routes.getOrPut(function) { CopyOnWriteArraySet() }.add(subscriber)
+            }
+        }
     }
 
     override fun unregister(subscriber: InterprocessProcessor) {
@@ -46,6 +282,10 @@ object Interprocessor : Interprocessing, Registration<InterprocessProcessor> {
 
             processors.values.remove(subscriber)
         }
+
+        fallbacks.remove(subscriber)
+
+        routes.values.forEach { it.remove(subscriber) }
     }
 
     override fun isRegistered(subscriber: InterprocessProcessor): Boolean {
@@ -55,16 +295,233 @@ object Interprocessor : Interprocessing, Registration<InterprocessProcessor> {
 
     override fun onIntent(intent: Intent) {
 
-        exec(
+        receiveInOrder(
+
+            onRejected = { err -> recordException(err) }
+
+        ) {
+
+            try {
+
+                val payload = intent.getByteArrayExtra(InterprocessCodec.BATCH_KEY)
+
+                if (payload == null) {
+
+                    dispatch(InterprocessCodec.fromIntent(intent))
+
+                } else {
+
+                    receive(payload)
+                }
+
+            } catch (e: Throwable) {
+
+                recordException(e)
+            }
+        }
+    }
+
+    override fun onPayload(payload: ByteArray) {
+
+        receiveInOrder(
 
             onRejected = { err -> recordException(err) }
 
         ) {
 
-            processors.values.forEach { processor ->
+            try {
+
+                receive(payload)
+
+            } catch (e: Throwable) {
+
+                recordException(e)
+            }
+        }
+    }
+
+    /*
+        Takes over the region, it is closed once the content is read.
+    */
+    fun onSharedMemory(function: String?, memory: SharedMemory, length: Int) {
+
+        receiveInOrder(
+
+            onRejected = { err ->
+
+                memory.close()
+
+                recordException(err)
+            }
+
+        ) {
+
+            try {
+
+                val content = InterprocessBulk.fromSharedMemory(memory, length)
+
+                dispatch(listOf(InterprocessData(function, content)))
+
+            } catch (e: Throwable) {
+
+                recordException(e)
+            }
+        }
+    }
+
+    /*
+        The messages queued for the receiver are transferred first to keep the order, the
+        bulk holds the receiver's lock so no batch overtakes it.
+    */
+    private fun sendBulk(
+
+        receiver: String,
+        function: String,
+        content: String
+
+    ): Boolean {
+
+        return synchronized(lockOf(receiver)) {
+
+            flush(receiver)
+
+            val ctx = BaseApplication.takeContext()
+            val bytes = content.toByteArray(Charsets.UTF_8)
+
+            if (transport.get() == InterprocessTransport.PROVIDER) {
+
+                try {
+
+                    val memory = InterprocessBulk.toSharedMemory(bytes)
+
+                    try {
+
+                        val delivered = InterprocessProvider.deliver(
+
+                            ctx, receiver, function, memory, bytes.size
+                        )
+
+                        if (delivered) {
+
+                            if (DEBUG.get()) Console.log(
+
+                                "$TAG Shared memory :: Receiver = $receiver, Bytes = ${bytes.size}"
+                            )
+
+                            return true
+                        }
+
+                    } finally {
+
+                        memory.close()
+                    }
+
+                } catch (e: Throwable) {
+
+                    Console.warning("$TAG Shared memory failed :: Error = ${e.message}")
+                }
+            }
+
+            val chunks = InterprocessBulk.toChunks(function, bytes)
+
+            if (DEBUG.get()) Console.log(
+
+                "$TAG Chunks :: Receiver = $receiver, Bytes = ${bytes.size}, " +
+                        "Chunks = ${chunks.size}"
+            )
+
+            chunks.all { deliver(receiver, it) }
+        }
+    }
+
+    private fun lockOf(receiver: String) = flushLocks.getOrPut(receiver) { Any() }
+
+    /*
+        The received payloads are handled on one thread, so the messages are dispatched
+        in the order they have arrived.
+    */
+    private fun receiveInOrder(onRejected: (Throwable) -> Unit, what: () -> Unit) {
+
+        try {
+
+            receiving.execute { what() }
+
+        } catch (e: RejectedExecutionException) {
+
+            onRejected(e)
+        }
+    }
+
+    private fun transfer(receiver: String, items: List<InterprocessData>): Boolean {
+
+        val payload = InterprocessCodec.encode(items)
+
+        if (DEBUG.get()) Console.log(
+
+            "$TAG Transfer :: Receiver = $receiver, Messages = ${items.size}, " +
+                    "Bytes = ${payload.size}, Transport = ${transport.get()}"
+        )
+
+        return deliver(receiver, payload)
+    }
+
+    private fun deliver(receiver: String, payload: ByteArray): Boolean {
+
+        val ctx = BaseApplication.takeContext()
+
+        if (
+
+            transport.get() == InterprocessTransport.PROVIDER &&
+            InterprocessProvider.deliver(ctx, receiver, payload)
+
+        ) {
+
+            return true
+        }
+
+        val intent = Intent(InterprocessReceiver.ACTION)
+
+        intent.setClassName(receiver, InterprocessReceiver::class.java.name)
+        intent.putExtra(InterprocessCodec.BATCH_KEY, payload)
+
+        return ctx.sendBroadcastWithResult(intent, local = false)
+    }
+
+    private fun receive(payload: ByteArray) {
+
+        if (InterprocessBulk.isChunk(payload)) {
+
+            dispatch(InterprocessBulk.accept(payload))
+
+            return
+        }
+
+        dispatch(InterprocessCodec.decode(payload))
+    }
+
+    private fun dispatch(items: List<InterprocessData>) {
+
+        items.forEach { data ->
+
+            val routed = data.function?.let { routes[it] }
+            val targets = if (routed.isNullOrEmpty()) fallbacks else routed
+
+            if (targets.isEmpty()) {
+
+                Console.warning("$TAG No processor :: Function = ${data.function}")
+            }
+
+            targets.forEach { processor ->
+
+                try {
+
+                    processor.onData(data)
+
+                } catch (e: Throwable) {
 
-                processor.process(intent)
+                    recordException(e)
+                }
             }
         }
     }
-}
\ No newline at end of file
+}
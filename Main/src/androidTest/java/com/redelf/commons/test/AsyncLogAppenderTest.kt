@@ -0,0 +1,200 @@
+package com.redelf.commons.test
+
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.logging.AsyncLogAppender
+import com.redelf.commons.logging.Console
+import com.redelf.commons.logging.LogEncoder
+import com.redelf.commons.logging.LogOverflowPolicy
+import com.redelf.commons.logging.LogRingBuffer
+import com.redelf.commons.logging.TextLogEncoder
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class AsyncLogAppenderTest : BaseTest() {
+
+    private lateinit var directory: File
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+
+        directory = File(applicationContext.cacheDir, "logs_$testSession")
+    }
+
+    @After
+    fun cleanup() {
+
+        directory.deleteRecursively()
+    }
+
+    @Test
+    fun testRingBuffer() {
+
+        val buffer = LogRingBuffer<Int>(3)
+
+        Assert.assertEquals(4, buffer.getCapacity())
+
+        repeat(4) {
+
+            Assert.assertTrue(buffer.offer(it))
+        }
+
+        Assert.assertFalse(buffer.offer(4))
+
+        repeat(4) {
+
+            Assert.assertEquals(it, buffer.poll())
+        }
+
+        Assert.assertNull(buffer.poll())
+        Assert.assertTrue(buffer.isEmpty())
+    }
+
+    @Test
+    fun testConcurrentWritesAreAllPersisted() {
+
+        val threads = 4
+        val lines = 1000
+        val latch = CountDownLatch(threads)
+
+        val appender = AsyncLogAppender(
+
+            directory,
+            "test",
+            capacity = 64,
+            policy = LogOverflowPolicy.BLOCK
+        )
+
+        repeat(threads) { thread ->
+
+            Thread {
+
+                repeat(lines) {
+
+                    appender.append("Thread $thread :: Line $it")
+                }
+
+                latch.countDown()
+
+            }.start()
+        }
+
+        Assert.assertTrue(latch.await(30, TimeUnit.SECONDS))
+
+        appender.close()
+
+        val stats = appender.getStats()
+
+        Assert.assertEquals((threads * lines).toLong(), stats.written)
+        Assert.assertEquals(0L, stats.dropped)
+
+        val written = directory.listFiles()?.sumOf { it.readLines().size } ?: 0
+
+        Assert.assertEquals(threads * lines, written)
+    }
+
+    @Test
+    fun testRotationBySize() {
+
+        val appender = AsyncLogAppender(directory, "test", maxFileBytes = 1024L)
+
+        repeat(200) {
+
+            appender.append("Line $it :: ${"x".repeat(32)}")
+        }
+
+        appender.close()
+
+        Assert.assertTrue(appender.getStats().rotations > 0)
+        Assert.assertTrue((directory.listFiles()?.size ?: 0) > 1)
+    }
+
+    @Test
+    fun testDropPolicy() {
+
+        val appender = AsyncLogAppender(
+
+            directory,
+            "test",
+            capacity = 2,
+            policy = LogOverflowPolicy.DROP
+        )
+
+        repeat(10_000) {
+
+            appender.append("Line $it")
+        }
+
+        appender.close()
+
+        val stats = appender.getStats()
+
+        Assert.assertEquals(10_000L, stats.accepted + stats.dropped)
+        Assert.assertEquals(stats.accepted, stats.written)
+    }
+
+    @Test
+    fun testFlushWaitsForTheLines() {
+
+        val appender = AsyncLogAppender(directory, "test", flushInterval = 60_000L)
+
+        repeat(100) {
+
+            appender.append("Line $it")
+        }
+
+        Assert.assertTrue(appender.flush(timeout = 3000L))
+
+        Assert.assertEquals(100, appender.getFile()?.readLines()?.size)
+        Assert.assertEquals(100L, appender.getStats().written)
+
+        appender.close()
+    }
+
+    @Test
+    fun testEncoderFailuresDoNotStopTheWriter() {
+
+        val delegate = TextLogEncoder()
+
+        val encoder = object : LogEncoder by delegate {
+
+            override fun encode(timestamp: Long, priority: Int, tag: String?, message: String): Int {
+
+                if (message.startsWith("Fail")) {
+
+                    throw IllegalStateException("Encoding failure")
+                }
+
+                return delegate.encode(timestamp, priority, tag, message)
+            }
+        }
+
+        val appender = AsyncLogAppender(directory, "test", encoder = encoder)
+
+        repeat(10) {
+
+            appender.append("Fail $it")
+            appender.append("Line $it")
+        }
+
+        Assert.assertTrue(appender.flush(timeout = 3000L))
+
+        appender.close()
+
+        val stats = appender.getStats()
+
+        Assert.assertEquals(20L, stats.accepted)
+        Assert.assertEquals(10L, stats.written)
+        Assert.assertEquals(10L, stats.dropped)
+    }
+}
@@ -0,0 +1,110 @@
+package com.redelf.commons.test
+
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.logging.Console
+import com.redelf.commons.logging.LogEncoder
+import com.redelf.commons.logging.TextLogEncoder
+import com.redelf.commons.logging.binary.BinaryLogDecoder
+import com.redelf.commons.logging.binary.BinaryLogEncoder
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.StringWriter
+
+class BinaryLogTest : BaseTest() {
+
+    private lateinit var directory: File
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+
+        directory = File(applicationContext.cacheDir, "binary_logs_$testSession")
+        directory.mkdirs()
+    }
+
+    @After
+    fun cleanup() {
+
+        directory.deleteRecursively()
+    }
+
+    private fun write(encoder: LogEncoder, file: File, lines: Int, flushEvery: Int) {
+
+        val start = 1_700_000_000_000L
+
+        encoder.open(file)
+
+        for (i in 0 until lines) {
+
+            val tag = if (i % 3 == 0) null else "Tag ${i % 5}"
+
+            encoder.encode(
+
+                start + i * 7L,
+                i % 6,
+                tag,
+                "Put :: DO :: key_$i :: rows = ${i % 10}, length = ${i * 31}, zero = 007"
+            )
+
+            if (i % flushEvery == 0) {
+
+                encoder.flush()
+            }
+        }
+
+        encoder.close()
+    }
+
+    @Test
+    fun testRoundTrip() {
+
+        val lines = 5000
+        val text = File(directory, "log.txt")
+        val binary = File(directory, "log.blog")
+
+        write(TextLogEncoder(), text, lines, 1000)
+        write(BinaryLogEncoder(), binary, lines, 1000)
+
+        val decoded = StringWriter()
+
+        Assert.assertEquals(lines, BinaryLogDecoder.decode(binary, decoded))
+        Assert.assertEquals(text.readText(), decoded.toString())
+
+        Console.log("Text = ${text.length()} bytes, Binary = ${binary.length()} bytes")
+
+        Assert.assertTrue(binary.length() * 5 < text.length())
+    }
+
+    @Test
+    fun testSessionsAndInlineStrings() {
+
+        val binary = File(directory, "log.blog")
+        val text = File(directory, "log.txt")
+
+        /*
+            Sessions appended to the same file: the second one resets its dictionary every few
+            entries, the third one writes the templates inline.
+        */
+        write(BinaryLogEncoder(), binary, 100, 10)
+        write(BinaryLogEncoder(maxDictionaryBytes = 512L), binary, 100, 10)
+        write(BinaryLogEncoder(maxInternedLength = 8), binary, 100, 10)
+
+        repeat(3) {
+
+            write(TextLogEncoder(), text, 100, 10)
+        }
+
+        val decoded = StringWriter()
+
+        Assert.assertEquals(300, BinaryLogDecoder.decode(binary, decoded))
+        Assert.assertEquals(text.readText(), decoded.toString())
+    }
+}
@@ -0,0 +1,129 @@
+package com.redelf.commons.test
+
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.logging.Console
+import com.redelf.commons.net.retrofit.HttpClientRegistry
+import com.redelf.commons.net.retrofit.calls.CallDeduplicationInterceptor
+import okhttp3.Interceptor
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class CallDeduplicationTest : BaseTest() {
+
+    private lateinit var server: MockWebServer
+
+    private val pool = Executors.newFixedThreadPool(2)
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+
+        server = MockWebServer()
+        server.start()
+    }
+
+    @After
+    fun cleanup() {
+
+        pool.shutdownNow()
+
+        server.shutdown()
+    }
+
+    @Test
+    fun testIdenticalRequestsShareTheCall() {
+
+        server.enqueue(MockResponse().setBody("shared").setHeadersDelay(500, TimeUnit.MILLISECONDS))
+        server.enqueue(MockResponse().setBody("second"))
+
+        val client = HttpClientRegistry.derive { it.addInterceptor(CallDeduplicationInterceptor()) }
+
+        val leader = pool.submit(Callable { get(client) })
+
+        Thread.sleep(100)
+
+        val follower = pool.submit(Callable { get(client) })
+
+        Assert.assertEquals("shared", leader.get(5, TimeUnit.SECONDS))
+        Assert.assertEquals("shared", follower.get(5, TimeUnit.SECONDS))
+        Assert.assertEquals(1, server.requestCount)
+    }
+
+    @Test
+    fun testLeaderFailureReleasesTheWaiting() {
+
+        server.enqueue(MockResponse().setBody("own"))
+        server.enqueue(MockResponse().setBody("next"))
+
+        val failures = AtomicInteger(1)
+
+        /*
+            The leader fails with an unexpected (not I/O) error after the follower joined.
+        */
+        val failing = Interceptor { chain ->
+
+            if (failures.getAndDecrement() > 0) {
+
+                Thread.sleep(500)
+
+                throw IllegalStateException("Leader failure")
+            }
+
+            chain.proceed(chain.request())
+        }
+
+        val client = HttpClientRegistry.derive { builder ->
+
+            builder
+                .addInterceptor(CallDeduplicationInterceptor())
+                .addInterceptor(failing)
+        }
+
+        val leader = pool.submit(Callable { get(client) })
+
+        Thread.sleep(100)
+
+        val follower = pool.submit(Callable { get(client) })
+
+        try {
+
+            leader.get(5, TimeUnit.SECONDS)
+
+            Assert.fail("Leader failure expected")
+
+        } catch (e: Exception) {
+
+            Console.log("Leader failed as expected: ${e.message}")
+        }
+
+        Assert.assertEquals("own", follower.get(5, TimeUnit.SECONDS))
+
+        /*
+            The failed leader is not left in flight, the next request goes to the network.
+        */
+        Assert.assertEquals("next", get(client))
+        Assert.assertEquals(2, server.requestCount)
+    }
+
+    private fun get(client: OkHttpClient): String {
+
+        val request = Request.Builder().url(server.url("/data")).build()
+
+        return client.newCall(request).execute().use { it.body.string() }
+    }
+}
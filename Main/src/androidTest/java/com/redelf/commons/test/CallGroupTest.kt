@@ -0,0 +1,110 @@
+package com.redelf.commons.test
+
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.extensions.yieldWhile
+import com.redelf.commons.logging.Console
+import com.redelf.commons.net.retrofit.HttpClientRegistry
+import com.redelf.commons.net.retrofit.calls.CallGroup
+import com.redelf.commons.net.retrofit.calls.InFlightCalls
+import okhttp3.Call
+import okhttp3.Callback
+import okhttp3.Request
+import okhttp3.Response
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.io.IOException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class CallGroupTest : BaseTest() {
+
+    private lateinit var server: MockWebServer
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+
+        server = MockWebServer()
+        server.start()
+    }
+
+    @After
+    fun cleanup() {
+
+        server.shutdown()
+    }
+
+    @Test
+    fun testGroupCancellation() {
+
+        repeat(3) {
+
+            server.enqueue(MockResponse().setBody("slow").setHeadersDelay(5, TimeUnit.SECONDS))
+        }
+
+        server.enqueue(MockResponse().setBody("other"))
+
+        val group = CallGroup("test")
+        val client = HttpClientRegistry.derive { }
+        val failed = CountDownLatch(3)
+
+        val callback = object : Callback {
+
+            override fun onFailure(call: Call, e: IOException) {
+
+                failed.countDown()
+            }
+
+            override fun onResponse(call: Call, response: Response) {
+
+                response.close()
+            }
+        }
+
+        /*
+            Calls are registered when they start, not when they are created.
+        */
+        val calls = (0 until 3).map {
+
+            val request = Request.Builder()
+                .url(server.url("/slow/$it"))
+                .tag(CallGroup::class.java, group)
+                .build()
+
+            client.newCall(request)
+        }
+
+        Assert.assertEquals(0, group.getCount())
+
+        calls.forEach { it.enqueue(callback) }
+
+        yieldWhile(timeoutInMilliseconds = 3000) { group.getCount() < 3 }
+
+        Assert.assertEquals(3, group.getCount())
+
+        group.cancel()
+
+        Assert.assertTrue(failed.await(3, TimeUnit.SECONDS))
+        Assert.assertTrue(calls.all { it.isCanceled() })
+        Assert.assertEquals(0, group.getCount())
+
+        /*
+            Calls outside of the group are not affected.
+        */
+        val other = client.newCall(Request.Builder().url(server.url("/other")).build())
+
+        other.execute().use { Assert.assertEquals("other", it.body.string()) }
+
+        Assert.assertFalse(other.isCanceled())
+        Assert.assertTrue(InFlightCalls.getCalls(group).isEmpty())
+    }
+}
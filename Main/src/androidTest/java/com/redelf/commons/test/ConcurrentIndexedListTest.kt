@@ -0,0 +1,154 @@
+package com.redelf.commons.test
+
+import com.redelf.commons.collections.ConcurrentIndexedList
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.logging.Console
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class ConcurrentIndexedListTest : BaseTest() {
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+    }
+
+    @Test
+    fun testListOperations() {
+
+        val list = ConcurrentIndexedList(listOf(3, 1, 2))
+
+        Assert.assertEquals(3, list.size)
+        Assert.assertEquals(3, list.getAtIndex(0))
+        Assert.assertNull(list.getAtIndex(3))
+        Assert.assertNull(list.getAtIndex(-1))
+
+        /*
+            Equal elements are kept.
+        */
+        Assert.assertTrue(list.add(1))
+        Assert.assertEquals(listOf(3, 1, 2, 1), list.snapshotList())
+        Assert.assertEquals(1, list.indexOf(1))
+        Assert.assertEquals(3, list.lastIndexOf(1))
+
+        list.add(0, 4)
+
+        Assert.assertEquals(listOf(4, 3, 1, 2, 1), list.snapshotList())
+        Assert.assertEquals(3, list.set(1, 5))
+        Assert.assertEquals(4, list.removeAt(0))
+        Assert.assertEquals(listOf(5, 1, 2, 1), list.snapshotList())
+
+        Assert.assertTrue(list.removeAll(listOf(1)))
+        Assert.assertEquals(listOf(5, 2), list.snapshotList())
+        Assert.assertFalse(list.remove(7))
+
+        list.sortWith(compareBy { it })
+
+        Assert.assertEquals(listOf(2, 5), list.snapshotList())
+        Assert.assertEquals(2, list.firstOrNull())
+        Assert.assertEquals(5, list.lastOrNull())
+
+        list.clear()
+
+        Assert.assertTrue(list.isEmpty())
+        Assert.assertNull(list.firstOrNull())
+    }
+
+    @Test
+    fun testMutatedElementsAreFound() {
+
+        val first = Tracked(1)
+        val second = Tracked(2)
+        val list = ConcurrentIndexedList(listOf(first, second))
+
+        second.value = 20
+
+        Assert.assertTrue(list.contains(second))
+        Assert.assertEquals(1, list.indexOf(second))
+        Assert.assertTrue(list.remove(second))
+        Assert.assertEquals(listOf(first), list.snapshotList())
+    }
+
+    @Test
+    fun testBatchPublishesOnce() {
+
+        val list = ConcurrentIndexedList(listOf(1, 2, 3))
+        val before = list.snapshotList()
+
+        list.batch { draft ->
+
+            draft.add(4)
+            draft.removeAt(0)
+            draft[0] = 20
+
+            Assert.assertEquals(listOf(1, 2, 3), list.snapshotList())
+        }
+
+        Assert.assertEquals(listOf(1, 2, 3), before)
+        Assert.assertEquals(listOf(20, 3, 4), list.snapshotList())
+
+        try {
+
+            list.batch<Unit> { draft ->
+
+                draft.clear()
+
+                throw IllegalStateException("Abort")
+            }
+
+        } catch (e: IllegalStateException) {
+
+            Console.log("Batch aborted: ${e.message}")
+        }
+
+        Assert.assertEquals(listOf(20, 3, 4), list.snapshotList())
+
+        /*
+            Iterators keep the snapshot they were created with.
+        */
+        val iterator = list.iterator()
+
+        list.replaceAll(listOf(7))
+
+        Assert.assertEquals(listOf(20, 3, 4), iterator.asSequence().toList())
+        Assert.assertEquals(listOf(7), list.toList())
+    }
+
+    @Test
+    fun testConcurrentAccess() {
+
+        val list = ConcurrentIndexedList<Int>()
+        val threads = 4
+        val perThread = 500
+        val latch = CountDownLatch(threads)
+
+        (0 until threads).forEach { thread ->
+
+            executor.execute {
+
+                (0 until perThread).forEach {
+
+                    list.add(thread * perThread + it)
+
+                    list.getAtIndex(list.size - 1)
+                }
+
+                latch.countDown()
+            }
+        }
+
+        Assert.assertTrue(latch.await(30, TimeUnit.SECONDS))
+        Assert.assertEquals(threads * perThread, list.size)
+        Assert.assertEquals(threads * perThread, list.toSet().size)
+    }
+
+    private data class Tracked(var value: Int)
+}
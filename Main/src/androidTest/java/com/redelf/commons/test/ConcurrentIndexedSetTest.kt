@@ -0,0 +1,158 @@
+package com.redelf.commons.test
+
+import com.redelf.commons.collections.ConcurrentIndexedSet
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.logging.Console
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class ConcurrentIndexedSetTest : BaseTest() {
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+    }
+
+    @Test
+    fun testIndexedOperations() {
+
+        val set = ConcurrentIndexedSet(listOf(3, 1, 2))
+
+        Assert.assertEquals(3, set.size)
+        Assert.assertEquals(3, set.getAtIndex(0))
+        Assert.assertEquals(2, set.getAtIndex(2))
+        Assert.assertNull(set.getAtIndex(3))
+        Assert.assertNull(set.getAtIndex(-1))
+
+        Assert.assertFalse(set.add(1))
+        Assert.assertTrue(set.addAt(0, 4))
+        Assert.assertFalse(set.addAt(0, 4))
+        Assert.assertEquals(listOf(4, 3, 1, 2), set.snapshotList())
+        Assert.assertEquals(2, set.indexOf(1))
+
+        Assert.assertEquals(3, set.removeAt(1))
+        Assert.assertEquals(listOf(4, 1, 2), set.snapshotList())
+        Assert.assertEquals(1, set.indexOf(1))
+        Assert.assertFalse(set.contains(3))
+
+        set.sortWith(compareBy { it })
+
+        Assert.assertEquals(listOf(1, 2, 4), set.snapshotList())
+        Assert.assertEquals(2, set.indexOf(4))
+
+        Assert.assertTrue(set.removeAll(listOf(1, 4)))
+        Assert.assertEquals(listOf(2), set.snapshotList())
+        Assert.assertEquals(0, set.indexOf(2))
+    }
+
+    @Test
+    fun testBatchPublishesOnce() {
+
+        val set = ConcurrentIndexedSet<Int>()
+        val before = set.snapshotList()
+
+        set.batch { draft ->
+
+            (0 until 1000).forEach { draft.add(it) }
+
+            draft.remove(500)
+            draft.addAt(0, 5000)
+
+            Assert.assertTrue(set.isEmpty())
+            Assert.assertEquals(0, draft.indexOf(5000))
+            Assert.assertEquals(1000, draft.size)
+        }
+
+        Assert.assertTrue(before.isEmpty())
+        Assert.assertEquals(1000, set.size)
+        Assert.assertEquals(5000, set.getAtIndex(0))
+        Assert.assertEquals(-1, set.indexOf(500))
+        Assert.assertEquals(501, set.indexOf(501))
+
+        try {
+
+            set.batch<Unit> { draft ->
+
+                draft.clear()
+
+                throw IllegalStateException("Abort")
+            }
+
+        } catch (e: IllegalStateException) {
+
+            Console.log("Batch aborted: ${e.message}")
+        }
+
+        Assert.assertEquals(1000, set.size)
+    }
+
+    @Test
+    fun testMutatedElementsAreFound() {
+
+        val first = Tracked(1)
+        val second = Tracked(2)
+        val set = ConcurrentIndexedSet(listOf(first, second))
+
+        /*
+            The hash code changes, the index still has the old one.
+        */
+        second.value = 20
+
+        Assert.assertTrue(set.contains(second))
+        Assert.assertEquals(1, set.indexOf(second))
+        Assert.assertTrue(set.remove(second))
+        Assert.assertEquals(listOf(first), set.snapshotList())
+
+        first.value = 10
+
+        set.batch { draft ->
+
+            Assert.assertEquals(0, draft.indexOf(first))
+            Assert.assertTrue(draft.remove(first))
+        }
+
+        Assert.assertTrue(set.isEmpty())
+    }
+
+    @Test
+    fun testConcurrentAccess() {
+
+        val set = ConcurrentIndexedSet<Int>()
+        val threads = 4
+        val perThread = 500
+        val latch = CountDownLatch(threads)
+
+        (0 until threads).forEach { thread ->
+
+            executor.execute {
+
+                (0 until perThread).forEach {
+
+                    set.add(thread * perThread + it)
+
+                    set.getAtIndex(set.size - 1)
+                }
+
+                latch.countDown()
+            }
+        }
+
+        Assert.assertTrue(latch.await(30, TimeUnit.SECONDS))
+        Assert.assertEquals(threads * perThread, set.size)
+
+        set.snapshotList().forEachIndexed { index, item ->
+
+            Assert.assertEquals(index, set.indexOf(item))
+        }
+    }
+
+    private data class Tracked(var value: Int)
+}
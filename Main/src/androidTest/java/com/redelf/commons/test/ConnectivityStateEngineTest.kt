@@ -0,0 +1,152 @@
+package com.redelf.commons.test
+
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.logging.Console
+import com.redelf.commons.net.connectivity.ConnectivityStateEngine
+import com.redelf.commons.net.connectivity.NetworkState
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicInteger
+
+class ConnectivityStateEngineTest : BaseTest() {
+
+    private val online = NetworkState(
+
+        network = 1L,
+        connected = true,
+        validated = true,
+        metered = false
+    )
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+
+        ConnectivityStateEngine.reset()
+    }
+
+    @After
+    fun cleanup() {
+
+        ConnectivityStateEngine.reset()
+    }
+
+    @Test
+    fun testGenerationChangesOnlyWithTheState() {
+
+        Assert.assertFalse(ConnectivityStateEngine.isKnown())
+
+        Assert.assertTrue(ConnectivityStateEngine.update(online))
+
+        val generation = ConnectivityStateEngine.getGeneration()
+
+        Assert.assertFalse(ConnectivityStateEngine.update(online.copy()))
+        Assert.assertEquals(generation, ConnectivityStateEngine.getGeneration())
+
+        Assert.assertTrue(ConnectivityStateEngine.update(online.copy(metered = true)))
+        Assert.assertEquals(generation + 1, ConnectivityStateEngine.getGeneration())
+        Assert.assertEquals(true, ConnectivityStateEngine.isMetered())
+    }
+
+    @Test
+    fun testReachabilityIsCachedPerGeneration() {
+
+        val verifications = AtomicInteger()
+
+        ConnectivityStateEngine.update(online)
+
+        repeat(10) {
+
+            Assert.assertTrue(
+
+                ConnectivityStateEngine.isReachable("test") {
+
+                    verifications.incrementAndGet()
+
+                    true
+                }
+            )
+        }
+
+        Assert.assertEquals(1, verifications.get())
+
+        ConnectivityStateEngine.update(online.copy(network = 2L))
+
+        ConnectivityStateEngine.isReachable("test") {
+
+            verifications.incrementAndGet()
+
+            true
+        }
+
+        Assert.assertEquals(2, verifications.get())
+
+        ConnectivityStateEngine.isReachable("test", ttl = 0L) {
+
+            verifications.incrementAndGet()
+
+            true
+        }
+
+        Assert.assertEquals(3, verifications.get())
+    }
+
+    @Test
+    fun testAwaitOnline() {
+
+        ConnectivityStateEngine.update(NetworkState.OFFLINE)
+
+        Assert.assertFalse(ConnectivityStateEngine.awaitOnline(100L))
+
+        val worker = Thread {
+
+            Thread.sleep(200L)
+
+            ConnectivityStateEngine.update(online)
+        }
+
+        val start = System.currentTimeMillis()
+
+        worker.start()
+
+        Assert.assertTrue(ConnectivityStateEngine.awaitOnline(5000L))
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000L)
+
+        worker.join()
+    }
+
+    @Test
+    fun testUntilOnline() {
+
+        ConnectivityStateEngine.update(NetworkState.OFFLINE)
+
+        runBlocking {
+
+            Assert.assertFalse(ConnectivityStateEngine.untilOnline(100L))
+        }
+
+        val worker = Thread {
+
+            Thread.sleep(200L)
+
+            ConnectivityStateEngine.update(online)
+        }
+
+        worker.start()
+
+        runBlocking {
+
+            Assert.assertTrue(ConnectivityStateEngine.untilOnline(5000L))
+        }
+
+        worker.join()
+    }
+}
@@ -0,0 +1,56 @@
+package com.redelf.commons.test
+
+import android.util.Log
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.logging.Console
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicInteger
+
+class ConsoleTest : BaseTest() {
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+    }
+
+    @After
+    fun cleanup() {
+
+        Console.setMinimumPriority(Log.VERBOSE)
+    }
+
+    @Test
+    fun testLazyMessagesAreBuiltOnlyWhenEnabled() {
+
+        val built = AtomicInteger()
+
+        Console.log { "Message ${built.incrementAndGet()}" }
+        Console.debug { "Message ${built.incrementAndGet()}" }
+
+        Assert.assertEquals(2, built.get())
+
+        Console.setMinimumPriority(Log.WARN)
+
+        Assert.assertFalse(Console.isEnabled(Log.VERBOSE))
+        Assert.assertFalse(Console.isEnabled(Log.INFO))
+        Assert.assertTrue(Console.isEnabled(Log.WARN))
+
+        Console.log { "Message ${built.incrementAndGet()}" }
+        Console.debug { "Message ${built.incrementAndGet()}" }
+        Console.info { "Message ${built.incrementAndGet()}" }
+
+        Assert.assertEquals(2, built.get())
+
+        Console.warning { "Message ${built.incrementAndGet()}" }
+
+        Assert.assertEquals(3, built.get())
+    }
+}
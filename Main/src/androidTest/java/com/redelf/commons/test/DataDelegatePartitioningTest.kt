@@ -2,8 +2,20 @@ package com.redelf.commons.test
 
 import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
 import com.redelf.commons.logging.Console
+import com.redelf.commons.obtain.Obtain
+import com.redelf.commons.obtain.OnObtain
+import com.redelf.commons.persistance.EncryptedPersistence
+import com.redelf.commons.persistance.PartitionRowsCursor
+import com.redelf.commons.test.test_data.SampleData
+import com.redelf.commons.test.test_data.SampleData2
+import org.junit.Assert
 import org.junit.Before
+import org.junit.Test
 import java.util.UUID
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicReference
 
 class DataDelegatePartitioningTest : BaseTest() {
 
@@ -20,6 +32,169 @@ class DataDelegatePartitioningTest : BaseTest() {
         GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
     }
 
+    @Test
+    fun testRows() {
+
+        val persistence = instantiatePersistenceAndInitialize()
+
+        Assert.assertNotNull(persistence)
+
+        persistence?.let {
+
+            val key = "Test.Rows.${System.currentTimeMillis()}"
+            val rows = createRows(7)
+
+            Assert.assertTrue(push(persistence, key, SampleData(partition1 = rows)))
+
+            val cursor = PartitionRowsCursor<SampleData2>(persistence, key, 0)
+
+            Assert.assertEquals(rows.size, cursor.getCount())
+
+            assertRows(rows.subList(0, 3), cursor.read(0, 3))
+            assertRows(rows.subList(3, 6), cursor.read(3, 3))
+
+            /*
+                A window past the end of the partition is cut to the remaining rows.
+            */
+            assertRows(rows.subList(5, 7), cursor.read(5, 10))
+            assertRows(rows, pullRows(persistence, key, 0, 0, rows.size))
+        }
+    }
+
+    @Test
+    fun testRowsOutOfRange() {
+
+        val persistence = instantiatePersistenceAndInitialize()
+
+        Assert.assertNotNull(persistence)
+
+        persistence?.let {
+
+            val key = "Test.Rows.Range.${System.currentTimeMillis()}"
+            val rows = createRows(7)
+
+            Assert.assertTrue(push(persistence, key, SampleData(partition1 = rows)))
+
+            val cursor = PartitionRowsCursor<SampleData2>(persistence, key, 0)
+
+            Assert.assertTrue(cursor.read(rows.size, 3).isEmpty())
+            Assert.assertTrue(cursor.read(20, 3).isEmpty())
+            Assert.assertTrue(cursor.read(-1, 3).isEmpty())
+            Assert.assertTrue(cursor.read(0, 0).isEmpty())
+            Assert.assertTrue(cursor.read(0, -1).isEmpty())
+
+            Assert.assertTrue(pullRows(persistence, key, 0, rows.size, 1)?.isEmpty() == true)
+        }
+    }
+
+    @Test
+    fun testRowsEmptyPartition() {
+
+        val persistence = instantiatePersistenceAndInitialize()
+
+        Assert.assertNotNull(persistence)
+
+        persistence?.let {
+
+            val key = "Test.Rows.Empty.${System.currentTimeMillis()}"
+
+            Assert.assertTrue(push(persistence, key, SampleData(partition1 = CopyOnWriteArrayList())))
+
+            val empty = PartitionRowsCursor<SampleData2>(persistence, key, 0)
+
+            Assert.assertEquals(0, empty.getCount())
+            Assert.assertTrue(empty.read(0, 10).isEmpty())
+
+            val missing = PartitionRowsCursor<SampleData2>(persistence, "$key.missing", 0)
+
+            Assert.assertEquals(0, missing.getCount())
+            Assert.assertTrue(missing.read(0, 10).isEmpty())
+
+            Assert.assertTrue(pullRows(persistence, "", 0, 0, 10)?.isEmpty() == true)
+        }
+    }
+
+    private fun createRows(count: Int): CopyOnWriteArrayList<SampleData2> {
+
+        val rows = CopyOnWriteArrayList<SampleData2>()
+
+        for (x in 0 until count) {
+
+            rows.add(
+
+                SampleData2(
+
+                    id = UUID(x.toLong(), x.toLong()),
+                    isEnabled = x % 2 == 0,
+                    order = x.toLong(),
+                    title = x.toString()
+                )
+            )
+        }
+
+        return rows
+    }
+
+    private fun assertRows(expected: List<SampleData2>, rows: List<SampleData2?>?) {
+
+        Assert.assertNotNull(rows)
+
+        Assert.assertEquals(expected.map { it.id }, rows?.map { it?.id })
+        Assert.assertEquals(expected.map { it.order }, rows?.map { it?.order })
+        Assert.assertEquals(expected.map { it.title }, rows?.map { it?.title })
+    }
+
+    private fun push(persistence: EncryptedPersistence, key: String, data: SampleData): Boolean {
+
+        return persistence.push(
+
+            key, data,
+
+            object : Obtain<Boolean> {
+
+                override fun obtain() = true
+            }
+        )
+    }
+
+    private fun pullRows(
+
+        persistence: EncryptedPersistence,
+        key: String,
+        partition: Int,
+        offset: Int,
+        limit: Int
+
+    ): List<SampleData2?>? {
+
+        val result = AtomicReference<List<SampleData2?>?>()
+        val latch = CountDownLatch(1)
+
+        persistence.pullRows(
+
+            key, partition, offset, limit,
+
+            object : OnObtain<List<SampleData2?>?> {
+
+                override fun onCompleted(data: List<SampleData2?>?) {
+
+                    result.set(data)
+
+                    latch.countDown()
+                }
+
+                override fun onFailure(error: Throwable) {
+
+                    Assert.fail(error.message)
+                }
+            }
+        )
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS))
+
+        return result.get()
+    }
+
     // FIXME: Fix the test
 
 //    @Test
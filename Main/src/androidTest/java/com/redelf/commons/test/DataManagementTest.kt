@@ -1,9 +1,21 @@
 package com.redelf.commons.test
 
+import com.google.gson.annotations.SerializedName
+import com.redelf.commons.context.ContextualManager
 import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.extensions.yieldWhile
 import com.redelf.commons.logging.Console
+import com.redelf.commons.management.DataManagement
+import com.redelf.commons.management.DataPushResult
+import com.redelf.commons.obtain.OnObtain
+import com.redelf.commons.versioning.Versionable
+import org.junit.Assert
 import org.junit.Before
 import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
 
 class DataManagementTest : BaseTest() {
 
@@ -22,4 +34,302 @@ class DataManagementTest : BaseTest() {
 
         // TODO: Implement test
     }
-}
\ No newline at end of file
+
+    @Test
+    fun testDraftStaleness() {
+
+        val manager = createManager()
+
+        val first = manager.draft("first")
+        val second = manager.draft("second")
+
+        Assert.assertNotNull(first)
+        Assert.assertNotNull(second)
+        Assert.assertFalse(first?.isStale() == true)
+        Assert.assertFalse(second?.isStale() == true)
+
+        first?.data?.value = 1
+
+        Assert.assertNull(commit(first))
+
+        Assert.assertTrue(second?.isStale() == true)
+        Assert.assertEquals(1, manager.takeSnapshot()?.obtain()?.value)
+        Assert.assertEquals(manager.getCommitVersion(), manager.getSnapshotVersion())
+
+        second?.data?.value = 2
+
+        val error = commit(second)
+
+        Assert.assertTrue(error is IllegalStateException)
+        Assert.assertEquals(1, manager.takeSnapshot()?.obtain()?.value)
+
+        /*
+            A plain commit of the data in place is a new version as well.
+        */
+        val third = manager.draft("third")
+
+        Assert.assertNull(commit(manager, manager.obtain()))
+        Assert.assertTrue(third?.isStale() == true)
+        Assert.assertTrue(commit(third) is IllegalStateException)
+
+        val fourth = manager.draft("fourth")
+
+        fourth?.data?.value = 4
+
+        Assert.assertFalse(fourth?.isStale() == true)
+        Assert.assertNull(commit(fourth))
+        Assert.assertEquals(4, manager.takeSnapshot()?.obtain()?.value)
+    }
+
+    @Test
+    fun testConcurrentDraftCommits() {
+
+        val manager = createManager()
+        val base = manager.getCommitVersion()
+        val drafts = (0 until 5).mapNotNull { manager.draft("draft.$it") }
+
+        Assert.assertEquals(5, drafts.size)
+
+        val committed = AtomicInteger()
+        val rejected = AtomicInteger()
+        val latch = CountDownLatch(drafts.size)
+
+        drafts.forEachIndexed { index, draft ->
+
+            draft.data.value = index + 1
+
+            executor.execute {
+
+                draft.commit(
+
+                    notify = false,
+
+                    callback = object : OnObtain<DataPushResult?> {
+
+                        override fun onCompleted(data: DataPushResult?) {
+
+                            if (data?.success == true) {
+
+                                committed.incrementAndGet()
+                            }
+
+                            latch.countDown()
+                        }
+
+                        override fun onFailure(error: Throwable) {
+
+                            if (error is IllegalStateException) {
+
+                                rejected.incrementAndGet()
+                            }
+
+                            latch.countDown()
+                        }
+                    }
+                )
+            }
+        }
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS))
+        Assert.assertEquals(1, committed.get())
+        Assert.assertEquals(drafts.size - 1, rejected.get())
+        Assert.assertTrue(manager.getCommitVersion() > base)
+
+        val winner = manager.takeSnapshot()?.obtain()
+
+        Assert.assertNotNull(winner)
+        Assert.assertTrue(drafts.any { it.data === winner })
+    }
+
+    @Test
+    fun testReadsDuringLock() {
+
+        val manager = createManager()
+        val draft = manager.draft("locked")
+
+        draft?.data?.value = 7
+
+        Assert.assertNull(commit(draft))
+
+        val snapshot = manager.takeSnapshot()
+
+        Assert.assertNotNull(snapshot)
+
+        manager.lock()
+
+        try {
+
+            val first = read(manager)
+            val second = read(manager)
+
+            /*
+                Locked reads share the committed snapshot instead of copying it.
+            */
+            Assert.assertEquals(7, first?.value)
+            Assert.assertSame(snapshot?.obtain(), first)
+            Assert.assertSame(first, second)
+
+            val result = AtomicReference<DataPushResult?>()
+
+            manager.apply(
+
+                Counter().apply { value = 8 },
+                "test.locked",
+                false,
+
+                object : OnObtain<DataPushResult?> {
+
+                    override fun onCompleted(data: DataPushResult?) {
+
+                        result.set(data)
+                    }
+
+                    override fun onFailure(error: Throwable) {
+
+                        Assert.fail(error.message)
+                    }
+                }
+            )
+
+            yieldWhile(timeoutInMilliseconds = 3000) {
+
+                result.get() == null
+            }
+
+            Assert.assertFalse(result.get()?.success == true)
+            Assert.assertSame(snapshot, manager.takeSnapshot())
+            Assert.assertFalse(manager.isSnapshotStale(snapshot))
+
+        } finally {
+
+            manager.unlock()
+        }
+
+        Assert.assertEquals(7, manager.obtain()?.value)
+    }
+
+    private fun createManager(): CounterManager {
+
+        val manager = CounterManager()
+
+        Assert.assertNotNull(manager.obtain())
+
+        yieldWhile(timeoutInMilliseconds = 3000) {
+
+            manager.takeSnapshot() == null
+        }
+
+        Assert.assertNotNull(manager.takeSnapshot())
+
+        return manager
+    }
+
+    private fun commit(draft: DataManagement.DataDraft<Counter>?): Throwable? {
+
+        Assert.assertNotNull(draft)
+
+        return awaitCommit { callback ->
+
+            draft?.commit(notify = false, callback = callback)
+        }
+    }
+
+    private fun commit(manager: CounterManager, data: Counter?): Throwable? {
+
+        Assert.assertNotNull(data)
+
+        return awaitCommit { callback ->
+
+            manager.apply(data, "test.commit", false, callback)
+        }
+    }
+
+    /*
+        Returns the commit error, a commit which completed without success is an error as well.
+    */
+    private fun awaitCommit(commit: (OnObtain<DataPushResult?>) -> Unit): Throwable? {
+
+        val failure = AtomicReference<Throwable?>()
+        val latch = CountDownLatch(1)
+
+        commit(
+
+            object : OnObtain<DataPushResult?> {
+
+                override fun onCompleted(data: DataPushResult?) {
+
+                    if (data?.success != true) {
+
+                        failure.set(IllegalArgumentException("Commit not applied"))
+                    }
+
+                    latch.countDown()
+                }
+
+                override fun onFailure(error: Throwable) {
+
+                    failure.set(error)
+
+                    latch.countDown()
+                }
+            }
+        )
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS))
+
+        return failure.get()
+    }
+
+    private fun read(manager: CounterManager): Counter? {
+
+        val result = AtomicReference<Counter?>()
+        val latch = CountDownLatch(1)
+
+        manager.obtain(
+
+            object : OnObtain<Counter?> {
+
+                override fun onCompleted(data: Counter?) {
+
+                    result.set(data)
+
+                    latch.countDown()
+                }
+
+                override fun onFailure(error: Throwable) {
+
+                    latch.countDown()
+                }
+            }
+        )
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS))
+
+        return result.get()
+    }
+
+    private class Counter : Versionable {
+
+        @SerializedName("value")
+        var value: Int = 0
+
+        @SerializedName("version")
+        private var version: Long = 0
+
+        override fun getVersion() = version
+
+        override fun increaseVersion() = ++version
+    }
+
+    private class CounterManager : ContextualManager<Counter>() {
+
+        override val persist = false
+        override val snapshotReads = true
+        override val instantiateDataObject = true
+        override val storageKey = "test.counter.${System.nanoTime()}"
+
+        override fun getLogTag() = "CounterManager :: ${hashCode()} ::"
+
+        override fun createDataObject() = Counter()
+    }
+}
@@ -1,6 +1,7 @@
 package com.redelf.commons.test
 
 import com.google.gson.GsonBuilder
+import com.google.gson.reflect.TypeToken
 import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
 import com.redelf.commons.extensions.isNotEmpty
 import com.redelf.commons.logging.Console
@@ -12,6 +13,7 @@ import com.redelf.commons.test.test_data.SimpleAsset
 import org.junit.Assert
 import org.junit.Before
 import org.junit.Test
+import java.io.StringReader
 
 class GsonParserTest : BaseTest() {
 
@@ -241,4 +243,48 @@ class GsonParserTest : BaseTest() {
             Assert.assertEquals(key, deserialized)
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    fun testStreamingDecoding() {
+
+        val parser = GsonParser.instantiate(
+
+            "test.streaming.${System.currentTimeMillis()}",
+            null,
+            false,
+
+            object : Obtain<GsonBuilder> {
+
+                override fun obtain() = GsonBuilder()
+            }
+        )
+
+        val assets = (0 until 100).map {
+
+            SimpleAsset(size = it.toLong(), fileName = "file_$it", cid = "cid_$it")
+        }
+
+        val json = parser.toJson(assets)
+
+        Assert.assertNotNull(json)
+
+        val listType = object : TypeToken<List<SimpleAsset>>() {}.type
+        val decoded = parser.fromJson<List<SimpleAsset>>(StringReader(json), listType)
+
+        Assert.assertEquals(assets.size, decoded?.size)
+        Assert.assertEquals("cid_42", decoded?.get(42)?.cid)
+
+        val iterator = parser.fromJsonArray<SimpleAsset>(StringReader(json), SimpleAsset::class.java)
+
+        var count = 0
+
+        iterator.forEach { asset ->
+
+            Assert.assertEquals("file_$count", asset.fileName)
+
+            count++
+        }
+
+        Assert.assertEquals(assets.size, count)
+    }
+}
@@ -0,0 +1,132 @@
+package com.redelf.commons.test
+
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.logging.Console
+import com.redelf.commons.net.retrofit.interceptor.JsonStreamValidator
+import com.redelf.commons.net.retrofit.interceptor.JsonValidatingResponseBody
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.ResponseBody.Companion.toResponseBody
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicInteger
+
+class JsonStreamValidatorTest : BaseTest() {
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+    }
+
+    @Test
+    fun testValidDocuments() {
+
+        listOf(
+
+            "",
+            "  ",
+            "42",
+            "-0.5e+3",
+            "\"text\"",
+            "null",
+            "[]",
+            "{}",
+            "{\"a\":[1,2.5e3,true,false,null],\"b\":{\"c\":\"\\u00e9\\n\"}}",
+            "[ { \"ключ\" : \"значение\" } , [ [ ] ] ]"
+
+        ).forEach { json ->
+
+            Assert.assertTrue(json, validate(json).isValid())
+        }
+    }
+
+    @Test
+    fun testInvalidDocuments() {
+
+        listOf(
+
+            "{",
+            "[1,]",
+            "{\"a\":1,}",
+            "{\"a\" 1}",
+            "[1 2]",
+            "{\"a\":1]",
+            "01",
+            "-",
+            "tru",
+            "\"\\x\"",
+            "\"\\u12G4\"",
+            "{} {}",
+            "{a:1}"
+
+        ).forEach { json ->
+
+            Assert.assertFalse(json, validate(json).isValid())
+        }
+    }
+
+    @Test
+    fun testChunkedInput() {
+
+        val json = "{\"items\":[" + (0 until 1000).joinToString(",") {
+
+            "{\"id\":$it,\"name\":\"Item $it\",\"price\":$it.99}"
+
+        } + "]}"
+
+        val bytes = json.toByteArray()
+        val validator = JsonStreamValidator()
+
+        var offset = 0
+
+        while (offset < bytes.size) {
+
+            val length = minOf(7, bytes.size - offset)
+
+            validator.write(bytes, offset, length)
+
+            offset += length
+        }
+
+        Assert.assertTrue(validator.isValid())
+        Assert.assertEquals(bytes.size.toLong(), validator.getPosition())
+    }
+
+    @Test
+    fun testValidatingResponseBody() {
+
+        val invalid = AtomicInteger()
+        val type = "application/json".toMediaType()
+
+        val valid = JsonValidatingResponseBody("{\"a\":[1,2,3]}".toResponseBody(type)) {
+
+            invalid.incrementAndGet()
+        }
+
+        Assert.assertEquals("{\"a\":[1,2,3]}", valid.string())
+        Assert.assertEquals(0, invalid.get())
+
+        val broken = JsonValidatingResponseBody("{\"a\":[1,2,3}".toResponseBody(type)) {
+
+            invalid.incrementAndGet()
+        }
+
+        Assert.assertEquals("{\"a\":[1,2,3}", broken.string())
+        Assert.assertEquals(1, invalid.get())
+    }
+
+    private fun validate(json: String): JsonStreamValidator {
+
+        val validator = JsonStreamValidator()
+        val bytes = json.toByteArray()
+
+        validator.write(bytes, 0, bytes.size)
+
+        return validator
+    }
+}
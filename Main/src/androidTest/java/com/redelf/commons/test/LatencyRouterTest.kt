@@ -0,0 +1,101 @@
+package com.redelf.commons.test
+
+import android.content.Context
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.logging.Console
+import com.redelf.commons.net.remote.Remote
+import com.redelf.commons.net.routing.LatencyRouter
+import com.redelf.commons.obtain.ObtainParametrized
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+
+class LatencyRouterTest : BaseTest() {
+
+    private class TestRemote(val name: String, private val quality: Long) : Remote {
+
+        override fun ping() = true
+
+        override fun isAlive(ctx: Context) = true
+
+        override fun getSpeed(ctx: Context) = quality
+
+        override fun getQuality() = quality
+    }
+
+    private val keyObtainer = object : ObtainParametrized<String, TestRemote> {
+
+        override fun obtain(param: TestRemote) = param.name
+    }
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+    }
+
+    @Test
+    fun testInitialRankingFollowsQuality() {
+
+        val a = TestRemote("a", 300)
+        val b = TestRemote("b", 100)
+        val c = TestRemote("c", Long.MAX_VALUE)
+
+        val router = LatencyRouter(listOf(a, b, c), keyObtainer, initialScore = 200)
+
+        Assert.assertEquals(b, router.select())
+        Assert.assertEquals(listOf(b, c, a), router.getRanked())
+    }
+
+    @Test
+    fun testLatencyMovesTheRanking() {
+
+        val a = TestRemote("a", 100)
+        val b = TestRemote("b", 200)
+
+        val router = LatencyRouter(listOf(a, b), keyObtainer, alpha = 0.5)
+
+        Assert.assertEquals(a, router.select())
+
+        repeat(5) {
+
+            router.onSuccess(a, 1_000)
+            router.onSuccess(b, 50)
+        }
+
+        Assert.assertEquals(b, router.select())
+        Assert.assertTrue((router.getScore("b") ?: 0.0) < 100.0)
+    }
+
+    @Test
+    fun testFailover() {
+
+        val a = TestRemote("a", 100)
+        val b = TestRemote("b", 200)
+
+        val router = LatencyRouter(listOf(a, b), keyObtainer, cooldown = 200)
+
+        router.onFailure(a)
+
+        Assert.assertEquals(b, router.select())
+        Assert.assertEquals(b, router.select(exclude = emptyList()))
+        Assert.assertEquals(a, router.select(exclude = listOf(b)))
+
+        router.onFailure(b)
+
+        /*
+            All are cooling down: the one available first is returned.
+        */
+        Assert.assertEquals(a, router.select())
+
+        Thread.sleep(500)
+
+        router.onSuccess(a, 100)
+
+        Assert.assertEquals(listOf(a, b), router.getRanked())
+    }
+}
@@ -1,9 +1,14 @@
 package com.redelf.commons.test
 
+import com.redelf.commons.data.access.DataCursor
+import com.redelf.commons.data.access.PagedDataAccess
 import com.redelf.commons.data.wrapper.VersionableWrapper
 import com.redelf.commons.data.wrapper.list.DefaultListWrapper
 import com.redelf.commons.data.wrapper.list.ListWrapperManager
+import com.redelf.commons.data.wrapper.list.OnItemsChanged
+import com.redelf.commons.data.wrapper.list.PagedListWrapper
 import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.filtering.FilterAsync
 import com.redelf.commons.extensions.yieldWhile
 import com.redelf.commons.logging.Console
 import com.redelf.commons.management.DataPushResult
@@ -15,6 +20,7 @@ import com.redelf.commons.test.test_data.Purgable
 import org.junit.Assert
 import org.junit.Before
 import org.junit.Test
+import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.CopyOnWriteArraySet
 import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.atomic.AtomicInteger
@@ -329,6 +335,69 @@ class ListWrapperTest : BaseTest() {
         }
     }
 
+    @Test
+    fun testUpdateMovesExistingValue() {
+
+        listOf(true, false).forEach { onUI ->
+
+            val collection = createCollection()
+            val wrapper = createWrapper(collection, onUI = onUI)
+            val moved = collection[3]
+            val replaced = collection[1]
+            val addedItems = CopyOnWriteArrayList<Purgable<Int>>()
+            val removedItems = CopyOnWriteArrayList<Purgable<Int>>()
+
+            wrapper.registerItemsListener(
+
+                object : OnItemsChanged<Purgable<Int>> {
+
+                    override fun onItemsChanged(
+
+                        added: Collection<Purgable<Int>>?,
+                        removed: Collection<Purgable<Int>>?
+
+                    ) {
+
+                        added?.let { addedItems.addAll(it) }
+                        removed?.let { removedItems.addAll(it) }
+                    }
+                }
+            )
+
+            wrapper.update("test", moved, 1)
+
+            yieldWhile(timeoutInMilliseconds = 3000) {
+
+                wrapper.isBusy() || removedItems.isEmpty()
+            }
+
+            Assert.assertEquals(collection.size - 1, wrapper.getSize())
+            Assert.assertEquals(moved, wrapper.get(1))
+            Assert.assertEquals(1, wrapper.getList().count { it == moved })
+            Assert.assertFalse(wrapper.contains(replaced))
+            Assert.assertEquals(listOf(moved), addedItems.toList())
+            Assert.assertEquals(listOf(replaced), removedItems.toList())
+        }
+    }
+
+    @Test
+    fun testEqualItemsAreKept() {
+
+        val collection = createCollection()
+        val wrapper = createWrapper(collection)
+        val duplicate = collection.first()
+
+        wrapper.add("test", duplicate)
+
+        yieldWhile(timeoutInMilliseconds = 3000) {
+
+            wrapper.isBusy() || wrapper.getSize() == collection.size
+        }
+
+        Assert.assertEquals(collection.size + 1, wrapper.getSize())
+        Assert.assertEquals(duplicate, wrapper.get(collection.size))
+    }
+
     @Test
     fun testIndex() {
 
@@ -617,6 +686,276 @@ class ListWrapperTest : BaseTest() {
         }
     }
 
+    @Test
+    fun testBatch() {
+
+        listOf(true, false).forEach { onUI ->
+
+            val notified = AtomicInteger()
+            val completed = AtomicBoolean()
+            val collection = createCollection()
+            val challengeData = createChallengeCollection()
+            val wrapper = createWrapper(collection, onUI = onUI)
+
+            wrapper.batch(
+
+                from = "test",
+
+                onChange = object : OnChangeCompleted {
+
+                    override fun onChange(action: String, changed: Boolean) {
+
+                        notified.incrementAndGet()
+                    }
+                }
+
+            ) { batch ->
+
+                challengeData.forEach { batch.add(it) }
+
+                batch.remove(0)
+                batch.update(Purgable(3))
+
+            }
+
+            wrapper.batch(from = "test.completion") { _ ->
+
+                completed.set(true)
+            }
+
+            yieldWhile(timeoutInMilliseconds = 3000) {
+
+                !completed.get() || notified.get() == 0
+            }
+
+            Assert.assertEquals(1, notified.get())
+            Assert.assertEquals(collection.size + challengeData.size - 1, wrapper.getSize())
+            Assert.assertEquals(3, wrapper.get(0)?.getId())
+
+            challengeData.forEach { challenge ->
+
+                Assert.assertTrue(wrapper.contains(challenge))
+            }
+        }
+    }
+
+    @Test
+    fun testBatchPersistsOnlyChanges() {
+
+        listOf(true, false).forEach { onUI ->
+
+            val pushed = AtomicBoolean()
+            val refreshed = AtomicBoolean()
+            val collection = createCollection()
+            val updated = Purgable(3)
+
+            val wrapper = createWrapper(
+
+                collection,
+                onUI = onUI,
+
+                onDataPushed = object : OnObtain<DataPushResult?> {
+
+                    override fun onCompleted(data: DataPushResult?) {
+
+                        pushed.set(true)
+                    }
+
+                    override fun onFailure(error: Throwable) {
+
+                        Assert.fail(error.message)
+                    }
+                }
+            )
+
+            val filter = object : FilterAsync<Purgable<Int>> {
+
+                override fun filter(
+
+                    from: String,
+                    what: CopyOnWriteArraySet<Purgable<Int>>,
+                    callback: OnObtain<Boolean?>
+
+                ) {
+
+                    what.removeIf { (it.getId() ?: 0) > 5 }
+
+                    callback.onCompleted(true)
+                }
+            }
+
+            wrapper.refresh(from = "test", filters = listOf(filter)) { _, _ ->
+
+                refreshed.set(true)
+            }
+
+            yieldWhile(timeoutInMilliseconds = 3000) {
+
+                !refreshed.get()
+            }
+
+            Assert.assertEquals(3, wrapper.getSize())
+
+            wrapper.batch(from = "test", persist = true) { batch ->
+
+                batch.remove(0)
+                batch.add(Purgable(2))
+                batch.update(updated)
+            }
+
+            yieldWhile(timeoutInMilliseconds = 3000) {
+
+                !pushed.get()
+            }
+
+            Assert.assertTrue(pushed.get())
+
+            val stored = getVersionableWrapper(wrapper)?.takeData()
+
+            Assert.assertNotNull(stored)
+
+            /*
+                Items hidden by the filter (7 and 9) stay in the storage.
+            */
+            Assert.assertEquals(
+
+                listOf(2, 3, 5, 7, 9),
+                stored?.mapNotNull { it.getId() }?.sorted()
+            )
+
+            Assert.assertTrue(stored?.any { it === updated } == true)
+        }
+    }
+
+    @Test
+    fun testPagedDataAccess() {
+
+        val rows = (1..45).map { Purgable(it) }
+        val access = createPagedDataAccess(rows, pageSize = 10, maxPages = 3)
+
+        Assert.assertEquals(10, access.obtain()?.size)
+        Assert.assertEquals(45, access.getTotalCount())
+        Assert.assertFalse(access.hasPrevious())
+        Assert.assertNull(access.previous())
+
+        Assert.assertEquals(PagedDataAccess.Page(rows.subList(10, 20), 10, 0), access.next())
+        Assert.assertEquals(PagedDataAccess.Page(rows.subList(20, 30), 20, 0), access.next())
+
+        /*
+            The window holds at most pageSize * maxPages positions, the pages that fall
+            out of it are reported as evicted.
+        */
+        Assert.assertEquals(PagedDataAccess.Page(rows.subList(30, 40), 30, 10), access.next())
+        assertWindow(access, 10, 40)
+
+        Assert.assertEquals(PagedDataAccess.Page(rows.subList(40, 45), 40, 5), access.next())
+        assertWindow(access, 15, 45)
+
+        Assert.assertNull(access.next())
+        Assert.assertFalse(access.hasNext())
+        assertWindow(access, 15, 45)
+
+        Assert.assertEquals(PagedDataAccess.Page(rows.subList(5, 15), 5, 10), access.previous())
+        assertWindow(access, 5, 35)
+
+        Assert.assertEquals(PagedDataAccess.Page(rows.subList(0, 5), 0, 5), access.previous())
+        assertWindow(access, 0, 30)
+
+        Assert.assertNull(access.previous())
+
+        /*
+            Refreshing reads the whole current window, not just the first page.
+        */
+        Assert.assertEquals(rows.subList(0, 30), access.obtain()?.toList())
+        assertWindow(access, 0, 30)
+
+        access.reset()
+
+        Assert.assertEquals(rows.subList(0, 10), access.obtain()?.toList())
+        assertWindow(access, 0, 10)
+    }
+
+    @Test
+    fun testPagedListWrapper() {
+
+        listOf(true, false).forEach { onUI ->
+
+            val rows = (1..45).map { Purgable(it) }
+            val access = createPagedDataAccess(rows, pageSize = 10, maxPages = 3)
+            val wrapper = createPagedWrapper(access, onUI = onUI, expectedSize = 10)
+
+            Assert.assertEquals(-1, wrapper.getTotalCount())
+            Assert.assertTrue(wrapper.hasNext())
+            Assert.assertFalse(wrapper.hasPrevious())
+
+            Assert.assertEquals(10, load(wrapper, forward = true))
+            Assert.assertEquals(10, load(wrapper, forward = true))
+            Assert.assertEquals(45, wrapper.getTotalCount())
+            Assert.assertEquals((1..30).toList(), getIds(wrapper))
+
+            Assert.assertEquals(10, load(wrapper, forward = true))
+            Assert.assertEquals((11..40).toList(), getIds(wrapper))
+            Assert.assertEquals(10, wrapper.getWindowOffset())
+
+            Assert.assertEquals(5, load(wrapper, forward = true))
+            Assert.assertEquals((16..45).toList(), getIds(wrapper))
+            Assert.assertFalse(wrapper.hasNext())
+
+            Assert.assertEquals(0, load(wrapper, forward = true))
+            Assert.assertEquals(30, wrapper.getSize())
+
+            Assert.assertEquals(10, load(wrapper, forward = false))
+            Assert.assertEquals((6..35).toList(), getIds(wrapper))
+
+            Assert.assertEquals(5, load(wrapper, forward = false))
+            Assert.assertEquals((1..30).toList(), getIds(wrapper))
+            Assert.assertFalse(wrapper.hasPrevious())
+
+            Assert.assertEquals(0, load(wrapper, forward = false))
+            Assert.assertEquals(30, wrapper.getSize())
+        }
+    }
+
+    @Test
+    fun testPagedListWrapperEviction() {
+
+        listOf(true, false).forEach { onUI ->
+
+            /*
+                The second page adds a single item: the null row, the row repeating an item
+                already in the list and the row repeating an item of the same page add nothing
+                but still take their window positions.
+            */
+            val rows = listOf(
+
+                Purgable(1), Purgable(2), Purgable(3), Purgable(4),
+                Purgable(5), null, Purgable(2), Purgable(5),
+                Purgable(6), Purgable(7), Purgable(8), Purgable(9)
+            )
+
+            val access = createPagedDataAccess(rows, pageSize = 4, maxPages = 2)
+            val wrapper = createPagedWrapper(access, onUI = onUI, expectedSize = 4)
+
+            Assert.assertEquals(1, load(wrapper, forward = true))
+            Assert.assertEquals(listOf(1, 2, 3, 4, 5), getIds(wrapper))
+
+            /*
+                Evicting the first page drops exactly its items, the repeated rows of the
+                second page do not keep item 2 in the list nor take item 5 with them.
+            */
+            Assert.assertEquals(4, load(wrapper, forward = true))
+            Assert.assertEquals(listOf(5, 6, 7, 8, 9), getIds(wrapper))
+            Assert.assertEquals(4, wrapper.getWindowOffset())
+
+            Assert.assertEquals(4, load(wrapper, forward = false))
+            Assert.assertEquals(listOf(1, 2, 3, 4, 5), getIds(wrapper))
+            Assert.assertEquals(0, wrapper.getWindowOffset())
+
+            Assert.assertEquals(4, load(wrapper, forward = true))
+            Assert.assertEquals(listOf(5, 6, 7, 8, 9), getIds(wrapper))
+        }
+    }
+
     private fun createCollection(hasDeletedItems: Boolean = false) =
         mutableListOf(
             Purgable(1),
@@ -675,6 +1014,136 @@ class ListWrapperTest : BaseTest() {
         return wrapper
     }
 
+    private fun createPagedDataAccess(
+
+        rows: List<Purgable<Int>?>,
+        pageSize: Int,
+        maxPages: Int
+
+    ): PagedDataAccess<Purgable<Int>, ListWrapperManager<Purgable<Int>>> {
+
+        val identifier = "test.paged.${System.nanoTime()}"
+
+        val cursor = object : DataCursor<Purgable<Int>> {
+
+            override fun getCount() = rows.size
+
+            override fun read(offset: Int, limit: Int): List<Purgable<Int>?> {
+
+                if (offset < 0 || offset >= rows.size) {
+
+                    return emptyList()
+                }
+
+                return rows.subList(offset, minOf(rows.size, offset + limit)).toList()
+            }
+        }
+
+        return object : PagedDataAccess<Purgable<Int>, ListWrapperManager<Purgable<Int>>>(
+
+            pageSize = pageSize,
+            maxPages = maxPages,
+
+            managerAccess = object : Obtain<ListWrapperManager<Purgable<Int>>> {
+
+                override fun obtain(): ListWrapperManager<Purgable<Int>> {
+
+                    return ListWrapperManager.instantiate(
+
+                        identifier = identifier,
+                        lazySavingData = false,
+                        persistData = false,
+
+                        creator = object : Obtain<VersionableWrapper<CopyOnWriteArraySet<Purgable<Int>>>> {
+
+                            override fun obtain(): VersionableWrapper<CopyOnWriteArraySet<Purgable<Int>>> {
+
+                                return VersionableWrapper(CopyOnWriteArraySet())
+                            }
+                        }
+                    )
+                }
+            }
+
+        ) {
+
+            override fun openCursor() = cursor
+        }
+    }
+
+    private fun createPagedWrapper(
+
+        access: PagedDataAccess<Purgable<Int>, ListWrapperManager<Purgable<Int>>>,
+        onUI: Boolean,
+        expectedSize: Int
+
+    ): PagedListWrapper<Purgable<Int>, Int, ListWrapperManager<Purgable<Int>>> {
+
+        val wrapper = PagedListWrapper(
+
+            onUi = onUI,
+            pagedDataAccess = access,
+            identifier = "test.paged.${System.nanoTime()}",
+
+            identifierObtainer = object : ObtainParametrized<Int, Purgable<Int>> {
+
+                override fun obtain(param: Purgable<Int>): Int {
+
+                    return param.getId() ?: 0
+                }
+            }
+        )
+
+        yieldWhile {
+
+            wrapper.isNotInitialized()
+        }
+
+        Assert.assertEquals(expectedSize, wrapper.getSize())
+
+        return wrapper
+    }
+
+    /*
+        Loads the next or the previous page and returns the number of items it added.
+    */
+    private fun load(
+
+        wrapper: PagedListWrapper<Purgable<Int>, Int, ListWrapperManager<Purgable<Int>>>,
+        forward: Boolean
+
+    ): Int {
+
+        val loaded = AtomicInteger(-1)
+
+        if (forward) {
+
+            wrapper.loadNext("test") { loaded.set(it) }
+
+        } else {
+
+            wrapper.loadPrevious("test") { loaded.set(it) }
+        }
+
+        yieldWhile(timeoutInMilliseconds = 3000) {
+
+            loaded.get() < 0
+        }
+
+        Assert.assertFalse(wrapper.isLoading())
+
+        return loaded.get()
+    }
+
+    private fun getIds(wrapper: PagedListWrapper<Purgable<Int>, Int, ListWrapperManager<Purgable<Int>>>) =
+        wrapper.getList().map { it.getId() }
+
+    private fun assertWindow(access: PagedDataAccess<*, *>, start: Int, end: Int) {
+
+        Assert.assertEquals(start, access.getWindowStart())
+        Assert.assertEquals(end, access.getWindowEnd())
+    }
+
     private fun getManager(wrapper: DefaultListWrapper<Purgable<Int>, Int>): ListWrapperManager<Purgable<Int>>? {
 
         val manager = wrapper.getManager()
@@ -0,0 +1,121 @@
+package com.redelf.commons.test
+
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.logging.Console
+import com.redelf.commons.transmission.outbox.OutboxJournal
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileOutputStream
+
+class OutboxJournalTest : BaseTest() {
+
+    private lateinit var directory: File
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+
+        directory = File(applicationContext.cacheDir, "outbox_$testSession")
+    }
+
+    @After
+    fun cleanup() {
+
+        directory.deleteRecursively()
+    }
+
+    private fun instantiate() = OutboxJournal<String>(
+
+        directory = directory,
+        type = String::class.java,
+        maxSegmentBytes = 256,
+        compactionThreshold = 10
+    )
+
+    @Test
+    fun testReplay() {
+
+        val journal = instantiate()
+
+        Assert.assertTrue(journal.replay().isEmpty())
+        Assert.assertTrue(journal.isFresh())
+
+        (0 until 20).forEach { Assert.assertTrue(journal.enqueue("Item $it")) }
+
+        Assert.assertTrue(journal.enqueue("Item 0"))
+        Assert.assertEquals(20, journal.getSize())
+        Assert.assertEquals(5, journal.dequeue((0 until 5).map { "Item $it" }))
+
+        journal.close()
+
+        val restored = instantiate()
+        val items = restored.replay()
+
+        Assert.assertFalse(restored.isFresh())
+        Assert.assertEquals((5 until 20).map { "Item $it" }, items)
+
+        Assert.assertTrue(restored.enqueue("Item 20"))
+        Assert.assertTrue(restored.dequeue("Item 5"))
+
+        restored.close()
+
+        Assert.assertEquals((6..20).map { "Item $it" }, instantiate().replay())
+    }
+
+    @Test
+    fun testCompaction() {
+
+        val journal = instantiate()
+
+        journal.replay()
+
+        (0 until 100).forEach { journal.enqueue("Item $it") }
+
+        journal.dequeue((0 until 90).map { "Item $it" })
+
+        Assert.assertTrue(journal.compact())
+
+        val files = directory.listFiles()?.map { it.name } ?: emptyList()
+
+        Assert.assertEquals(1, files.size)
+        Assert.assertTrue(files.first().startsWith("snapshot_"))
+
+        journal.enqueue("Item 100")
+        journal.close()
+
+        Assert.assertEquals((90..100).map { "Item $it" }, instantiate().replay())
+    }
+
+    @Test
+    fun testInvalidRecordLength() {
+
+        val journal = instantiate()
+
+        journal.replay()
+
+        journal.enqueue("Item 0")
+        journal.close()
+
+        val segment = directory.listFiles()?.firstOrNull { it.name.startsWith("segment_") }
+
+        Assert.assertNotNull(segment)
+
+        DataOutputStream(FileOutputStream(segment, true)).use { stream ->
+
+            stream.writeByte(1)
+            stream.writeLong(2L)
+            stream.writeInt(Int.MAX_VALUE)
+        }
+
+        Assert.assertEquals(listOf("Item 0"), instantiate().replay())
+    }
+}
@@ -0,0 +1,120 @@
+package com.redelf.commons.test
+
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.logging.Console
+import com.redelf.commons.obtain.ObtainParametrized
+import com.redelf.commons.obtain.OnObtain
+import com.redelf.commons.sorting.ParallelSorting
+import com.redelf.commons.sorting.SortingDirection
+import com.redelf.commons.sorting.SortingParameters
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+import kotlin.random.Random
+
+class ParallelSortingTest : BaseTest() {
+
+    private data class Item(val id: Int, val rank: Int)
+
+    private val extractions = AtomicInteger()
+
+    private val sorting = ParallelSorting.byKey(
+
+        object : ObtainParametrized<Int, Item> {
+
+            override fun obtain(param: Item): Int {
+
+                extractions.incrementAndGet()
+
+                return param.rank
+            }
+        }
+    )
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+    }
+
+    @Test
+    fun testSortLargeCollection() {
+
+        val random = Random(42)
+        val items = (0 until 100_000).map { Item(it, random.nextInt(1000)) }
+
+        extractions.set(0)
+
+        val ascending = sorting.sorted(items, SortingParameters(SortingDirection.ASCENDING))
+
+        Assert.assertEquals(items.size, extractions.get())
+        Assert.assertEquals(items.sortedBy { it.rank }, ascending)
+
+        val descending = sorting.sorted(items, SortingParameters(SortingDirection.DESCENDING))
+
+        Assert.assertEquals(items.sortedByDescending { it.rank }, descending)
+    }
+
+    @Test
+    fun testSortAsync() {
+
+        val items = (0 until 100).map { Item(it, 100 - it) }
+        val latch = CountDownLatch(1)
+        val result = AtomicReference<Collection<Item>>()
+
+        sorting.sort(
+
+            items,
+            SortingParameters(),
+
+            object : OnObtain<Collection<Item>> {
+
+                override fun onCompleted(data: Collection<Item>) {
+
+                    result.set(data)
+                    latch.countDown()
+                }
+
+                override fun onFailure(error: Throwable) {
+
+                    Assert.fail(error.message)
+                }
+            }
+        )
+
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS))
+        Assert.assertEquals(items.reversed(), result.get()?.toList())
+    }
+
+    @Test
+    fun testIncrementalResort() {
+
+        val parameters = SortingParameters()
+        val items = (0 until 1000).map { Item(it, it * 2) }
+        val sorted = sorting.sorted(items, parameters)
+
+        val moved = Item(10, 1001)
+        val added = Item(5000, 3)
+
+        val changed = sorted.map { if (it.id == moved.id) moved else it }
+        val result = sorting.resort(changed, listOf(moved, added), parameters)
+
+        Assert.assertEquals(1001, result.size)
+        Assert.assertEquals(result.sortedBy { it.rank }, result)
+        Assert.assertEquals(added, result[2])
+
+        val list = ArrayList(result)
+
+        sorting.insert(list, listOf(Item(6000, -1)), parameters)
+
+        Assert.assertEquals(6000, list.first().id)
+    }
+}
@@ -0,0 +1,176 @@
+package com.redelf.commons.test
+
+import android.content.Context
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.extensions.yieldWhile
+import com.redelf.commons.logging.Console
+import com.redelf.commons.net.remote.Measurable
+import com.redelf.commons.net.remote.Remote
+import com.redelf.commons.net.remote.RemoteProber
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicInteger
+
+class RemoteProberTest : BaseTest() {
+
+    private val started = AtomicInteger()
+    private val running = AtomicInteger()
+    private val maxRunning = AtomicInteger()
+    private val interrupted = AtomicInteger()
+
+    private inner class TestRemote(
+
+        val name: String,
+        private val quality: Long,
+        private val delay: Long = 50,
+        private val healthy: Boolean = true
+
+    ) : Remote, Measurable {
+
+        override fun ping() = healthy
+
+        override fun isAlive(ctx: Context) = healthy
+
+        override fun getSpeed(ctx: Context) = quality
+
+        override fun getQuality() = quality
+
+        override fun measure(ctx: Context): Long {
+
+            started.incrementAndGet()
+
+            val current = running.incrementAndGet()
+
+            maxRunning.accumulateAndGet(current) { a, b -> maxOf(a, b) }
+
+            try {
+
+                Thread.sleep(delay)
+
+            } catch (e: InterruptedException) {
+
+                interrupted.incrementAndGet()
+
+                return Long.MAX_VALUE
+
+            } finally {
+
+                running.decrementAndGet()
+            }
+
+            return if (healthy) quality else Long.MAX_VALUE
+        }
+
+        override fun toString() = name
+    }
+
+    private val comparator = compareBy<TestRemote> { it.getQuality() }
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+    }
+
+    @Test
+    fun testParallelismBound() {
+
+        val candidates = (0 until 12).map { TestRemote("r$it", quality = 1000L - it, delay = 100) }
+        val prober = RemoteProber(applicationContext, comparator, parallelism = 3)
+
+        val found = prober.probe(candidates)
+
+        Assert.assertEquals(candidates.sortedWith(comparator), found)
+        Assert.assertEquals(candidates.size, started.get())
+        Assert.assertTrue(maxRunning.get() in 1..3)
+        Assert.assertEquals(found, prober.getRanked())
+    }
+
+    @Test
+    fun testEnough() {
+
+        val fast = listOf(TestRemote("fast.1", 200, delay = 10), TestRemote("fast.2", 100, delay = 10))
+        val slow = (0 until 4).map { TestRemote("slow.$it", 50, delay = 5_000) }
+        val prober = RemoteProber(applicationContext, comparator, parallelism = 6, enough = 2)
+
+        val start = System.currentTimeMillis()
+        val found = prober.probe(slow + fast)
+
+        /*
+            Probing returns as soon as enough candidates responded, the slow ones are cancelled.
+        */
+        Assert.assertTrue(System.currentTimeMillis() - start < 2_000)
+        Assert.assertEquals(fast.reversed(), found)
+
+        yieldWhile(timeoutInMilliseconds = 3000) {
+
+            running.get() > 0
+        }
+
+        Assert.assertEquals(0, running.get())
+        Assert.assertEquals(started.get() - fast.size, interrupted.get())
+    }
+
+    @Test
+    fun testTimeout() {
+
+        val fast = listOf(TestRemote("fast.1", 100, delay = 10), TestRemote("fast.2", 200, delay = 10))
+        val slow = (0 until 2).map { TestRemote("slow.$it", 50, delay = 5_000) }
+        val prober = RemoteProber(applicationContext, comparator, parallelism = 4, timeout = 300)
+
+        val start = System.currentTimeMillis()
+        val found = prober.probe(slow + fast)
+        val elapsed = System.currentTimeMillis() - start
+
+        Assert.assertTrue(elapsed >= 300)
+        Assert.assertTrue(elapsed < 2_000)
+        Assert.assertEquals(fast, found)
+
+        yieldWhile(timeoutInMilliseconds = 3000) {
+
+            running.get() > 0
+        }
+
+        Assert.assertEquals(0, running.get())
+        Assert.assertEquals(started.get() - fast.size, interrupted.get())
+    }
+
+    @Test
+    fun testHealthyOnly() {
+
+        val a = TestRemote("a", 100)
+        val b = TestRemote("b", Long.MAX_VALUE, healthy = false)
+        val c = TestRemote("c", 50)
+        val d = TestRemote("d", Long.MAX_VALUE, healthy = false)
+        val candidates = listOf(a, b, c, d)
+
+        val healthy = RemoteProber(applicationContext, comparator)
+
+        Assert.assertEquals(listOf(c, a), healthy.probe(candidates))
+        Assert.assertEquals(listOf(c, a), healthy.getRanked())
+
+        /*
+            With healthy only off the candidates that did not respond are returned as well.
+        */
+        val all = RemoteProber(applicationContext, comparator).probe(candidates, healthyOnly = false)
+
+        Assert.assertEquals(candidates.size, all.size)
+        Assert.assertEquals(listOf(c, a), all.take(2))
+        Assert.assertEquals(setOf(b, d), all.drop(2).toSet())
+    }
+
+    @Test
+    fun testNoCandidates() {
+
+        val prober = RemoteProber(applicationContext, comparator)
+
+        Assert.assertTrue(prober.probe(emptyList()).isEmpty())
+        Assert.assertTrue(prober.isEmpty())
+        Assert.assertEquals(0, started.get())
+    }
+}
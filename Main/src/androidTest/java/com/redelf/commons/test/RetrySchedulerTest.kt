@@ -0,0 +1,94 @@
+package com.redelf.commons.test
+
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.logging.Console
+import com.redelf.commons.net.retry.CircuitBreaker
+import com.redelf.commons.net.retry.CircuitState
+import com.redelf.commons.net.retry.RetryPolicy
+import com.redelf.commons.net.retry.RetryScheduler
+import okhttp3.Headers
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class RetrySchedulerTest : BaseTest() {
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+    }
+
+    @Test
+    fun testBackoffWithJitter() {
+
+        val policy = RetryPolicy(maxAttempts = 10, baseDelay = 100, maxDelay = 1000)
+
+        (0 until 10).forEach { attempt ->
+
+            val cap = minOf(1000L, 100L shl attempt)
+            val delay = policy.getDelay(attempt)
+
+            Assert.assertTrue(delay >= cap / 2)
+            Assert.assertTrue(delay <= cap)
+        }
+
+        Assert.assertTrue(policy.canRetry(9))
+        Assert.assertFalse(policy.canRetry(10))
+    }
+
+    @Test
+    fun testCircuitBreaker() {
+
+        val breaker = CircuitBreaker(failureThreshold = 2, openDuration = 200)
+
+        Assert.assertTrue(breaker.allowRequest())
+
+        breaker.onFailure()
+
+        Assert.assertEquals(CircuitState.CLOSED, breaker.getState())
+
+        breaker.onFailure()
+
+        Assert.assertEquals(CircuitState.OPEN, breaker.getState())
+        Assert.assertFalse(breaker.allowRequest())
+
+        Thread.sleep(250)
+
+        Assert.assertEquals(CircuitState.HALF_OPEN, breaker.getState())
+        Assert.assertTrue(breaker.allowRequest())
+        Assert.assertFalse(breaker.allowRequest())
+
+        breaker.onSuccess()
+
+        Assert.assertEquals(CircuitState.CLOSED, breaker.getState())
+
+        breaker.onFailure(retryAfter = 10_000)
+
+        Assert.assertEquals(CircuitState.OPEN, breaker.getState())
+        Assert.assertTrue(breaker.getRemainingOpenTime() > 9_000)
+    }
+
+    @Test
+    fun testSchedule() {
+
+        val scheduler = RetryScheduler()
+        val policy = RetryPolicy(maxAttempts = 2, baseDelay = 10, maxDelay = 50)
+        val latch = CountDownLatch(1)
+
+        Assert.assertTrue(scheduler.schedule("test", 0, policy) { latch.countDown() })
+        Assert.assertFalse(scheduler.schedule("test", 2, policy) { Assert.fail() })
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS))
+
+        val headers = Headers.headersOf("Retry-After", "120")
+
+        Assert.assertEquals(120_000L, RetryScheduler.getRetryAfter(headers))
+        Assert.assertTrue(scheduler.getDelay("test", 0, policy, 120_000L) >= 120_000L)
+    }
+}
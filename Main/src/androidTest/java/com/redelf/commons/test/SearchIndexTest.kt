@@ -0,0 +1,143 @@
+package com.redelf.commons.test
+
+import com.redelf.commons.data.wrapper.list.ListWrapper
+import com.redelf.commons.data.wrapper.list.ListWrapperManager
+import com.redelf.commons.extensions.GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK
+import com.redelf.commons.extensions.yieldWhile
+import com.redelf.commons.logging.Console
+import com.redelf.commons.obtain.ObtainParametrized
+import com.redelf.commons.search.index.SearchIndex
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+
+class SearchIndexTest : BaseTest() {
+
+    private data class Contact(val id: Long, val name: String, val city: String)
+
+    @Before
+    fun prepare() {
+
+        Console.initialize(failOnError = true)
+
+        Console.log("Console initialized: $this")
+
+        GLOBAL_RECORD_EXCEPTIONS_ASSERT_FALLBACK.set(true)
+    }
+
+    private fun createIndex() = SearchIndex(
+
+        identifier = "contacts",
+
+        identifierObtainer = object : ObtainParametrized<Long, Contact> {
+
+            override fun obtain(param: Contact) = param.id
+        },
+
+        textObtainer = object : ObtainParametrized<List<String?>, Contact> {
+
+            override fun obtain(param: Contact) = listOf(param.name, param.city)
+        }
+    )
+
+    @Test
+    fun testQuery() {
+
+        val index = createIndex()
+
+        index.sync(
+
+            listOf(
+
+                Contact(1, "Ana Marić", "Beograd"),
+                Contact(2, "Marko Anić", "Novi Sad"),
+                Contact(3, "Mara", "Niš")
+            )
+        )
+
+        Assert.assertEquals(3, index.getSize())
+
+        Assert.assertEquals(listOf(1L, 2L, 3L), index.query("mar").map { it.id })
+        Assert.assertEquals(listOf(1L), index.query("ana beo").map { it.id })
+        Assert.assertEquals(listOf(1L), index.query("MARIC").map { it.id })
+        Assert.assertEquals(listOf(2L), index.query("nić").map { it.id })
+        Assert.assertEquals(listOf(2L), index.query("novi").map { it.id })
+        Assert.assertTrue(index.query("zzz").isEmpty())
+        Assert.assertEquals(1, index.query("mar", limit = 1).size)
+    }
+
+    @Test
+    fun testIncrementalSync() {
+
+        val index = createIndex()
+
+        val items = (0 until 1000L).map { Contact(it, "Name $it", "City${it % 10}") }
+
+        index.sync(items)
+
+        Assert.assertEquals(1000, index.getSize())
+        Assert.assertEquals(100, index.query("city7").size)
+
+        val changed = items.filter { it.id % 2 == 0L }.map {
+
+            if (it.id == 0L) it.copy(city = "Zagreb") else it
+        }
+
+        index.sync(changed)
+
+        Assert.assertEquals(500, index.getSize())
+        Assert.assertTrue(index.query("name 999").isEmpty())
+        Assert.assertEquals(listOf(0L), index.query("zagreb").map { it.id })
+        Assert.assertEquals(0, index.query("city0").count { it.id == 0L })
+
+        index.remove(changed[1])
+
+        Assert.assertEquals(499, index.getSize())
+        Assert.assertTrue(index.query("name 2").none { it.id == 2L })
+    }
+
+    @Test
+    fun testBoundUpdates() {
+
+        val index = createIndex()
+
+        val wrapper = ListWrapper<Contact, Long, ListWrapperManager<Contact>>(
+
+            identifier = "contacts.${System.currentTimeMillis()}",
+            onUi = false,
+
+            identifierObtainer = object : ObtainParametrized<Long, Contact> {
+
+                override fun obtain(param: Contact) = param.id
+            }
+        )
+
+        index.bind(wrapper)
+
+        val ana = Contact(1, "Ana", "Beograd")
+        val marko = Contact(2, "Marko", "Novi Sad")
+
+        wrapper.add("testBoundUpdates", ana)
+        wrapper.add("testBoundUpdates", marko)
+
+        yieldWhile(timeoutInMilliseconds = 3000) { index.getSize() < 2 }
+
+        Assert.assertEquals(listOf(1L), index.query("beograd").map { it.id })
+
+        wrapper.update("testBoundUpdates", ana.copy(city = "Zagreb"), 0)
+
+        yieldWhile(timeoutInMilliseconds = 3000) { index.query("zagreb").isEmpty() }
+
+        Assert.assertEquals(listOf(1L), index.query("zagreb").map { it.id })
+        Assert.assertTrue(index.query("beograd").isEmpty())
+
+        wrapper.remove("testBoundUpdates", marko)
+
+        yieldWhile(timeoutInMilliseconds = 3000) { index.getSize() > 1 }
+
+        Assert.assertEquals(1, index.getSize())
+        Assert.assertTrue(index.query("marko").isEmpty())
+
+        index.terminate()
+    }
+}
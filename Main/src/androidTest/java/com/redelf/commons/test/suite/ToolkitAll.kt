@@ -1,13 +1,28 @@
 package com.redelf.commons.test.suite
 
+import com.redelf.commons.test.AsyncLogAppenderTest
+import com.redelf.commons.test.BinaryLogTest
+import com.redelf.commons.test.CallDeduplicationTest
+import com.redelf.commons.test.CallGroupTest
+import com.redelf.commons.test.ConcurrentIndexedListTest
+import com.redelf.commons.test.ConcurrentIndexedSetTest
+import com.redelf.commons.test.ConnectivityStateEngineTest
+import com.redelf.commons.test.ConsoleTest
 import com.redelf.commons.test.DataDelegatePartitioningTest
 import com.redelf.commons.test.DataManagementTest
 import com.redelf.commons.test.EncryptedPersistenceTest
 import com.redelf.commons.test.ExecutorTest
 import com.redelf.commons.test.GsonParserTest
 import com.redelf.commons.test.HttpEndpointsTest
+import com.redelf.commons.test.JsonStreamValidatorTest
+import com.redelf.commons.test.LatencyRouterTest
 import com.redelf.commons.test.ListWrapperTest
 import com.redelf.commons.test.ObfuscatorTest
+import com.redelf.commons.test.OutboxJournalTest
+import com.redelf.commons.test.ParallelSortingTest
+import com.redelf.commons.test.RemoteProberTest
+import com.redelf.commons.test.RetrySchedulerTest
+import com.redelf.commons.test.SearchIndexTest
 import com.redelf.commons.test.compression.LZ4StringCompressionTest
 import com.redelf.commons.test.serialization.ByteArraySerializerTest
 import org.junit.runner.RunWith
@@ -25,7 +40,22 @@ import org.junit.runners.Suite.SuiteClasses
     GsonParserTest::class,
     DataManagementTest::class,
     ExecutorTest::class,
-    ListWrapperTest::class
+    ListWrapperTest::class,
+    ConcurrentIndexedSetTest::class,
+    ConcurrentIndexedListTest::class,
+    SearchIndexTest::class,
+    ParallelSortingTest::class,
+    OutboxJournalTest::class,
+    RetrySchedulerTest::class,
+    JsonStreamValidatorTest::class,
+    LatencyRouterTest::class,
+    RemoteProberTest::class,
+    ConnectivityStateEngineTest::class,
+    AsyncLogAppenderTest::class,
+    ConsoleTest::class,
+    BinaryLogTest::class,
+    CallDeduplicationTest::class,
+    CallGroupTest::class
 
 )
 @RunWith(Suite::class)
@@ -0,0 +1,262 @@
+package com.redelf.commons.collections
+
+import java.util.Collections
+
+/*
+    Ordered, thread-safe list with O(1) indexed access, the list counterpart of the
+    ConcurrentIndexedSet: equal elements are kept.
+
+    Readers always work against an immutable array snapshot, so reads never lock. Writers are
+    serialized, work on a draft copy and publish the result in one volatile write. Use batch { }
+    to apply many mutations with a single copy and a single publication. Lookups by element
+    (contains, indexOf) scan the snapshot with equals, so elements mutated in place are found.
+
+    Iterators traverse the snapshot taken when they were created and do not support mutations.
+*/
+class ConcurrentIndexedList<T>() : AbstractMutableList<T>(), RandomAccess {
+
+    constructor(elements: Collection<T>) : this() {
+
+        addAll(elements)
+    }
+
+    private val writeLock = Any()
+
+    @Volatile
+    private var items: Array<Any?> = emptyArray()
+
+    override val size: Int
+        get() = items.size
+
+    override fun isEmpty() = items.isEmpty()
+
+    @Suppress("UNCHECKED_CAST")
+    override fun get(index: Int): T {
+
+        val current = items
+
+        if (index < 0 || index >= current.size) {
+
+            throw IndexOutOfBoundsException("Index: $index, Size: ${current.size}")
+        }
+
+        return current[index] as T
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    fun getAtIndex(index: Int): T? = items.getOrNull(index) as T?
+
+    @Suppress("UNCHECKED_CAST")
+    fun firstOrNull(): T? = items.firstOrNull() as T?
+
+    @Suppress("UNCHECKED_CAST")
+    fun lastOrNull(): T? = items.lastOrNull() as T?
+
+    override fun contains(element: T) = indexOf(element) >= 0
+
+    override fun indexOf(element: T) = items.indexOf(element)
+
+    override fun lastIndexOf(element: T) = items.lastIndexOf(element)
+
+    /*
+        Immutable point-in-time view of the elements, it is not affected by later mutations.
+    */
+    @Suppress("UNCHECKED_CAST")
+    fun snapshotList(): List<T> = Collections.unmodifiableList(items.asList()) as List<T>
+
+    override fun add(element: T): Boolean {
+
+        return batch { it.add(element) }
+    }
+
+    override fun add(index: Int, element: T) {
+
+        batch { it.add(index, element) }
+    }
+
+    override fun set(index: Int, element: T): T {
+
+        return batch { it.set(index, element) }
+    }
+
+    override fun addAll(elements: Collection<T>): Boolean {
+
+        if (elements.isEmpty()) {
+
+            return false
+        }
+
+        return batch { it.addAll(elements) }
+    }
+
+    override fun remove(element: T): Boolean {
+
+        if (!contains(element)) {
+
+            return false
+        }
+
+        return batch { it.remove(element) }
+    }
+
+    override fun removeAt(index: Int): T {
+
+        return batch { it.removeAt(index) }
+    }
+
+    override fun removeAll(elements: Collection<T>): Boolean {
+
+        if (elements.isEmpty() || isEmpty()) {
+
+            return false
+        }
+
+        val lookup = elements.toHashSet()
+
+        return batch { draft -> draft.removeIf { lookup.contains(it) } }
+    }
+
+    override fun retainAll(elements: Collection<T>): Boolean {
+
+        val lookup = elements.toHashSet()
+
+        return batch { draft -> draft.removeIf { !lookup.contains(it) } }
+    }
+
+    override fun clear() {
+
+        if (isEmpty()) {
+
+            return
+        }
+
+        batch { it.clear() }
+    }
+
+    fun replaceAll(elements: Collection<T>) {
+
+        batch { draft ->
+
+            draft.clear()
+            draft.addAll(elements)
+        }
+    }
+
+    fun sortWith(comparator: Comparator<in T>) {
+
+        batch { it.sortWith(comparator) }
+    }
+
+    /*
+        Applies all mutations performed on the draft atomically. Concurrent readers observe
+        either the state before the batch or the state after it, never anything in between.
+        If the block throws, nothing is published.
+    */
+    fun <R> batch(block: (MutableList<T>) -> R): R {
+
+        synchronized(writeLock) {
+
+            val draft = Draft<T>(items)
+            val result = block(draft)
+
+            if (draft.isModified()) {
+
+                items = draft.toArray()
+            }
+
+            return result
+        }
+    }
+
+    override fun iterator(): MutableIterator<T> = listIterator(0)
+
+    override fun listIterator(): MutableListIterator<T> = listIterator(0)
+
+    override fun listIterator(index: Int): MutableListIterator<T> {
+
+        val current = items
+
+        if (index < 0 || index > current.size) {
+
+            throw IndexOutOfBoundsException("Index: $index, Size: ${current.size}")
+        }
+
+        return SnapshotIterator(current, index)
+    }
+
+    private class Draft<T>(base: Array<Any?>) : ArrayList<T>(base.size + 1) {
+
+        private var replaced = false
+        private var initialModifications = 0
+
+        init {
+
+            @Suppress("UNCHECKED_CAST")
+            addAll(base.asList() as List<T>)
+
+            initialModifications = modCount
+        }
+
+        override fun set(index: Int, element: T): T {
+
+            replaced = true
+
+            return super.set(index, element)
+        }
+
+        fun isModified() = replaced || modCount != initialModifications
+    }
+
+    private class SnapshotIterator<T>(
+
+        private val items: Array<Any?>,
+        private var cursor: Int
+
+    ) : MutableListIterator<T> {
+
+        override fun hasNext() = cursor < items.size
+
+        override fun hasPrevious() = cursor > 0
+
+        override fun nextIndex() = cursor
+
+        override fun previousIndex() = cursor - 1
+
+        @Suppress("UNCHECKED_CAST")
+        override fun next(): T {
+
+            if (cursor >= items.size) {
+
+                throw NoSuchElementException()
+            }
+
+            return items[cursor++] as T
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        override fun previous(): T {
+
+            if (cursor <= 0) {
+
+                throw NoSuchElementException()
+            }
+
+            return items[--cursor] as T
+        }
+
+        override fun add(element: T) {
+
+            throw UnsupportedOperationException()
+        }
+
+        override fun remove() {
+
+            throw UnsupportedOperationException()
+        }
+
+        override fun set(element: T) {
+
+            throw UnsupportedOperationException()
+        }
+    }
+}
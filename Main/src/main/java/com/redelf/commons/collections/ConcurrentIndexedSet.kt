@@ -0,0 +1,453 @@
+package com.redelf.commons.collections
+
+/*
+    Ordered, thread-safe set with O(1) indexed access and O(1) membership checks.
+
+    Readers always work against an immutable snapshot (an array of elements plus a hash index
+    of element positions), so reads never lock. Writers are serialized, work on a draft copy
+    and publish the result in one volatile write. Use batch { } to apply many mutations with
+    a single copy and a single publication.
+
+    Lookups go through the hash index. Elements mutated in place after they were added may no
+    longer be found by their hash code, lookups that miss the index fall back to an equals scan.
+    Adding relies on the index only, an equal element mutated that way can be added again.
+*/
+class ConcurrentIndexedSet<T>() : AbstractMutableSet<T>(), RandomAccess {
+
+    constructor(elements: Collection<T>) : this() {
+
+        addAll(elements)
+    }
+
+    private val writeLock = Any()
+
+    @Volatile
+    private var snapshot: Snapshot<T> = Snapshot(emptyArray(), HashMap())
+
+    override val size: Int
+        get() = snapshot.items.size
+
+    override fun isEmpty() = snapshot.items.isEmpty()
+
+    override fun contains(element: T) = indexOf(element) >= 0
+
+    fun indexOf(element: T): Int {
+
+        val current = snapshot
+
+        return current.index[element] ?: current.items.indexOf(element)
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    fun getAtIndex(index: Int): T? {
+
+        val items = snapshot.items
+
+        if (index < 0 || index >= items.size) {
+
+            return null
+        }
+
+        return items[index] as T
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    fun firstOrNull(): T? = snapshot.items.firstOrNull() as T?
+
+    @Suppress("UNCHECKED_CAST")
+    fun lastOrNull(): T? = snapshot.items.lastOrNull() as T?
+
+    /*
+        Immutable point-in-time view of the elements, it is not affected by later mutations.
+    */
+    @Suppress("UNCHECKED_CAST")
+    fun snapshotList(): List<T> = snapshot.items.asList() as List<T>
+
+    override fun add(element: T): Boolean {
+
+        return batch { it.add(element) }
+    }
+
+    fun addAt(index: Int, element: T): Boolean {
+
+        return batch { it.addAt(index, element) }
+    }
+
+    override fun addAll(elements: Collection<T>): Boolean {
+
+        if (elements.isEmpty()) {
+
+            return false
+        }
+
+        return batch { it.addAll(elements) }
+    }
+
+    override fun remove(element: T): Boolean {
+
+        if (!contains(element)) {
+
+            return false
+        }
+
+        return batch { it.remove(element) }
+    }
+
+    fun removeAt(index: Int): T? {
+
+        return batch { it.removeAt(index) }
+    }
+
+    override fun removeAll(elements: Collection<T>): Boolean {
+
+        if (elements.isEmpty() || isEmpty()) {
+
+            return false
+        }
+
+        return batch { it.removeAll(elements) }
+    }
+
+    override fun retainAll(elements: Collection<T>): Boolean {
+
+        return batch { it.retainAll(elements) }
+    }
+
+    override fun clear() {
+
+        batch { it.clear() }
+    }
+
+    fun replaceAll(elements: Collection<T>) {
+
+        batch { draft ->
+
+            draft.clear()
+            draft.addAll(elements)
+        }
+    }
+
+    fun sortWith(comparator: Comparator<in T>) {
+
+        batch { it.sortWith(comparator) }
+    }
+
+    fun contentEquals(other: ConcurrentIndexedSet<T>): Boolean {
+
+        if (this === other) return true
+
+        return snapshot.items.contentEquals(other.snapshot.items)
+    }
+
+    /*
+        Applies all mutations performed on the draft atomically. Concurrent readers observe
+        either the state before the batch or the state after it, never anything in between.
+        If the block throws, nothing is published.
+    */
+    fun <R> batch(block: (Draft<T>) -> R): R {
+
+        synchronized(writeLock) {
+
+            val draft = Draft(snapshot)
+            val result = block(draft)
+
+            if (draft.isModified()) {
+
+                snapshot = draft.publish()
+            }
+
+            return result
+        }
+    }
+
+    override fun iterator(): MutableIterator<T> {
+
+        val items = snapshot.items
+
+        return object : MutableIterator<T> {
+
+            private var cursor = 0
+            private var last = -1
+
+            override fun hasNext() = cursor < items.size
+
+            @Suppress("UNCHECKED_CAST")
+            override fun next(): T {
+
+                if (cursor >= items.size) {
+
+                    throw NoSuchElementException()
+                }
+
+                last = cursor
+
+                return items[cursor++] as T
+            }
+
+            @Suppress("UNCHECKED_CAST")
+            override fun remove() {
+
+                if (last < 0) {
+
+                    throw IllegalStateException("Call next() before remove()")
+                }
+
+                this@ConcurrentIndexedSet.remove(items[last] as T)
+
+                last = -1
+            }
+        }
+    }
+
+    internal class Snapshot<T>(val items: Array<Any?>, val index: HashMap<T, Int>)
+
+    /*
+        Mutable working copy used inside batch { }. The copy is made lazily on the first write
+        and the position index is rebuilt at most once, when it is needed again.
+    */
+    class Draft<T> internal constructor(private val base: Snapshot<T>) {
+
+        private var items: ArrayList<Any?>? = null
+        private var index: HashMap<T, Int>? = null
+        private var indexDirty = false
+
+        val size: Int
+            get() = items?.size ?: base.items.size
+
+        fun isModified() = items != null
+
+        fun contains(element: T) = indexOf(element) >= 0
+
+        fun indexOf(element: T): Int {
+
+            index()[element]?.let {
+
+                return it
+            }
+
+            return (items ?: base.items.asList()).indexOf(element)
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        fun getAtIndex(index: Int): T? {
+
+            if (index < 0 || index >= size) {
+
+                return null
+            }
+
+            val current = items
+
+            return if (current == null) {
+
+                base.items[index] as T
+
+            } else {
+
+                current[index] as T
+            }
+        }
+
+        fun add(element: T): Boolean {
+
+            if (index().containsKey(element)) {
+
+                return false
+            }
+
+            val list = writable()
+
+            list.add(element)
+
+            if (!indexDirty) {
+
+                writableIndex()[element] = list.size - 1
+            }
+
+            return true
+        }
+
+        fun addAt(index: Int, element: T): Boolean {
+
+            if (index >= size) {
+
+                return add(element)
+            }
+
+            if (index().containsKey(element)) {
+
+                return false
+            }
+
+            writable().add(index.coerceAtLeast(0), element)
+
+            indexDirty = true
+
+            return true
+        }
+
+        fun addAll(elements: Collection<T>): Boolean {
+
+            var changed = false
+
+            elements.forEach {
+
+                if (add(it)) {
+
+                    changed = true
+                }
+            }
+
+            return changed
+        }
+
+        fun remove(element: T): Boolean {
+
+            val position = indexOf(element)
+
+            if (position < 0) {
+
+                return false
+            }
+
+            removeAt(position)
+
+            return true
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        fun removeAt(index: Int): T? {
+
+            if (index < 0 || index >= size) {
+
+                return null
+            }
+
+            val list = writable()
+            val removed = list.removeAt(index) as T
+
+            if (index == list.size && !indexDirty) {
+
+                writableIndex().remove(removed)
+
+            } else {
+
+                indexDirty = true
+            }
+
+            return removed
+        }
+
+        fun removeAll(elements: Collection<T>): Boolean {
+
+            return removeIf { elements.contains(it) }
+        }
+
+        fun retainAll(elements: Collection<T>): Boolean {
+
+            return removeIf { !elements.contains(it) }
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        fun removeIf(predicate: (T) -> Boolean): Boolean {
+
+            val current = items ?: base.items.asList()
+
+            if (current.none { predicate(it as T) }) {
+
+                return false
+            }
+
+            writable().removeAll { predicate(it as T) }
+
+            indexDirty = true
+
+            return true
+        }
+
+        fun clear() {
+
+            if (size == 0) {
+
+                return
+            }
+
+            items = ArrayList()
+            index = HashMap()
+            indexDirty = false
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        fun sortWith(comparator: Comparator<in T>) {
+
+            if (size < 2) {
+
+                return
+            }
+
+            val sorted = (items?.toArray() ?: base.items.copyOf())
+
+            sorted.sortWith(Comparator { a, b -> comparator.compare(a as T, b as T) })
+
+            items = ArrayList(sorted.asList())
+            indexDirty = true
+        }
+
+        internal fun publish(): Snapshot<T> {
+
+            return Snapshot(items?.toArray() ?: base.items, index())
+        }
+
+        private fun writable(): ArrayList<Any?> {
+
+            items?.let {
+
+                return it
+            }
+
+            val list = ArrayList<Any?>(base.items.size + 1)
+
+            list.addAll(base.items)
+
+            items = list
+
+            return list
+        }
+
+        private fun writableIndex(): HashMap<T, Int> {
+
+            index?.let {
+
+                return it
+            }
+
+            val copy = HashMap(base.index)
+
+            index = copy
+
+            return copy
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        private fun index(): HashMap<T, Int> {
+
+            if (!indexDirty) {
+
+                return index ?: base.index
+            }
+
+            val list = items ?: base.items.asList()
+            val rebuilt = HashMap<T, Int>(list.size * 2)
+
+            list.forEachIndexed { position, element ->
+
+                rebuilt[element as T] = position
+            }
+
+            index = rebuilt
+            indexDirty = false
+
+            return rebuilt
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.redelf.commons.data.access
 
+import com.redelf.commons.extensions.recordException
 import com.redelf.commons.management.DataManagement
+import com.redelf.commons.management.DataPushResult
 import com.redelf.commons.obtain.Obtain
+import com.redelf.commons.obtain.OnObtain
 
 abstract class DataAccess<T, M : DataManagement<*>>(
 
@@ -12,4 +15,26 @@ abstract class DataAccess<T, M : DataManagement<*>>(
     */
     val linkedManagers: Obtain<List<Obtain<DataManagement<*>>>>? = null,
 
-) : Obtain<Collection<T?>?>
\ No newline at end of file
+) : Obtain<Collection<T?>?> {
+
+    /*
+        Persists the net changes of a batch through the manager with a single commit.
+        The default implementation commits the data the manager already holds, override it
+        when the changes have to be applied to the manager data object first. Only the given
+        changes may be applied: items the caller did not touch (for example the ones its
+        filters hide) have to stay in the stored data.
+    */
+    open fun push(changes: DataChanges<T>, from: String, callback: OnObtain<DataPushResult?>) {
+
+        try {
+
+            managerAccess.obtain().commit(from, callback)
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+
+            callback.onFailure(e)
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.redelf.commons.data.access
+
+/*
+    Net changes of a batch: the items added, the items removed and the updated items as pairs
+    of the replaced item and its replacement. Items added and removed within the same batch
+    appear in neither list, so applying the changes touches nothing else in the target.
+*/
+class DataChanges<T>(
+
+    val added: List<T> = emptyList(),
+    val removed: List<T> = emptyList(),
+    val updated: List<Pair<T, T>> = emptyList()
+
+) {
+
+    fun isEmpty() = added.isEmpty() && removed.isEmpty() && updated.isEmpty()
+
+    /*
+        Applies the changes to the collection in the order removed, updated, added.
+        Lists keep the position of updated items, other collections get the replacement
+        instead of the replaced item.
+    */
+    fun applyTo(collection: MutableCollection<T>) {
+
+        if (removed.isNotEmpty()) {
+
+            collection.removeAll(removed.toHashSet())
+        }
+
+        updated.forEach { (old, new) ->
+
+            if (collection is MutableList<T>) {
+
+                val index = collection.indexOf(old)
+
+                if (index >= 0) {
+
+                    collection[index] = new
+
+                } else {
+
+                    collection.add(new)
+                }
+
+            } else {
+
+                collection.remove(old)
+                collection.add(new)
+            }
+        }
+
+        if (added.isNotEmpty()) {
+
+            collection.addAll(added)
+        }
+    }
+
+    override fun toString(): String {
+
+        return "DataChanges(added=${added.size}, removed=${removed.size}, updated=${updated.size})"
+    }
+}
@@ -0,0 +1,8 @@
+package com.redelf.commons.data.access
+
+interface DataCursor<T> {
+
+    fun getCount(): Int
+
+    fun read(offset: Int, limit: Int): List<T?>
+}
@@ -0,0 +1,155 @@
+package com.redelf.commons.data.access
+
+import com.redelf.commons.extensions.recordException
+import com.redelf.commons.logging.Console
+import com.redelf.commons.management.DataManagement
+import com.redelf.commons.obtain.Obtain
+import java.util.concurrent.atomic.AtomicBoolean
+
+/*
+    Data access that exposes only a window of the underlying collection. The window starts with
+    the first page and is moved by the paged list wrapper, obtain() always returns the items of
+    the current window so refreshing and data pushes never pull the whole collection.
+*/
+abstract class PagedDataAccess<T, M : DataManagement<*>>(
+
+    managerAccess: Obtain<M>,
+    linkedManagers: Obtain<List<Obtain<DataManagement<*>>>>? = null,
+
+    val pageSize: Int = 50,
+    val maxPages: Int = 5
+
+) : DataAccess<T, M>(managerAccess, linkedManagers) {
+
+    companion object {
+
+        val DEBUG = AtomicBoolean()
+    }
+
+    data class Page<T>(
+
+        val items: List<T?>,
+        val offset: Int,
+        val evicted: Int
+    )
+
+    private val windowMutex = Any()
+
+    @Volatile
+    private var windowStart = 0
+
+    @Volatile
+    private var windowEnd = 0
+
+    abstract fun openCursor(): DataCursor<T>?
+
+    fun getWindowStart() = windowStart
+
+    fun getWindowEnd() = windowEnd
+
+    fun getTotalCount(): Int {
+
+        try {
+
+            return openCursor()?.getCount() ?: 0
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+
+        return 0
+    }
+
+    fun hasNext() = windowEnd < getTotalCount()
+
+    fun hasPrevious() = windowStart > 0
+
+    override fun obtain(): Collection<T?>? {
+
+        val cursor = openCursor() ?: return null
+
+        synchronized(windowMutex) {
+
+            val limit = maxOf(windowEnd - windowStart, pageSize)
+            val items = cursor.read(windowStart, limit)
+
+            windowEnd = windowStart + items.size
+
+            if (DEBUG.get()) Console.log("Paged data access :: Window = $windowStart..$windowEnd")
+
+            return items
+        }
+    }
+
+    /*
+        Reads the page that follows the current window. Pages that fall out of the window
+        from its start are reported as evicted so the holder can drop them.
+    */
+    fun next(): Page<T>? {
+
+        val cursor = openCursor() ?: return null
+
+        synchronized(windowMutex) {
+
+            val items = cursor.read(windowEnd, pageSize)
+
+            if (items.isEmpty()) {
+
+                return null
+            }
+
+            val offset = windowEnd
+
+            windowEnd += items.size
+
+            val evicted = maxOf(0, (windowEnd - windowStart) - pageSize * maxPages)
+
+            windowStart += evicted
+
+            return Page(items, offset, evicted)
+        }
+    }
+
+    /*
+        Reads the page that precedes the current window. Pages that fall out of the window
+        from its end are reported as evicted.
+    */
+    fun previous(): Page<T>? {
+
+        if (!hasPrevious()) {
+
+            return null
+        }
+
+        val cursor = openCursor() ?: return null
+
+        synchronized(windowMutex) {
+
+            val offset = maxOf(0, windowStart - pageSize)
+            val items = cursor.read(offset, windowStart - offset)
+
+            if (items.isEmpty()) {
+
+                return null
+            }
+
+            windowStart = offset
+
+            val evicted = maxOf(0, (windowEnd - windowStart) - pageSize * maxPages)
+
+            windowEnd -= evicted
+
+            return Page(items, offset, evicted)
+        }
+    }
+
+    fun reset() {
+
+        synchronized(windowMutex) {
+
+            windowStart = 0
+            windowEnd = 0
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.redelf.commons.data.wrapper.list
 
+import com.redelf.commons.collections.ConcurrentIndexedSet
 import com.redelf.commons.extensions.recordException
 import com.redelf.commons.logging.Console
 import com.redelf.commons.obtain.ObtainParametrized
@@ -8,16 +9,15 @@ import java.io.ByteArrayOutputStream
 import java.io.ObjectInputStream
 import java.io.ObjectOutputStream
 import java.io.Serializable
-import java.util.concurrent.CopyOnWriteArraySet
 import java.util.concurrent.atomic.AtomicBoolean
 
 class CollectionChangesTracker<T, I>(
 
     private val context: String,
-    private val set: CopyOnWriteArraySet<T> = CopyOnWriteArraySet(),
-    private val setCopy: CopyOnWriteArraySet<T> = CopyOnWriteArraySet(),
+    private val set: ConcurrentIndexedSet<T> = ConcurrentIndexedSet(),
+    private val setCopy: ConcurrentIndexedSet<T> = ConcurrentIndexedSet(),
     private val identifierObtainer: ObtainParametrized<I?, Int>,
-    private val changedIdentifiers: CopyOnWriteArraySet<I> = CopyOnWriteArraySet<I>()
+    private val changedIdentifiers: ConcurrentIndexedSet<I> = ConcurrentIndexedSet()
 
 ) : Runnable {
 
@@ -27,16 +27,15 @@ class CollectionChangesTracker<T, I>(
 
         val changes = findChangedIdentifiers()
 
-        changedIdentifiers.clear()
+        changedIdentifiers.replaceAll(changes)
 
         if (changes.isNotEmpty()) {
 
-            changedIdentifiers.addAll(changes)
-
             Console.log("Changed identifiers :: ${changes.toList()}")
         }
     }
 
+    @Suppress("UNCHECKED_CAST")
     fun makeCopy(from: String) {
 
         if (copying.get()) {
@@ -50,7 +49,7 @@ class CollectionChangesTracker<T, I>(
 
         val start = System.currentTimeMillis()
 
-        setCopy.clear()
+        val copies = ArrayList<T>(set.size)
 
         set.forEach { item ->
 
@@ -58,7 +57,7 @@ class CollectionChangesTracker<T, I>(
 
                 val c = deepCopyItem(item)
 
-                setCopy.add(c)
+                copies.add(c as T)
 
             } catch (e: Throwable) {
 
@@ -66,6 +65,8 @@ class CollectionChangesTracker<T, I>(
             }
         }
 
+        setCopy.replaceAll(copies)
+
         val time = System.currentTimeMillis() - start
 
         Console.log("Set copy made for $time millis :: Context='$context', From='$from'")
@@ -79,7 +80,7 @@ class CollectionChangesTracker<T, I>(
 
         set.forEachIndexed { index, currentItem ->
 
-            val lastItem = setCopy.elementAtOrNull(index)
+            val lastItem = setCopy.getAtIndex(index)
 
             if (!itemsEqual(currentItem, lastItem)) {
 
@@ -182,7 +183,7 @@ class CollectionChangesTracker<T, I>(
 
     fun removeItem(item: T) = set.remove(item)
 
-    fun getItems(): List<T> = set.toList()
+    fun getItems(): List<T> = set.snapshotList()
 
     fun clear() {
 
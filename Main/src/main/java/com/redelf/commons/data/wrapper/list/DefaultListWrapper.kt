@@ -1,6 +1,7 @@
 package com.redelf.commons.data.wrapper.list
 
 import com.redelf.commons.data.access.DataAccess
+import com.redelf.commons.data.access.DataChanges
 import com.redelf.commons.data.wrapper.VersionableWrapper
 import com.redelf.commons.extensions.recordException
 import com.redelf.commons.management.DataPushResult
@@ -64,5 +65,32 @@ class DefaultListWrapper<T, I>(
 
             return null
         }
+
+        override fun push(
+
+            changes: DataChanges<T>,
+            from: String,
+            callback: OnObtain<DataPushResult?>
+
+        ) {
+
+            try {
+
+                val manager = managerAccess.obtain()
+
+                manager.obtain()?.takeData()?.let { stored ->
+
+                    changes.applyTo(stored)
+                }
+
+                manager.commit(from, callback)
+
+            } catch (e: Throwable) {
+
+                recordException(e)
+
+                callback.onFailure(e)
+            }
+        }
     }
 )
\ No newline at end of file
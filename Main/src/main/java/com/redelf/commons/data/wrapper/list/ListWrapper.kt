@@ -1,6 +1,10 @@
 package com.redelf.commons.data.wrapper.list
 
+import com.redelf.commons.callback.CallbackOperation
+import com.redelf.commons.callback.Callbacks
+import com.redelf.commons.collections.ConcurrentIndexedList
 import com.redelf.commons.data.access.DataAccess
+import com.redelf.commons.data.access.DataChanges
 import com.redelf.commons.data.model.identifiable.Identifiable
 import com.redelf.commons.destruction.delete.DeletionCheck
 import com.redelf.commons.extensions.onUiThread
@@ -21,7 +25,6 @@ import java.util.LinkedList
 import java.util.concurrent.CopyOnWriteArraySet
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
-import java.util.concurrent.LinkedBlockingQueue
 import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.atomic.AtomicLong
 
@@ -50,10 +53,12 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
     private val operationMutex = Any()
     private val filtering = AtomicBoolean()
     private val version = AtomicLong(0)
-    private val list: LinkedBlockingQueue<T> = LinkedBlockingQueue()
+    private val list: ConcurrentIndexedList<T> = ConcurrentIndexedList()
     private val initialized = AtomicBoolean(dataAccess == null)
     private val executor: ExecutorService = Executors.newFixedThreadPool(1)
     private var lastDataPushTime = 0L
+    private val changeListeners = Callbacks<OnChangeCompleted>("list_changes")
+    private val itemsListeners = Callbacks<OnItemsChanged<T>>("list_items")
 
     private val dataPushListener: OnObtain<DataPushResult?>? = if (dataAccess != null) {
 
@@ -199,6 +204,33 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
         }
     }
 
+    /*
+        Change listeners are notified on the wrapper's own thread right after each change,
+        regardless of the onUi flag, so they can react without hopping through the main thread.
+    */
+    fun registerChangeListener(listener: OnChangeCompleted) {
+
+        changeListeners.register(listener)
+    }
+
+    fun unregisterChangeListener(listener: OnChangeCompleted) {
+
+        changeListeners.unregister(listener)
+    }
+
+    /*
+        Same as the change listeners, with the affected items when the change is known.
+    */
+    fun registerItemsListener(listener: OnItemsChanged<T>) {
+
+        itemsListeners.register(listener)
+    }
+
+    fun unregisterItemsListener(listener: OnItemsChanged<T>) {
+
+        itemsListeners.unregister(listener)
+    }
+
     fun getManager(): M? {
 
         try {
@@ -264,6 +296,9 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
             }
         }
 
+        changeListeners.clear()
+        itemsListeners.clear()
+
         return success
     }
 
@@ -310,7 +345,7 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
 
             Console.log(
 
-                "$tag Is empty :: From='$from', List=${list.hashCode()}, " +
+                "$tag Is empty :: From='$from', List=${getHashCode()}, " +
                         "Size=${list.size}, Empty=$empty"
             )
         }
@@ -322,15 +357,7 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
 
     fun get(index: Int): T? {
 
-        synchronized(list) {
-
-            if (list.size > index) {
-
-                return list.toList()[index]
-            }
-        }
-
-        return null
+        return list.getAtIndex(index)
     }
 
     fun getLast(): T? {
@@ -350,7 +377,7 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
 
     fun getHashCode(): Int {
 
-        return list.hashCode()
+        return System.identityHashCode(list)
     }
 
     fun getSize(): Int {
@@ -581,15 +608,176 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
         }
     }
 
+    /*
+        Applies all mutations performed on the Batch in a single executor hop and under a
+        single lock acquisition. Listeners get one change notification for the whole batch and,
+        if persist is set and the data access is attached, the result is pushed to the manager
+        with a single commit (which does not trigger the data push listeners of this wrapper).
+    */
+    fun batch(
+
+        from: String,
+        persist: Boolean = false,
+        onChange: OnChangeCompleted? = null,
+        callback: ((modified: Boolean, changedCount: Int) -> Unit)? = null,
+        block: (Batch) -> Unit
+
+    ) {
+
+        val from = "batch(from='$from')"
+
+        if (DEBUG.get()) Console.log("$tag $from")
+
+        fun complete(modified: Boolean, changedCount: Int) {
+
+            callback?.let {
+
+                if (onUi) {
+
+                    onUiThread {
+
+                        it(modified, changedCount)
+                    }
+
+                } else {
+
+                    it(modified, changedCount)
+                }
+            }
+        }
+
+        exec(
+
+            onRejected = { complete(false, 0) }
+
+        ) {
+
+            var changedCount = 0
+            var changes: DataChanges<T>? = null
+
+            synchronized(list) {
+
+                val batch = Batch(ArrayList(list))
+
+                try {
+
+                    block(batch)
+
+                } catch (e: Throwable) {
+
+                    Console.error("$tag $from :: Batch aborted :: ERROR: ${e.message}")
+
+                    recordException(e)
+
+                    batch.changedCount = 0
+                }
+
+                changedCount = batch.changedCount
+
+                if (changedCount > 0) {
+
+                    list.replaceAll(batch.items)
+
+                    changes = batch.getChanges()
+                }
+            }
+
+            val modified = changedCount > 0
+
+            if (modified) {
+
+                notifyChanged(onChange, "$from.$changedCount")
+
+                if (persist) {
+
+                    changes?.let {
+
+                        pushBatch(it, from)
+                    }
+                }
+            }
+
+            complete(modified, changedCount)
+        }
+    }
+
+    private fun pushBatch(changes: DataChanges<T>, from: String) {
+
+        val access = dataAccess ?: return
+
+        if (changes.isEmpty()) {
+
+            return
+        }
+
+        access.push(
+
+            changes,
+            from,
+
+            object : OnObtain<DataPushResult?> {
+
+                override fun onCompleted(data: DataPushResult?) {
+
+                    if (DEBUG.get()) {
+
+                        Console.log("$tag $from :: Pushed :: Success=${data?.success == true}")
+                    }
+
+                    onDataPushed?.onCompleted(data)
+                }
+
+                override fun onFailure(error: Throwable) {
+
+                    recordException(error)
+                }
+            }
+        )
+    }
+
     private fun notifyChanged(
 
         onChange: OnChangeCompleted? = null,
-        action: String
+        action: String,
+        added: Collection<T>? = null,
+        removed: Collection<T>? = null
 
     ) {
 
         val currentVersion = version.incrementAndGet()
 
+        if (itemsListeners.hasSubscribers()) {
+
+            itemsListeners.doOnAll(
+
+                object : CallbackOperation<OnItemsChanged<T>> {
+
+                    override fun perform(callback: OnItemsChanged<T>) {
+
+                        callback.onItemsChanged(added, removed)
+                    }
+                },
+
+                operationName = "list.items.changed"
+            )
+        }
+
+        if (changeListeners.hasSubscribers()) {
+
+            changeListeners.doOnAll(
+
+                object : CallbackOperation<OnChangeCompleted> {
+
+                    override fun perform(callback: OnChangeCompleted) {
+
+                        callback.onChange(action, true)
+                    }
+                },
+
+                operationName = "list.changed"
+            )
+        }
+
         if (onUi) {
 
             onUiThread {
@@ -639,7 +827,7 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
 
             if (!skipNotifying) {
 
-                notifyChanged(onChange, "add")
+                notifyChanged(onChange, "add", added = listOf(value), removed = emptyList())
             }
         }
 
@@ -661,7 +849,13 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
 
                 if (!skipNotifying) {
 
-                    notifyChanged(onChange, "addAll.${what.size}")
+                    notifyChanged(
+
+                        onChange,
+                        "addAll.${what.size}",
+                        added = what,
+                        removed = emptyList()
+                    )
                 }
             }
 
@@ -683,27 +877,45 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
 
             try {
 
-                list.apply {
+                var replaced: T? = null
 
-                    val modifiable = list.toMutableList()
+                val updated = list.batch { draft ->
 
-                    if (modifiable.size > where && modifiable.removeAt(where) != null) {
+                    if (where < 0 || where >= draft.size) {
 
-                        modifiable.add(where, what)
+                        return@batch false
+                    }
 
-                        if (modifiable.elementAt(where) == what) {
+                    var target = where
+                    val existing = draft.indexOf(what)
 
-                            // Atomic replacement to prevent temporary empty state
-                            val tempList = LinkedList(modifiable)
-                            list.clear()
-                            list.addAll(tempList)
+                    /*
+                        The value present elsewhere is moved to the position, not duplicated.
+                    */
+                    if (existing >= 0 && existing != where) {
 
-                            if (!skipNotifying) {
+                        draft.removeAt(existing)
 
-                                notifyChanged(onChange, "update.$where")
-                            }
+                        if (existing < where) {
+
+                            target--
                         }
                     }
+
+                    replaced = draft.set(target, what)
+
+                    true
+                }
+
+                if (updated && !skipNotifying) {
+
+                    notifyChanged(
+
+                        onChange,
+                        "update.$where",
+                        added = listOf(what),
+                        removed = listOfNotNull(replaced)
+                    )
                 }
 
             } catch (e: Throwable) {
@@ -775,7 +987,13 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
 
                         if (!skipNotifying) {
 
-                            notifyChanged(onChange, "update.$identifier")
+                            notifyChanged(
+
+                                onChange,
+                                "update.$identifier",
+                                added = listOf(what),
+                                removed = toRemove
+                            )
                         }
 
                     } else {
@@ -1124,14 +1342,7 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
 
                 synchronized(list) {
 
-                    list.apply {
-
-                        // Atomic replacement to prevent temporary empty state
-                        val tempList = LinkedBlockingQueue<T>()
-                        tempList.addAll(filteredList)
-                        list.clear()
-                        list.addAll(tempList)
-                    }
+                    list.replaceAll(filteredList)
                 }
             }
 
@@ -1208,7 +1419,13 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
 
             if (!skipNotifying) {
 
-                notifyChanged(onChange, "removeAll.${what.size}")
+                notifyChanged(
+
+                    onChange,
+                    "removeAll.${what.size}",
+                    added = emptyList(),
+                    removed = what
+                )
             }
         }
 
@@ -1235,7 +1452,13 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
 
             if (!skipNotifying) {
 
-                notifyChanged(onChange, "doReplaceAll.${remove.size}.${add.size}")
+                notifyChanged(
+
+                    onChange,
+                    "doReplaceAll.${remove.size}.${add.size}",
+                    added = add,
+                    removed = remove
+                )
             }
 
             notifyCallback(callback)
@@ -1255,7 +1478,7 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
 
             if (!skipNotifying) {
 
-                notifyChanged(onChange, "remove")
+                notifyChanged(onChange, "remove", added = emptyList(), removed = listOf(what))
             }
         }
 
@@ -1271,24 +1494,27 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
 
     ) {
 
-        list.apply {
-
-            val toRemove = list.toList().get(index)
+        val removed = list.batch { draft ->
 
-            list.remove(toRemove).let {
+            if (index >= 0 && index < draft.size) draft.removeAt(index) else null
+        }
 
-                if (!skipNotifying) {
+        if (removed != null && !skipNotifying) {
 
-                    notifyChanged(onChange, "remove.$index")
-                }
-            }
+            notifyChanged(
 
-            notifyCallback(callback)
+                onChange,
+                "remove.$index",
+                added = emptyList(),
+                removed = listOf(removed)
+            )
         }
+
+        notifyCallback(callback)
     }
 
     @Synchronized
-    private fun exec(what: () -> Unit) {
+    private fun exec(onRejected: ((Throwable) -> Unit)? = null, what: () -> Unit) {
 
         busy.set(true)
 
@@ -1323,6 +1549,8 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
             Console.error("$tag Pre-Execute :: ERROR: ${e.message}")
 
             recordException(e)
+
+            onRejected?.let { it(e) }
         }
     }
 
@@ -1477,4 +1705,271 @@ open class ListWrapper<T, I, M : DataManagement<*>>(
             }
         )
     }
+
+    /*
+        Working copy of the list used by batch { }. Changes become visible to the wrapper
+        readers only when the batch block completes.
+    */
+    inner class Batch internal constructor(internal val items: ArrayList<T>) {
+
+        internal var changedCount = 0
+
+        private var positions: HashMap<I, Int>? = null
+
+        /*
+            Net changes of the batch, handed to the data access when persisting so that only
+            the touched items are written. Items are matched by identity.
+        */
+        private val added = ArrayList<T>()
+        private val removed = ArrayList<T>()
+        private val updated = ArrayList<Pair<T, T>>()
+
+        fun getSize() = items.size
+
+        fun get(index: Int): T? = items.getOrNull(index)
+
+        fun indexOf(what: T) = items.indexOf(what)
+
+        fun contains(what: T) = items.contains(what)
+
+        fun add(value: T) {
+
+            items.add(value)
+
+            positions?.putIfAbsent(identifierObtainer.obtain(value), items.size - 1)
+
+            added.add(value)
+
+            changedCount++
+        }
+
+        fun addAll(what: Collection<T>) {
+
+            what.forEach { add(it) }
+        }
+
+        fun addAll(index: Int, what: Collection<T>) {
+
+            if (what.isEmpty()) {
+
+                return
+            }
+
+            items.addAll(index.coerceIn(0, items.size), what)
+
+            added.addAll(what)
+
+            positions = null
+
+            changedCount += what.size
+        }
+
+        fun containsIdentifier(identifier: I) = positions().containsKey(identifier)
+
+        /*
+            Removes the items with the given identifiers in one pass, returns how many were removed.
+        */
+        fun removeIdentifiers(identifiers: Collection<I>): Int {
+
+            if (identifiers.isEmpty()) {
+
+                return 0
+            }
+
+            val toRemove = identifiers.toHashSet()
+            val before = items.size
+
+            val modified = items.removeAll { item ->
+
+                toRemove.contains(identifierObtainer.obtain(item)).also { hit ->
+
+                    if (hit) onRemoved(item)
+                }
+            }
+
+            if (modified) {
+
+                positions = null
+
+                changedCount += before - items.size
+            }
+
+            return before - items.size
+        }
+
+        fun remove(what: T): Boolean {
+
+            val index = items.indexOf(what)
+
+            if (index < 0) {
+
+                return false
+            }
+
+            return remove(index) != null
+        }
+
+        fun remove(index: Int): T? {
+
+            if (index < 0 || index >= items.size) {
+
+                return null
+            }
+
+            val item = items.removeAt(index)
+
+            onRemoved(item)
+
+            positions = null
+
+            changedCount++
+
+            return item
+        }
+
+        fun removeAll(what: Collection<T>): Boolean {
+
+            val toRemove = what.toHashSet()
+            val before = items.size
+
+            val modified = items.removeAll { item ->
+
+                toRemove.contains(item).also { hit ->
+
+                    if (hit) onRemoved(item)
+                }
+            }
+
+            if (modified) {
+
+                positions = null
+
+                changedCount += before - items.size
+
+                return true
+            }
+
+            return false
+        }
+
+        fun update(what: T, where: Int): Boolean {
+
+            if (where < 0 || where >= items.size) {
+
+                return false
+            }
+
+            onUpdated(items.set(where, what), what)
+
+            positions = null
+
+            changedCount++
+
+            return true
+        }
+
+        /*
+            Replaces the item with the same identifier in place, or appends it if there is none.
+        */
+        fun update(what: T) {
+
+            val index = positions()[identifierObtainer.obtain(what)]
+
+            if (index == null) {
+
+                add(what)
+
+            } else {
+
+                onUpdated(items.set(index, what), what)
+
+                changedCount++
+            }
+        }
+
+        fun clear() {
+
+            if (items.isNotEmpty()) {
+
+                changedCount += items.size
+
+                items.forEach { onRemoved(it) }
+                items.clear()
+
+                positions = null
+            }
+        }
+
+        internal fun getChanges() = DataChanges<T>(
+
+            added = ArrayList(added),
+            removed = ArrayList(removed),
+            updated = ArrayList(updated)
+        )
+
+        private fun onRemoved(item: T) {
+
+            val addedAt = added.indexOfFirst { it === item }
+
+            if (addedAt >= 0) {
+
+                added.removeAt(addedAt)
+
+                return
+            }
+
+            val updatedAt = updated.indexOfFirst { it.second === item }
+
+            if (updatedAt >= 0) {
+
+                removed.add(updated.removeAt(updatedAt).first)
+
+                return
+            }
+
+            removed.add(item)
+        }
+
+        private fun onUpdated(old: T, new: T) {
+
+            val addedAt = added.indexOfFirst { it === old }
+
+            if (addedAt >= 0) {
+
+                added[addedAt] = new
+
+                return
+            }
+
+            val updatedAt = updated.indexOfFirst { it.second === old }
+
+            if (updatedAt >= 0) {
+
+                updated[updatedAt] = updated[updatedAt].first to new
+
+                return
+            }
+
+            updated.add(old to new)
+        }
+
+        private fun positions(): HashMap<I, Int> {
+
+            positions?.let {
+
+                return it
+            }
+
+            val map = HashMap<I, Int>(items.size * 2)
+
+            items.forEachIndexed { index, item ->
+
+                map.putIfAbsent(identifierObtainer.obtain(item), index)
+            }
+
+            positions = map
+
+            return map
+        }
+    }
 }
\ No newline at end of file
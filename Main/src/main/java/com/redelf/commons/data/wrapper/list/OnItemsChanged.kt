@@ -0,0 +1,10 @@
+package com.redelf.commons.data.wrapper.list
+
+/*
+    Items affected by a ListWrapper change, an updated item is removed and added. When both
+    are null the whole content may have changed (replace, filtering, batches).
+*/
+interface OnItemsChanged<T> {
+
+    fun onItemsChanged(added: Collection<T>?, removed: Collection<T>?)
+}
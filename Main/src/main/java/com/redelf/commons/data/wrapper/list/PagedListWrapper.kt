@@ -0,0 +1,282 @@
+package com.redelf.commons.data.wrapper.list
+
+import com.redelf.commons.data.access.PagedDataAccess
+import com.redelf.commons.extensions.exec
+import com.redelf.commons.extensions.recordException
+import com.redelf.commons.filtering.FilterAsync
+import com.redelf.commons.logging.Console
+import com.redelf.commons.management.DataManagement
+import com.redelf.commons.management.DataPushResult
+import com.redelf.commons.modification.OnChangeCompleted
+import com.redelf.commons.obtain.ObtainParametrized
+import com.redelf.commons.obtain.OnObtain
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/*
+    List wrapper that holds only a bounded window of the collection. The first page is
+    available right after the initialization, further pages are loaded on demand through
+    the cursor of the paged data access and the pages that fall out of the window are dropped.
+*/
+open class PagedListWrapper<T, I, M : DataManagement<*>>(
+
+    identifier: String,
+    environment: String = "default",
+
+    private val pagedDataAccess: PagedDataAccess<T, M>,
+    identifierObtainer: ObtainParametrized<I, T>,
+    onUi: Boolean,
+    onChange: OnChangeCompleted? = null,
+    onDataPushed: OnObtain<DataPushResult?>? = null,
+    defaultFilters: List<FilterAsync<T>> = emptyList(),
+    filteringTimeout: Long = 5000L,
+
+    ) : ListWrapper<T, I, M>(
+
+    identifier = identifier,
+    environment = environment,
+    dataAccess = pagedDataAccess,
+    identifierObtainer = identifierObtainer,
+    onUi = onUi,
+    onChange = onChange,
+    onDataPushed = onDataPushed,
+    defaultFilters = defaultFilters,
+    filteringTimeout = filteringTimeout
+
+) {
+
+    private val loading = AtomicBoolean()
+    private val totalCount = AtomicInteger(-1)
+
+    /*
+        One entry per window position: the identifier of the item the position added to the list,
+        or null when it added none (null rows, duplicates). The window is moved in positions, so
+        the list is trimmed by these. Accessed by the single running load only.
+    */
+    private val slots = ArrayDeque<I?>()
+    private var slotsSeeded = false
+
+    private val tag = "$identifier :: $environment :: Paged ::"
+
+    fun isLoading() = loading.get()
+
+    /*
+        Total number of items in the storage as of the last page load, -1 if not known yet.
+    */
+    fun getTotalCount() = totalCount.get()
+
+    fun getWindowOffset() = pagedDataAccess.getWindowStart()
+
+    fun hasNext(): Boolean {
+
+        val total = totalCount.get()
+
+        return total < 0 || pagedDataAccess.getWindowEnd() < total
+    }
+
+    fun hasPrevious() = pagedDataAccess.hasPrevious()
+
+    fun loadNext(from: String, callback: ((loadedCount: Int) -> Unit)? = null) {
+
+        load("loadNext(from='$from')", forward = true, callback)
+    }
+
+    fun loadPrevious(from: String, callback: ((loadedCount: Int) -> Unit)? = null) {
+
+        load("loadPrevious(from='$from')", forward = false, callback)
+    }
+
+    private fun load(from: String, forward: Boolean, callback: ((loadedCount: Int) -> Unit)?) {
+
+        if (!loading.compareAndSet(false, true)) {
+
+            if (DEBUG.get()) Console.log("$tag $from :: Already loading")
+
+            return
+        }
+
+        exec(
+
+            onRejected = { e ->
+
+                loading.set(false)
+
+                recordException(e)
+
+                callback?.let { it(0) }
+            }
+
+        ) {
+
+            try {
+
+                totalCount.set(pagedDataAccess.getTotalCount())
+
+                val page = if (forward) {
+
+                    pagedDataAccess.next()
+
+                } else {
+
+                    pagedDataAccess.previous()
+                }
+
+                if (page == null) {
+
+                    loading.set(false)
+
+                    callback?.let { it(0) }
+
+                    return@exec
+                }
+
+                if (DEBUG.get()) {
+
+                    Console.log(
+
+                        "$tag $from :: Page :: Offset = ${page.offset}, " +
+                                "Count = ${page.items.size}, Evicted = ${page.evicted}"
+                    )
+                }
+
+                var loadedCount = 0
+
+                batch(
+
+                    from = from,
+
+                    callback = { _, _ ->
+
+                        loading.set(false)
+
+                        callback?.let { it(loadedCount) }
+                    }
+
+                ) { batch ->
+
+                    seedSlots(batch, page, forward)
+
+                    val evicted = mutableListOf<I>()
+
+                    repeat(minOf(page.evicted, slots.size)) {
+
+                        val slot = if (forward) slots.removeFirst() else slots.removeLast()
+
+                        slot?.let { evicted.add(it) }
+                    }
+
+                    batch.removeIdentifiers(evicted)
+
+                    val incoming = mutableListOf<T>()
+                    val incomingSlots = mutableListOf<I?>()
+                    val seen = HashSet<I>()
+
+                    page.items.forEach { item ->
+
+                        val identifier = item?.let { getIdentifier(it) }
+
+                        if (
+
+                            item != null && identifier != null &&
+                            seen.add(identifier) && !batch.containsIdentifier(identifier)
+
+                        ) {
+
+                            incoming.add(item)
+                            incomingSlots.add(identifier)
+
+                        } else {
+
+                            incomingSlots.add(null)
+                        }
+                    }
+
+                    if (forward) {
+
+                        batch.addAll(incoming)
+
+                        slots.addAll(incomingSlots)
+
+                    } else {
+
+                        batch.addAll(0, incoming)
+
+                        slots.addAll(0, incomingSlots)
+                    }
+
+                    loadedCount = incoming.size
+                }
+
+            } catch (e: Throwable) {
+
+                loading.set(false)
+
+                recordException(e)
+
+                callback?.let { it(0) }
+            }
+        }
+    }
+
+    /*
+        The first window was loaded by the wrapper initialization, its positions are read
+        again once to learn which of them ended up in the list.
+    */
+    private fun seedSlots(batch: Batch, page: PagedDataAccess.Page<T>, forward: Boolean) {
+
+        if (slotsSeeded) {
+
+            return
+        }
+
+        slotsSeeded = true
+
+        val start: Int
+        val end: Int
+
+        if (forward) {
+
+            start = pagedDataAccess.getWindowStart() - page.evicted
+            end = page.offset
+
+        } else {
+
+            start = page.offset + page.items.size
+            end = pagedDataAccess.getWindowEnd() + page.evicted
+        }
+
+        if (end <= start) {
+
+            return
+        }
+
+        try {
+
+            val rows = pagedDataAccess.openCursor()?.read(start, end - start) ?: emptyList()
+            val seen = HashSet<I>()
+
+            rows.forEach { row ->
+
+                val identifier = row?.let { getIdentifier(it) }
+
+                if (
+
+                    identifier != null && seen.add(identifier) &&
+                    batch.containsIdentifier(identifier)
+
+                ) {
+
+                    slots.addLast(identifier)
+
+                } else {
+
+                    slots.addLast(null)
+                }
+            }
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+    }
+}
@@ -1,61 +1,137 @@
+package com.redelf.commons.execution.doze
+
+import com.redelf.commons.application.BaseApplication
+import com.redelf.commons.extensions.isDeviceInDozeMode
+import com.redelf.commons.net.retrofit.cache.HttpCaches
+import com.redelf.commons.net.retry.CircuitOpenException
+import com.redelf.commons.net.retry.RetryScheduler
 import okhttp3.Interceptor
 import okhttp3.Response
 import java.io.IOException
 
+/*
+    Reports request outcomes to the retry scheduler like RetryInterceptor. Failures that happen
+    while the device is in Doze are reported as DozeModeIOException and are not counted against
+    the host circuit, since the network is unavailable by the system's decision. Retries are
+    scheduled by RetryScheduler, which holds them back until the device leaves Doze.
+*/
 class DozeAwareRetryInterceptor(
 
-    private val retryDelays: List<Long> = listOf(2000L, 2000L, 2000L)
+    private val scheduler: RetryScheduler = RetryScheduler.DEFAULT
 
 ) : Interceptor {
 
+    @Deprecated(
+
+        "Requests are no longer retried within the interceptor, the delays are ignored. " +
+                "Retry through RetryScheduler.enqueue"
+    )
+    @Suppress("UNUSED_PARAMETER")
+    constructor(retryDelays: List<Long>) : this(RetryScheduler.DEFAULT)
+
     override fun intercept(chain: Interceptor.Chain): Response {
 
-        var lastException: Exception? = null
+        val host = chain.request().url.host
 
-        for (attempt in 0..retryDelays.size) {
+        if (!scheduler.allowRequest(host)) {
 
-            var response: Response? = null
+            throw CircuitOpenException(host, scheduler.getBreaker(host).getRemainingOpenTime())
+        }
 
-            try {
+        var reported = false
 
-                response = chain.proceed(chain.request())
+        try {
 
-                if (response.isSuccessful) {
+            val response = chain.proceed(chain.request())
 
-                    return response
-                }
+            if (HttpCaches.isCacheMiss(response)) {
 
-                // Close unsuccessful responses
-                response.close()
+                scheduler.onCancelled(host)
 
-                throw IOException("HTTP ${response.code} - ${response.message}")
+                reported = true
 
-            } catch (e: Exception) {
+                return response
+            }
 
-                lastException = e
-                response?.close()
+            if (response.isSuccessful) {
 
-                if (attempt == retryDelays.size) {
+                scheduler.onSuccess(host)
 
-                    break // No more retries
-                }
+                reported = true
+
+                return response
+            }
+
+            // Close unsuccessful responses
+            response.close()
+
+            /*
+                Client errors are answers of a healthy host, they do not count against its circuit.
+            */
+            if (RetryScheduler.isRetryable(response.code)) {
+
+                scheduler.onFailure(host, RetryScheduler.getRetryAfter(response.headers))
+
+            } else {
+
+                scheduler.onSuccess(host)
+            }
+
+            reported = true
+
+            throw IOException("HTTP ${response.code} - ${response.message}")
+
+        } catch (e: IOException) {
 
-                // Wait before retry (important for Doze)
-                val delay = retryDelays[attempt]
+            val dozing = isDozing()
 
-                try {
+            if (chain.call().isCanceled() || dozing) {
 
-                    Thread.sleep(delay)
+                if (!reported) {
 
-                } catch (ie: InterruptedException) {
+                    scheduler.onCancelled(host)
 
-                    Thread.currentThread().interrupt()
+                    reported = true
+                }
+
+                if (dozing) {
 
-                    throw IOException("Retry interrupted", ie)
+                    throw DozeModeIOException("Device in Doze mode", e)
                 }
+
+                throw e
+            }
+
+            if (!reported) {
+
+                scheduler.onFailure(host)
+
+                reported = true
+            }
+
+            throw e
+
+        } finally {
+
+            /*
+                Unexpected errors say nothing about the host, the half-open probe is released.
+            */
+            if (!reported) {
+
+                scheduler.onCancelled(host)
             }
         }
+    }
+
+    private fun isDozing(): Boolean {
 
-        throw lastException ?: IOException("Network request failed")
+        return try {
+
+            isDeviceInDozeMode(BaseApplication.takeContext())
+
+        } catch (e: Throwable) {
+
+            false
+        }
     }
-}
\ No newline at end of file
+}
@@ -39,6 +39,7 @@ fun <K, V> ConcurrentHashMap<K, V>.removeAllByValue(value: V): Boolean {
     return removed
 }
 
+@Deprecated("Index based operations on CopyOnWriteArraySet are O(n) or worse, use ConcurrentIndexedSet")
 fun <T> CopyOnWriteArraySet<T>.getAtIndex(index: Int): T? {
 
     if (index < 0 || index >= size) {
@@ -49,27 +50,17 @@ fun <T> CopyOnWriteArraySet<T>.getAtIndex(index: Int): T? {
     return this.elementAt(index)
 }
 
+@Deprecated("Index based operations on CopyOnWriteArraySet are O(n) or worse, use ConcurrentIndexedSet")
 fun <T> CopyOnWriteArraySet<T>.removeAt(index: Int): T? {
 
     if (index < 0 || index >= size) return null
 
-    val iterator = this.iterator()
-    var currentIndex = 0
-    var removedElement: T? = null
-
-    while (iterator.hasNext()) {
-        val element = iterator.next()
-        if (currentIndex == index) {
-            removedElement = element
-            this.remove(element) // Thread-safe removal
-            break
-        }
-        currentIndex++
-    }
+    val element = this.elementAt(index)
 
-    return removedElement
+    return if (this.remove(element)) element else null
 }
 
+@Deprecated("Index based operations on CopyOnWriteArraySet are O(n) or worse, use ConcurrentIndexedSet")
 fun <T> CopyOnWriteArraySet<T>.addAt(index: Int, element: T): Boolean {
 
     // First check if element exists (Set behavior)
@@ -92,6 +83,7 @@ fun <T> CopyOnWriteArraySet<T>.addAt(index: Int, element: T): Boolean {
     return true
 }
 
+@Deprecated("Index based operations on CopyOnWriteArraySet are O(n) or worse, use ConcurrentIndexedSet")
 fun <T> CopyOnWriteArraySet<T>.sortWith(comparator: Comparator<in T>) {
 
     val sortedList = this.toMutableList().apply {
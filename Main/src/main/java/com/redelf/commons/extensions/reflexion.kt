@@ -21,10 +21,10 @@ fun Class<*>.hasPublicDefaultConstructor(): Boolean {
 
 fun Any.assign(fieldName: String, fieldValue: Any?, tag: String = ""): Boolean {
 
-    val tag = "$tag ASSIGN :: Instance = '$this' :: Field = '$fieldName' " +
-            ":: Value = '$fieldValue' ::".trim()
-
-    Console.log("$tag START")
+    /*
+        The instance and the value can be large, the tag is built only when it gets logged.
+    */
+    Console.log { "${getAssignTag(tag, fieldName, fieldValue)} START" }
 
     try {
 
@@ -41,11 +41,11 @@ fun Any.assign(fieldName: String, fieldValue: Any?, tag: String = ""): Boolean {
 
                 if (success) {
 
-                    Console.log("$tag END")
+                    Console.log { "${getAssignTag(tag, fieldName, fieldValue)} END" }
 
                 } else {
 
-                    Console.error("$tag FAILED")
+                    Console.error("${getAssignTag(tag, fieldName, fieldValue)} FAILED")
                 }
 
                 return success
@@ -54,13 +54,19 @@ fun Any.assign(fieldName: String, fieldValue: Any?, tag: String = ""): Boolean {
 
     } catch (e: Throwable) {
 
-        Console.error("$tag ERROR: ${e.message}")
+        Console.error("${getAssignTag(tag, fieldName, fieldValue)} ERROR: ${e.message}")
         recordException(e)
     }
 
     return false
 }
 
+private fun Any.getAssignTag(tag: String, fieldName: String, fieldValue: Any?): String {
+
+    return "$tag ASSIGN :: Instance = '$this' :: Field = '$fieldName' " +
+            ":: Value = '$fieldValue' ::".trim()
+}
+
 fun Field.isExcluded(instance: Any): Boolean {
 
     var excluded = false
@@ -0,0 +1,452 @@
+package com.redelf.commons.logging
+
+import java.io.File
+import java.io.IOException
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.LockSupport
+
+/*
+    Appends log lines to files from a single writer thread.
+
+    Callers only put the line into a lock-free ring buffer. The writer keeps the current file
+    open, flushes when enough bytes are pending or when the flush interval has passed, and
+    rolls over to a new file when the date changes or the file grows above the maximum size.
+    The entries are encoded on the writer thread, so the encoder (and its date formats) is
+    never shared.
+
+    File name: <date>-<name>-<session>[-<part>].<encoder extension>
+
+    The appender must not log through the Console, it is called by it.
+*/
+class AsyncLogAppender(
+
+    private val directory: File,
+    private val name: String,
+    capacity: Int = 8192,
+    private val policy: LogOverflowPolicy = LogOverflowPolicy.BLOCK,
+    private val sampleRate: Int = 10,
+    private val flushBytes: Int = 64 * 1024,
+    private val flushInterval: Long = 1000L,
+    private val maxFileBytes: Long = 10L * 1024L * 1024L,
+    private val encoder: LogEncoder = TextLogEncoder(flushBytes)
+
+) {
+
+    companion object {
+
+        private const val HIGH_WATERMARK = 0.75
+        private const val BLOCKED_PARK_NANOS = 100_000L
+        private const val FLUSH_PARK_NANOS = 1_000_000L
+    }
+
+    private class Entry(
+
+        val timestamp: Long,
+        val priority: Int,
+        val tag: String?,
+        val message: String
+    )
+
+    private val buffer = LogRingBuffer<Entry>(capacity)
+    private val highWatermark = (buffer.getCapacity() * HIGH_WATERMARK).toInt()
+
+    private val running = AtomicBoolean(true)
+    private val writerParked = AtomicBoolean()
+    private val flushRequested = AtomicBoolean()
+    private val flushWaiters = AtomicInteger()
+    private val flushRounds = AtomicLong()
+
+    private val accepted = AtomicLong()
+    private val written = AtomicLong()
+    private val dropped = AtomicLong()
+    private val sampled = AtomicLong()
+    private val flushes = AtomicLong()
+    private val rotations = AtomicLong()
+
+    private val session = SimpleDateFormat("h-m-s", Locale.getDefault()).format(Date())
+
+    /*
+        Owned by the writer thread.
+    */
+    private val dayFormat = SimpleDateFormat("yy-MM-dd", Locale.getDefault())
+    private var opened = false
+    private var day = ""
+    private var part = 0
+    private var fileBytes = 0L
+    private var pendingBytes = 0
+    private var lastFlush = System.currentTimeMillis()
+
+    @Volatile
+    private var file: File? = null
+
+    private val writer = Thread({ run() }, "Log appender :: $name")
+
+    init {
+
+        writer.isDaemon = true
+        writer.priority = Thread.MIN_PRIORITY
+        writer.start()
+    }
+
+    /*
+        Appends the line without the priority and the tag.
+    */
+    fun append(line: String, timestamp: Long = System.currentTimeMillis()): Boolean {
+
+        return append(0, null, line, timestamp)
+    }
+
+    /*
+        Returns false when the line was dropped according to the overflow policy.
+    */
+    fun append(
+
+        priority: Int,
+        tag: String?,
+        message: String,
+        timestamp: Long = System.currentTimeMillis()
+
+    ): Boolean {
+
+        if (!running.get()) {
+
+            return false
+        }
+
+        if (policy == LogOverflowPolicy.SAMPLE && buffer.getSize() >= highWatermark) {
+
+            if (sampled.incrementAndGet() % sampleRate.coerceAtLeast(1) != 0L) {
+
+                dropped.incrementAndGet()
+
+                return false
+            }
+        }
+
+        val entry = Entry(timestamp, priority, tag, message)
+
+        if (buffer.offer(entry)) {
+
+            accepted.incrementAndGet()
+
+            wakeWriter()
+
+            return true
+        }
+
+        if (policy == LogOverflowPolicy.BLOCK) {
+
+            while (running.get()) {
+
+                LockSupport.unpark(writer)
+                LockSupport.parkNanos(BLOCKED_PARK_NANOS)
+
+                if (buffer.offer(entry)) {
+
+                    accepted.incrementAndGet()
+
+                    return true
+                }
+            }
+        }
+
+        dropped.incrementAndGet()
+
+        return false
+    }
+
+    /*
+        Asks the writer to flush everything appended so far.
+    */
+    fun flush() {
+
+        flushRequested.set(true)
+
+        LockSupport.unpark(writer)
+    }
+
+    /*
+        Flushes everything appended so far and waits until it is written, e.g. before the
+        process dies. Returns false on timeout or when the writer is not running.
+    */
+    fun flush(timeout: Long): Boolean {
+
+        val deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout)
+        val round = flushRounds.get()
+
+        flushWaiters.incrementAndGet()
+
+        try {
+
+            flush()
+
+            while (flushRounds.get() == round) {
+
+                if (!writer.isAlive || System.nanoTime() >= deadline) {
+
+                    return false
+                }
+
+                LockSupport.parkNanos(FLUSH_PARK_NANOS)
+            }
+
+            return true
+
+        } finally {
+
+            flushWaiters.decrementAndGet()
+        }
+    }
+
+    /*
+        Writes the remaining lines and closes the file.
+    */
+    fun close(timeout: Long = 5000L) {
+
+        running.set(false)
+
+        LockSupport.unpark(writer)
+
+        try {
+
+            writer.join(timeout)
+
+        } catch (e: InterruptedException) {
+
+            Thread.currentThread().interrupt()
+        }
+    }
+
+    fun getFile() = file
+
+    fun getStats() = Stats(
+
+        accepted = accepted.get(),
+        written = written.get(),
+        dropped = dropped.get(),
+        flushes = flushes.get(),
+        rotations = rotations.get(),
+        buffered = buffer.getSize()
+    )
+
+    private fun wakeWriter() {
+
+        if (writerParked.get()) {
+
+            LockSupport.unpark(writer)
+        }
+    }
+
+    private fun run() {
+
+        try {
+
+            drain()
+
+            flushOutput()
+
+        } catch (e: Throwable) {
+
+            /*
+                The writer is gone: appending stops (blocked callers are released) and the
+                buffered lines are dropped.
+            */
+            running.set(false)
+
+            e.printStackTrace()
+
+            while (buffer.poll() != null) {
+
+                dropped.incrementAndGet()
+            }
+
+        } finally {
+
+            closeOutput()
+
+            flushRounds.incrementAndGet()
+        }
+    }
+
+    private fun drain() {
+
+        while (running.get() || !buffer.isEmpty()) {
+
+            val entry = buffer.poll()
+
+            if (entry != null) {
+
+                write(entry)
+
+                if (pendingBytes >= flushBytes) {
+
+                    flushOutput()
+                }
+
+                continue
+            }
+
+            val now = System.currentTimeMillis()
+            val waiting = flushWaiters.get() > 0
+
+            if (flushRequested.getAndSet(false) || waiting || now - lastFlush >= flushInterval) {
+
+                flushOutput()
+
+                /*
+                    Lines appended while flushing are written (and flushed) first.
+                */
+                if (waiting && buffer.isEmpty()) {
+
+                    flushRounds.incrementAndGet()
+                }
+            }
+
+            writerParked.set(true)
+
+            if (buffer.isEmpty() && running.get() && !flushRequested.get()) {
+
+                val wait = if (pendingBytes > 0) {
+
+                    (flushInterval - (now - lastFlush)).coerceAtLeast(1L)
+
+                } else {
+
+                    flushInterval
+                }
+
+                /*
+                    Short naps only while somebody waits for the flush to complete.
+                */
+                val nanos = if (waiting) FLUSH_PARK_NANOS else TimeUnit.MILLISECONDS.toNanos(wait)
+
+                LockSupport.parkNanos(nanos)
+            }
+
+            writerParked.set(false)
+        }
+    }
+
+    private fun write(entry: Entry) {
+
+        try {
+
+            val date = Date(entry.timestamp)
+            val entryDay = dayFormat.format(date)
+
+            if (!opened || entryDay != day || fileBytes >= maxFileBytes) {
+
+                open(entryDay)
+            }
+
+            val bytes = encoder.encode(entry.timestamp, entry.priority, entry.tag, entry.message)
+
+            fileBytes += bytes
+            pendingBytes += bytes
+
+            written.incrementAndGet()
+
+        } catch (e: IOException) {
+
+            dropped.incrementAndGet()
+
+            e.printStackTrace()
+
+            closeOutput()
+
+        } catch (e: Throwable) {
+
+            /*
+                The entry could not be encoded, the file is fine.
+            */
+            dropped.incrementAndGet()
+
+            e.printStackTrace()
+        }
+    }
+
+    @Throws(IOException::class)
+    private fun open(entryDay: String) {
+
+        val rotation = opened
+
+        closeOutput()
+
+        part = if (entryDay == day) part + 1 else 0
+        day = entryDay
+
+        if (!directory.exists() && !directory.mkdirs()) {
+
+            throw IOException("Directory doesn't exist: ${directory.absolutePath}")
+        }
+
+        val suffix = if (part > 0) "-$part" else ""
+        val target = File(directory, "$day-$name-$session$suffix.${encoder.getExtension()}")
+
+        encoder.open(target)
+
+        opened = true
+        file = target
+        fileBytes = target.length()
+
+        if (rotation) {
+
+            rotations.incrementAndGet()
+        }
+    }
+
+    private fun flushOutput() {
+
+        lastFlush = System.currentTimeMillis()
+
+        if (pendingBytes == 0) {
+
+            return
+        }
+
+        try {
+
+            encoder.flush()
+
+            flushes.incrementAndGet()
+
+        } catch (e: Throwable) {
+
+            e.printStackTrace()
+
+            closeOutput()
+        }
+
+        pendingBytes = 0
+    }
+
+    private fun closeOutput() {
+
+        try {
+
+            encoder.close()
+
+        } catch (e: Throwable) {
+
+            e.printStackTrace()
+        }
+
+        opened = false
+    }
+
+    data class Stats(
+
+        val accepted: Long,
+        val written: Long,
+        val dropped: Long,
+        val flushes: Long,
+        val rotations: Long,
+        val buffered: Int
+    )
+}
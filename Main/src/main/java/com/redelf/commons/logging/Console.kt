@@ -1,8 +1,10 @@
 package com.redelf.commons.logging
 
+import android.util.Log
 import com.redelf.commons.application.BaseApplication
 import timber.log.Timber
 import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 
 /*
 * TODO: Connect with dependency flags, such as: if (DEBUG_RESOURCES_OVERRIDES.get())
@@ -15,10 +17,14 @@ object Console : LogParametrized {
         return RecordingTree.filesystemGranted()
     }
 
+    private const val CRASH_FLUSH_TIMEOUT = 2000L
+
     private var tree: Timber.Tree? = null
+    private val crashHandlerInstalled = AtomicBoolean()
     private val production = AtomicBoolean(false)
     private val recordLogs = AtomicBoolean(false)
     private val failOnError = AtomicBoolean(false)
+    private val minimumPriority = AtomicInteger(Log.VERBOSE)
 
     @JvmStatic
     fun initialize(
@@ -26,6 +32,8 @@ object Console : LogParametrized {
         logsRecording: Boolean = false,
         failOnError: Boolean = false,
         production: Boolean = false,
+        logsOverflowPolicy: LogOverflowPolicy = LogOverflowPolicy.BLOCK,
+        logsBinary: Boolean = false,
 
     ) {
 
@@ -46,7 +54,13 @@ object Console : LogParametrized {
             val appVersionCode = BaseApplication.getVersionCode()
             val recordingFileName = "$appName-$appVersion-$appVersionCode"
 
-            tree = RecordingTree(recordingFileName, production = production)
+            tree = RecordingTree(
+
+                recordingFileName,
+                production = production,
+                overflowPolicy = logsOverflowPolicy,
+                binary = logsBinary
+            )
 
             tree?.let {
 
@@ -55,9 +69,11 @@ object Console : LogParametrized {
                 (it as RecordingTree).hello()
             }
 
+            installCrashHandler()
+
         } else {
 
-            tree = Timber.DebugTree()
+            tree = LogcatTree()
 
             tree?.let {
 
@@ -66,6 +82,63 @@ object Console : LogParametrized {
         }
     }
 
+    /*
+        Lines below the minimum priority are discarded before anything is formatted.
+        Errors are never discarded.
+    */
+    @JvmStatic
+    fun setMinimumPriority(priority: Int) {
+
+        minimumPriority.set(priority)
+    }
+
+    @JvmStatic
+    fun getMinimumPriority() = minimumPriority.get()
+
+    @JvmStatic
+    fun isEnabled(priority: Int) = priority >= minimumPriority.get() && Timber.treeCount > 0
+
+    /*
+        Lazy variants: the message is built only when its priority is enabled, e.g.
+        Console.log { "$tag Value = $value" }. Nothing is allocated when it is not.
+    */
+    inline fun log(message: () -> String) {
+
+        if (isEnabled(Log.VERBOSE)) {
+
+            log(message())
+        }
+    }
+
+    inline fun debug(message: () -> String) {
+
+        if (isEnabled(Log.DEBUG)) {
+
+            debug(message())
+        }
+    }
+
+    inline fun info(message: () -> String) {
+
+        if (isEnabled(Log.INFO)) {
+
+            info(message())
+        }
+    }
+
+    inline fun warning(message: () -> String) {
+
+        if (isEnabled(Log.WARN)) {
+
+            warning(message())
+        }
+    }
+
+    inline fun error(message: () -> String) {
+
+        error(message())
+    }
+
     override fun logParametrized(priority: Int, tag: String?, message: String, t: Throwable?) {
 
         if (tree is LogParametrized) {
@@ -81,6 +154,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun log(message: String?, vararg args: Any?) {
 
+        if (!isEnabled(Log.VERBOSE)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(0, "", "$message :: Args = ${args.toList()}", null)
@@ -94,6 +172,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun log(t: Throwable?, message: String?, vararg args: Any?) {
 
+        if (!isEnabled(Log.VERBOSE)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(0, "", "$message :: Args = ${args.toList()}", t)
@@ -107,6 +190,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun log(t: Throwable?) {
 
+        if (!isEnabled(Log.VERBOSE)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(0, "", "", t)
@@ -120,6 +208,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun debug(message: String?, vararg args: Any?) {
 
+        if (!isEnabled(Log.DEBUG)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(1, "", "$message :: Args = ${args.toList()}", null)
@@ -133,6 +226,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun debug(t: Throwable?, message: String?, vararg args: Any?) {
 
+        if (!isEnabled(Log.DEBUG)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(1, "", "$message :: Args = ${args.toList()}", t)
@@ -146,6 +244,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun debug(t: Throwable?) {
 
+        if (!isEnabled(Log.DEBUG)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(1, "", "", t)
@@ -159,6 +262,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun info(message: String?, vararg args: Any?) {
 
+        if (!isEnabled(Log.INFO)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(2, "", "$message :: Args = ${args.toList()}", null)
@@ -172,6 +280,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun info(t: Throwable?, message: String?, vararg args: Any?) {
 
+        if (!isEnabled(Log.INFO)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(2, "", "$message :: Args = ${args.toList()}", t)
@@ -185,6 +298,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun info(t: Throwable?) {
 
+        if (!isEnabled(Log.INFO)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(2, "", "", t)
@@ -198,6 +316,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun warning(message: String?, vararg args: Any?) {
 
+        if (!isEnabled(Log.WARN)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(3, "", "$message :: Args = ${args.toList()}", null)
@@ -211,6 +334,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun warning(t: Throwable?, message: String?, vararg args: Any?) {
 
+        if (!isEnabled(Log.WARN)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(3, "", "$message :: Args = ${args.toList()}", t)
@@ -224,6 +352,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun warning(t: Throwable?) {
 
+        if (!isEnabled(Log.WARN)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(3, "", "", t)
@@ -292,6 +425,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun log(priority: Int, message: String?, vararg args: Any?) {
 
+        if (!isEnabled(priority)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(6, "", "$message :: Args = ${args.toList()}", null)
@@ -305,6 +443,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun log(priority: Int, t: Throwable?, message: String?, vararg args: Any?) {
 
+        if (!isEnabled(priority)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(6, "", "$message :: Args = ${args.toList()}", t)
@@ -318,6 +461,11 @@ object Console : LogParametrized {
     @JvmStatic
     fun log(priority: Int, t: Throwable?) {
 
+        if (!isEnabled(priority)) {
+
+            return
+        }
+
         if (production.get()) {
 
             logParametrized(6, "", "", t)
@@ -328,6 +476,54 @@ object Console : LogParametrized {
         Timber.log(priority, t)
     }
 
+    /*
+        Writes the recorded lines that are still buffered and waits until they are written.
+    */
+    @JvmStatic
+    fun flush(timeout: Long = CRASH_FLUSH_TIMEOUT): Boolean {
+
+        return (tree as? RecordingTree)?.flush(timeout) ?: true
+    }
+
+    /*
+        The recorded lines are buffered, the crash is logged and the buffer written before the
+        previous handler (e.g. Crashlytics or the system one) terminates the process.
+    */
+    private fun installCrashHandler() {
+
+        if (!crashHandlerInstalled.compareAndSet(false, true)) {
+
+            return
+        }
+
+        val previous = Thread.getDefaultUncaughtExceptionHandler()
+
+        Thread.setDefaultUncaughtExceptionHandler { thread, e ->
+
+            try {
+
+                val message = "Uncaught exception :: Thread = ${thread.name}"
+
+                if (production.get()) {
+
+                    logParametrized(4, "", message, e)
+
+                } else {
+
+                    Timber.e(e, message)
+                }
+
+                flush()
+
+            } catch (t: Throwable) {
+
+                t.printStackTrace()
+            }
+
+            previous?.uncaughtException(thread, e)
+        }
+    }
+
     private fun setLogsRecording(enabled: Boolean) {
 
         Timber.i("Set logs recording: $enabled")
@@ -0,0 +1,27 @@
+package com.redelf.commons.logging
+
+import java.io.File
+import java.io.IOException
+
+/*
+    Turns log entries into the content of the log files, used by the AsyncLogAppender from
+    its writer thread only.
+*/
+interface LogEncoder {
+
+    fun getExtension(): String
+
+    @Throws(IOException::class)
+    fun open(file: File)
+
+    /*
+        Returns the number of the (uncompressed) bytes produced.
+    */
+    @Throws(IOException::class)
+    fun encode(timestamp: Long, priority: Int, tag: String?, message: String): Int
+
+    @Throws(IOException::class)
+    fun flush()
+
+    fun close()
+}
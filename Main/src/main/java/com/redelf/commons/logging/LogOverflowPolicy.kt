@@ -0,0 +1,22 @@
+package com.redelf.commons.logging
+
+/*
+    What the appender does with a line when its buffer is full (or nearly full for SAMPLE).
+*/
+enum class LogOverflowPolicy {
+
+    /*
+        The caller waits until the writer makes room, no line is lost.
+    */
+    BLOCK,
+
+    /*
+        The line is dropped.
+    */
+    DROP,
+
+    /*
+        Above the high watermark only every n-th line is kept, the rest are dropped.
+    */
+    SAMPLE
+}
@@ -0,0 +1,87 @@
+package com.redelf.commons.logging
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+/*
+    Bounded lock-free queue for many producers and a single consumer.
+
+    Every slot carries a sequence number telling whether it is free for the producer of the
+    given position or filled for the consumer. Producers claim positions with a CAS on the
+    head, the consumer is the only one moving the tail.
+*/
+class LogRingBuffer<T>(capacity: Int) {
+
+    private val size = Integer.highestOneBit((capacity.coerceAtLeast(2) - 1) shl 1)
+    private val mask = (size - 1).toLong()
+
+    private val head = AtomicLong()
+    private val tail = AtomicLong()
+    private val items = AtomicReferenceArray<T?>(size)
+    private val sequences = AtomicLongArray(size)
+
+    init {
+
+        for (i in 0 until size) {
+
+            sequences.set(i, i.toLong())
+        }
+    }
+
+    /*
+        Returns false when the buffer is full.
+    */
+    fun offer(item: T): Boolean {
+
+        while (true) {
+
+            val position = head.get()
+            val index = (position and mask).toInt()
+            val difference = sequences.get(index) - position
+
+            if (difference == 0L) {
+
+                if (head.compareAndSet(position, position + 1)) {
+
+                    items.set(index, item)
+                    sequences.set(index, position + 1)
+
+                    return true
+                }
+
+            } else if (difference < 0L) {
+
+                return false
+            }
+        }
+    }
+
+    /*
+        Must be called from the consumer thread only.
+    */
+    fun poll(): T? {
+
+        val position = tail.get()
+        val index = (position and mask).toInt()
+
+        if (sequences.get(index) != position + 1) {
+
+            return null
+        }
+
+        val item = items.get(index)
+
+        items.set(index, null)
+        sequences.set(index, position + size)
+        tail.set(position + 1)
+
+        return item
+    }
+
+    fun getSize() = (head.get() - tail.get()).coerceIn(0, size.toLong()).toInt()
+
+    fun getCapacity() = size
+
+    fun isEmpty() = getSize() == 0
+}
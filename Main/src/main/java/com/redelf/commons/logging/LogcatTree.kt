@@ -0,0 +1,68 @@
+package com.redelf.commons.logging
+
+import android.annotation.SuppressLint
+import android.util.Log
+import timber.log.Timber
+
+/*
+    Writes the lines to Logcat. Unlike Timber.DebugTree it does not look the call site up
+    from the stack trace (a Throwable per line): lines without an explicit tag are logged
+    under the default tag.
+*/
+class LogcatTree : Timber.Tree() {
+
+    companion object {
+
+        const val DEFAULT_TAG = "Console"
+
+        private const val MAX_LOG_LENGTH = 4000
+    }
+
+    @SuppressLint("LogNotTimber")
+    override fun log(priority: Int, tag: String?, message: String, t: Throwable?) {
+
+        val lineTag = tag ?: DEFAULT_TAG
+
+        if (message.length < MAX_LOG_LENGTH) {
+
+            println(priority, lineTag, message)
+
+            return
+        }
+
+        // Split by line, then ensure each line can fit into Log's maximum length.
+        var i = 0
+        val length = message.length
+
+        while (i < length) {
+
+            var newline = message.indexOf('\n', i)
+            newline = if (newline != -1) newline else length
+
+            do {
+
+                val end = newline.coerceAtMost(i + MAX_LOG_LENGTH)
+
+                println(priority, lineTag, message.substring(i, end))
+
+                i = end
+
+            } while (i < newline)
+
+            i++
+        }
+    }
+
+    @SuppressLint("LogNotTimber")
+    private fun println(priority: Int, tag: String, message: String) {
+
+        if (priority == Log.ASSERT) {
+
+            Log.wtf(tag, message)
+
+        } else {
+
+            Log.println(priority, tag, message)
+        }
+    }
+}
@@ -7,30 +7,27 @@ import android.os.Environment
 import android.util.Log
 import androidx.core.content.ContextCompat
 import com.redelf.commons.application.BaseApplication
-import com.redelf.commons.extensions.appendText
-import com.redelf.commons.extensions.isEmpty
 import com.redelf.commons.extensions.isNotEmpty
 import com.redelf.commons.extensions.toHumanReadableString
+import com.redelf.commons.logging.binary.BinaryLogEncoder
 import timber.log.Timber
-import java.io.File
 import java.io.IOException
 import java.text.SimpleDateFormat
 import java.util.Calendar
 import java.util.Locale
-import java.util.regex.Pattern
 
 class RecordingTree(
 
     private val destination: String,
-    private val production: Boolean = false
+    private val production: Boolean = false,
+    private val overflowPolicy: LogOverflowPolicy = LogOverflowPolicy.BLOCK,
+    private val binary: Boolean = false
 
 ) : Timber.Tree(), LogParametrized {
 
     companion object {
 
-        private const val MAX_TAG_LENGTH = 23
         private const val MAX_LOG_LENGTH = 4000
-        private val ANONYMOUS_CLASS = Pattern.compile("(\\$\\d+)+$")
 
         fun filesystemGranted(): Boolean {
 
@@ -41,51 +38,8 @@ class RecordingTree(
         }
     }
 
-    private var file: File? = null
-    private var session: String? = null
-    private val fmt = SimpleDateFormat("yy-MM-dd-h-m-s-SSS", Locale.getDefault())
-
-    private val fqcnIgnore = listOf(
-
-        Timber::class.java.name,
-        Console::class.java.name,
-        Timber.Tree::class.java.name,
-        Timber.Forest::class.java.name,
-        RecordingTree::class.java.name,
-        Timber.DebugTree::class.java.name
-    )
-
-    @get:JvmSynthetic // Hide from public API.
-    internal val explicitTag = ThreadLocal<String>()
-
-    @get:JvmSynthetic // Hide from public API.
-    internal val initTag: String?
-        get() {
-            val tag = explicitTag.get()
-            if (tag != null) {
-                explicitTag.remove()
-            }
-            return tag
-        }
-
-    val tag: String
-        get() = initTag ?: Throwable().stackTrace
-            .first { it.className !in fqcnIgnore }
-            .let(::createStackElementTag)
-
-    private fun createStackElementTag(element: StackTraceElement): String {
-        var tag = element.className.substringAfterLast('.')
-        val m = ANONYMOUS_CLASS.matcher(tag)
-        if (m.find()) {
-            tag = m.replaceAll("")
-        }
-        // Tag length limit was removed in API 26.
-        return if (tag.length <= MAX_TAG_LENGTH) {
-            tag
-        } else {
-            tag.substring(0, MAX_TAG_LENGTH)
-        }
-    }
+    @Volatile
+    private var appender: AsyncLogAppender? = null
 
     fun hello() {
 
@@ -100,11 +54,11 @@ class RecordingTree(
 
         if (production) {
 
-            writeLog("$tag :: P$priority ::", message)
+            writeLog("$tag :: P$priority ::", message, priority)
 
             t?.let {
 
-                writeLog(tag, it.toHumanReadableString())
+                writeLog(tag, it.toHumanReadableString(), priority)
             }
 
             return
@@ -118,11 +72,11 @@ class RecordingTree(
 
         if (message.length < MAX_LOG_LENGTH) {
             if (priority == Log.ASSERT) {
-                writeLog(tag, message)
-                Log.wtf(tag, message)
+                writeLog(tag, message, priority)
+                Log.wtf(tag ?: LogcatTree.DEFAULT_TAG, message)
             } else {
-                writeLog(tag, message)
-                Log.println(priority, tag, message)
+                writeLog(tag, message, priority)
+                Log.println(priority, tag ?: LogcatTree.DEFAULT_TAG, message)
             }
             return
         }
@@ -137,11 +91,11 @@ class RecordingTree(
                 val end = newline.coerceAtMost(i + MAX_LOG_LENGTH)
                 val part = message.substring(i, end)
                 if (priority == Log.ASSERT) {
-                    writeLog(tag, part)
-                    Log.wtf(tag, part)
+                    writeLog(tag, part, priority)
+                    Log.wtf(tag ?: LogcatTree.DEFAULT_TAG, part)
                 } else {
-                    writeLog(tag, part)
-                    Log.println(priority, tag, part)
+                    writeLog(tag, part, priority)
+                    Log.println(priority, tag ?: LogcatTree.DEFAULT_TAG, part)
                 }
                 i = end
             } while (i < newline)
@@ -149,78 +103,80 @@ class RecordingTree(
         }
     }
 
-    @SuppressLint("LogNotTimber")
-    private fun writeLog(tag: String?, logs: String) {
+    private fun writeLog(tag: String?, logs: String, priority: Int = 0) {
 
-        if (!filesystemGranted()) {
+        val appender = obtainAppender() ?: return
 
-            return
-        }
+        val tagVal = if (isNotEmpty(tag)) {
 
-        try {
+            tag
 
-            val cal = Calendar.getInstance()
-            val datetime = fmt.format(cal.time)
+        } else {
 
-            if (isEmpty(session)) {
+            null
+        }
 
-                val fmt2 = SimpleDateFormat("h-m-s", Locale.getDefault())
-                session = fmt2.format(cal.time)
-            }
+        appender.append(priority, tagVal, logs)
+    }
 
-            if (file == null) {
+    private fun obtainAppender(): AsyncLogAppender? {
 
-                val calendar = Calendar.getInstance()
-                val dir = Environment.DIRECTORY_DOWNLOADS
-                val format = SimpleDateFormat("yy-MM-dd", Locale.getDefault())
-                val formattedDate = format.format(calendar.time)
-                val fileName = "$formattedDate-$destination-$session.txt"
-                val downloadsFolder = Environment.getExternalStoragePublicDirectory(dir)
+        appender?.let {
 
-                if (downloadsFolder.exists() != true) {
+            return it
+        }
 
-                    val e = IOException("Directory doesn't exist: ${downloadsFolder?.absolutePath}")
-                    e.printStackTrace()
-                    return
-                }
+        /*
+            The permission is checked until it is granted, the appender is created once.
+        */
+        if (!filesystemGranted()) {
 
-                val wFile = File(downloadsFolder, fileName)
+            return null
+        }
 
-                if (wFile.exists() != true && wFile.createNewFile() != true) {
+        synchronized(this) {
 
-                    val e = IOException("No logs gathering file crated at: ${file?.absolutePath}")
-                    e.printStackTrace()
-                    return
-                }
+            appender?.let {
 
-                file = wFile
+                return it
             }
 
-            val tagVal = if (isNotEmpty(tag)) {
+            val dir = Environment.DIRECTORY_DOWNLOADS
+            val downloadsFolder = Environment.getExternalStoragePublicDirectory(dir)
 
-                "$tag :: "
+            if (downloadsFolder?.exists() != true) {
 
-            } else {
-
-                ""
+                val e = IOException("Directory doesn't exist: ${downloadsFolder?.absolutePath}")
+                e.printStackTrace()
+                return null
             }
 
-            try {
+            val created = AsyncLogAppender(
 
-                if (file?.appendText("$datetime :: $tagVal$logs") != true) {
+                directory = downloadsFolder,
+                name = destination,
+                policy = overflowPolicy,
+                encoder = if (binary) BinaryLogEncoder() else TextLogEncoder()
+            )
 
-                    val e = IOException("Failed to append text into: ${file?.absolutePath}")
-                    e.printStackTrace()
-                }
+            appender = created
 
-            } catch (e: Throwable) {
-
-                e.printStackTrace()
-            }
+            return created
+        }
+    }
 
-        } catch (e: Throwable) {
+    /*
+        Writes the buffered lines, e.g. before the process is about to die.
+    */
+    fun flush() {
 
-            e.printStackTrace()
-        }
+        appender?.flush()
     }
-}
\ No newline at end of file
+
+    /*
+        Writes the buffered lines and waits until they are written. Returns false on timeout.
+    */
+    fun flush(timeout: Long) = appender?.flush(timeout) ?: true
+
+    fun getAppenderStats() = appender?.getStats()
+}
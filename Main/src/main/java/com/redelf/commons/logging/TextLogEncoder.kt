@@ -0,0 +1,67 @@
+package com.redelf.commons.logging
+
+import java.io.BufferedWriter
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.OutputStreamWriter
+import java.io.Writer
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+
+/*
+    Plain text lines: <date and time> :: [<tag> :: ]<message>
+*/
+class TextLogEncoder(private val bufferSize: Int = 64 * 1024) : LogEncoder {
+
+    private val format = SimpleDateFormat("yy-MM-dd-h-m-s-SSS", Locale.getDefault())
+
+    private var output: Writer? = null
+
+    override fun getExtension() = "txt"
+
+    @Throws(IOException::class)
+    override fun open(file: File) {
+
+        close()
+
+        output = BufferedWriter(
+
+            OutputStreamWriter(FileOutputStream(file, true), Charsets.UTF_8),
+            bufferSize
+        )
+    }
+
+    @Throws(IOException::class)
+    override fun encode(timestamp: Long, priority: Int, tag: String?, message: String): Int {
+
+        val tagVal = if (tag.isNullOrEmpty()) "" else "$tag :: "
+        val text = "${format.format(Date(timestamp))} :: $tagVal$message\n"
+
+        output?.write(text) ?: throw IOException("Not open")
+
+        return text.length
+    }
+
+    @Throws(IOException::class)
+    override fun flush() {
+
+        output?.flush()
+    }
+
+    override fun close() {
+
+        try {
+
+            output?.flush()
+            output?.close()
+
+        } catch (e: IOException) {
+
+            e.printStackTrace()
+        }
+
+        output = null
+    }
+}
@@ -0,0 +1,197 @@
+package com.redelf.commons.logging.binary
+
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream
+import java.io.BufferedInputStream
+import java.io.BufferedWriter
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStreamWriter
+import java.io.Writer
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+
+/*
+    Renders the binary logs as the text the TextLogEncoder would have written. It has no
+    Android dependencies, so it can be run on any JVM:
+
+    java -cp <classpath> com.redelf.commons.logging.binary.BinaryLogDecoder <log.blog> [output.txt]
+
+    A frame cut short by a crash ends the decoding, everything before it is rendered.
+*/
+object BinaryLogDecoder {
+
+    private class FormatException(message: String) : IOException(message)
+
+    @JvmStatic
+    fun main(args: Array<String>) {
+
+        if (args.isEmpty()) {
+
+            System.err.println("Usage: BinaryLogDecoder <input.${BinaryLogFormat.EXTENSION}> [output]")
+
+            return
+        }
+
+        val output = if (args.size > 1) {
+
+            BufferedWriter(OutputStreamWriter(FileOutputStream(args[1]), Charsets.UTF_8))
+
+        } else {
+
+            BufferedWriter(OutputStreamWriter(System.out, Charsets.UTF_8))
+        }
+
+        output.use {
+
+            val count = decode(File(args[0]), it)
+
+            System.err.println("Decoded entries: $count")
+        }
+    }
+
+    /*
+        Returns the number of the decoded entries.
+    */
+    @Throws(IOException::class)
+    fun decode(file: File, output: Writer): Int {
+
+        return FileInputStream(file).use { decode(it, output) }
+    }
+
+    @Throws(IOException::class)
+    fun decode(input: InputStream, output: Writer): Int {
+
+        val format = SimpleDateFormat("yy-MM-dd-h-m-s-SSS", Locale.getDefault())
+        val stream = BufferedInputStream(FramedLZ4CompressorInputStream(input, true))
+        val dictionary = HashMap<Long, String>()
+        val arguments = ArrayList<Long>()
+
+        var entries = 0
+        var timestamp = 0L
+
+        try {
+
+            while (true) {
+
+                when (val type = stream.read()) {
+
+                    -1 -> break
+
+                    BinaryLogFormat.RECORD_SESSION -> {
+
+                        if (BinaryLogFormat.readVarLong(stream) != BinaryLogFormat.MAGIC) {
+
+                            throw FormatException("Not a binary log")
+                        }
+
+                        val version = BinaryLogFormat.readVarLong(stream)
+
+                        if (version > BinaryLogFormat.VERSION) {
+
+                            throw FormatException("Unsupported version: $version")
+                        }
+
+                        timestamp = BinaryLogFormat.readVarLong(stream)
+
+                        dictionary.clear()
+                    }
+
+                    BinaryLogFormat.RECORD_DICTIONARY -> {
+
+                        val reference = BinaryLogFormat.readVarLong(stream)
+
+                        dictionary[reference] = BinaryLogFormat.readString(stream)
+                    }
+
+                    BinaryLogFormat.RECORD_ENTRY -> {
+
+                        timestamp += BinaryLogFormat.unZigZag(BinaryLogFormat.readVarLong(stream))
+
+                        BinaryLogFormat.readVarLong(stream)
+
+                        val tag = readReference(stream, dictionary)
+                        val template = readReference(stream, dictionary) ?: ""
+                        val count = BinaryLogFormat.readVarLong(stream).toInt()
+
+                        arguments.clear()
+
+                        repeat(count) {
+
+                            arguments.add(BinaryLogFormat.unZigZag(BinaryLogFormat.readVarLong(stream)))
+                        }
+
+                        render(output, format, timestamp, tag, template, arguments)
+
+                        entries++
+                    }
+
+                    else -> throw FormatException("Unknown record: $type")
+                }
+            }
+
+        } catch (e: FormatException) {
+
+            throw e
+
+        } catch (e: IOException) {
+
+            System.err.println("Truncated log :: Decoded entries = $entries, Error = ${e.message}")
+        }
+
+        output.flush()
+
+        return entries
+    }
+
+    @Throws(IOException::class)
+    private fun readReference(stream: InputStream, dictionary: Map<Long, String>): String? {
+
+        return when (val reference = BinaryLogFormat.readVarLong(stream)) {
+
+            BinaryLogFormat.REFERENCE_NONE -> null
+            BinaryLogFormat.REFERENCE_INLINE -> BinaryLogFormat.readString(stream)
+
+            else -> dictionary[reference] ?: throw FormatException("Unknown reference: $reference")
+        }
+    }
+
+    private fun render(
+
+        output: Writer,
+        format: SimpleDateFormat,
+        timestamp: Long,
+        tag: String?,
+        template: String,
+        arguments: List<Long>
+    ) {
+
+        output.write(format.format(Date(timestamp)))
+        output.write(" :: ")
+
+        if (!tag.isNullOrEmpty()) {
+
+            output.write(tag)
+            output.write(" :: ")
+        }
+
+        var next = 0
+
+        template.forEach { c ->
+
+            if (c == BinaryLogFormat.PLACEHOLDER && next < arguments.size) {
+
+                output.write(arguments[next++].toString())
+
+            } else {
+
+                output.write(c.code)
+            }
+        }
+
+        output.write("\n")
+    }
+}
@@ -0,0 +1,267 @@
+package com.redelf.commons.logging.binary
+
+import com.redelf.commons.logging.LogEncoder
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream
+import java.io.BufferedOutputStream
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.OutputStream
+
+/*
+    Writes the entries in the BinaryLogFormat. Tags and message templates are interned into
+    the session dictionary, so a repeated line costs a few bytes before the compression.
+    Every flush completes the current LZ4 frame, so everything flushed can be decoded even
+    if the process dies later.
+
+    Strings longer than the maximum interned length (e.g. dumped payloads) are written
+    inline. When the interned strings reach the dictionary budget a new session starts,
+    which resets the dictionary, the same happens when the file rotates.
+*/
+class BinaryLogEncoder(
+
+    private val maxDictionaryBytes: Long = 1024L * 1024L,
+    private val maxInternedLength: Int = 512,
+    private val bufferSize: Int = 64 * 1024
+
+) : LogEncoder {
+
+    companion object {
+
+        private const val MAX_ARGUMENT_DIGITS = 18
+    }
+
+    private val record = ByteArrayOutputStream(256)
+    private val template = StringBuilder()
+    private val dictionary = HashMap<String, Long>()
+
+    private var arguments = LongArray(8)
+    private var output: OutputStream? = null
+    private var frame: FramedLZ4CompressorOutputStream? = null
+    private var previousTimestamp = 0L
+    private var sessionStarted = false
+    private var dictionaryBytes = 0L
+
+    override fun getExtension() = BinaryLogFormat.EXTENSION
+
+    @Throws(IOException::class)
+    override fun open(file: File) {
+
+        close()
+
+        output = BufferedOutputStream(FileOutputStream(file, true), bufferSize)
+
+        resetDictionary()
+    }
+
+    @Throws(IOException::class)
+    override fun encode(timestamp: Long, priority: Int, tag: String?, message: String): Int {
+
+        val target = output ?: throw IOException("Not open")
+
+        record.reset()
+
+        if (dictionaryBytes >= maxDictionaryBytes) {
+
+            resetDictionary()
+        }
+
+        if (!sessionStarted) {
+
+            record.write(BinaryLogFormat.RECORD_SESSION)
+
+            BinaryLogFormat.writeVarLong(record, BinaryLogFormat.MAGIC)
+            BinaryLogFormat.writeVarLong(record, BinaryLogFormat.VERSION)
+            BinaryLogFormat.writeVarLong(record, timestamp)
+
+            previousTimestamp = timestamp
+            sessionStarted = true
+        }
+
+        val count = split(message)
+        val text = template.toString()
+        val tagReference = reference(tag)
+        val templateReference = reference(text)
+
+        record.write(BinaryLogFormat.RECORD_ENTRY)
+
+        BinaryLogFormat.writeVarLong(record, BinaryLogFormat.zigZag(timestamp - previousTimestamp))
+        BinaryLogFormat.writeVarLong(record, priority.toLong())
+
+        writeReference(tagReference, tag)
+        writeReference(templateReference, text)
+
+        BinaryLogFormat.writeVarLong(record, count.toLong())
+
+        for (i in 0 until count) {
+
+            BinaryLogFormat.writeVarLong(record, BinaryLogFormat.zigZag(arguments[i]))
+        }
+
+        previousTimestamp = timestamp
+
+        val current = frame ?: FramedLZ4CompressorOutputStream(
+
+            target,
+            FramedLZ4CompressorOutputStream.Parameters(
+
+                FramedLZ4CompressorOutputStream.BlockSize.K64
+            )
+
+        ).also {
+
+            frame = it
+        }
+
+        record.writeTo(current)
+
+        return record.size()
+    }
+
+    @Throws(IOException::class)
+    override fun flush() {
+
+        frame?.finish()
+        frame = null
+
+        output?.flush()
+    }
+
+    override fun close() {
+
+        try {
+
+            flush()
+
+            output?.close()
+
+        } catch (e: IOException) {
+
+            e.printStackTrace()
+        }
+
+        frame = null
+        output = null
+    }
+
+    /*
+        Moves the numbers of the message into the arguments and leaves the placeholders in
+        the template. Numbers with leading zeros stay in the template, they would not survive
+        the round trip.
+    */
+    private fun split(message: String): Int {
+
+        template.setLength(0)
+
+        if (message.indexOf(BinaryLogFormat.PLACEHOLDER) >= 0) {
+
+            template.append(message)
+
+            return 0
+        }
+
+        var count = 0
+        var i = 0
+        val length = message.length
+
+        while (i < length) {
+
+            val c = message[i]
+
+            if (!c.isAsciiDigit()) {
+
+                template.append(c)
+                i++
+
+                continue
+            }
+
+            var end = i + 1
+
+            while (end < length && message[end].isAsciiDigit()) {
+
+                end++
+            }
+
+            val digits = end - i
+
+            if (digits > MAX_ARGUMENT_DIGITS || (digits > 1 && c == '0')) {
+
+                template.append(message, i, end)
+
+            } else {
+
+                if (count == arguments.size) {
+
+                    arguments = arguments.copyOf(count * 2)
+                }
+
+                arguments[count++] = message.substring(i, end).toLong()
+
+                template.append(BinaryLogFormat.PLACEHOLDER)
+            }
+
+            i = end
+        }
+
+        return count
+    }
+
+    private fun reference(value: String?): Long {
+
+        if (value == null) {
+
+            return BinaryLogFormat.REFERENCE_NONE
+        }
+
+        if (value.length > maxInternedLength) {
+
+            return BinaryLogFormat.REFERENCE_INLINE
+        }
+
+        dictionary[value]?.let {
+
+            return it
+        }
+
+        val reference = BinaryLogFormat.REFERENCE_FIRST + dictionary.size
+
+        dictionary[value] = reference
+
+        /*
+            The memory held by the string (UTF-16) and its map entry, roughly.
+        */
+        dictionaryBytes += value.length * 2L + 64L
+
+        record.write(BinaryLogFormat.RECORD_DICTIONARY)
+
+        BinaryLogFormat.writeVarLong(record, reference)
+        BinaryLogFormat.writeString(record, value)
+
+        return reference
+    }
+
+    /*
+        The next entry starts a new session, with an empty dictionary.
+    */
+    private fun resetDictionary() {
+
+        dictionary.clear()
+
+        dictionaryBytes = 0L
+        sessionStarted = false
+    }
+
+    private fun writeReference(reference: Long, value: String?) {
+
+        BinaryLogFormat.writeVarLong(record, reference)
+
+        if (reference == BinaryLogFormat.REFERENCE_INLINE && value != null) {
+
+            BinaryLogFormat.writeString(record, value)
+        }
+    }
+
+    private fun Char.isAsciiDigit() = this in '0'..'9'
+}
@@ -0,0 +1,116 @@
+package com.redelf.commons.logging.binary
+
+import java.io.EOFException
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+
+/*
+    Binary log layout (inside the LZ4 frames, frames are concatenated):
+
+    Session:    type, magic, version, timestamp
+    Dictionary: type, reference, string
+    Entry:      type, timestamp delta (zigzag), priority, tag reference [, string],
+                template reference [, string], argument count, arguments (zigzag)
+
+    All numbers are varints, strings are the byte length followed by the UTF-8 bytes. Each
+    session starts with an empty dictionary. References: 0 - none, 1 - the string follows
+    inline (not interned), others - the dictionary entry. The numbers of a message
+    are stored as arguments, the template has the placeholder in their place.
+*/
+object BinaryLogFormat {
+
+    const val EXTENSION = "blog"
+
+    const val MAGIC = 0x524C4F47L
+    const val VERSION = 1L
+
+    const val RECORD_SESSION = 1
+    const val RECORD_DICTIONARY = 2
+    const val RECORD_ENTRY = 3
+
+    const val REFERENCE_NONE = 0L
+    const val REFERENCE_INLINE = 1L
+    const val REFERENCE_FIRST = 2L
+
+    const val PLACEHOLDER = '\u0001'
+
+    fun zigZag(value: Long) = (value shl 1) xor (value shr 63)
+
+    fun unZigZag(value: Long) = (value ushr 1) xor -(value and 1L)
+
+    @Throws(IOException::class)
+    fun writeVarLong(output: OutputStream, value: Long) {
+
+        var remaining = value
+
+        while (remaining and 0x7FL.inv() != 0L) {
+
+            output.write(((remaining and 0x7FL) or 0x80L).toInt())
+
+            remaining = remaining ushr 7
+        }
+
+        output.write(remaining.toInt())
+    }
+
+    @Throws(IOException::class)
+    fun readVarLong(input: InputStream): Long {
+
+        var result = 0L
+        var shift = 0
+
+        while (shift < 64) {
+
+            val byte = input.read()
+
+            if (byte < 0) {
+
+                throw EOFException()
+            }
+
+            result = result or ((byte and 0x7F).toLong() shl shift)
+
+            if (byte and 0x80 == 0) {
+
+                return result
+            }
+
+            shift += 7
+        }
+
+        throw IOException("Malformed varint")
+    }
+
+    @Throws(IOException::class)
+    fun writeString(output: OutputStream, value: String) {
+
+        val bytes = value.toByteArray(Charsets.UTF_8)
+
+        writeVarLong(output, bytes.size.toLong())
+
+        output.write(bytes)
+    }
+
+    @Throws(IOException::class)
+    fun readString(input: InputStream): String {
+
+        val length = readVarLong(input).toInt()
+        val bytes = ByteArray(length)
+        var read = 0
+
+        while (read < length) {
+
+            val count = input.read(bytes, read, length - read)
+
+            if (count < 0) {
+
+                throw EOFException()
+            }
+
+            read += count
+        }
+
+        return String(bytes, Charsets.UTF_8)
+    }
+}
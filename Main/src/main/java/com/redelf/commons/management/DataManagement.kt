@@ -1,6 +1,7 @@
 package com.redelf.commons.management
 
 import android.content.Context
+import com.google.gson.GsonBuilder
 import com.redelf.commons.application.BaseApplication
 import com.redelf.commons.applying.Apply
 import com.redelf.commons.applying.CommitAsync
@@ -8,6 +9,7 @@ import com.redelf.commons.callback.CallbackOperation
 import com.redelf.commons.callback.Callbacks
 import com.redelf.commons.context.Contextual
 import com.redelf.commons.data.Empty
+import com.redelf.commons.data.access.DataCursor
 import com.redelf.commons.destruction.reset.ResettableAsyncParametrized
 import com.redelf.commons.destruction.reset.ResettableParametrized
 import com.redelf.commons.enable.Enabling
@@ -25,10 +27,14 @@ import com.redelf.commons.lifecycle.exception.InitializingException
 import com.redelf.commons.lifecycle.exception.NotInitializedException
 import com.redelf.commons.locking.Lockable
 import com.redelf.commons.logging.Console
+import com.redelf.commons.net.retrofit.calls.CallGroup
 import com.redelf.commons.obtain.Obtain
 import com.redelf.commons.obtain.ObtainAsync
 import com.redelf.commons.obtain.OnObtain
 import com.redelf.commons.persistance.EncryptedPersistence
+import com.redelf.commons.persistance.GsonParser
+import com.redelf.commons.persistance.PartitionRowsCursor
+import com.redelf.commons.persistance.base.Parser
 import com.redelf.commons.session.Session
 import com.redelf.commons.state.BusyCheck
 import com.redelf.commons.state.ReadingCheck
@@ -42,6 +48,7 @@ import java.util.concurrent.TimeUnit
 import java.util.concurrent.TimeoutException
 import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
 
 abstract class DataManagement<T> :
 
@@ -81,6 +88,28 @@ abstract class DataManagement<T> :
 
         val DEBUG = AtomicBoolean()
 
+        /*
+            Same serialization as the storage, including the custom serializers.
+        */
+        private val SNAPSHOT_PARSER: Parser by lazy {
+
+            val provider = object : Obtain<GsonBuilder> {
+
+                override fun obtain(): GsonBuilder {
+
+                    return GsonBuilder().enableComplexMapKeySerialization()
+                }
+            }
+
+            GsonParser.instantiate(
+
+                key = "dt_mgmt.snapshot",
+                encryption = null,
+                encrypt = false,
+                provider = provider
+            )
+        }
+
         @Throws(IllegalArgumentException::class, IllegalStateException::class)
         fun initialize(ctx: Context) {
 
@@ -101,6 +130,20 @@ abstract class DataManagement<T> :
         false // TODO: Make sure that data versioning is used by default when polished
     protected open val instantiateDataObject: Boolean = false
 
+    /*
+        Multi-version reads: readers get the last committed snapshot (also while the manager
+        is locked) and writers work on drafts, see takeSnapshot() and draft(). The snapshot
+        shares the committed data object, so with snapshot reads the data must be changed
+        through drafts only and never modified in place.
+    */
+    protected open val snapshotReads: Boolean = false
+
+    /*
+        Group of the API calls made on behalf of this manager (pass it with
+        RetrofitApiParameters.callGroup). The calls in flight are cancelled on abort and reset.
+    */
+    protected open val callGroup: CallGroup? = null
+
     private var data: T? = null
     private val locked = AtomicBoolean()
     private val reading = AtomicBoolean()
@@ -110,14 +153,46 @@ abstract class DataManagement<T> :
     private var session = Session(name = javaClass.simpleName)
     private val obtaining = Callbacks<OnObtain<T?>>("obtaining")
     private val pushCallbacks = Callbacks<OnObtain<DataPushResult?>>("on_push")
+    private val committed = AtomicReference<DataSnapshot<T>?>()
+
+    /*
+        Data object of the last commit taken. It is set before the commit is applied, so drafts
+        based on an older data version are stale from that moment on.
+    */
+    private val head = AtomicReference<T?>()
+    private val commitLock = Any()
 
     protected abstract fun getLogTag(): String
 
     protected open fun createDataObject(): T? = null
 
+    /*
+        Deep copy used for drafts. Override when the data object
+        can not be copied through its JSON representation.
+    */
+    @Suppress("UNCHECKED_CAST")
+    protected open fun copyDataObject(data: T): T? {
+
+        try {
+
+            val clazz = (data as Any).javaClass
+
+            return SNAPSHOT_PARSER.fromJson<T>(SNAPSHOT_PARSER.toJson(data), clazz)
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+
+        return null
+    }
+
     open fun canLog() = DEBUG.get()
 
-    override fun abort() = Unit
+    override fun abort() {
+
+        callGroup?.cancel()
+    }
 
     override fun getEnvironment() = Environment.DEFAULT
 
@@ -248,6 +323,174 @@ abstract class DataManagement<T> :
 
     } else null
 
+    /*
+        Last committed snapshot, never blocks and is not affected by the lock.
+        Returns null when snapshot reads are disabled or nothing has been committed yet.
+    */
+    fun takeSnapshot(): DataSnapshot<T>? = committed.get()
+
+    fun getSnapshotVersion(): Long = committed.get()?.version ?: -1
+
+    /*
+        Version of the data object of the last commit taken, -1 when there is no data.
+    */
+    fun getCommitVersion(): Long = (head.get() ?: data)?.getVersion() ?: -1
+
+    /*
+        True when a commit was taken after the snapshot, also when it is still being applied.
+    */
+    fun isSnapshotStale(snapshot: DataSnapshot<T>?): Boolean {
+
+        return snapshot == null || snapshot.version != getCommitVersion()
+    }
+
+    /*
+        Private copy of the last committed data to be modified and committed back with
+        DataDraft.commit. Readers keep getting the previous snapshot until the commit succeeds.
+    */
+    fun draft(name: String): DataDraft<T>? {
+
+        if (!isEnabled()) {
+
+            return null
+        }
+
+        committed.get()?.let { base ->
+
+            if (!isSnapshotStale(base)) {
+
+                val copy = base.obtainCopy() ?: return null
+
+                return DataDraft(name, this, copy, base.version)
+            }
+        }
+
+        /*
+            Without a current snapshot the draft starts from the data itself, so any write
+            still being applied makes it stale.
+        */
+        val source = obtain() ?: return null
+        val version = source.getVersion()
+        val copy = copyDataObject(source) ?: return null
+
+        return DataDraft(name, this, copy, version)
+    }
+
+    /*
+        Takes the commit only when nothing was committed since the draft was taken,
+        the check and taking the commit are one atomic step.
+    */
+    private fun commitDraft(
+
+        draft: DataDraft<T>,
+        from: String,
+        notify: Boolean,
+        callback: OnObtain<DataPushResult?>
+
+    ) {
+
+        val base = draft.getBaseVersion()
+        var current = base
+
+        val taken = synchronized(commitLock) {
+
+            current = getCommitVersion()
+
+            if (current == base) {
+
+                takeCommit(draft.data)
+
+                true
+
+            } else {
+
+                false
+            }
+        }
+
+        if (!taken) {
+
+            val msg = "Draft '${draft.name}' is stale, base version = $base, " +
+                    "commit version = $current"
+
+            callback.onFailure(IllegalStateException(msg))
+
+            return
+        }
+
+        doApply(draft.data, from, notify, retry = 0, callback, taken = true)
+    }
+
+    /*
+        Makes the data the head of the commits. Its version is moved past the previous head
+        version, so every commit, also of the same data object, is a version change.
+    */
+    private fun takeCommit(data: T) {
+
+        synchronized(commitLock) {
+
+            val current = this.data
+
+            if (checkDataVersionOnSaving && current != null && data !== current &&
+                data.getVersion() < current.getVersion()
+            ) {
+
+                // Rejected by overwriteData, it never becomes the head
+                return
+            }
+
+            val previous = getCommitVersion()
+
+            while (data.getVersion() <= previous) {
+
+                data.increaseVersion()
+            }
+
+            head.set(data)
+        }
+    }
+
+    private fun releaseCommit(data: T) {
+
+        head.compareAndSet(data, this.data)
+    }
+
+    /*
+        Publishes the committed data object as the new snapshot, without copying it.
+        Commits completing out of order never replace a newer snapshot.
+    */
+    private fun publishSnapshot(source: T) {
+
+        if (!snapshotReads) {
+
+            return
+        }
+
+        val version = source.getVersion()
+
+        while (true) {
+
+            val current = committed.get()
+
+            if (current != null && current.version >= version) {
+
+                return
+            }
+
+            val snapshot = DataSnapshot(source, version, ::copyDataObject)
+
+            if (committed.compareAndSet(current, snapshot)) {
+
+                if (canLog()) {
+
+                    Console.log("${getLogTag()} Snapshot published :: Version = $version")
+                }
+
+                return
+            }
+        }
+    }
+
     override fun lock() {
 
         if (!isEnabled()) {
@@ -414,9 +657,18 @@ abstract class DataManagement<T> :
 
             if (isLocked()) {
 
-                Console.warning("$tag Locked")
+                val snapshot = if (snapshotReads) committed.get() else null
+
+                if (snapshot == null) {
+
+                    Console.warning("$tag Locked")
 
-                notifyGetterCallback(data = null)
+                } else if (canLog()) {
+
+                    Console.log("$tag Locked :: Snapshot version = ${snapshot.version}")
+                }
+
+                notifyGetterCallback(data = snapshot?.obtain())
 
                 return@exec
             }
@@ -487,6 +739,14 @@ abstract class DataManagement<T> :
 
                 if (canLog()) Console.log("$dataObjTag Final: $data")
 
+                if (committed.get() == null) {
+
+                    data?.let {
+
+                        publishSnapshot(it)
+                    }
+                }
+
                 reading.set(false)
 
                 notifyGetterCallback(data = data)
@@ -537,6 +797,22 @@ abstract class DataManagement<T> :
         return STORAGE
     }
 
+    /*
+        Cursor over the rows of the given collection partition as they were last committed
+        to the storage. Requires the data object to implement Partitioning.
+    */
+    fun <R> openCursor(partition: Int): DataCursor<R>? {
+
+        if (!persist) {
+
+            return null
+        }
+
+        val storage = takeStorage() ?: return null
+
+        return PartitionRowsCursor(storage, storageKey, partition)
+    }
+
     override fun apply(from: String): Boolean {
 
         return apply(from, false)
@@ -714,16 +990,30 @@ abstract class DataManagement<T> :
         from: String,
         notify: Boolean,
         retry: Int = 0,
-        callback: OnObtain<DataPushResult?>? = null
+        callback: OnObtain<DataPushResult?>? = null,
+        taken: Boolean = false
 
     ) {
 
         val from = "doApply(from='$from')"
 
+        val committing = data
+
+        if (!taken) {
+
+            takeCommit(committing)
+        }
+
+        /*
+            Every path ends here exactly once, a commit which was not applied
+            gives the head back to the current data.
+        */
         val callbackWrapper = object : OnObtain<DataPushResult?> {
 
             override fun onCompleted(data: DataPushResult?) {
 
+                releaseCommit(committing)
+
                 if (notify) {
 
                     notifyOnPushCompleted(data)
@@ -734,6 +1024,8 @@ abstract class DataManagement<T> :
 
             override fun onFailure(error: Throwable) {
 
+                releaseCommit(committing)
+
                 callback?.onFailure(error)
             }
         }
@@ -758,7 +1050,16 @@ abstract class DataManagement<T> :
             return
         }
 
-        exec {
+        exec(
+
+            onRejected = { e ->
+
+                onDataPushed(err = e)
+
+                callbackWrapper.onFailure(e)
+            }
+
+        ) {
 
             if (isBusy()) {
 
@@ -781,7 +1082,8 @@ abstract class DataManagement<T> :
                             from = "$from.retry.$retry",
                             notify,
                             retry = retry + 1,
-                            callback
+                            callback,
+                            taken = true
                         )
                     }
 
@@ -850,6 +1152,8 @@ abstract class DataManagement<T> :
                                         "Version = ${lastDataVersion.get()}, " +
                                         "New version = ${data.getVersion()}"
                             )
+
+                            publishSnapshot(data)
                         }
 
                         onDataPushed(success = success)
@@ -879,6 +1183,11 @@ abstract class DataManagement<T> :
 
                 writing.set(false)
 
+                if (!persist) {
+
+                    publishSnapshot(data)
+                }
+
                 onDataPushed(success = true)
 
                 callbackWrapper.onCompleted(data = DataPushResult(from, true))
@@ -942,6 +1251,8 @@ abstract class DataManagement<T> :
 
         Console.log("$tag START")
 
+        callGroup?.cancel()
+
         exec(
 
             onRejected = { e ->
@@ -1090,6 +1401,9 @@ abstract class DataManagement<T> :
 
         assignData(null)
 
+        committed.set(null)
+        head.set(null)
+
         Console.log("${getLogTag()} Data :: Erase :: END")
     }
 
@@ -1320,4 +1634,27 @@ abstract class DataManagement<T> :
 
         fun getSession() = parent.session.takeName()
     }
+
+    class DataDraft<T>(
+
+        val name: String,
+        private val parent: DataManagement<T>,
+        val data: T,
+        private val baseVersion: Long
+
+    ) where T : Versionable {
+
+        fun getBaseVersion() = baseVersion
+
+        fun isStale() = parent.getCommitVersion() != baseVersion
+
+        /*
+            Applies the draft as the new data. Fails without applying anything when another
+            commit was taken after the draft, the check and taking the commit are one atomic step.
+        */
+        fun commit(notify: Boolean, callback: OnObtain<DataPushResult?>) {
+
+            parent.commitDraft(this, "draft.commit.$name", notify, callback)
+        }
+    }
 }
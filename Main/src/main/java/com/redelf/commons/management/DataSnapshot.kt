@@ -0,0 +1,22 @@
+package com.redelf.commons.management
+
+/*
+    Last committed state of the manager data. One snapshot is published per commit and the
+    same data object is shared by all readers, it must be treated as read-only. Use
+    obtainCopy() (or DataManagement.draft()) to get a private copy to modify.
+
+    The version is the data object version the snapshot reflects, see DataManagement.draft().
+*/
+class DataSnapshot<T> internal constructor(
+
+    private val data: T,
+    val version: Long,
+    private val copy: (T) -> T?,
+    val timestamp: Long = System.currentTimeMillis()
+
+) {
+
+    fun obtain(): T = data
+
+    fun obtainCopy(): T? = copy(data)
+}
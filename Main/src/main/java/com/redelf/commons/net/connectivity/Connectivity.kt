@@ -7,7 +7,6 @@ import com.redelf.commons.application.BaseApplication
 import com.redelf.commons.extensions.isNotEmpty
 import com.redelf.commons.extensions.isOnMainThread
 import com.redelf.commons.extensions.recordException
-import com.redelf.commons.extensions.yieldWhile
 import com.redelf.commons.logging.Console
 import java.io.IOException
 import java.net.InetAddress
@@ -21,28 +20,104 @@ class Connectivity(
 
 ) : ConnectivityCheck {
 
+    companion object {
+
+        private const val WAITING_TIMEOUT = 60 * 1000L
+        private const val RECHECK_INTERVAL = 5 * 1000L
+    }
+
     private val defaultStrategy = object : ConnectivityCheck {
 
-        @Suppress("DEPRECATION")
         override fun isNetworkAvailable(ctx: Context): Boolean {
 
-            val tag = "Network connectivity ::"
+            val online = ConnectivityStateEngine.isOnline() ?: isConnected(ctx)
+
+            if (endpoint.isEmpty() || !online) {
+
+                return online
+            }
+
+            return ConnectivityStateEngine.isReachable(endpoint) { resolve() }
+        }
+
+        override fun requireNetworkAvailable(ctx: Context): Boolean {
+
+            fun notConnected(): Boolean {
+
+                return !isNetworkAvailable(ctx)
+            }
+
+            if (notConnected()) {
+
+                Console.warning(
+
+                    "$tag NO INTERNET CONNECTION :: Waiting for it".trim()
+                )
+
+                /*
+                    Makes sure the state is driven by the network callback so the wait below
+                    is woken up by the changes.
+                */
+                DefaultConnectivityHandler.obtain(ctx.applicationContext)
 
-            if (endpoint.isEmpty()) {
+                val deadline = System.currentTimeMillis() + WAITING_TIMEOUT
 
-                val name = Context.CONNECTIVITY_SERVICE
+                while (notConnected() && !Thread.currentThread().isInterrupted) {
 
-                val connectivityManager = ctx.getSystemService(name) as ConnectivityManager?
+                    val remaining = deadline - System.currentTimeMillis()
 
-                connectivityManager?.let {
+                    if (remaining <= 0) {
 
-                    val activeNetworkInfo = it.activeNetworkInfo
-                    return activeNetworkInfo != null && activeNetworkInfo.isConnected
+                        break
+                    }
+
+                    ConnectivityStateEngine.awaitChange(
+
+                        ConnectivityStateEngine.getGeneration(),
+                        minOf(remaining, RECHECK_INTERVAL)
+                    )
                 }
 
-                return false
+                if (notConnected()) {
+
+                    val msg = "$tag NO INTERNET CONNECTION :: Waiting timeout"
+                    val e = IOException(msg)
+                    recordException(e)
+
+                } else {
+
+                    Console.warning(
+
+                        ("$tag NO INTERNET CONNECTION :: " +
+                                "Connection has been recovered with SUCCESS").trim()
+                    )
+                }
             }
 
+            return isNetworkAvailable(ctx)
+        }
+
+        private fun isConnected(ctx: Context): Boolean {
+
+            val name = Context.CONNECTIVITY_SERVICE
+
+            val connectivityManager = ctx.getSystemService(name) as ConnectivityManager?
+
+            connectivityManager?.let {
+
+                val network = it.activeNetwork ?: return false
+                val capabilities = it.getNetworkCapabilities(network) ?: return false
+
+                return NetworkState.from(network, capabilities).isOnline()
+            }
+
+            return false
+        }
+
+        private fun resolve(): Boolean {
+
+            val tag = "Network connectivity ::"
+
             try {
 
                 if (isOnMainThread()) {
@@ -86,48 +161,6 @@ class Connectivity(
                 return false
             }
         }
-
-        override fun requireNetworkAvailable(ctx: Context): Boolean {
-
-            fun notConnected(): Boolean {
-
-                return !isNetworkAvailable(ctx)
-            }
-
-            if (notConnected()) {
-
-                Console.warning(
-
-                    "$tag NO INTERNET CONNECTION :: Waiting for it".trim()
-                )
-
-                yieldWhile(
-
-                    timeoutInMilliseconds = 60 * 1000L
-
-                ) {
-
-                    notConnected()
-                }
-
-                if (notConnected()) {
-
-                    val msg = "$tag NO INTERNET CONNECTION :: Waiting timeout"
-                    val e = IOException(msg)
-                    recordException(e)
-
-                } else {
-
-                    Console.warning(
-
-                        ("$tag NO INTERNET CONNECTION :: " +
-                                "Connection has been recovered with SUCCESS").trim()
-                    )
-                }
-            }
-
-            return isNetworkAvailable(ctx)
-        }
     }
 
     private var checkStrategy: ConnectivityCheck = defaultStrategy
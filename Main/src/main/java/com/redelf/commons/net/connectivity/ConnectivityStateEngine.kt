@@ -0,0 +1,269 @@
+package com.redelf.commons.net.connectivity
+
+import com.redelf.commons.logging.Console
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.withTimeoutOrNull
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/*
+    Process wide network state, fed by the default network callback of the
+    DefaultConnectivityHandler. Checks read the last known state instead of asking the
+    system (or resolving a host) each time.
+
+    Every meaningful change (other network, connectivity, validation or metering) starts a new
+    generation. Reachability verdicts are cached per generation, so they are verified again
+    only after the network has changed or their TTL has expired. Waiting for the connection
+    parks the caller until the state changes instead of spinning.
+*/
+object ConnectivityStateEngine {
+
+    val DEBUG = AtomicBoolean()
+
+    const val DEFAULT_REACHABILITY_TTL = 5 * 60 * 1000L
+    const val NEGATIVE_REACHABILITY_TTL = 5 * 1000L
+
+    private const val TAG = "Connectivity state ::"
+
+    private val lock = ReentrantLock()
+    private val changed = lock.newCondition()
+    private val generation = AtomicLong()
+    private val state = AtomicReference<NetworkState?>()
+    private val reachability = ConcurrentHashMap<String, Verdict>()
+    private val waiters = ConcurrentLinkedQueue<CompletableDeferred<Unit>>()
+
+    /*
+        Returns true when the state differs from the previous one and a new generation started.
+    */
+    fun update(next: NetworkState): Boolean {
+
+        val previous = state.getAndSet(next)
+
+        if (previous == next) {
+
+            return false
+        }
+
+        generation.incrementAndGet()
+        reachability.clear()
+
+        if (DEBUG.get()) Console.log("$TAG Changed :: From = $previous, To = $next")
+
+        lock.withLock {
+
+            changed.signalAll()
+        }
+
+        if (next.isOnline()) {
+
+            var waiter = waiters.poll()
+
+            while (waiter != null) {
+
+                waiter.complete(Unit)
+
+                waiter = waiters.poll()
+            }
+        }
+
+        return true
+    }
+
+    /*
+        Null until the first state has been reported.
+    */
+    fun getState(): NetworkState? = state.get()
+
+    fun isKnown() = state.get() != null
+
+    fun isOnline(): Boolean? = state.get()?.isOnline()
+
+    fun isValidated(): Boolean? = state.get()?.validated
+
+    fun isMetered(): Boolean? = state.get()?.metered
+
+    fun getGeneration() = generation.get()
+
+    /*
+        Returns the cached verdict for the key when it belongs to the current generation and
+        it has not expired. Otherwise it verifies the reachability again. Negative verdicts
+        expire sooner so the recovery is noticed quickly, and so do all verdicts taken before
+        the network state is known, since no generation change would invalidate them.
+    */
+    fun isReachable(
+
+        key: String,
+        ttl: Long = DEFAULT_REACHABILITY_TTL,
+        verify: () -> Boolean
+
+    ): Boolean {
+
+        val current = generation.get()
+        val now = System.currentTimeMillis()
+        val known = isKnown()
+
+        reachability[key]?.let {
+
+            val validity = if (it.reachable && it.known) {
+
+                ttl
+
+            } else {
+
+                minOf(ttl, NEGATIVE_REACHABILITY_TTL)
+            }
+
+            if (it.generation == current && now - it.timestamp < validity) {
+
+                return it.reachable
+            }
+        }
+
+        val reachable = verify()
+
+        if (generation.get() == current) {
+
+            reachability[key] = Verdict(reachable, known, current, System.currentTimeMillis())
+        }
+
+        if (DEBUG.get()) Console.log("$TAG Verified :: Key = $key, Reachable = $reachable")
+
+        return reachable
+    }
+
+    /*
+        Blocks until the state changes after the given generation. Returns false on timeout.
+    */
+    fun awaitChange(since: Long, timeout: Long): Boolean {
+
+        var remaining = TimeUnit.MILLISECONDS.toNanos(timeout)
+
+        lock.withLock {
+
+            while (generation.get() == since) {
+
+                if (remaining <= 0) {
+
+                    return false
+                }
+
+                try {
+
+                    remaining = changed.awaitNanos(remaining)
+
+                } catch (e: InterruptedException) {
+
+                    Thread.currentThread().interrupt()
+
+                    return false
+                }
+            }
+        }
+
+        return true
+    }
+
+    /*
+        Blocks until the network is online. Returns false on timeout.
+    */
+    fun awaitOnline(timeout: Long): Boolean {
+
+        var remaining = TimeUnit.MILLISECONDS.toNanos(timeout)
+
+        lock.withLock {
+
+            while (isOnline() != true) {
+
+                if (remaining <= 0) {
+
+                    return false
+                }
+
+                try {
+
+                    remaining = changed.awaitNanos(remaining)
+
+                } catch (e: InterruptedException) {
+
+                    Thread.currentThread().interrupt()
+
+                    return false
+                }
+            }
+        }
+
+        return true
+    }
+
+    /*
+        Suspends until the network is online. Returns false on timeout.
+    */
+    suspend fun untilOnline(timeout: Long): Boolean {
+
+        if (isOnline() == true) {
+
+            return true
+        }
+
+        val waiter = CompletableDeferred<Unit>()
+
+        waiters.add(waiter)
+
+        try {
+
+            /*
+                The state may have changed before the waiter was added.
+            */
+            if (isOnline() == true) {
+
+                return true
+            }
+
+            return withTimeoutOrNull(timeout) {
+
+                waiter.await()
+
+                true
+
+            } ?: false
+
+        } finally {
+
+            waiters.remove(waiter)
+        }
+    }
+
+    fun invalidate() {
+
+        reachability.clear()
+    }
+
+    /*
+        Forgets the state, the following checks ask the system again until the next update.
+    */
+    fun reset() {
+
+        state.set(null)
+        generation.incrementAndGet()
+        reachability.clear()
+
+        lock.withLock {
+
+            changed.signalAll()
+        }
+    }
+
+    private data class Verdict(
+
+        val reachable: Boolean,
+        val known: Boolean,
+        val generation: Long,
+        val timestamp: Long
+    )
+}
@@ -3,12 +3,14 @@ package com.redelf.commons.net.connectivity
 import android.content.Context
 import android.net.ConnectivityManager
 import android.net.Network
+import android.net.NetworkCapabilities
 import com.redelf.commons.callback.CallbackOperation
 import com.redelf.commons.callback.Callbacks
 import com.redelf.commons.execution.Retrying
 import com.redelf.commons.logging.Console
 import com.redelf.commons.obtain.ObtainParametrized
 import java.util.concurrent.Callable
+import java.util.concurrent.atomic.AtomicBoolean
 
 class DefaultConnectivityHandler private constructor(
 
@@ -30,7 +32,7 @@ class DefaultConnectivityHandler private constructor(
             )
         }
 
-        
+        @Synchronized
         fun obtain(
 
             param: Context,
@@ -51,6 +53,10 @@ class DefaultConnectivityHandler private constructor(
 
     private val networkCallbacks = Callbacks<ConnectivityStateChanges>("Network")
 
+    private val connectivityManager = ctx.applicationContext.getSystemService(
+        Context.CONNECTIVITY_SERVICE
+    ) as ConnectivityManager?
+
     private val networkCallback = object : ConnectivityManager.NetworkCallback() {
 
         private val tag = "NETWORK CALLBACK ::"
@@ -59,13 +65,48 @@ class DefaultConnectivityHandler private constructor(
 
             Console.log("$tag On network available")
 
+            /*
+                The capabilities follow right after, the state is updated in advance so the
+                subscribers do not see the previous (lost) network.
+            */
+            connectivityManager?.getNetworkCapabilities(network)?.let {
+
+                ConnectivityStateEngine.update(NetworkState.from(network, it))
+            }
+
             notifyNetworkCallbacks()
         }
 
+        override fun onCapabilitiesChanged(
+
+            network: Network,
+            networkCapabilities: NetworkCapabilities
+        ) {
+
+            val previous = ConnectivityStateEngine.getState()
+            val next = NetworkState.from(network, networkCapabilities)
+
+            if (ConnectivityStateEngine.update(next)) {
+
+                Console.log("$tag On capabilities changed :: State = $next")
+
+                /*
+                    Availability has already been reported by onAvailable,
+                    subscribers are notified only when the validation changes.
+                */
+                if (previous != null && previous.validated != next.validated) {
+
+                    notifyNetworkCallbacks()
+                }
+            }
+        }
+
         override fun onLost(network: Network) {
 
             Console.warning("$tag On network lost")
 
+            ConnectivityStateEngine.update(NetworkState.OFFLINE)
+
             notifyNetworkCallbacks()
         }
     }
@@ -73,9 +114,22 @@ class DefaultConnectivityHandler private constructor(
     init {
 
         val retrying = Retrying(10)
-        val appCtx = ctx.applicationContext
-        val systemService = Context.CONNECTIVITY_SERVICE
-        val connectivityManager = appCtx.getSystemService(systemService) as ConnectivityManager?
+        val registered = AtomicBoolean()
+
+        connectivityManager?.let {
+
+            val network = it.activeNetwork
+            val capabilities = network?.let { active -> it.getNetworkCapabilities(active) }
+
+            if (network != null && capabilities != null) {
+
+                ConnectivityStateEngine.update(NetworkState.from(network, capabilities))
+
+            } else {
+
+                ConnectivityStateEngine.update(NetworkState.OFFLINE)
+            }
+        }
 
         val callable = object : Callable<Boolean> {
 
@@ -85,6 +139,8 @@ class DefaultConnectivityHandler private constructor(
 
                     connectivityManager?.registerDefaultNetworkCallback(networkCallback)
 
+                    registered.set(connectivityManager != null)
+
                     return true
 
                 } catch (e: Throwable) {
@@ -102,6 +158,15 @@ class DefaultConnectivityHandler private constructor(
 
             Console.warning("Network callback registered after $times times")
         }
+
+        /*
+            Without the callback the state would never be updated again,
+            the checks have to ask the system instead.
+        */
+        if (!registered.get()) {
+
+            ConnectivityStateEngine.reset()
+        }
     }
 
     override fun register(subscriber: ConnectivityStateChanges) {
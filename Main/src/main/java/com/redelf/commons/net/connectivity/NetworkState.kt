@@ -0,0 +1,35 @@
+package com.redelf.commons.net.connectivity
+
+import android.net.Network
+import android.net.NetworkCapabilities
+
+data class NetworkState(
+
+    val network: Long,
+    val connected: Boolean,
+    val validated: Boolean,
+    val metered: Boolean
+
+) {
+
+    companion object {
+
+        val OFFLINE = NetworkState(
+
+            network = 0L,
+            connected = false,
+            validated = false,
+            metered = false
+        )
+
+        fun from(network: Network, capabilities: NetworkCapabilities) = NetworkState(
+
+            network = network.networkHandle,
+            connected = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET),
+            validated = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED),
+            metered = !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)
+        )
+    }
+
+    fun isOnline() = connected
+}
@@ -2,7 +2,7 @@ package com.redelf.commons.net.content
 
 import com.redelf.commons.extensions.isNotEmpty
 import com.redelf.commons.extensions.recordException
-import okhttp3.OkHttpClient
+import com.redelf.commons.net.retrofit.HttpClientRegistry
 import okhttp3.Request
 import java.io.IOException
 
@@ -33,7 +33,7 @@ class RemoteHttpContentFetcher(
         /*
         * TODO: Retrofit
         */
-        val client = OkHttpClient()
+        val client = HttpClientRegistry.ROOT
 
         val builder = Request.Builder().url(url)
 
@@ -4,7 +4,8 @@ import android.content.Context
 import com.redelf.commons.R
 import com.redelf.commons.logging.Console
 import com.redelf.commons.net.endpoint.Endpoint
-import okhttp3.OkHttpClient
+import com.redelf.commons.net.remote.Measurable
+import com.redelf.commons.net.retrofit.HttpClientRegistry
 import okhttp3.Request
 import okhttp3.Response
 import useCronet
@@ -26,9 +27,11 @@ class HttpEndpoint(
     private var timeoutInMilliseconds: AtomicInteger = AtomicInteger(
 
         ctx.resources.getInteger(R.integer.endpoint_timeout_in_milliseconds)
-    )
+    ),
 
-) : Endpoint(address) {
+    measure: Boolean = true
+
+) : Endpoint(address), Measurable {
 
     companion object {
 
@@ -42,14 +45,10 @@ class HttpEndpoint(
 
     init {
 
-        var qSum = 0L
-
-        for (i in 0 until MEASUREMENT_ITERATIONS) {
+        if (measure) {
 
-            qSum += getSpeed(ctx)
+            measure(ctx)
         }
-
-        quality.set(qSum / MEASUREMENT_ITERATIONS)
     }
 
     override fun getTimeout() = timeoutInMilliseconds.get()
@@ -109,11 +108,15 @@ class HttpEndpoint(
 
             val url = getUrl()
 
-            val client = OkHttpClient.Builder()
-                .readTimeout(timeoutInMilliseconds.get().toLong(), TimeUnit.MILLISECONDS)
-                .connectTimeout(timeoutInMilliseconds.get().toLong(), TimeUnit.MILLISECONDS)
-                .useCronet()
-                .build()
+            val timeout = timeoutInMilliseconds.get().toLong()
+
+            val client = HttpClientRegistry.obtain(listOf("endpoint", timeout)) { builder ->
+
+                builder
+                    .readTimeout(timeout, TimeUnit.MILLISECONDS)
+                    .connectTimeout(timeout, TimeUnit.MILLISECONDS)
+                    .useCronet()
+            }
 
             if (url == null) {
 
@@ -148,6 +151,29 @@ class HttpEndpoint(
 
     override fun getQuality() = quality.get()
 
+    override fun measure(ctx: Context): Long {
+
+        var qSum = 0L
+
+        for (i in 0 until MEASUREMENT_ITERATIONS) {
+
+            val speed = getSpeed(ctx)
+
+            if (speed == Long.MAX_VALUE) {
+
+                quality.set(Long.MAX_VALUE)
+
+                return Long.MAX_VALUE
+            }
+
+            qSum += speed
+        }
+
+        quality.set(qSum / MEASUREMENT_ITERATIONS)
+
+        return quality.get()
+    }
+
     override fun compareTo(other: Endpoint): Int {
 
         return this.address.compareTo(other.address)
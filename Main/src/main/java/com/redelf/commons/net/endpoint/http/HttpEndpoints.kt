@@ -4,13 +4,10 @@ import android.content.Context
 import com.redelf.commons.R
 import com.redelf.commons.data.list.ListDataSource
 import com.redelf.commons.data.list.RawStringsListDataSource
-import com.redelf.commons.extensions.exec
-import com.redelf.commons.extensions.yieldWhile
 import com.redelf.commons.logging.Console
 import com.redelf.commons.net.endpoint.Endpoints
+import com.redelf.commons.net.remote.RemoteProber
 import java.util.PriorityQueue
-import java.util.concurrent.atomic.AtomicBoolean
-import java.util.concurrent.atomic.AtomicInteger
 
 class HttpEndpoints(
 
@@ -22,112 +19,81 @@ class HttpEndpoints(
 
     private val combineSources: Boolean = true,
 
-) : Endpoints<HttpEndpoint> {
-
-    private val endpoints = PriorityQueue(HttpEndpoint.QUALITY_COMPARATOR)
-
-    override fun obtain(): PriorityQueue<HttpEndpoint> {
-
-        if (endpoints.isEmpty()) {
-
-            val completed = AtomicInteger()
-            val waitingFor = AtomicInteger()
-            val next = AtomicBoolean(true)
-            val sourcesIterator = sources.iterator()
-
-            while (sourcesIterator.hasNext() && next.get()) {
-
-                waitingFor.incrementAndGet()
-
-                val source = sourcesIterator.next()
-
-                exec(
-
-                    onRejected = { err ->
-
-                        Console.error(err)
-
-                        completed.incrementAndGet()
-                    }
-
-                ) {
-
-                    val obtained = source.getList()
-
-                    if (obtained.isNotEmpty()) {
-
-                        fun addEndpoint(endpoint: HttpEndpoint) {
+    parallelism: Int = RemoteProber.DEFAULT_PARALLELISM,
+    enough: Int = Int.MAX_VALUE,
 
-                            if (!endpoints.contains(endpoint)) {
+    /*
+        When greater than zero the obtained endpoints are measured again in the background.
+    */
+    private val reprobeInterval: Long = 0
 
-                                endpoints.add(endpoint)
-                            }
-
-                            if (!combineSources) {
+) : Endpoints<HttpEndpoint> {
 
-                                next.set(endpoints.isEmpty())
-                            }
-                        }
+    private val prober = RemoteProber<HttpEndpoint>(
 
-                        obtained.forEach { line ->
+        ctx,
+        HttpEndpoint.QUALITY_COMPARATOR,
+        parallelism = parallelism,
+        enough = enough
+    )
 
-                            waitingFor.incrementAndGet()
+    /*
+        Returns a snapshot of the endpoints ranked by quality.
+    */
+    override fun obtain(): PriorityQueue<HttpEndpoint> {
 
-                            exec(
+        synchronized(prober) {
 
-                                onRejected = { err ->
+            if (prober.isEmpty()) {
 
-                                    Console.error(err)
+                load()
+            }
+        }
 
-                                    completed.incrementAndGet()
-                                }
+        val endpoints = PriorityQueue(HttpEndpoint.QUALITY_COMPARATOR)
 
-                            ) {
+        endpoints.addAll(prober.getRanked())
 
-                                if (next.get()) {
+        return endpoints
+    }
 
-                                    try {
+    override fun clear() {
 
-                                        val httpEndpoint = HttpEndpoint(ctx, line.trim())
+        prober.stopReprobing()
+        prober.clear()
+    }
 
-                                        if (alive) {
+    private fun load() {
 
-                                            if (httpEndpoint.isAlive(ctx)) {
+        val sourcesIterator = sources.iterator()
 
-                                                addEndpoint(httpEndpoint)
-                                            }
+        while (sourcesIterator.hasNext()) {
 
-                                        } else {
+            val candidates = LinkedHashSet<HttpEndpoint>()
 
-                                            addEndpoint(httpEndpoint)
-                                        }
+            sourcesIterator.next().getList().forEach { line ->
 
-                                    } catch (e: IllegalArgumentException) {
+                try {
 
-                                        Console.error(e)
-                                    }
-                                }
+                    candidates.add(HttpEndpoint(ctx, line.trim(), measure = false))
 
-                                completed.incrementAndGet()
-                            }
-                        }
-                    }
+                } catch (e: IllegalArgumentException) {
 
-                    completed.incrementAndGet()
+                    Console.error(e)
                 }
+            }
 
-                yieldWhile {
+            val found = prober.probe(candidates, healthyOnly = alive)
 
-                    waitingFor.get() != completed.get()
-                }
+            if (!combineSources && found.isNotEmpty()) {
+
+                break
             }
         }
 
-        return endpoints
-    }
-
-    override fun clear() {
+        if (reprobeInterval > 0) {
 
-        endpoints.clear()
+            prober.startReprobing(reprobeInterval)
+        }
     }
-}
\ No newline at end of file
+}
@@ -4,13 +4,10 @@ import android.content.Context
 import com.redelf.commons.R
 import com.redelf.commons.data.list.ListDataSource
 import com.redelf.commons.data.list.RawStringsListDataSource
-import com.redelf.commons.extensions.exec
-import com.redelf.commons.extensions.yieldWhile
 import com.redelf.commons.logging.Console
 import com.redelf.commons.net.proxy.Proxies
+import com.redelf.commons.net.remote.RemoteProber
 import java.util.PriorityQueue
-import java.util.concurrent.atomic.AtomicBoolean
-import java.util.concurrent.atomic.AtomicInteger
 
 class HttpProxies(
 
@@ -22,112 +19,81 @@ class HttpProxies(
 
     private val combineSources: Boolean = true,
 
-) : Proxies<HttpProxy> {
-
-    private val proxies = PriorityQueue(HttpProxy.QUALITY_COMPARATOR)
-
-    override fun obtain(): PriorityQueue<HttpProxy> {
-
-        if (proxies.isEmpty()) {
-
-            val completed = AtomicInteger()
-            val waitingFor = AtomicInteger()
-            val next = AtomicBoolean(true)
-            val sourcesIterator = sources.iterator()
-
-            while (sourcesIterator.hasNext() && next.get()) {
-
-                waitingFor.incrementAndGet()
-
-                val source = sourcesIterator.next()
-
-                exec(
-
-                    onRejected = { err ->
-
-                        Console.error(err)
-
-                        completed.incrementAndGet()
-                    }
-
-                ) {
-
-                    val obtained = source.getList()
-
-                    if (obtained.isNotEmpty()) {
-
-                        fun addProxy(proxy: HttpProxy) {
+    parallelism: Int = RemoteProber.DEFAULT_PARALLELISM,
+    enough: Int = Int.MAX_VALUE,
 
-                            if (!proxies.contains(proxy)) {
+    /*
+        When greater than zero the obtained proxies are measured again in the background.
+    */
+    private val reprobeInterval: Long = 0
 
-                                proxies.add(proxy)
-                            }
-
-                            if (!combineSources) {
+) : Proxies<HttpProxy> {
 
-                                next.set(proxies.isEmpty())
-                            }
-                        }
+    private val prober = RemoteProber<HttpProxy>(
 
-                        obtained.forEach { line ->
+        ctx,
+        HttpProxy.QUALITY_COMPARATOR,
+        parallelism = parallelism,
+        enough = enough
+    )
 
-                            waitingFor.incrementAndGet()
+    /*
+        Returns a snapshot of the proxies ranked by quality.
+    */
+    override fun obtain(): PriorityQueue<HttpProxy> {
 
-                            exec(
+        synchronized(prober) {
 
-                                onRejected = { err ->
+            if (prober.isEmpty()) {
 
-                                    Console.error(err)
+                load()
+            }
+        }
 
-                                    completed.incrementAndGet()
-                                }
+        val proxies = PriorityQueue(HttpProxy.QUALITY_COMPARATOR)
 
-                            ) {
+        proxies.addAll(prober.getRanked())
 
-                                if (next.get()) {
+        return proxies
+    }
 
-                                    try {
+    override fun clear() {
 
-                                        val proxy = HttpProxy(ctx, line.trim())
+        prober.stopReprobing()
+        prober.clear()
+    }
 
-                                        if (alive) {
+    private fun load() {
 
-                                            if (proxy.isAlive(ctx)) {
+        val sourcesIterator = sources.iterator()
 
-                                                addProxy(proxy)
-                                            }
+        while (sourcesIterator.hasNext()) {
 
-                                        } else {
+            val candidates = LinkedHashSet<HttpProxy>()
 
-                                            addProxy(proxy)
-                                        }
+            sourcesIterator.next().getList().forEach { line ->
 
-                                    } catch (e: IllegalArgumentException) {
+                try {
 
-                                        Console.error(e)
-                                    }
-                                }
+                    candidates.add(HttpProxy(ctx, line.trim(), measure = false))
 
-                                completed.incrementAndGet()
-                            }
-                        }
-                    }
+                } catch (e: IllegalArgumentException) {
 
-                    completed.incrementAndGet()
+                    Console.error(e)
                 }
+            }
 
-                yieldWhile {
+            val found = prober.probe(candidates, healthyOnly = alive)
 
-                    waitingFor.get() != completed.get()
-                }
+            if (!combineSources && found.isNotEmpty()) {
+
+                break
             }
         }
 
-        return proxies
-    }
-
-    override fun clear() {
+        if (reprobeInterval > 0) {
 
-        proxies.clear()
+            prober.startReprobing(reprobeInterval)
+        }
     }
-}
\ No newline at end of file
+}
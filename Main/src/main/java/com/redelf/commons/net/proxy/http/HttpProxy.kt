@@ -7,6 +7,8 @@ import com.redelf.commons.extensions.isNotEmpty
 import com.redelf.commons.extensions.recordException
 import com.redelf.commons.logging.Console
 import com.redelf.commons.net.proxy.Proxy
+import com.redelf.commons.net.remote.Measurable
+import com.redelf.commons.net.retrofit.HttpClientRegistry
 import okhttp3.Credentials
 import okhttp3.OkHttpClient
 import okhttp3.Request
@@ -34,9 +36,11 @@ class HttpProxy(
 
     private val testUrlResourceId: Int = R.string.proxy_alive_check_url,
     private val timeoutResourceId: Int = R.integer.proxy_timeout_in_milliseconds,
-    private val timeoutInMilliseconds: AtomicInteger = getInteger(ctx, timeoutResourceId)
+    private val timeoutInMilliseconds: AtomicInteger = getInteger(ctx, timeoutResourceId),
 
-) : Proxy(schema, address, port) {
+    measure: Boolean = true
+
+) : Proxy(schema, address, port), Measurable {
 
     companion object {
 
@@ -80,9 +84,10 @@ class HttpProxy(
     }
 
     @Throws(IllegalArgumentException::class)
-    constructor(ctx: Context, proxy: String) : this(
+    constructor(ctx: Context, proxy: String, measure: Boolean = true) : this(
 
         ctx = ctx,
+        measure = measure,
         port = parseProxy(proxy).port,
         address = parseProxy(proxy).host,
         schema = parseProxy(proxy).protocol.lowercase(),
@@ -94,18 +99,10 @@ class HttpProxy(
 
     init {
 
-        var qSum = 0L
+        if (measure) {
 
-        for (i in 0 until MEASUREMENT_ITERATIONS) {
-
-            val speedInMilliseconds = getSpeed(ctx)
-
-            qSum += speedInMilliseconds
+            measure(ctx)
         }
-
-        val newQuality: Long = qSum / MEASUREMENT_ITERATIONS
-
-        quality.set(newQuality)
     }
 
     fun get(): JavaNetProxy {
@@ -186,6 +183,31 @@ class HttpProxy(
 
     override fun getQuality() = quality.get()
 
+    override fun measure(ctx: Context): Long {
+
+        var qSum = 0L
+
+        for (i in 0 until MEASUREMENT_ITERATIONS) {
+
+            val speedInMilliseconds = getSpeed(ctx)
+
+            if (speedInMilliseconds == Long.MAX_VALUE) {
+
+                quality.set(Long.MAX_VALUE)
+
+                return Long.MAX_VALUE
+            }
+
+            qSum += speedInMilliseconds
+        }
+
+        val newQuality: Long = qSum / MEASUREMENT_ITERATIONS
+
+        quality.set(newQuality)
+
+        return newQuality
+    }
+
     @Throws(IllegalArgumentException::class)
     override fun compareTo(other: Proxy): Int {
 
@@ -262,24 +284,27 @@ class HttpProxy(
 
     private fun createOkHttpClient(): OkHttpClient {
 
-        val builder = OkHttpClient.Builder()
-            .proxy(get())
-            .connectTimeout(timeoutInMilliseconds.get().toLong(), TimeUnit.MILLISECONDS)
-            .readTimeout(timeoutInMilliseconds.get().toLong(), TimeUnit.MILLISECONDS)
+        val timeout = timeoutInMilliseconds.get().toLong()
+
+        return HttpClientRegistry.derive { builder ->
 
-        if (isNotEmpty(username) && isNotEmpty(password)) {
+            builder
+                .proxy(get())
+                .connectTimeout(timeout, TimeUnit.MILLISECONDS)
+                .readTimeout(timeout, TimeUnit.MILLISECONDS)
 
-            val credentials = Credentials.basic(username ?: "", password ?: "")
+            if (isNotEmpty(username) && isNotEmpty(password)) {
 
-            builder.proxyAuthenticator { _, response ->
+                val credentials = Credentials.basic(username ?: "", password ?: "")
 
-                response.request.newBuilder()
-                    .header("Proxy-Authorization", credentials)
-                    .build()
+                builder.proxyAuthenticator { _, response ->
+
+                    response.request.newBuilder()
+                        .header("Proxy-Authorization", credentials)
+                        .build()
+                }
             }
         }
-
-        return builder.build()
     }
 
     private fun unreachable(): Boolean {
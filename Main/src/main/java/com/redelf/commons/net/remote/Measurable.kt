@@ -0,0 +1,12 @@
+package com.redelf.commons.net.remote
+
+import android.content.Context
+
+interface Measurable {
+
+    /*
+        Measures the remote, updates its quality and returns it.
+        Long.MAX_VALUE means the remote is not usable.
+    */
+    fun measure(ctx: Context): Long
+}
@@ -0,0 +1,203 @@
+package com.redelf.commons.net.remote
+
+import android.content.Context
+import com.redelf.commons.extensions.recordException
+import com.redelf.commons.logging.Console
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorCompletionService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/*
+    Measures candidate remotes with bounded parallelism.
+
+    At most the given number of candidates are measured at the same time. Probing stops as
+    soon as enough healthy candidates were found, the measurements still running are
+    cancelled. The healthy candidates are tracked and, once re-probing is started, a few of
+    them are measured again on every tick so their quality stays fresh.
+*/
+class RemoteProber<R>(
+
+    private val ctx: Context,
+    private val comparator: Comparator<in R>,
+    private val parallelism: Int = DEFAULT_PARALLELISM,
+    private val enough: Int = Int.MAX_VALUE,
+    private val timeout: Long = DEFAULT_TIMEOUT
+
+) where R : Remote, R : Measurable {
+
+    companion object {
+
+        val DEBUG = AtomicBoolean()
+
+        const val DEFAULT_PARALLELISM = 8
+        const val DEFAULT_TIMEOUT = 60_000L
+
+        private const val TAG = "Remote prober ::"
+    }
+
+    private val tracked = CopyOnWriteArrayList<R>()
+    private val cursor = AtomicInteger()
+
+    private var scheduler: ScheduledExecutorService? = null
+
+    /*
+        Measures the candidates and returns the ones that responded, best first. With
+        healthy only set to false all the measured candidates are returned.
+    */
+    fun probe(candidates: Collection<R>, healthyOnly: Boolean = true): List<R> {
+
+        if (candidates.isEmpty()) {
+
+            return emptyList()
+        }
+
+        val start = System.currentTimeMillis()
+        val pool = Executors.newFixedThreadPool(minOf(parallelism, candidates.size))
+        val completion = ExecutorCompletionService<R?>(pool)
+        val futures = ArrayList<Future<R?>>(candidates.size)
+        val found = ArrayList<R>()
+
+        try {
+
+            candidates.forEach { candidate ->
+
+                futures.add(
+
+                    completion.submit {
+
+                        if (measure(candidate) || !healthyOnly) candidate else null
+                    }
+                )
+            }
+
+            val deadline = start + timeout
+            var remaining = futures.size
+
+            while (remaining > 0 && found.size < enough) {
+
+                val left = deadline - System.currentTimeMillis()
+
+                if (left <= 0) {
+
+                    Console.warning("$TAG Timed out :: Remaining = $remaining")
+
+                    break
+                }
+
+                val future = completion.poll(left, TimeUnit.MILLISECONDS) ?: continue
+
+                remaining--
+
+                try {
+
+                    future.get()?.let { found.add(it) }
+
+                } catch (e: ExecutionException) {
+
+                    recordException(e)
+                }
+            }
+
+        } catch (e: InterruptedException) {
+
+            Thread.currentThread().interrupt()
+
+        } finally {
+
+            futures.forEach { it.cancel(true) }
+
+            pool.shutdownNow()
+        }
+
+        tracked.addAllAbsent(found)
+
+        if (DEBUG.get()) Console.log(
+
+            "$TAG Probed :: Candidates = ${candidates.size}, Found = ${found.size}, " +
+                    "Time = ${System.currentTimeMillis() - start} ms"
+        )
+
+        return found.sortedWith(comparator)
+    }
+
+    fun getRanked(): List<R> = tracked.sortedWith(comparator)
+
+    fun isEmpty() = tracked.isEmpty()
+
+    fun clear() {
+
+        tracked.clear()
+    }
+
+    /*
+        Measures the next batch of the tracked remotes every interval.
+    */
+    @Synchronized
+    fun startReprobing(interval: Long, batch: Int = parallelism) {
+
+        if (scheduler != null) {
+
+            return
+        }
+
+        val executor = Executors.newSingleThreadScheduledExecutor()
+
+        executor.scheduleWithFixedDelay(
+
+            Runnable { reprobe(batch) },
+
+            interval,
+            interval,
+            TimeUnit.MILLISECONDS
+        )
+
+        scheduler = executor
+    }
+
+    @Synchronized
+    fun stopReprobing() {
+
+        scheduler?.shutdownNow()
+        scheduler = null
+    }
+
+    private fun reprobe(batch: Int) {
+
+        val items = tracked.toList()
+
+        if (items.isEmpty()) {
+
+            return
+        }
+
+        val first = cursor.getAndAdd(batch).mod(items.size)
+        val count = minOf(batch, items.size)
+
+        (0 until count).forEach { offset ->
+
+            measure(items[(first + offset) % items.size])
+        }
+
+        if (DEBUG.get()) Console.log("$TAG Re-probed :: Count = $count, Tracked = ${items.size}")
+    }
+
+    private fun measure(candidate: R): Boolean {
+
+        try {
+
+            return candidate.measure(ctx) != Long.MAX_VALUE
+
+        } catch (e: Throwable) {
+
+            Console.error("$TAG Measure :: ERROR: ${e.message}")
+        }
+
+        return false
+    }
+}
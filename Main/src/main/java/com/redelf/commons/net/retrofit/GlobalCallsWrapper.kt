@@ -2,11 +2,17 @@ package com.redelf.commons.net.retrofit
 
 import com.redelf.commons.interruption.Abort
 import com.redelf.commons.logging.Console
+import com.redelf.commons.net.retrofit.calls.InFlightCalls
 import okhttp3.Call
 import java.util.concurrent.ConcurrentHashMap
 
+/*
+    Kept for the clients that still pass their own calls map, the in-flight calls are tracked
+    by InFlightCalls.
+*/
 object GlobalCallsWrapper : Abort {
 
+    @Deprecated("Calls are tracked by InFlightCalls, use call groups to cancel them")
     val CALLS = ConcurrentHashMap<String, Call>()
 
     override fun abort() {
@@ -31,6 +37,8 @@ object GlobalCallsWrapper : Abort {
 
         CALLS.clear()
 
+        InFlightCalls.abort()
+
         Console.log("$tag END")
     }
 }
\ No newline at end of file
@@ -0,0 +1,187 @@
+package com.redelf.commons.net.retrofit
+
+import com.redelf.commons.logging.Console
+import com.redelf.commons.net.retrofit.calls.InFlightCalls
+import okhttp3.Call
+import okhttp3.Connection
+import okhttp3.ConnectionPool
+import okhttp3.EventListener
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import java.io.IOException
+import java.net.InetSocketAddress
+import java.net.Proxy
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+
+/*
+    Process wide registry of HTTP clients.
+
+    All clients are derived from one root client with newBuilder(), so they share the
+    connection pool, the dispatcher (and its limits) and TLS sessions. Derived clients are
+    memoized by the key describing their configuration.
+*/
+object HttpClientRegistry {
+
+    val DEBUG = AtomicBoolean()
+
+    private const val TAG = "HTTP client registry ::"
+
+    private val clients = ConcurrentHashMap<Any, OkHttpClient>()
+
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val connectionsAcquired = AtomicLong()
+    private val connectionsCreated = AtomicLong()
+
+    private val pool = ConnectionPool(
+
+        maxIdleConnections = 10,
+        keepAliveDuration = 5,
+        timeUnit = TimeUnit.MINUTES
+    )
+
+    private val metricsListener = object : EventListener() {
+
+        override fun connectEnd(
+
+            call: Call,
+            inetSocketAddress: InetSocketAddress,
+            proxy: Proxy,
+            protocol: Protocol?
+        ) {
+
+            connectionsCreated.incrementAndGet()
+        }
+
+        override fun connectionAcquired(call: Call, connection: Connection) {
+
+            connectionsAcquired.incrementAndGet()
+        }
+
+        override fun callStart(call: Call) {
+
+            InFlightCalls.register(call)
+        }
+
+        override fun callEnd(call: Call) {
+
+            InFlightCalls.onFinished(call)
+        }
+
+        override fun callFailed(call: Call, ioe: IOException) {
+
+            InFlightCalls.onFinished(call)
+        }
+
+        override fun canceled(call: Call) {
+
+            InFlightCalls.onFinished(call)
+        }
+    }
+
+    val ROOT: OkHttpClient by lazy {
+
+        OkHttpClient.Builder()
+            .connectionPool(pool)
+            .retryOnConnectionFailure(true)
+            .eventListener(metricsListener)
+            .build()
+    }
+
+    /*
+        Returns the client for the key, creating it from the root client on the first request.
+        The key must describe everything the configuration block sets. Keys are kept for the
+        lifetime of the process, they must not carry credentials, configurations with secrets
+        (e.g. proxy authentication) are to be derived instead.
+    */
+    fun obtain(key: Any, configure: (OkHttpClient.Builder) -> Unit): OkHttpClient {
+
+        clients[key]?.let {
+
+            hits.incrementAndGet()
+
+            return it
+        }
+
+        return clients.computeIfAbsent(key) {
+
+            misses.incrementAndGet()
+
+            val builder = ROOT.newBuilder()
+
+            configure(builder)
+
+            if (DEBUG.get()) Console.log(
+
+                "$TAG New client :: Key = ${key.javaClass.simpleName} #${key.hashCode()}"
+            )
+
+            builder.build()
+        }
+    }
+
+    /*
+        Returns a new client derived from the root client without memoizing it. Use it for
+        short lived configurations (e.g. probing many different proxies), derived clients
+        are cheap since they share the pool and the dispatcher.
+    */
+    fun derive(configure: (OkHttpClient.Builder) -> Unit): OkHttpClient {
+
+        val builder = ROOT.newBuilder()
+
+        configure(builder)
+
+        return builder.build()
+    }
+
+    fun getClientsCount() = clients.size
+
+    /*
+        Drops the memoized clients, e.g. when certificate pins change. Connections stay pooled.
+    */
+    fun invalidate() {
+
+        clients.clear()
+    }
+
+    fun getStats() = Stats(
+
+        clients = clients.size,
+        registryHits = hits.get(),
+        registryMisses = misses.get(),
+        connectionsAcquired = connectionsAcquired.get(),
+        connectionsCreated = connectionsCreated.get(),
+        connections = pool.connectionCount(),
+        idleConnections = pool.idleConnectionCount()
+    )
+
+    data class Stats(
+
+        val clients: Int,
+        val registryHits: Long,
+        val registryMisses: Long,
+        val connectionsAcquired: Long,
+        val connectionsCreated: Long,
+        val connections: Int,
+        val idleConnections: Int
+
+    ) {
+
+        /*
+            Share of the calls that got an already open connection from the pool.
+        */
+        fun getConnectionReuseRatio(): Double {
+
+            if (connectionsAcquired == 0L) {
+
+                return 0.0
+            }
+
+            return (connectionsAcquired - connectionsCreated).coerceAtLeast(0) /
+                    connectionsAcquired.toDouble()
+        }
+    }
+}
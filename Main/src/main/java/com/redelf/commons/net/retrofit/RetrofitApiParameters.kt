@@ -5,6 +5,8 @@ import com.fasterxml.jackson.annotation.JsonCreator
 import com.fasterxml.jackson.annotation.JsonIgnore
 import com.fasterxml.jackson.annotation.JsonProperty
 import com.google.gson.annotations.SerializedName
+import com.redelf.commons.net.retrofit.cache.HttpCacheConfiguration
+import com.redelf.commons.net.retrofit.calls.CallGroup
 import okhttp3.Call
 import java.util.concurrent.ConcurrentHashMap
 
@@ -58,5 +60,28 @@ data class RetrofitApiParameters @JsonCreator constructor(
 
     @JsonProperty("callsWrapper")
     @SerializedName("callsWrapper")
-    val callsWrapper: ConcurrentHashMap<String, Call>? = GlobalCallsWrapper.CALLS
+    val callsWrapper: ConcurrentHashMap<String, Call>? = null,
+
+    /*
+        Calls are cancelled together with the group, e.g. when the screen is destroyed.
+    */
+    @JsonIgnore
+    @Transient
+    @JsonProperty("callGroup")
+    @SerializedName("callGroup")
+    val callGroup: CallGroup? = null,
+
+    /*
+        Identical concurrent GET requests share one network call.
+    */
+    @JsonProperty("deduplicate")
+    @SerializedName("deduplicate")
+    val deduplicate: Boolean? = true,
+
+    /*
+        Disk cache for the GET responses, no caching when not set.
+    */
+    @JsonProperty("cache")
+    @SerializedName("cache")
+    val cache: HttpCacheConfiguration? = null
 )
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.redelf.commons.net.retrofit
 
+import android.content.Context
 import com.fasterxml.jackson.databind.DeserializationFeature
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.SerializationFeature
@@ -8,21 +9,31 @@ import com.google.gson.FieldNamingPolicy
 import com.google.gson.GsonBuilder
 import com.google.gson.Strictness
 import com.redelf.commons.logging.Console
+import com.redelf.commons.net.connectivity.DefaultConnectivityHandler
+import com.redelf.commons.net.retrofit.cache.HttpCacheConfiguration
+import com.redelf.commons.net.retrofit.cache.HttpCacheInterceptor
+import com.redelf.commons.net.retrofit.cache.HttpCacheRulesInterceptor
+import com.redelf.commons.net.retrofit.cache.HttpCaches
+import com.redelf.commons.net.retrofit.calls.CallDeduplicationInterceptor
+import com.redelf.commons.net.retrofit.calls.CallGroup
+import com.redelf.commons.net.retrofit.converter.ParserConverterFactory
 import com.redelf.commons.net.retrofit.gson.SerializationBenchmarkLoggingInterceptor
 import com.redelf.commons.net.retrofit.interceptor.JsonValidityInterceptor
 import com.redelf.commons.net.retrofit.interceptor.RetryInterceptor
+import com.redelf.commons.obtain.Obtain
 import com.redelf.commons.obtain.ObtainParametrized
+import com.redelf.commons.persistance.GsonParser
+import com.redelf.commons.persistance.StreamingJsonParser
 import okhttp3.Call
 import okhttp3.CertificatePinner
-import okhttp3.ConnectionPool
 import okhttp3.OkHttpClient
 import okhttp3.logging.HttpLoggingInterceptor
 import retrofit2.Converter
 import retrofit2.Retrofit
-import retrofit2.converter.gson.GsonConverterFactory
-import retrofit2.converter.jackson.JacksonConverterFactory
 import retrofit2.converter.scalars.ScalarsConverterFactory
 import useCronet
+import java.lang.ref.WeakReference
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
 
@@ -37,6 +48,77 @@ object RetrofitProvider : ObtainParametrized<Retrofit, RetrofitApiParameters> {
     val DEBUG: AtomicBoolean = AtomicBoolean()
     val PINNED_CERTIFICATES = mutableMapOf<String, String>()
 
+    private const val PARSER_KEY = "Retrofit"
+
+    private val retrofits = ConcurrentHashMap<RetrofitKey, Retrofit>()
+
+    /*
+        Retrofit instances of the calls wrappers. The wrappers are maps, so they are matched by
+        identity and referenced weakly, the entry is dropped once its wrapper is collected.
+    */
+    private val wrappedRetrofits = mutableListOf<WrappedRetrofits>()
+
+    private val scalarsConverter by lazy { ScalarsConverterFactory.create() }
+
+    /*
+        One mapper for all API clients, based on the optimized streaming configuration.
+    */
+    private val objectMapper by lazy {
+
+        StreamingJsonParser.createOptimizedObjectMapper()
+            .registerModule(JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .configure(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES, false)
+            .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
+    }
+
+    private val gsonBuilder by lazy {
+
+        GsonBuilder()
+            .disableHtmlEscaping()
+            .serializeNulls()
+            .setStrictness(Strictness.LENIENT)
+            .setFieldNamingPolicy(FieldNamingPolicy.IDENTITY)
+    }
+
+    private val jacksonConverter by lazy {
+
+        val provider = object : Obtain<ObjectMapper> {
+
+            override fun obtain() = objectMapper
+        }
+
+        val parser = StreamingJsonParser.instantiate(
+
+            key = PARSER_KEY,
+            encryption = null,
+            encrypt = false,
+            provider = provider
+        )
+
+        ParserConverterFactory(parser)
+    }
+
+    private val gsonConverter by lazy {
+
+        val provider = object : Obtain<GsonBuilder> {
+
+            override fun obtain() = gsonBuilder
+        }
+
+        val parser = GsonParser.instantiate(
+
+            key = PARSER_KEY,
+            encryption = null,
+            encrypt = false,
+            provider = provider
+        )
+
+        ParserConverterFactory(parser)
+    }
+
     override fun obtain(param: RetrofitApiParameters): Retrofit {
 
         if (param.verbose == true) Console.log("Retrofit :: Obtain: $param")
@@ -79,58 +161,145 @@ object RetrofitProvider : ObtainParametrized<Retrofit, RetrofitApiParameters> {
             writeTime = wTime ?: 0,
 
             useCronet = param.useCronet?: true,
-            verbose = param.bodyLog == true || param.verbose == true
+            verbose = param.bodyLog == true || param.verbose == true,
+            ctx = ctx,
+            cache = param.cache,
+            deduplicate = param.deduplicate != false
         )
 
-        val converter: Converter.Factory = if (param.scalar == true) {
-
-            if (param.verbose == true) Console.log("Retrofit :: Converter: Scalar")
+        val converterType = if (param.scalar == true) {
 
-            ScalarsConverterFactory.create()
+            ConverterType.SCALAR
 
         } else if (param.jackson == true) {
 
-            if (param.verbose == true) Console.log("Retrofit :: Converter: Jackson")
+            ConverterType.JACKSON
 
-            val objectMapper = ObjectMapper()
-                .registerModule(JavaTimeModule())
-                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
-                .configure(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true)
-                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
-                .configure(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES, false)
-                .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
+        } else {
+
+            ConverterType.GSON
+        }
 
-            JacksonConverterFactory.create(objectMapper)
+        val retrofitKey = RetrofitKey(baseUrl, client, converterType)
+        val memoized = obtainRetrofits(param.callsWrapper)
 
-        } else {
+        /*
+            Retrofit instances bound to a call group are not memoized, the groups are short lived.
+        */
+        val callGroup = param.callGroup
 
-            if (param.verbose == true) Console.log("Retrofit :: Converter: GSON")
+        if (callGroup == null) {
 
-            GsonBuilder()
-                .disableHtmlEscaping()
-                .serializeNulls()
-                .setStrictness(Strictness.LENIENT)
-                .setFieldNamingPolicy(FieldNamingPolicy.IDENTITY)
-                .create()
+            memoized[retrofitKey]?.let {
 
-            GsonConverterFactory.create(GsonBuilder().create())
+                if (param.verbose == true) Console.log("Retrofit :: Reused :: $converterType")
+
+                return it
+            }
         }
 
+        val converter: Converter.Factory = when (converterType) {
+
+            ConverterType.SCALAR -> {
+
+                if (param.verbose == true) Console.log("Retrofit :: Converter: Scalar")
+
+                scalarsConverter
+            }
+
+            ConverterType.JACKSON -> {
+
+                if (param.verbose == true) Console.log("Retrofit :: Converter: Jackson")
+
+                jacksonConverter
+            }
+
+            ConverterType.GSON -> {
+
+                if (param.verbose == true) Console.log("Retrofit :: Converter: GSON")
+
+                gsonConverter
+            }
+        }
+
+        val callsWrapper = param.callsWrapper?.let { WeakReference(it) }
+
         val callFactory = Call.Factory { request ->
 
-            val call = client.newCall(request)
+            val grouped = if (callGroup != null && request.tag(CallGroup::class.java) == null) {
+
+                request.newBuilder().tag(CallGroup::class.java, callGroup).build()
+
+            } else {
+
+                request
+            }
+
+            val call = client.newCall(grouped)
             val tag = request.url.toString()
 
-            param.callsWrapper?.set(tag, call)
+            callsWrapper?.get()?.set(tag, call)
 
             call
         }
 
-        return Retrofit.Builder()
+        val retrofit = Retrofit.Builder()
             .baseUrl(baseUrl)
             .addConverterFactory(converter)
             .callFactory(callFactory)
             .build()
+
+        if (callGroup != null) {
+
+            return retrofit
+        }
+
+        return memoized.putIfAbsent(retrofitKey, retrofit) ?: retrofit
+    }
+
+    fun getStats() = HttpClientRegistry.getStats()
+
+    /*
+        Drops the memoized clients and Retrofit instances, e.g. after the certificate pins change.
+    */
+    fun invalidate() {
+
+        retrofits.clear()
+
+        synchronized(wrappedRetrofits) {
+
+            wrappedRetrofits.clear()
+        }
+
+        HttpClientRegistry.invalidate()
+    }
+
+    private fun obtainRetrofits(
+
+        callsWrapper: ConcurrentHashMap<String, Call>?
+
+    ): ConcurrentHashMap<RetrofitKey, Retrofit> {
+
+        if (callsWrapper == null) {
+
+            return retrofits
+        }
+
+        synchronized(wrappedRetrofits) {
+
+            wrappedRetrofits.removeAll { it.wrapper.get() == null }
+
+            wrappedRetrofits.firstOrNull { it.wrapper.get() === callsWrapper }?.let {
+
+                return it.retrofits
+            }
+
+            val created = WrappedRetrofits(WeakReference(callsWrapper))
+
+            wrappedRetrofits.add(created)
+
+            return created.retrofits
+        }
     }
 
     private fun newHttpClient(
@@ -141,61 +310,89 @@ object RetrofitProvider : ObtainParametrized<Retrofit, RetrofitApiParameters> {
         writeTime: Long,
         verbose: Boolean = false,
         useCronet: Boolean = true,
-        validateJson: Boolean = false
+        validateJson: Boolean = false,
+        ctx: Context? = null,
+        cache: HttpCacheConfiguration? = null,
+        deduplicate: Boolean = true
 
     ): OkHttpClient {
 
-        val pool = ConnectionPool(
+        val benchmark = DEBUG.get() && verbose
 
-            maxIdleConnections = 10,
-            keepAliveDuration = 5,
-            timeUnit = TimeUnit.MINUTES
+        val key = ClientKey(
+
+            readTime = readTime,
+            connTime = connTime,
+            writeTime = writeTime,
+            useCronet = useCronet,
+            validateJson = validateJson,
+            benchmark = benchmark,
+            logLevel = loggingInterceptor?.level,
+            pins = PINNED_CERTIFICATES.toMap(),
+            cache = cache,
+            deduplicate = deduplicate
         )
 
-        val builder = OkHttpClient.Builder()
+        return HttpClientRegistry.obtain(key) { builder ->
 
-        if (useCronet) {
+            if (deduplicate) {
 
-            builder.useCronet()
-        }
+                builder.addInterceptor(CallDeduplicationInterceptor())
+            }
 
-        builder
-            .readTimeout(readTime, TimeUnit.SECONDS)
-            .connectTimeout(connTime, TimeUnit.SECONDS)
-            .writeTimeout(writeTime, TimeUnit.SECONDS)
-            .retryOnConnectionFailure(true)
-            .connectionPool(pool)
+            /*
+                The Cronet interceptor completes the calls itself, so the OkHttp disk cache
+                (which sits behind the application interceptors) would never be consulted.
+            */
+            if (useCronet && (cache == null || ctx == null)) {
 
-        if (validateJson) {
+                builder.useCronet()
+            }
 
-            builder.addInterceptor(JsonValidityInterceptor())
-        }
+            if (cache != null && ctx != null) {
 
-        builder.addInterceptor(RetryInterceptor())
+                val connectivity = DefaultConnectivityHandler.obtain(ctx)
 
-        loggingInterceptor?.let {
+                builder
+                    .cache(HttpCaches.obtain(ctx, cache))
+                    .addInterceptor(HttpCacheInterceptor(ctx, cache, connectivity))
+                    .addNetworkInterceptor(HttpCacheRulesInterceptor(cache))
+            }
 
-            builder.addInterceptor(it)
-        }
+            builder
+                .readTimeout(readTime, TimeUnit.SECONDS)
+                .connectTimeout(connTime, TimeUnit.SECONDS)
+                .writeTimeout(writeTime, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
 
-        if (DEBUG.get() && verbose) {
+            if (validateJson) {
 
-            val benchInterceptor = SerializationBenchmarkLoggingInterceptor()
-            builder.addInterceptor(benchInterceptor)
-        }
+                builder.addInterceptor(JsonValidityInterceptor())
+            }
 
-        if (writeTime > 0) {
+            builder.addInterceptor(RetryInterceptor())
 
-            builder.writeTimeout(writeTime, TimeUnit.SECONDS)
-        }
+            loggingInterceptor?.let {
 
-        if (PINNED_CERTIFICATES.isNotEmpty()) {
+                builder.addInterceptor(it)
+            }
 
-            builder.certificatePinner(createCertificatePins())
-        }
+            if (benchmark) {
 
-        return builder.build()
+                val benchInterceptor = SerializationBenchmarkLoggingInterceptor()
+                builder.addInterceptor(benchInterceptor)
+            }
+
+            if (writeTime > 0) {
+
+                builder.writeTimeout(writeTime, TimeUnit.SECONDS)
+            }
+
+            if (PINNED_CERTIFICATES.isNotEmpty()) {
 
+                builder.certificatePinner(createCertificatePins())
+            }
+        }
     }
 
     private fun createCertificatePins(): CertificatePinner {
@@ -220,4 +417,45 @@ object RetrofitProvider : ObtainParametrized<Retrofit, RetrofitApiParameters> {
 
         return builder.build()
     }
-}
\ No newline at end of file
+
+    private enum class ConverterType {
+
+        SCALAR,
+        JACKSON,
+        GSON
+    }
+
+    private data class ClientKey(
+
+        val readTime: Long,
+        val connTime: Long,
+        val writeTime: Long,
+        val useCronet: Boolean,
+        val validateJson: Boolean,
+        val benchmark: Boolean,
+        val logLevel: HttpLoggingInterceptor.Level?,
+        val pins: Map<String, String>,
+        val cache: HttpCacheConfiguration?,
+        val deduplicate: Boolean
+
+    ) {
+
+        override fun toString() = "ClientKey(${hashCode()})"
+    }
+
+    private data class RetrofitKey(
+
+        val baseUrl: String,
+        val client: OkHttpClient,
+        val converter: ConverterType
+    )
+
+    /*
+        The Retrofit instances capture the wrapper weakly too, otherwise they would keep it alive.
+    */
+    private class WrappedRetrofits(
+
+        val wrapper: WeakReference<ConcurrentHashMap<String, Call>>,
+        val retrofits: ConcurrentHashMap<RetrofitKey, Retrofit> = ConcurrentHashMap()
+    )
+}
@@ -0,0 +1,24 @@
+package com.redelf.commons.net.retrofit.cache
+
+/*
+    Disk cache settings for the API clients. Responses are stored under the application cache
+    directory, in the directory with the given name. While offline the stored responses are
+    served if they are not older than the offline max stale.
+*/
+data class HttpCacheConfiguration(
+
+    val directoryName: String = "http_cache",
+    val maxSizeBytes: Long = 10L * 1024L * 1024L,
+    val offlineMaxStaleSeconds: Int = 7 * 24 * 60 * 60,
+    val rules: List<HttpCacheRule> = emptyList()
+
+) {
+
+    /*
+        The longest matching prefix wins.
+    */
+    fun getRule(path: String): HttpCacheRule? {
+
+        return rules.filter { it.matches(path) }.maxByOrNull { it.pathPrefix.length }
+    }
+}
@@ -0,0 +1,93 @@
+package com.redelf.commons.net.retrofit.cache
+
+import android.content.Context
+import com.redelf.commons.extensions.recordException
+import com.redelf.commons.net.connectivity.ConnectivityCheck
+import okhttp3.CacheControl
+import okhttp3.Interceptor
+import okhttp3.Response
+import java.util.concurrent.TimeUnit
+
+/*
+    Application interceptor: applies the per endpoint request rules and, while the
+    connectivity check reports no network, asks for the stored response only
+    (a 504 is returned when there is none) instead of failing on the connection attempt.
+*/
+class HttpCacheInterceptor(
+
+    private val ctx: Context,
+    private val configuration: HttpCacheConfiguration,
+    private val connectivity: ConnectivityCheck
+
+) : Interceptor {
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+
+        val request = chain.request()
+
+        if (request.method != "GET") {
+
+            return chain.proceed(request)
+        }
+
+        val rule = configuration.getRule(request.url.encodedPath)
+
+        if (rule?.cacheable == false) {
+
+            val noCache = CacheControl.Builder()
+                .noCache()
+                .noStore()
+                .build()
+
+            return chain.proceed(request.newBuilder().cacheControl(noCache).build())
+        }
+
+        val offline = !isOnline()
+        val builder = request.newBuilder()
+
+        if (offline) {
+
+            builder.cacheControl(
+
+                CacheControl.Builder()
+                    .onlyIfCached()
+                    .maxStale(configuration.offlineMaxStaleSeconds, TimeUnit.SECONDS)
+                    .build()
+            )
+
+        } else if (rule != null && rule.maxStaleSeconds > 0 && request.header(HEADER) == null) {
+
+            builder.cacheControl(
+
+                CacheControl.Builder()
+                    .maxStale(rule.maxStaleSeconds, TimeUnit.SECONDS)
+                    .build()
+            )
+        }
+
+        val response = chain.proceed(builder.build())
+
+        HttpCaches.onResponse(response, offline)
+
+        return response
+    }
+
+    private fun isOnline(): Boolean {
+
+        try {
+
+            return connectivity.isNetworkAvailable(ctx)
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+
+        return true
+    }
+
+    private companion object {
+
+        const val HEADER = "Cache-Control"
+    }
+}
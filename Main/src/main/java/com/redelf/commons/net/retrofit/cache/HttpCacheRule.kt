@@ -0,0 +1,21 @@
+package com.redelf.commons.net.retrofit.cache
+
+/*
+    Cache rule for the requests whose path starts with the path prefix.
+
+    Max age is applied to the responses that do not carry their own caching headers (or to all
+    responses when override is set). With max age 0 the stored response is revalidated with
+    ETag / Last-Modified on every request, so an unchanged resource costs a 304 only.
+*/
+data class HttpCacheRule(
+
+    val pathPrefix: String,
+    val maxAgeSeconds: Int = 0,
+    val maxStaleSeconds: Int = 0,
+    val cacheable: Boolean = true,
+    val override: Boolean = false
+
+) {
+
+    fun matches(path: String) = path.startsWith(pathPrefix)
+}
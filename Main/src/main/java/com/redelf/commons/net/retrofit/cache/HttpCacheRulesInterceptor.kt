@@ -0,0 +1,61 @@
+package com.redelf.commons.net.retrofit.cache
+
+import okhttp3.CacheControl
+import okhttp3.Interceptor
+import okhttp3.Response
+import java.util.concurrent.TimeUnit
+
+/*
+    Network interceptor: gives the responses of the endpoints with a rule the configured
+    freshness before they are written to the cache. Validators (ETag, Last-Modified) sent by
+    the server are kept, so the expired entries are revalidated with conditional requests.
+*/
+class HttpCacheRulesInterceptor(
+
+    private val configuration: HttpCacheConfiguration
+
+) : Interceptor {
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+
+        val request = chain.request()
+        val response = chain.proceed(request)
+
+        if (request.method != "GET" || !response.isSuccessful) {
+
+            return response
+        }
+
+        val rule = configuration.getRule(request.url.encodedPath) ?: return response
+
+        if (!rule.cacheable) {
+
+            return response
+        }
+
+        val ownHeaders = response.header(HEADER_CACHE_CONTROL) != null ||
+                response.header(HEADER_EXPIRES) != null
+
+        if (ownHeaders && !rule.override) {
+
+            return response
+        }
+
+        val cacheControl = CacheControl.Builder()
+            .maxAge(rule.maxAgeSeconds, TimeUnit.SECONDS)
+            .build()
+
+        return response.newBuilder()
+            .removeHeader(HEADER_PRAGMA)
+            .removeHeader(HEADER_EXPIRES)
+            .header(HEADER_CACHE_CONTROL, cacheControl.toString())
+            .build()
+    }
+
+    private companion object {
+
+        const val HEADER_CACHE_CONTROL = "Cache-Control"
+        const val HEADER_EXPIRES = "Expires"
+        const val HEADER_PRAGMA = "Pragma"
+    }
+}
@@ -0,0 +1,118 @@
+package com.redelf.commons.net.retrofit.cache
+
+import android.content.Context
+import com.redelf.commons.logging.Console
+import okhttp3.Cache
+import okhttp3.Response
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+
+/*
+    Disk caches shared by all clients. OkHttp allows only one Cache instance per directory,
+    so the caches are kept per directory for the whole process.
+*/
+object HttpCaches {
+
+    val DEBUG = AtomicBoolean()
+
+    private const val TAG = "HTTP caches ::"
+
+    private val caches = ConcurrentHashMap<String, Cache>()
+
+    private val requests = AtomicLong()
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val revalidated = AtomicLong()
+    private val offline = AtomicLong()
+
+    fun obtain(ctx: Context, configuration: HttpCacheConfiguration): Cache {
+
+        val directory = File(ctx.applicationContext.cacheDir, configuration.directoryName)
+
+        return caches.computeIfAbsent(directory.absolutePath) {
+
+            if (DEBUG.get()) Console.log(
+
+                "$TAG New cache :: ${directory.name}, Size = ${configuration.maxSizeBytes}"
+            )
+
+            Cache(directory, configuration.maxSizeBytes)
+        }
+    }
+
+    fun getStats() = Stats(
+
+        requests = requests.get(),
+        hits = hits.get(),
+        misses = misses.get(),
+        revalidated = revalidated.get(),
+        offline = offline.get()
+    )
+
+    /*
+        Counts the final response of a cacheable request:
+        served from the cache only (hit), served from the cache after a 304 (revalidated)
+        or fetched from the network (miss).
+    */
+    fun onResponse(response: Response, servedOffline: Boolean) {
+
+        requests.incrementAndGet()
+
+        val cached = response.cacheResponse != null
+        val network = response.networkResponse
+
+        when {
+
+            cached && network == null -> {
+
+                hits.incrementAndGet()
+
+                if (servedOffline) offline.incrementAndGet()
+            }
+
+            cached && network?.code == 304 -> revalidated.incrementAndGet()
+
+            else -> misses.incrementAndGet()
+        }
+
+        if (DEBUG.get()) Console.log("$TAG ${response.request.url.encodedPath} :: ${getStats()}")
+    }
+
+    /*
+        The 504 OkHttp answers an only-if-cached request (see HttpCacheInterceptor) with when there
+        is no stored response. It says nothing about the server, so it is neither retried nor
+        counted against the host circuit.
+    */
+    fun isCacheMiss(response: Response): Boolean {
+
+        return response.code == 504 &&
+                response.networkResponse == null &&
+                response.request.cacheControl.onlyIfCached
+    }
+
+    data class Stats(
+
+        val requests: Long,
+        val hits: Long,
+        val misses: Long,
+        val revalidated: Long,
+        val offline: Long
+
+    ) {
+
+        /*
+            Share of the requests that did not download the body again.
+        */
+        fun getHitRatio(): Double {
+
+            if (requests == 0L) {
+
+                return 0.0
+            }
+
+            return (hits + revalidated) / requests.toDouble()
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.redelf.commons.net.retrofit.calls
+
+import com.redelf.commons.logging.Console
+import okhttp3.Interceptor
+import okhttp3.Request
+import okhttp3.Response
+import okhttp3.ResponseBody.Companion.toResponseBody
+import java.io.IOException
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import java.util.concurrent.atomic.AtomicBoolean
+
+/*
+    Identical GET requests running at the same time share one network call.
+
+    The first request goes to the network. Requests with the same URL and headers that
+    arrive while it runs wait for it and receive a copy of its response. The body is
+    buffered only when somebody is waiting and only up to the shared body limit; larger
+    responses are not shared and the waiting requests go to the network themselves.
+*/
+class CallDeduplicationInterceptor(
+
+    private val maxSharedBodyBytes: Long = 1024L * 1024L
+
+) : Interceptor {
+
+    companion object {
+
+        val DEBUG = AtomicBoolean()
+
+        private const val TAG = "Call deduplication ::"
+        private const val WAIT_SLICE = 250L
+    }
+
+    private val inFlight = ConcurrentHashMap<String, Shared>()
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+
+        val request = chain.request()
+
+        if (request.method != "GET") {
+
+            return chain.proceed(request)
+        }
+
+        val key = getKey(request)
+        val shared = Shared()
+        val leader = inFlight.putIfAbsent(key, shared)
+
+        if (leader != null) {
+
+            if (leader.join()) {
+
+                if (DEBUG.get()) Console.log("$TAG Joined :: ${request.url}")
+
+                return await(chain, leader)
+            }
+
+            return chain.proceed(request)
+        }
+
+        /*
+            Whatever ends the leader (including unexpected errors) releases the waiting requests.
+        */
+        val response = try {
+
+            chain.proceed(request)
+
+        } catch (e: Throwable) {
+
+            finish(key, shared)?.completeExceptionally(e)
+
+            throw e
+        }
+
+        val waiting = finish(key, shared) ?: return response
+
+        try {
+
+            val body = response.peekBody(maxSharedBodyBytes + 1)
+
+            if (body.contentLength() > maxSharedBodyBytes) {
+
+                waiting.complete(null)
+
+            } else {
+
+                waiting.complete(Snapshot(response, body.bytes()))
+            }
+
+        } catch (e: Throwable) {
+
+            waiting.completeExceptionally(e)
+
+            throw e
+        }
+
+        return response
+    }
+
+    private fun await(chain: Interceptor.Chain, leader: Shared): Response {
+
+        val request = chain.request()
+        val limit = System.currentTimeMillis() + chain.connectTimeoutMillis() +
+                chain.readTimeoutMillis() + chain.writeTimeoutMillis()
+
+        while (!chain.call().isCanceled()) {
+
+            try {
+
+                val snapshot = leader.result.get(WAIT_SLICE, TimeUnit.MILLISECONDS)
+                    ?: return chain.proceed(request)
+
+                return snapshot.response.newBuilder()
+                    .request(request)
+                    .body(snapshot.body.toResponseBody(snapshot.response.body.contentType()))
+                    .build()
+
+            } catch (e: TimeoutException) {
+
+                if (System.currentTimeMillis() > limit) {
+
+                    return chain.proceed(request)
+                }
+
+            } catch (e: ExecutionException) {
+
+                /*
+                    The leader failed or was cancelled, this request tries on its own.
+                */
+                return chain.proceed(request)
+            }
+        }
+
+        throw IOException("Canceled")
+    }
+
+    /*
+        Removes the shared entry and returns the result to complete when somebody joined.
+    */
+    private fun finish(key: String, shared: Shared): CompletableFuture<Snapshot?>? {
+
+        inFlight.remove(key, shared)
+
+        return if (shared.close()) shared.result else null
+    }
+
+    /*
+        Headers are listed explicitly, their toString() redacts the credentials.
+    */
+    private fun getKey(request: Request): String {
+
+        return "${request.url}\n" + request.headers.joinToString("\n") { (name, value) ->
+
+            "$name: $value"
+        }
+    }
+
+    private class Snapshot(val response: Response, val body: ByteArray)
+
+    private class Shared {
+
+        val result = CompletableFuture<Snapshot?>()
+
+        private var closed = false
+        private var joined = 0
+
+        @Synchronized
+        fun join(): Boolean {
+
+            if (closed) {
+
+                return false
+            }
+
+            joined++
+
+            return true
+        }
+
+        /*
+            True when at least one request is waiting for the result.
+        */
+        @Synchronized
+        fun close(): Boolean {
+
+            closed = true
+
+            return joined > 0
+        }
+    }
+}
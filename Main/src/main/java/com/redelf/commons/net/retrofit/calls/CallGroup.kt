@@ -0,0 +1,54 @@
+package com.redelf.commons.net.retrofit.calls
+
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.LifecycleOwner
+
+/*
+    Cancellation group for the in-flight calls.
+
+    A call joins the group when its request is tagged with it: pass the group with
+    RetrofitApiParameters.callGroup or as a @Tag parameter of the API method. Groups are
+    compared by identity, the name is used for logging only.
+*/
+class CallGroup(val name: String) {
+
+    companion object {
+
+        /*
+            Group cancelled when the owner (Activity, Fragment, screen) is destroyed.
+            Must be called on the main thread.
+        */
+        fun of(owner: LifecycleOwner, name: String = owner::class.java.simpleName): CallGroup {
+
+            return CallGroup(name).bind(owner)
+        }
+    }
+
+    fun bind(owner: LifecycleOwner): CallGroup {
+
+        owner.lifecycle.addObserver(
+
+            object : LifecycleEventObserver {
+
+                override fun onStateChanged(source: LifecycleOwner, event: Lifecycle.Event) {
+
+                    if (event == Lifecycle.Event.ON_DESTROY) {
+
+                        source.lifecycle.removeObserver(this)
+
+                        cancel()
+                    }
+                }
+            }
+        )
+
+        return this
+    }
+
+    fun cancel() = InFlightCalls.cancel(this)
+
+    fun getCount() = InFlightCalls.getCount(this)
+
+    override fun toString() = "CallGroup(name='$name')"
+}
@@ -0,0 +1,81 @@
+package com.redelf.commons.net.retrofit.calls
+
+import com.redelf.commons.interruption.Abort
+import com.redelf.commons.logging.Console
+import okhttp3.Call
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+
+/*
+    Registry of the calls in flight.
+
+    Calls are registered when they start and removed when they end, fail or are cancelled
+    (the shared client event listener reports both), so the registry holds only the calls
+    that are still running. Calls are cancelled all together or by their group.
+*/
+object InFlightCalls : Abort {
+
+    val DEBUG = AtomicBoolean()
+
+    private const val TAG = "In-flight calls ::"
+
+    private val calls = ConcurrentHashMap<Call, Any>()
+
+    private val noGroup = Any()
+
+    fun register(call: Call) {
+
+        calls[call] = getGroup(call) ?: noGroup
+
+        if (DEBUG.get()) Console.log("$TAG Register :: ${call.request().url}, Count = ${calls.size}")
+    }
+
+    fun onFinished(call: Call) {
+
+        if (calls.remove(call) != null && DEBUG.get()) {
+
+            Console.log("$TAG Finished :: ${call.request().url}, Count = ${calls.size}")
+        }
+    }
+
+    fun getCount() = calls.size
+
+    fun getCount(group: CallGroup) = calls.values.count { it === group }
+
+    fun getCalls(group: CallGroup): List<Call> {
+
+        return calls.entries.filter { it.value === group }.map { it.key }
+    }
+
+    fun cancel(group: CallGroup) {
+
+        val groupCalls = getCalls(group)
+
+        if (DEBUG.get()) Console.log("$TAG Cancel :: $group, Count = ${groupCalls.size}")
+
+        groupCalls.forEach { cancel(it) }
+    }
+
+    override fun abort() {
+
+        if (DEBUG.get()) Console.log("$TAG Abort :: Count = ${calls.size}")
+
+        calls.keys.toList().forEach { cancel(it) }
+    }
+
+    fun getGroup(call: Call): CallGroup? = call.request().tag(CallGroup::class.java)
+
+    private fun cancel(call: Call) {
+
+        try {
+
+            call.cancel()
+
+        } catch (e: Throwable) {
+
+            Console.error("$TAG Cancel failed: ${call.request().url}", e)
+        }
+
+        calls.remove(call)
+    }
+}
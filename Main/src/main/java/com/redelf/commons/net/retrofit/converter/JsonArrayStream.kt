@@ -0,0 +1,72 @@
+package com.redelf.commons.net.retrofit.converter
+
+import java.io.Closeable
+
+/*
+    Elements of a JSON array response, decoded one at a time while iterating.
+
+    Declare it as the return type of the API method to process very large arrays without
+    holding the whole list in memory. The response stays open until all elements are read
+    or the stream is closed, so always close it (e.g. with use { }).
+*/
+class JsonArrayStream<T>(
+
+    private val elements: Iterator<T>,
+    private val source: Closeable
+
+) : Iterator<T>, Closeable {
+
+    private var closed = false
+
+    override fun hasNext(): Boolean {
+
+        if (closed) {
+
+            return false
+        }
+
+        if (elements.hasNext()) {
+
+            return true
+        }
+
+        close()
+
+        return false
+    }
+
+    override fun next(): T {
+
+        if (!hasNext()) {
+
+            throw NoSuchElementException()
+        }
+
+        return elements.next()
+    }
+
+    /*
+        Returns up to the given number of the next elements, empty list when exhausted.
+    */
+    fun next(count: Int): List<T> {
+
+        val batch = ArrayList<T>(minOf(count, 1024))
+
+        while (batch.size < count && hasNext()) {
+
+            batch.add(elements.next())
+        }
+
+        return batch
+    }
+
+    override fun close() {
+
+        if (!closed) {
+
+            closed = true
+
+            source.close()
+        }
+    }
+}
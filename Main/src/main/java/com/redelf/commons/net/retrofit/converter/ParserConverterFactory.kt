@@ -0,0 +1,103 @@
+package com.redelf.commons.net.retrofit.converter
+
+import com.redelf.commons.persistance.base.Parser
+import okhttp3.MediaType
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.RequestBody
+import okhttp3.RequestBody.Companion.toRequestBody
+import okhttp3.ResponseBody
+import retrofit2.Converter
+import retrofit2.Retrofit
+import java.io.IOException
+import java.lang.reflect.ParameterizedType
+import java.lang.reflect.Type
+
+/*
+    Retrofit converters backed by the project parsers.
+
+    Responses are decoded directly from the body stream, the content is not copied into a
+    String first (except for the types the parser handles with custom serialization).
+    JsonArrayStream<T> return types decode the array elements incrementally.
+*/
+class ParserConverterFactory(
+
+    private val parser: Parser,
+    private val mediaType: MediaType = MEDIA_TYPE
+
+) : Converter.Factory() {
+
+    companion object {
+
+        val MEDIA_TYPE = "application/json; charset=UTF-8".toMediaType()
+    }
+
+    override fun responseBodyConverter(
+
+        type: Type,
+        annotations: Array<out Annotation>,
+        retrofit: Retrofit
+
+    ): Converter<ResponseBody, *> {
+
+        if (getRawType(type) == JsonArrayStream::class.java) {
+
+            val elementType = if (type is ParameterizedType) {
+
+                getParameterUpperBound(0, type)
+
+            } else {
+
+                Any::class.java
+            }
+
+            return Converter<ResponseBody, JsonArrayStream<Any?>> { body ->
+
+                try {
+
+                    JsonArrayStream(parser.fromJsonArray(body.charStream(), elementType), body)
+
+                } catch (e: Throwable) {
+
+                    body.close()
+
+                    throw e
+                }
+            }
+        }
+
+        return Converter<ResponseBody, Any?> { body ->
+
+            body.use {
+
+                parser.fromJson<Any?>(it.charStream(), type)
+            }
+        }
+    }
+
+    override fun requestBodyConverter(
+
+        type: Type,
+        parameterAnnotations: Array<out Annotation>,
+        methodAnnotations: Array<out Annotation>,
+        retrofit: Retrofit
+
+    ): Converter<*, RequestBody> {
+
+        return Converter<Any?, RequestBody> { value ->
+
+            val json = if (value == null) {
+
+                "null"
+
+            } else {
+
+                parser.toJson(value) ?: throw IOException(
+
+                    "Failed to serialize request body, Class = '${value::class.java.name}'"
+                )
+            }
+
+            json.toRequestBody(mediaType)
+        }
+    }
+}
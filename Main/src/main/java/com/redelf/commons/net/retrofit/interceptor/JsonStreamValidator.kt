@@ -0,0 +1,379 @@
+package com.redelf.commons.net.retrofit.interceptor
+
+import java.io.OutputStream
+
+/*
+    Incremental JSON well-formedness check.
+
+    The bytes are fed as they arrive and only the nesting stack and the current token state
+    are kept, so the memory used does not depend on the size of the document. No values are
+    built. Blank input is accepted the same way the parsers treat an empty body.
+*/
+class JsonStreamValidator : OutputStream() {
+
+    private enum class State {
+
+        VALUE,
+        FIRST_ARRAY_VALUE,
+        FIRST_KEY,
+        KEY,
+        COLON,
+        AFTER_VALUE,
+        STRING,
+        STRING_ESCAPE,
+        STRING_UNICODE,
+        NUMBER_SIGN,
+        NUMBER_ZERO,
+        NUMBER_INTEGER,
+        NUMBER_FRACTION_START,
+        NUMBER_FRACTION,
+        NUMBER_EXPONENT_START,
+        NUMBER_EXPONENT_SIGN,
+        NUMBER_EXPONENT,
+        LITERAL,
+        DONE,
+        ERROR
+    }
+
+    private var state = State.VALUE
+    private var stack = ByteArray(32)
+    private var depth = 0
+    private var key = false
+    private var unicodeDigits = 0
+    private var literal: String = ""
+    private var literalIndex = 0
+    private var position = 0L
+    private var error: String? = null
+
+    fun getPosition() = position
+
+    fun getError() = error
+
+    fun isFailed() = state == State.ERROR
+
+    /*
+        True when the bytes fed so far form one complete JSON value (or are blank).
+    */
+    fun isValid(): Boolean {
+
+        if (state == State.ERROR) {
+
+            return false
+        }
+
+        if (depth == 0) {
+
+            when (state) {
+
+                State.NUMBER_ZERO,
+                State.NUMBER_INTEGER,
+                State.NUMBER_FRACTION,
+                State.NUMBER_EXPONENT -> return true
+
+                else -> Unit
+            }
+        }
+
+        /*
+            VALUE at depth 0 is the initial state: nothing but whitespace was fed.
+        */
+        return state == State.DONE || (state == State.VALUE && depth == 0)
+    }
+
+    override fun write(b: Int) {
+
+        feed(b and 0xFF)
+    }
+
+    override fun write(b: ByteArray, off: Int, len: Int) {
+
+        var index = off
+        val end = off + len
+
+        while (index < end && state != State.ERROR) {
+
+            feed(b[index].toInt() and 0xFF)
+
+            index++
+        }
+    }
+
+    private fun feed(c: Int) {
+
+        when (state) {
+
+            State.ERROR -> return
+
+            State.STRING -> when {
+
+                c == QUOTE -> endValue(isKey = key)
+                c == BACKSLASH -> state = State.STRING_ESCAPE
+                c < 0x20 -> fail("Control character in string")
+            }
+
+            State.STRING_ESCAPE -> when (c) {
+
+                QUOTE, BACKSLASH, '/'.code, 'b'.code, 'f'.code,
+                'n'.code, 'r'.code, 't'.code -> state = State.STRING
+
+                'u'.code -> {
+
+                    unicodeDigits = 0
+                    state = State.STRING_UNICODE
+                }
+
+                else -> fail("Invalid escape")
+            }
+
+            State.STRING_UNICODE -> if (isHex(c)) {
+
+                unicodeDigits++
+
+                if (unicodeDigits == 4) state = State.STRING
+
+            } else {
+
+                fail("Invalid unicode escape")
+            }
+
+            State.LITERAL -> if (c == literal[literalIndex].code) {
+
+                literalIndex++
+
+                if (literalIndex == literal.length) endValue(isKey = false)
+
+            } else {
+
+                fail("Invalid literal")
+            }
+
+            State.NUMBER_SIGN -> when {
+
+                c == '0'.code -> state = State.NUMBER_ZERO
+                isDigit(c) -> state = State.NUMBER_INTEGER
+                else -> fail("Invalid number")
+            }
+
+            State.NUMBER_ZERO, State.NUMBER_INTEGER -> when {
+
+                isDigit(c) && state == State.NUMBER_INTEGER -> Unit
+                c == '.'.code -> state = State.NUMBER_FRACTION_START
+                c == 'e'.code || c == 'E'.code -> state = State.NUMBER_EXPONENT_START
+                else -> endNumber(c)
+            }
+
+            State.NUMBER_FRACTION_START -> if (isDigit(c)) {
+
+                state = State.NUMBER_FRACTION
+
+            } else {
+
+                fail("Invalid number")
+            }
+
+            State.NUMBER_FRACTION -> when {
+
+                isDigit(c) -> Unit
+                c == 'e'.code || c == 'E'.code -> state = State.NUMBER_EXPONENT_START
+                else -> endNumber(c)
+            }
+
+            State.NUMBER_EXPONENT_START -> when {
+
+                c == '+'.code || c == '-'.code -> state = State.NUMBER_EXPONENT_SIGN
+                isDigit(c) -> state = State.NUMBER_EXPONENT
+                else -> fail("Invalid number")
+            }
+
+            State.NUMBER_EXPONENT_SIGN -> if (isDigit(c)) {
+
+                state = State.NUMBER_EXPONENT
+
+            } else {
+
+                fail("Invalid number")
+            }
+
+            State.NUMBER_EXPONENT -> if (!isDigit(c)) {
+
+                endNumber(c)
+            }
+
+            else -> structural(c)
+        }
+
+        position++
+    }
+
+    private fun structural(c: Int) {
+
+        if (isWhitespace(c)) {
+
+            return
+        }
+
+        when (state) {
+
+            State.VALUE, State.FIRST_ARRAY_VALUE -> {
+
+                if (c == ']'.code && state == State.FIRST_ARRAY_VALUE) {
+
+                    close(ARRAY)
+
+                } else {
+
+                    startValue(c)
+                }
+            }
+
+            State.FIRST_KEY, State.KEY -> when {
+
+                c == QUOTE -> {
+
+                    key = true
+                    state = State.STRING
+                }
+
+                c == '}'.code && state == State.FIRST_KEY -> close(OBJECT)
+                else -> fail("Expected a key")
+            }
+
+            State.COLON -> if (c == ':'.code) {
+
+                state = State.VALUE
+
+            } else {
+
+                fail("Expected ':'")
+            }
+
+            State.AFTER_VALUE -> when {
+
+                c == ','.code && depth > 0 -> {
+
+                    state = if (stack[depth - 1] == OBJECT) State.KEY else State.VALUE
+                }
+
+                c == '}'.code -> close(OBJECT)
+                c == ']'.code -> close(ARRAY)
+                else -> fail("Expected ',' or the end of the container")
+            }
+
+            State.DONE -> fail("Data after the end of the document")
+
+            else -> fail("Unexpected state")
+        }
+    }
+
+    private fun startValue(c: Int) {
+
+        when (c) {
+
+            '{'.code -> open(OBJECT)
+            '['.code -> open(ARRAY)
+
+            QUOTE -> {
+
+                key = false
+                state = State.STRING
+            }
+
+            '-'.code -> state = State.NUMBER_SIGN
+            '0'.code -> state = State.NUMBER_ZERO
+
+            't'.code -> startLiteral("true")
+            'f'.code -> startLiteral("false")
+            'n'.code -> startLiteral("null")
+
+            else -> if (isDigit(c)) {
+
+                state = State.NUMBER_INTEGER
+
+            } else {
+
+                fail("Expected a value")
+            }
+        }
+    }
+
+    private fun startLiteral(value: String) {
+
+        literal = value
+        literalIndex = 1
+        state = State.LITERAL
+    }
+
+    private fun endNumber(c: Int) {
+
+        endValue(isKey = false)
+
+        structural(c)
+    }
+
+    private fun endValue(isKey: Boolean) {
+
+        state = if (isKey) {
+
+            key = false
+
+            State.COLON
+
+        } else if (depth == 0) {
+
+            State.DONE
+
+        } else {
+
+            State.AFTER_VALUE
+        }
+    }
+
+    private fun open(container: Byte) {
+
+        if (depth == stack.size) {
+
+            stack = stack.copyOf(stack.size * 2)
+        }
+
+        stack[depth++] = container
+
+        state = if (container == OBJECT) State.FIRST_KEY else State.FIRST_ARRAY_VALUE
+    }
+
+    private fun close(container: Byte) {
+
+        if (depth == 0 || stack[depth - 1] != container) {
+
+            fail("Unbalanced '${if (container == OBJECT) '}' else ']'}'")
+
+            return
+        }
+
+        depth--
+
+        endValue(isKey = false)
+    }
+
+    private fun fail(message: String) {
+
+        if (state != State.ERROR) {
+
+            error = "$message at $position"
+            state = State.ERROR
+        }
+    }
+
+    private fun isDigit(c: Int) = c in '0'.code..'9'.code
+
+    private fun isHex(c: Int) = isDigit(c) || c in 'a'.code..'f'.code || c in 'A'.code..'F'.code
+
+    private fun isWhitespace(c: Int) = c == 0x20 || c == 0x0A || c == 0x0D || c == 0x09
+
+    private companion object {
+
+        const val OBJECT: Byte = 1
+        const val ARRAY: Byte = 2
+        const val QUOTE = '"'.code
+        const val BACKSLASH = '\\'.code
+    }
+}
@@ -0,0 +1,67 @@
+package com.redelf.commons.net.retrofit.interceptor
+
+import okhttp3.MediaType
+import okhttp3.ResponseBody
+import okio.Buffer
+import okio.BufferedSource
+import okio.ForwardingSource
+import okio.buffer
+
+/*
+    Response body that checks the JSON well-formedness of the bytes while the consumer
+    reads them. Nothing is buffered in addition to what the consumer requests. The outcome
+    is reported once, when the end of the stream is reached.
+*/
+class JsonValidatingResponseBody(
+
+    private val delegate: ResponseBody,
+    private val onInvalid: (validator: JsonStreamValidator) -> Unit
+
+) : ResponseBody() {
+
+    private val validator = JsonStreamValidator()
+
+    private val source: BufferedSource by lazy {
+
+        object : ForwardingSource(delegate.source()) {
+
+            private var reported = false
+
+            override fun read(sink: Buffer, byteCount: Long): Long {
+
+                val read = super.read(sink, byteCount)
+
+                if (read == -1L) {
+
+                    if (!reported) {
+
+                        reported = true
+
+                        if (!validator.isValid()) {
+
+                            onInvalid(validator)
+                        }
+                    }
+
+                } else if (!validator.isFailed()) {
+
+                    sink.copyTo(validator, sink.size - read, read)
+                }
+
+                return read
+            }
+
+        }.buffer()
+    }
+
+    override fun contentType(): MediaType? = delegate.contentType()
+
+    override fun contentLength(): Long = delegate.contentLength()
+
+    override fun source(): BufferedSource = source
+
+    override fun close() {
+
+        delegate.close()
+    }
+}
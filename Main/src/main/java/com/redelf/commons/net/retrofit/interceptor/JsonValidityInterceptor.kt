@@ -1,16 +1,15 @@
 package com.redelf.commons.net.retrofit.interceptor
 
-import com.google.gson.Gson
 import com.redelf.commons.extensions.recordException
 import okhttp3.Interceptor
 import okhttp3.Response
-import okhttp3.ResponseBody.Companion.toResponseBody
-import java.nio.charset.Charset
 
+/*
+    Validates the JSON responses while the converter reads them. Invalid documents are
+    reported at the end of the stream, the data itself is passed through unchanged.
+*/
 class JsonValidityInterceptor : Interceptor {
 
-    private val gson = Gson()
-
     override fun intercept(chain: Interceptor.Chain): Response {
 
         val request = chain.request()
@@ -18,35 +17,28 @@ class JsonValidityInterceptor : Interceptor {
 
         val responseBody = response.body ?: return response
 
-        val source = responseBody.source()
-
-        source.request(Long.MAX_VALUE)
-
-        val buffer = source.buffer
+        val contentType = responseBody.contentType()
 
-        val originalResponseString = buffer.clone().readString(Charset.forName("UTF-8"))
+        if (contentType != null && !contentType.subtype.contains("json", ignoreCase = true)) {
 
-        try {
-
-            gson.fromJson(originalResponseString, Any::class.java)
+            return response
+        }
 
-        } catch (e: Throwable) {
+        val url = request.url.toString()
 
-            recordException(e)
+        val validatingBody = JsonValidatingResponseBody(responseBody) { validator ->
 
             val err = IllegalArgumentException(
 
-                "Invalid JSON data received from the API: $originalResponseString, " +
-                        "Parent issue = ${e.message}"
+                "Invalid JSON data received from the API: $url, " +
+                        "Parent issue = ${validator.getError() ?: "Incomplete document"}"
             )
 
             recordException(err)
         }
 
-        val newResponseBody = originalResponseString.toResponseBody(responseBody.contentType())
-
         return response.newBuilder()
-            .body(newResponseBody)
+            .body(validatingBody)
             .build()
     }
-}
\ No newline at end of file
+}
@@ -5,14 +5,24 @@ import androidx.localbroadcastmanager.content.LocalBroadcastManager
 import com.redelf.commons.application.BaseApplication
 import com.redelf.commons.extensions.exec
 import com.redelf.commons.logging.Console
+import com.redelf.commons.net.retrofit.cache.HttpCaches
+import com.redelf.commons.net.retry.CircuitOpenException
+import com.redelf.commons.net.retry.RetryScheduler
 import okhttp3.Interceptor
 import okhttp3.Response
 import java.io.IOException
 import java.util.concurrent.atomic.AtomicBoolean
 
+/*
+    Guards requests with the per-host circuit breaker of the retry scheduler and reports the
+    outcome of each request to it. The interceptor does not wait between attempts: requests that
+    should be retried are rescheduled asynchronously by RetryScheduler.enqueue (or by the caller)
+    so OkHttp dispatcher threads are never blocked by backoff delays. The offline cache miss is
+    returned as is, see HttpCaches.isCacheMiss().
+*/
 class RetryInterceptor(
 
-    private val retryDelays: List<Long> = listOf(1000L, 1000L)
+    private val scheduler: RetryScheduler = RetryScheduler.DEFAULT
 
 ) : Interceptor {
 
@@ -26,67 +36,102 @@ class RetryInterceptor(
             "RetryInterceptor.Broadcast.Action.Communication.Failure"
     }
 
-    private val maxRetries = retryDelays.size
+    @Deprecated(
 
-    private val msg1 = "Failed to execute request"
-    private val msg2 = "Failed to execute request after $maxRetries retries"
+        "Requests are no longer retried within the interceptor, the delays are ignored. " +
+                "Retry through RetryScheduler.enqueue"
+    )
+    @Suppress("UNUSED_PARAMETER")
+    constructor(retryDelays: List<Long>) : this(RetryScheduler.DEFAULT)
 
-    init {
+    private val msg = "Failed to execute request"
 
-        if (DEBUG.get()) {
+    override fun intercept(chain: Interceptor.Chain): Response {
+
+        val host = chain.request().url.host
+
+        val response = try {
+
+            proceed(chain, host)
+
+        } catch (e: IOException) {
+
+            if (!chain.call().isCanceled() && e !is CircuitOpenException) {
 
-            Console.log("$TAG Init :: Max retries = $maxRetries, Delays = $retryDelays")
+                fail(msg)
+            }
+
+            throw e
+        }
+
+        if (RetryScheduler.isRetryable(response.code) && !HttpCaches.isCacheMiss(response)) {
+
+            fail("$msg :: HTTP ${response.code}")
         }
+
+        return response
     }
 
-    override fun intercept(chain: Interceptor.Chain): Response {
+    /*
+        The request with its outcome reported. Whatever ends the request without an outcome
+        (including unexpected errors) releases the half-open probe.
+    */
+    private fun proceed(chain: Interceptor.Chain, host: String): Response {
+
+        if (!scheduler.allowRequest(host)) {
+
+            val remaining = scheduler.getBreaker(host).getRemainingOpenTime()
+
+            if (DEBUG.get()) Console.log("$TAG Circuit open :: Host = $host")
+
+            throw CircuitOpenException(host, remaining)
+        }
 
-        var attempt = 0
-        var response: Response? = null
+        var reported = false
 
-        while (attempt <= maxRetries) {
+        try {
 
-            try {
+            val response = chain.proceed(chain.request())
 
-                response = chain.proceed(chain.request())
+            if (HttpCaches.isCacheMiss(response)) {
 
-                if (response.isSuccessful || (response.code >= 400 && response.code <= 499)) {
+                scheduler.onCancelled(host)
 
-                    return response
+            } else if (RetryScheduler.isRetryable(response.code)) {
 
-                } else {
+                scheduler.onFailure(host, RetryScheduler.getRetryAfter(response.headers))
 
-                    response.close()
-                }
+            } else {
 
-            } catch (e: IOException) {
+                scheduler.onSuccess(host)
+            }
+
+            reported = true
 
-                response?.close()
+            return response
 
-                if (attempt == maxRetries) {
+        } catch (e: IOException) {
 
-                    fail(msg2)
+            if (chain.call().isCanceled()) {
 
-                    throw e
+                scheduler.onCancelled(host)
 
-                } else {
+            } else {
 
-                    fail(msg1)
-                }
+                scheduler.onFailure(host)
             }
 
-            Thread.sleep(retryDelays.getOrElse(attempt) { 0L })
-            attempt++
-        }
+            reported = true
 
-        response?.let {
+            throw e
 
-            return it
-        }
+        } finally {
 
-        fail(msg2)
+            if (!reported) {
 
-        throw IOException(msg2)
+                scheduler.onCancelled(host)
+            }
+        }
     }
 
     private fun fail(msg: String) = exec {
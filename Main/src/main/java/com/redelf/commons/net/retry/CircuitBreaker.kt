@@ -0,0 +1,110 @@
+package com.redelf.commons.net.retry
+
+/*
+    Per-host circuit breaker.
+
+    Closed: requests pass, consecutive failures are counted. Open: requests are rejected
+    until the open period (or the server's Retry-After) elapses. Half-open: a single probe
+    request passes; its success closes the circuit, its failure opens it again.
+*/
+class CircuitBreaker(
+
+    private val failureThreshold: Int = 5,
+    private val openDuration: Long = 30_000L
+
+) {
+
+    private var failures = 0
+    private var openUntil = 0L
+    private var probing = false
+    private var state = CircuitState.CLOSED
+
+    @Synchronized
+    fun getState(): CircuitState {
+
+        if (state == CircuitState.OPEN && System.currentTimeMillis() >= openUntil) {
+
+            state = CircuitState.HALF_OPEN
+            probing = false
+        }
+
+        return state
+    }
+
+    @Synchronized
+    fun allowRequest(): Boolean {
+
+        return when (getState()) {
+
+            CircuitState.CLOSED -> true
+            CircuitState.OPEN -> false
+
+            CircuitState.HALF_OPEN -> {
+
+                if (probing) {
+
+                    false
+
+                } else {
+
+                    probing = true
+                    true
+                }
+            }
+        }
+    }
+
+    /*
+        Time until the next request is allowed, 0 when it is allowed right away.
+    */
+    @Synchronized
+    fun getRemainingOpenTime(): Long {
+
+        return (openUntil - System.currentTimeMillis()).coerceAtLeast(0)
+    }
+
+    @Synchronized
+    fun onSuccess() {
+
+        failures = 0
+        probing = false
+        openUntil = 0
+        state = CircuitState.CLOSED
+    }
+
+    /*
+        The request ended without an outcome that says anything about the host.
+    */
+    @Synchronized
+    fun onCancelled() {
+
+        probing = false
+    }
+
+    @Synchronized
+    fun onFailure(retryAfter: Long? = null) {
+
+        val now = System.currentTimeMillis()
+
+        failures++
+        probing = false
+
+        if (retryAfter != null && retryAfter > 0) {
+
+            open(now + retryAfter)
+
+            return
+        }
+
+        if (state == CircuitState.HALF_OPEN || failures >= failureThreshold) {
+
+            open(now + openDuration)
+        }
+    }
+
+    private fun open(until: Long) {
+
+        openUntil = maxOf(openUntil, until)
+        state = CircuitState.OPEN
+    }
+}
@@ -0,0 +1,7 @@
+package com.redelf.commons.net.retry
+
+import java.io.IOException
+
+class CircuitOpenException(val host: String, val retryInMillis: Long) :
+
+    IOException("Circuit open for $host, retry in $retryInMillis ms")
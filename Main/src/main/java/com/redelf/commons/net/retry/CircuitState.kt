@@ -0,0 +1,8 @@
+package com.redelf.commons.net.retry
+
+enum class CircuitState {
+
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+}
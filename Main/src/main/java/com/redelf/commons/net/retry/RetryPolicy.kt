@@ -0,0 +1,36 @@
+package com.redelf.commons.net.retry
+
+import kotlin.math.pow
+import kotlin.random.Random
+
+/*
+    Exponential backoff with jitter: the delay cap doubles (by multiplier) with every attempt
+    and the actual delay is a random value between the half of the cap and the cap, so clients
+    that failed together do not retry together.
+*/
+data class RetryPolicy(
+
+    val maxAttempts: Int = 3,
+    val baseDelay: Long = 1000L,
+    val maxDelay: Long = 60_000L,
+    val multiplier: Double = 2.0
+
+) {
+
+    fun getDelay(attempt: Int, random: Random = Random.Default): Long {
+
+        val exponent = attempt.coerceAtLeast(0).coerceAtMost(30)
+        val cap = (baseDelay * multiplier.pow(exponent)).toLong().coerceIn(0, maxDelay)
+
+        if (cap <= 1) {
+
+            return cap
+        }
+
+        val half = cap / 2
+
+        return half + random.nextLong(cap - half + 1)
+    }
+
+    fun canRetry(attempt: Int) = attempt < maxAttempts
+}
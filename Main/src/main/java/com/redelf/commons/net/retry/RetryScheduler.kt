@@ -0,0 +1,343 @@
+package com.redelf.commons.net.retry
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.os.PowerManager
+import com.redelf.commons.application.BaseApplication
+import com.redelf.commons.extensions.isDeviceInDozeMode
+import com.redelf.commons.extensions.recordException
+import com.redelf.commons.logging.Console
+import okhttp3.Headers
+import retrofit2.Call
+import retrofit2.Callback
+import retrofit2.Response
+import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+/*
+    Shared retry scheduling.
+
+    Retries are executed later on the scheduler thread instead of blocking the caller. Each host
+    has its own circuit breaker so a failing backend is not hammered by all of its clients at
+    the same time. Retries that become due while the device is in Doze are held back and
+    released (spread by jitter) when the device leaves Doze.
+*/
+class RetryScheduler(
+
+    private val failureThreshold: Int = 5,
+    private val openDuration: Long = 30_000L
+
+) {
+
+    companion object {
+
+        val DEBUG = AtomicBoolean()
+
+        val DEFAULT by lazy { RetryScheduler() }
+
+        private const val TAG = "Retry scheduler ::"
+        private const val HEADER_RETRY_AFTER = "Retry-After"
+        private const val DOZE_RELEASE_SPREAD = 5_000L
+
+        fun getHost(call: Call<*>): String = call.request().url.host
+
+        /*
+            Retry-After in milliseconds, given either in seconds or as an HTTP date.
+        */
+        fun getRetryAfter(headers: Headers?): Long? {
+
+            val value = headers?.get(HEADER_RETRY_AFTER) ?: return null
+
+            value.trim().toLongOrNull()?.let {
+
+                return it * 1000L
+            }
+
+            return headers.getDate(HEADER_RETRY_AFTER)?.let {
+
+                (it.time - System.currentTimeMillis()).coerceAtLeast(0)
+            }
+        }
+
+        fun isRetryable(code: Int) = code == 408 || code == 429 || code >= 500
+    }
+
+    private val breakers = ConcurrentHashMap<String, CircuitBreaker>()
+    private val deferred = ConcurrentLinkedQueue<Runnable>()
+    private val dozeReceiverRegistered = AtomicBoolean()
+
+    private val executor: ScheduledExecutorService = Executors.newSingleThreadScheduledExecutor()
+
+    private val dozeReceiver = object : BroadcastReceiver() {
+
+        override fun onReceive(context: Context?, intent: Intent?) {
+
+            if (!isDozing()) {
+
+                releaseDeferred()
+            }
+        }
+    }
+
+    fun getBreaker(host: String): CircuitBreaker = breakers.getOrPut(host) {
+
+        CircuitBreaker(failureThreshold, openDuration)
+    }
+
+    fun allowRequest(host: String) = getBreaker(host).allowRequest()
+
+    fun onSuccess(host: String) = getBreaker(host).onSuccess()
+
+    fun onCancelled(host: String) = getBreaker(host).onCancelled()
+
+    fun onFailure(host: String, retryAfter: Long? = null) {
+
+        getBreaker(host).onFailure(retryAfter)
+
+        if (DEBUG.get()) Console.log(
+
+            "$TAG Failure :: Host = $host, State = ${getBreaker(host).getState()}"
+        )
+    }
+
+    /*
+        Delay before the given attempt: the policy backoff, extended when the server asked
+        for more (Retry-After) or when the host circuit is still open.
+    */
+    fun getDelay(host: String, attempt: Int, policy: RetryPolicy, retryAfter: Long? = null): Long {
+
+        val backoff = policy.getDelay(attempt)
+        val open = getBreaker(host).getRemainingOpenTime()
+
+        return maxOf(backoff, retryAfter ?: 0L, open)
+    }
+
+    /*
+        Schedules the task as the given retry attempt. Returns false when the policy
+        does not allow any more attempts.
+    */
+    fun schedule(
+
+        host: String,
+        attempt: Int,
+        policy: RetryPolicy,
+        retryAfter: Long? = null,
+        task: Runnable
+
+    ): Boolean {
+
+        if (!policy.canRetry(attempt)) {
+
+            return false
+        }
+
+        val delay = getDelay(host, attempt, policy, retryAfter)
+
+        if (DEBUG.get()) Console.log(
+
+            "$TAG Schedule :: Host = $host, Attempt = ${attempt + 1}, Delay = $delay ms"
+        )
+
+        return schedule(delay, task)
+    }
+
+    /*
+        Enqueues the call and retries it asynchronously on retryable responses and I/O errors.
+        The callback receives the final outcome only.
+    */
+    fun <T> enqueue(
+
+        call: Call<T>,
+        callback: Callback<T>,
+        policy: RetryPolicy = RetryPolicy(),
+        attempt: Int = 0
+    ) {
+
+        val host = getHost(call)
+
+        if (!allowRequest(host)) {
+
+            val remaining = getBreaker(host).getRemainingOpenTime()
+
+            val scheduled = schedule(host, attempt, policy, remaining) {
+
+                enqueue(call.clone(), callback, policy, attempt + 1)
+            }
+
+            if (!scheduled) {
+
+                callback.onFailure(call, CircuitOpenException(host, remaining))
+            }
+
+            return
+        }
+
+        call.enqueue(
+
+            object : Callback<T> {
+
+                override fun onResponse(call: Call<T>, response: Response<T>) {
+
+                    if (!isRetryable(response.code())) {
+
+                        onSuccess(host)
+
+                        callback.onResponse(call, response)
+
+                        return
+                    }
+
+                    val retryAfter = getRetryAfter(response.headers())
+
+                    this@RetryScheduler.onFailure(host, retryAfter)
+
+                    val scheduled = schedule(host, attempt, policy, retryAfter) {
+
+                        enqueue(call.clone(), callback, policy, attempt + 1)
+                    }
+
+                    if (scheduled) {
+
+                        response.errorBody()?.close()
+
+                    } else {
+
+                        callback.onResponse(call, response)
+                    }
+                }
+
+                override fun onFailure(call: Call<T>, t: Throwable) {
+
+                    if (call.isCanceled || t !is IOException) {
+
+                        callback.onFailure(call, t)
+
+                        return
+                    }
+
+                    this@RetryScheduler.onFailure(host)
+
+                    val scheduled = schedule(host, attempt, policy) {
+
+                        enqueue(call.clone(), callback, policy, attempt + 1)
+                    }
+
+                    if (!scheduled) {
+
+                        callback.onFailure(call, t)
+                    }
+                }
+            }
+        )
+    }
+
+    fun isDozing(): Boolean {
+
+        try {
+
+            return isDeviceInDozeMode(BaseApplication.takeContext())
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+
+        return false
+    }
+
+    private fun schedule(delay: Long, task: Runnable): Boolean {
+
+        try {
+
+            executor.schedule(
+
+                Runnable {
+
+                    if (isDozing()) {
+
+                        defer(task)
+
+                    } else {
+
+                        run(task)
+                    }
+                },
+
+                delay,
+                TimeUnit.MILLISECONDS
+            )
+
+            return true
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+
+        return false
+    }
+
+    private fun run(task: Runnable) {
+
+        try {
+
+            task.run()
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+    }
+
+    private fun defer(task: Runnable) {
+
+        deferred.add(task)
+
+        if (DEBUG.get()) Console.log("$TAG Deferred while in Doze :: Count = ${deferred.size}")
+
+        if (dozeReceiverRegistered.compareAndSet(false, true)) {
+
+            try {
+
+                val filter = IntentFilter(PowerManager.ACTION_DEVICE_IDLE_MODE_CHANGED)
+
+                BaseApplication.takeContext().registerReceiver(dozeReceiver, filter)
+
+            } catch (e: Throwable) {
+
+                dozeReceiverRegistered.set(false)
+
+                recordException(e)
+            }
+        }
+
+        /*
+            The state may have changed before the receiver was registered.
+        */
+        if (!isDozing()) {
+
+            releaseDeferred()
+        }
+    }
+
+    private fun releaseDeferred() {
+
+        var task = deferred.poll()
+
+        while (task != null) {
+
+            val current: Runnable = task
+
+            schedule((Math.random() * DOZE_RELEASE_SPREAD).toLong(), current)
+
+            task = deferred.poll()
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.redelf.commons.net.routing
+
+import com.redelf.commons.net.endpoint.http.HttpEndpoint
+import okhttp3.HttpUrl
+import okhttp3.HttpUrl.Companion.toHttpUrlOrNull
+import okhttp3.Interceptor
+import okhttp3.Response
+import java.io.IOException
+import java.io.InterruptedIOException
+import java.net.ConnectException
+import java.net.NoRouteToHostException
+import java.net.UnknownHostException
+import javax.net.ssl.SSLHandshakeException
+
+/*
+    Sends each call to the best endpoint of the router by rewriting the scheme, host and
+    port of the request. The time to the response headers is recorded as the endpoint
+    latency. When the connection can not be established the call is sent to the next best
+    endpoint right away; other errors are failed over only for the idempotent methods.
+*/
+class EndpointRoutingInterceptor(
+
+    private val router: LatencyRouter<HttpEndpoint>,
+    private val maxFailovers: Int = 2
+
+) : Interceptor {
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+
+        val original = chain.request()
+        val tried = ArrayList<HttpEndpoint>()
+
+        var error: IOException? = null
+
+        while (tried.size <= maxFailovers) {
+
+            val endpoint = router.select(tried) ?: break
+            val url = rewrite(original.url, endpoint) ?: break
+
+            tried.add(endpoint)
+
+            val start = System.currentTimeMillis()
+
+            try {
+
+                val response = chain.proceed(original.newBuilder().url(url).build())
+
+                if (response.code >= 500) {
+
+                    router.onFailure(endpoint)
+
+                } else {
+
+                    router.onSuccess(endpoint, System.currentTimeMillis() - start)
+                }
+
+                return response
+
+            } catch (e: IOException) {
+
+                if (chain.call().isCanceled()) {
+
+                    throw e
+                }
+
+                router.onFailure(endpoint)
+
+                if (!isConnectFailure(e) && !isIdempotent(original.method)) {
+
+                    throw e
+                }
+
+                error = e
+            }
+        }
+
+        error?.let { throw it }
+
+        return chain.proceed(original)
+    }
+
+    private fun rewrite(url: HttpUrl, endpoint: HttpEndpoint): HttpUrl? {
+
+        val target = endpoint.getUri()?.toString()?.toHttpUrlOrNull() ?: return null
+
+        return url.newBuilder()
+            .scheme(target.scheme)
+            .host(target.host)
+            .port(target.port)
+            .build()
+    }
+
+    private fun isConnectFailure(e: IOException): Boolean {
+
+        return e is ConnectException || e is UnknownHostException ||
+                e is NoRouteToHostException || e is SSLHandshakeException ||
+                (e is InterruptedIOException && e.message == "connect timed out")
+    }
+
+    private fun isIdempotent(method: String) = method == "GET" || method == "HEAD"
+}
@@ -0,0 +1,180 @@
+package com.redelf.commons.net.routing
+
+import com.redelf.commons.logging.Console
+import com.redelf.commons.net.endpoint.http.HttpEndpoint
+import com.redelf.commons.net.proxy.http.HttpProxy
+import com.redelf.commons.net.remote.Remote
+import com.redelf.commons.obtain.ObtainParametrized
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+
+/*
+    Ranks remotes by the latency of the real requests sent through them.
+
+    Every completed request updates the exponentially weighted moving average (EWMA) of the
+    remote's latency. Failures add a penalty to the score and exclude the remote for a cool
+    down period which grows with the consecutive failures. The initial score is the probed
+    quality, so a freshly obtained list starts in the probed order.
+*/
+class LatencyRouter<R : Remote>(
+
+    candidates: Collection<R>,
+    private val keyObtainer: ObtainParametrized<String, R>,
+    private val alpha: Double = 0.3,
+    private val failurePenalty: Long = 5_000L,
+    private val cooldown: Long = 10_000L,
+    private val initialScore: Long = 1_000L
+
+) {
+
+    companion object {
+
+        val DEBUG = AtomicBoolean()
+
+        private const val TAG = "Latency router ::"
+        private const val MAX_COOLDOWN_FACTOR = 8
+
+        fun forProxies(proxies: Collection<HttpProxy>) = LatencyRouter(
+
+            proxies,
+
+            object : ObtainParametrized<String, HttpProxy> {
+
+                override fun obtain(param: HttpProxy) = getKey(param.address, param.port)
+            }
+        )
+
+        fun forEndpoints(endpoints: Collection<HttpEndpoint>) = LatencyRouter(
+
+            endpoints,
+
+            object : ObtainParametrized<String, HttpEndpoint> {
+
+                override fun obtain(param: HttpEndpoint): String {
+
+                    val uri = param.getUri()
+
+                    return getKey(uri?.host ?: param.address, uri?.port ?: -1)
+                }
+            }
+        )
+
+        fun getKey(host: String, port: Int) = "${host.lowercase()}:$port"
+    }
+
+    private val routes = ConcurrentHashMap<String, Route<R>>()
+
+    init {
+
+        candidates.forEach { add(it) }
+    }
+
+    fun add(remote: R) {
+
+        val quality = remote.getQuality()
+        val score = if (quality == Long.MAX_VALUE) initialScore else quality
+
+        routes.putIfAbsent(keyObtainer.obtain(remote), Route(remote, score.toDouble()))
+    }
+
+    fun remove(remote: R) {
+
+        routes.remove(keyObtainer.obtain(remote))
+    }
+
+    fun getKey(remote: R) = keyObtainer.obtain(remote)
+
+    /*
+        The best remote that is not cooling down and not excluded. When all of them are
+        cooling down, the one that becomes available first.
+    */
+    fun select(exclude: Collection<R> = emptyList()): R? {
+
+        val now = System.currentTimeMillis()
+        val available = routes.values.filterNot { exclude.contains(it.remote) }
+
+        return available
+            .filter { it.getExcludedUntil() <= now }
+            .minByOrNull { it.getScore() }?.remote
+
+            ?: available.minByOrNull { it.getExcludedUntil() }?.remote
+    }
+
+    /*
+        All remotes, the available ones by score first, the cooling down ones after them.
+    */
+    fun getRanked(): List<R> {
+
+        val now = System.currentTimeMillis()
+
+        /*
+            The scores change concurrently, sorting reads the values taken once per route so the
+            comparator stays consistent.
+        */
+        return routes.values
+            .map { Ranked(it.remote, it.getExcludedUntil() > now, it.getScore()) }
+            .sortedWith(compareBy<Ranked<R>> { it.coolingDown }.thenBy { it.score })
+            .map { it.remote }
+    }
+
+    fun getScore(key: String): Double? = routes[key]?.getScore()
+
+    fun onSuccess(key: String, latency: Long) {
+
+        routes[key]?.onSuccess(latency, alpha)
+    }
+
+    fun onFailure(key: String) {
+
+        routes[key]?.let {
+
+            it.onFailure(failurePenalty, cooldown, MAX_COOLDOWN_FACTOR)
+
+            if (DEBUG.get()) Console.log(
+
+                "$TAG Failure :: $key, Score = ${it.getScore()}, " +
+                        "Excluded for ${it.getExcludedUntil() - System.currentTimeMillis()} ms"
+            )
+        }
+    }
+
+    fun onSuccess(remote: R, latency: Long) = onSuccess(keyObtainer.obtain(remote), latency)
+
+    fun onFailure(remote: R) = onFailure(keyObtainer.obtain(remote))
+
+    private class Route<R>(val remote: R, private var score: Double) {
+
+        private var failures = 0
+        private var excludedUntil = 0L
+
+        @Synchronized
+        fun getScore() = score
+
+        @Synchronized
+        fun getExcludedUntil() = excludedUntil
+
+        @Synchronized
+        fun onSuccess(latency: Long, alpha: Double) {
+
+            score = alpha * latency + (1 - alpha) * score
+            failures = 0
+            excludedUntil = 0
+        }
+
+        @Synchronized
+        fun onFailure(penalty: Long, cooldown: Long, maxFactor: Int) {
+
+            failures++
+
+            score += penalty
+            excludedUntil = System.currentTimeMillis() + cooldown * minOf(failures, maxFactor)
+        }
+    }
+
+    private class Ranked<R>(
+
+        val remote: R,
+        val coolingDown: Boolean,
+        val score: Double
+    )
+}
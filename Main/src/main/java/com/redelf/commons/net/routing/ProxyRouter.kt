@@ -0,0 +1,86 @@
+package com.redelf.commons.net.routing
+
+import com.redelf.commons.net.proxy.http.HttpProxy
+import okhttp3.Interceptor
+import okhttp3.OkHttpClient
+import okhttp3.Response
+import java.io.IOException
+import java.net.InetSocketAddress
+import java.net.Proxy
+import java.net.ProxySelector
+import java.net.SocketAddress
+import java.net.URI
+
+/*
+    Proxy selector returning the proxies of the router best first. OkHttp tries the returned
+    proxies in order, so a proxy that can not be connected to is skipped within the same
+    call and reported to the router through connectFailed. The latency interceptor records
+    the time to the response headers for the proxy the connection went through.
+*/
+class ProxyRouter(
+
+    private val router: LatencyRouter<HttpProxy>,
+    private val fallbackToDirect: Boolean = false
+
+) : ProxySelector() {
+
+    private val latencyInterceptor = Interceptor { chain -> record(chain) }
+
+    /*
+        Routes the client built from the builder through this selector.
+    */
+    fun install(builder: OkHttpClient.Builder): OkHttpClient.Builder {
+
+        return builder
+            .proxySelector(this)
+            .addNetworkInterceptor(latencyInterceptor)
+    }
+
+    override fun select(uri: URI?): List<Proxy> {
+
+        val proxies = router.getRanked().map { it.get() }
+
+        if (fallbackToDirect || proxies.isEmpty()) {
+
+            return proxies + Proxy.NO_PROXY
+        }
+
+        return proxies
+    }
+
+    override fun connectFailed(uri: URI?, sa: SocketAddress?, ioe: IOException?) {
+
+        getKey(sa)?.let { router.onFailure(it) }
+    }
+
+    private fun record(chain: Interceptor.Chain): Response {
+
+        val key = getKey(chain.connection()?.route()?.proxy?.address())
+        val start = System.currentTimeMillis()
+
+        try {
+
+            val response = chain.proceed(chain.request())
+
+            key?.let { router.onSuccess(it, System.currentTimeMillis() - start) }
+
+            return response
+
+        } catch (e: IOException) {
+
+            if (!chain.call().isCanceled()) {
+
+                key?.let { router.onFailure(it) }
+            }
+
+            throw e
+        }
+    }
+
+    private fun getKey(address: SocketAddress?): String? {
+
+        val socketAddress = address as? InetSocketAddress ?: return null
+
+        return LatencyRouter.getKey(socketAddress.hostString, socketAddress.port)
+    }
+}
@@ -1005,59 +1005,7 @@ class DataDelegate private constructor(private val facade: Facade) :
                                                 )
                                             }
 
-                                            var rowClazz: Class<*>? = null
-
-                                            try {
-
-                                                val simpleClass = getSimple(rowType ?: "")
-
-                                                simpleClass?.let {
-
-                                                    rowClazz = it
-                                                }
-
-                                                if (simpleClass == null) {
-
-                                                    val rType = rowType?.forClassName()
-
-                                                    rowClazz = when (rType) {
-
-                                                        "string",
-                                                        "java.lang.String",
-                                                        "kotlin.String" -> String::class.java
-
-                                                        "int",
-                                                        "java.lang.Integer",
-                                                        "kotlin.Integer" -> Int::class.java
-
-                                                        "long",
-                                                        "java.lang.Long",
-                                                        "kotlin.Long" -> Long::class.java
-
-                                                        "float",
-                                                        "java.lang.Float",
-                                                        "kotlin.Float" -> Float::class.java
-
-                                                        "double",
-                                                        "java.lang.Double",
-                                                        "kotlin.Double" -> Double::class.java
-
-                                                        "bool",
-                                                        "boolean",
-                                                        "java.lang.Boolean",
-                                                        "kotlin.Boolean" -> Boolean::class.java
-
-
-                                                        else -> Class.forName(rType ?: "")
-                                                    }
-
-
-                                                }
-
-                                            } catch (e: ClassNotFoundException) {
-
-                                                Console.error(e)
-                                            }
+                                            val rowClazz = resolveRowClass(rowType)
 
                                             rowClazz?.let { clz ->
 
@@ -1274,6 +1222,81 @@ class DataDelegate private constructor(private val facade: Facade) :
         } ?: defaultValue
     }
 
+    fun getPartitionRowsCount(key: String?, partition: Int): Int {
+
+        if (key == null || isEmpty(key)) {
+
+            return 0
+        }
+
+        return getRowsCount(key, partition)
+    }
+
+    /*
+        Reads up to 'limit' rows of the collection partition starting from 'offset', without
+        materializing the rest of the partition. Map rows are not supported.
+    */
+    @Suppress("UNCHECKED_CAST")
+    fun <T> getRows(key: String?, partition: Int, offset: Int, limit: Int): List<T?> {
+
+        if (key == null || isEmpty(key) || offset < 0 || limit <= 0) {
+
+            return emptyList()
+        }
+
+        val tag = "Partitioning :: Get rows :: key = $key, Partition = $partition ::"
+        val rowsCount = getRowsCount(key, partition)
+        val end = minOf(rowsCount, offset + limit)
+
+        if (offset >= end) {
+
+            return emptyList()
+        }
+
+        val rows = ArrayList<T?>(end - offset)
+
+        for (j in offset..<end) {
+
+            try {
+
+                val rowType = sync("DataDelegate.getRows.$key.rowType", "DataDelegate") { callback ->
+
+                    facade.get(keyRowType(key, partition, j), "", callback)
+
+                }?.forClassName()
+
+                val rowClazz = resolveRowClass(rowType)
+
+                if (rowClazz == null) {
+
+                    Console.error("$tag FAILURE: Row class is null, Row = $j")
+
+                    rows.add(null)
+
+                    continue
+                }
+
+                val obtained = sync("DataDelegate.getRows.$key.getByClass", "DataDelegate") { callback ->
+
+                    facade.getByClass(keyRow(key, partition, j), rowClazz, callback)
+                }
+
+                rows.add(obtained?.let { instantiate(what = rowClazz, arg = it) as T })
+
+            } catch (e: Throwable) {
+
+                Console.error("$tag ERROR: ${e.message}, Row = $j")
+                recordException(e)
+
+                rows.add(null)
+            }
+        }
+
+        if (DEBUG.get()) Console.log("$tag Obtained = ${rows.size}, Offset = $offset")
+
+        return rows
+    }
+
     fun count(): Long = facade.count()
 
 
@@ -1554,6 +1577,58 @@ class DataDelegate private constructor(private val facade: Facade) :
     }
 
 
+    private fun resolveRowClass(rowType: String?): Class<*>? {
+
+        if (rowType == null || isEmpty(rowType)) {
+
+            return null
+        }
+
+        try {
+
+            getSimple(rowType)?.let {
+
+                return it
+            }
+
+            return when (rowType.forClassName()) {
+
+                "string",
+                "java.lang.String",
+                "kotlin.String" -> String::class.java
+
+                "int",
+                "java.lang.Integer",
+                "kotlin.Integer" -> Int::class.java
+
+                "long",
+                "java.lang.Long",
+                "kotlin.Long" -> Long::class.java
+
+                "float",
+                "java.lang.Float",
+                "kotlin.Float" -> Float::class.java
+
+                "double",
+                "java.lang.Double",
+                "kotlin.Double" -> Double::class.java
+
+                "bool",
+                "boolean",
+                "java.lang.Boolean",
+                "kotlin.Boolean" -> Boolean::class.java
+
+                else -> Class.forName(rowType.forClassName())
+            }
+
+        } catch (e: ClassNotFoundException) {
+
+            Console.error(e)
+        }
+
+        return null
+    }
+
     private fun getSimple(type: String): Class<*>? {
 
         return when (type.forClassName()) {
@@ -153,6 +153,55 @@ constructor(
         }
     }
 
+    fun getRowsCount(key: String, partition: Int): Int {
+
+        return dataDelegate?.getPartitionRowsCount(key, partition) ?: 0
+    }
+
+    fun <T> pullRows(
+
+        key: String,
+        partition: Int,
+        offset: Int,
+        limit: Int,
+        callback: OnObtain<List<T?>?>
+
+    ) {
+
+        exec(
+
+            onRejected = { e -> callback.onFailure(e) }
+
+        ) {
+
+            if (DEBUG.get()) {
+
+                Console.log(
+
+                    "$LOG_TAG :: Pull rows: key = '$key', " +
+                            "partition = $partition, offset = $offset, limit = $limit ::"
+                )
+            }
+
+            try {
+
+                val result = dataDelegate?.getRows<T>(key, partition, offset, limit)
+
+                callback.onCompleted(result)
+
+            } catch (e: Throwable) {
+
+                Console.error(
+
+                    "$LOG_TAG ERROR: Failed to pull rows for key " +
+                            "'$key', Error='${e.message}'"
+                )
+
+                callback.onFailure(e)
+            }
+        }
+    }
+
     override fun <T> push(key: String, what: T, check: Obtain<Boolean>): Boolean {
 
         if (dataDelegate == null) {
@@ -3,7 +3,9 @@ package com.redelf.commons.persistance
 import android.content.Context
 import com.google.gson.GsonBuilder
 import com.google.gson.TypeAdapter
+import com.google.gson.reflect.TypeToken
 import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
 import com.google.gson.stream.JsonWriter
 import com.redelf.commons.application.BaseApplication
 import com.redelf.commons.creation.instantiation.Instantiable
@@ -25,6 +27,7 @@ import com.redelf.commons.persistance.serialization.DefaultCustomSerializer
 import com.redelf.commons.persistance.serialization.SecureBinarySerializer
 import com.redelf.commons.persistance.serialization.Serializer
 import java.io.IOException
+import java.io.Reader
 import java.lang.reflect.Type
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.atomic.AtomicBoolean
@@ -325,6 +328,88 @@ class GsonParser private constructor(
         return null
     }
 
+    @Suppress("UNCHECKED_CAST")
+    @Throws(IOException::class)
+    override fun <T> fromJson(reader: Reader, type: Type?): T? {
+
+        if (type == null) {
+
+            return null
+        }
+
+        val clazz = try {
+
+            TypeToken.get(type).rawType
+
+        } catch (e: Throwable) {
+
+            throw IOException("Unknown type: ${type.typeName}", e)
+        }
+
+        /*
+            Custom serializations and the scalar values keep the content based path.
+        */
+        if (CustomSerializable::class.java.isAssignableFrom(clazz) || isScalar(clazz)) {
+
+            return fromJson(reader.readText(), type)
+        }
+
+        try {
+
+            return gson.fromJson<T>(JsonReader(reader), type)
+
+        } catch (e: Throwable) {
+
+            Console.error("$tag Deserialize :: Type = '${type.typeName}' :: ERROR: ${e.message}")
+
+            throw IOException("Failed to deserialize JSON, Type = '${type.typeName}'", e)
+        }
+    }
+
+    @Throws(IOException::class)
+    override fun <T> fromJsonArray(reader: Reader, elementType: Type): Iterator<T> {
+
+        val jsonReader = JsonReader(reader)
+
+        jsonReader.beginArray()
+
+        return object : Iterator<T> {
+
+            override fun hasNext(): Boolean {
+
+                if (jsonReader.hasNext()) {
+
+                    return true
+                }
+
+                if (jsonReader.peek() == JsonToken.END_ARRAY) {
+
+                    jsonReader.endArray()
+                }
+
+                return false
+            }
+
+            override fun next(): T {
+
+                if (!hasNext()) {
+
+                    throw NoSuchElementException()
+                }
+
+                return gson.fromJson(jsonReader, elementType)
+            }
+        }
+    }
+
+    private fun isScalar(clazz: Class<*>): Boolean {
+
+        return clazz.isPrimitive || clazz == String::class.java ||
+                clazz == Int::class.javaObjectType || clazz == Long::class.javaObjectType ||
+                clazz == Double::class.javaObjectType || clazz == Float::class.javaObjectType ||
+                clazz == Boolean::class.javaObjectType
+    }
+
     private fun createTypeAdapter(
 
         instance: Any?,
@@ -8,6 +8,7 @@ import com.redelf.commons.logging.Console
 import com.redelf.commons.obtain.Obtain
 import com.redelf.commons.persistance.base.Encryption
 import com.redelf.commons.persistance.base.Parser
+import java.io.Reader
 import java.lang.reflect.Type
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.atomic.AtomicBoolean
@@ -154,6 +155,14 @@ class GsonParserOptimized private constructor(
         }
     }
     
+    override fun <T> fromJson(reader: Reader, type: Type?): T? {
+        return streamingParser.fromJson(reader, type)
+    }
+
+    override fun <T> fromJsonArray(reader: Reader, elementType: Type): Iterator<T> {
+        return streamingParser.fromJsonArray(reader, elementType)
+    }
+    
     /**
      * Get performance metrics from the underlying StreamingJsonParser
      */
@@ -0,0 +1,28 @@
+package com.redelf.commons.persistance
+
+import com.redelf.commons.data.access.DataCursor
+import com.redelf.commons.extensions.sync
+
+/*
+    Reads the rows of a single collection partition directly from the storage,
+    one page at a time, without pulling the whole data object into memory.
+*/
+class PartitionRowsCursor<T>(
+
+    private val storage: EncryptedPersistence,
+    private val key: String,
+    private val partition: Int
+
+) : DataCursor<T> {
+
+    override fun getCount() = storage.getRowsCount(key, partition)
+
+    override fun read(offset: Int, limit: Int): List<T?> {
+
+        return sync("PartitionRowsCursor.read.$key.$partition", "offset=$offset") { callback ->
+
+            storage.pullRows(key, partition, offset, limit, callback)
+
+        } ?: emptyList()
+    }
+}
@@ -10,6 +10,7 @@ import com.fasterxml.jackson.core.StreamWriteConstraints
 import com.fasterxml.jackson.databind.DeserializationFeature
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.SerializationFeature
+import com.google.gson.reflect.TypeToken
 import com.redelf.commons.application.BaseApplication
 import com.redelf.commons.creation.instantiation.Instantiable
 import com.redelf.commons.extensions.assign
@@ -31,6 +32,7 @@ import com.redelf.commons.persistance.serialization.SecureBinarySerializer
 import com.redelf.commons.persistance.serialization.Serializer
 import java.io.ByteArrayOutputStream
 import java.io.IOException
+import java.io.Reader
 import java.io.StringReader
 import java.io.StringWriter
 import java.lang.ref.WeakReference
@@ -85,7 +87,11 @@ class StreamingJsonParser private constructor(
             createOptimizedObjectMapper()
         }
         
-        private fun createOptimizedObjectMapper(): ObjectMapper {
+        /**
+         * Creates a new mapper with the streaming constraints and the fast number handling.
+         * Callers should keep and share the instance, mappers are expensive to create.
+         */
+        fun createOptimizedObjectMapper(): ObjectMapper {
             val factory = JsonFactory().apply {
                 // Configure streaming constraints for safety
                 setStreamReadConstraints(StreamReadConstraints.builder()
@@ -443,6 +449,51 @@ class StreamingJsonParser private constructor(
         }
     }
     
+    @Suppress("UNCHECKED_CAST")
+    @Throws(IOException::class)
+    override fun <T> fromJson(reader: Reader, type: Type?): T? {
+        if (type == null) return null
+        
+        val clazz = try {
+            TypeToken.get(type).rawType
+        } catch (e: Throwable) {
+            throw IOException("Unknown type: ${type.typeName}", e)
+        }
+        
+        // Custom serialization and primitives keep the content based path
+        if (CustomSerializable::class.java.isAssignableFrom(clazz) || isScalar(clazz)) {
+            return fromJson(reader.readText(), type)
+        }
+        
+        val startTime = System.currentTimeMillis()
+        
+        return try {
+            val result = objectMapper.readValue<T>(reader, objectMapper.typeFactory.constructType(type))
+            
+            totalOperations.incrementAndGet()
+            totalProcessingTime.addAndGet(System.currentTimeMillis() - startTime)
+            
+            result
+        } catch (e: IOException) {
+            Console.error("$tag Reader deserialization failed :: Type='${type.typeName}': ${e.message}")
+            throw e
+        }
+    }
+    
+    @Throws(IOException::class)
+    override fun <T> fromJsonArray(reader: Reader, elementType: Type): Iterator<T> {
+        val javaType = objectMapper.typeFactory.constructType(elementType)
+        
+        // A root level array is unwrapped, elements are bound one at a time
+        return objectMapper.readerFor(javaType).readValues<T>(reader)
+    }
+    
+    private fun isScalar(clazz: Class<*>): Boolean {
+        return clazz.isPrimitive || clazz == String::class.java || clazz == Int::class.javaObjectType ||
+                clazz == Long::class.javaObjectType || clazz == Double::class.javaObjectType ||
+                clazz == Float::class.javaObjectType || clazz == Boolean::class.javaObjectType
+    }
+    
     @Suppress("UNCHECKED_CAST")
     private fun <T> performStreamingDeserialization(content: String, clazz: Class<*>, tag: String): T? {
         return try {
@@ -1,5 +1,8 @@
 package com.redelf.commons.persistance.base
 
+import com.google.gson.reflect.TypeToken
+import java.io.IOException
+import java.io.Reader
 import java.lang.reflect.Type
 
 interface Parser {
@@ -9,4 +12,28 @@ interface Parser {
     fun <T> fromJson(content: String?, clazz: Class<*>?): T?
 
     fun toJson(body: Any?): String?
+
+    /*
+        Reads the value from the reader. Parsers able to consume the stream directly override
+        this, the default implementation reads the whole content first. Since the content
+        can not be read again, failures are thrown instead of being reported with null.
+    */
+    @Throws(IOException::class)
+    fun <T> fromJson(reader: Reader, type: Type?): T? = fromJson(reader.readText(), type)
+
+    /*
+        Reads the JSON array from the reader one element at a time. Parsers able to decode the
+        elements incrementally override this, the default implementation parses the whole array.
+    */
+    @Throws(IOException::class)
+    fun <T> fromJsonArray(reader: Reader, elementType: Type): Iterator<T> {
+
+        val type = TypeToken.getParameterized(List::class.java, elementType).type
+        val values: List<T> = fromJson(reader.readText(), type) ?: throw IOException(
+
+            "Failed to deserialize JSON array, Type = '${elementType.typeName}'"
+        )
+
+        return values.iterator()
+    }
 }
@@ -935,10 +935,12 @@ class DBStorage private constructor(context: Context) : Storage<String> {
             return false
         }
 
-        val tag =
+        val tag by lazy {
+
             "$TAG Put :: DO :: $key :: column_key = $columnValue :: column_value = $columnValue ::"
+        }
 
-        if (DEBUG.get()) Console.log("$tag START")
+        if (DEBUG.get()) Console.log { "$tag START" }
 
         val result = AtomicBoolean()
         val cDown = CountDownLatch(1, "DBStorage.doPut(key='$key')")
@@ -170,7 +170,7 @@ class SecureCompressedEncryption : Encryption<String> {
                 System.arraycopy(encryptedData, 0, combined, iv.size, encryptedData.size)
 
                 val result = Base64.getEncoder().encodeToString(combined)
-                Console.log("$tag Successfully encrypted and compressed ${valueBytes.size} bytes -> ${compressedData.size} bytes -> ${encryptedData.size} bytes")
+                Console.log { "$tag Successfully encrypted and compressed ${valueBytes.size} bytes -> ${compressedData.size} bytes -> ${encryptedData.size} bytes" }
                 result
             } catch (e: Throwable) {
                 Console.error("$tag Safe encryption error: ${e.message}")
@@ -240,7 +240,7 @@ class SecureCompressedEncryption : Encryption<String> {
                 val decompressedData = decompressData(compressedData)
                 val result = String(decompressedData, StandardCharsets.UTF_8)
                 
-                Console.log("$tag Successfully decrypted and decompressed ${encryptedData.size} bytes -> ${compressedData.size} bytes -> ${decompressedData.size} bytes")
+                Console.log { "$tag Successfully decrypted and decompressed ${encryptedData.size} bytes -> ${compressedData.size} bytes -> ${decompressedData.size} bytes" }
                 result
             } catch (e: Throwable) {
                 Console.error("$tag Safe decryption error: ${e.message}")
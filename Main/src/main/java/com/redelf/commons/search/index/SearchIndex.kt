@@ -0,0 +1,715 @@
+package com.redelf.commons.search.index
+
+import com.google.gson.Gson
+import com.google.gson.annotations.SerializedName
+import com.redelf.commons.data.wrapper.list.ListWrapper
+import com.redelf.commons.data.wrapper.list.OnItemsChanged
+import com.redelf.commons.extensions.exec
+import com.redelf.commons.extensions.recordException
+import com.redelf.commons.lifecycle.termination.TerminationSynchronized
+import com.redelf.commons.logging.Console
+import com.redelf.commons.obtain.ObtainParametrized
+import com.redelf.commons.obtain.OnObtain
+import com.redelf.commons.persistance.base.Storage
+import com.redelf.commons.search.SearchRequest
+import com.redelf.commons.search.SearchResult
+import com.redelf.commons.search.Searchable
+import java.text.Normalizer
+import java.util.Locale
+import java.util.TreeMap
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+
+/*
+    In-memory inverted index over the text fields of the items.
+
+    Every query term matches indexed tokens by:
+     - exact token (best score),
+     - token prefix, using the sorted token dictionary,
+     - infix, using the n-gram to token map (only for terms at least ngramSize long).
+
+    Multiple query terms are combined with AND. Results are ordered by score and then by
+    the position of the item in the source collection.
+
+    Bind the index to a ListWrapper to keep it in sync: the index gets only the items affected
+    by each change and re-tokenizes those whose text changed. Changes without the affected
+    items (replace, filtering, batches) synchronize the whole list. When storage is provided
+    the tokens can be persisted and restored so the first sync after a cold start skips
+    tokenization of unchanged items.
+*/
+class SearchIndex<T, I>(
+
+    val identifier: String,
+
+    private val identifierObtainer: ObtainParametrized<I, T>,
+    private val textObtainer: ObtainParametrized<List<String?>, T>,
+    private val ngramSize: Int = 3,
+    private val storage: Storage<String>? = null
+
+) : Searchable<Any?, List<T>, Any?>, TerminationSynchronized {
+
+    companion object {
+
+        val DEBUG = AtomicBoolean()
+
+        private const val SCORE_EXACT = 3
+        private const val SCORE_PREFIX = 2
+        private const val SCORE_INFIX = 1
+
+        private val SPLIT = Regex("[^\\p{L}\\p{N}]+")
+        private val DIACRITICS = Regex("\\p{Mn}+")
+    }
+
+    private val tag = "Search index :: $identifier ::"
+    private val lock = ReentrantReadWriteLock()
+    private val documents = HashMap<I, Document<T>>()
+    private val postings = TreeMap<String, HashSet<I>>()
+    private val grams = HashMap<String, HashSet<String>>()
+    private val restored = HashMap<String, PersistedDocument>()
+    private val aborted = ConcurrentHashMap.newKeySet<SearchRequest<*, *>>()
+    private val executor: ExecutorService = Executors.newFixedThreadPool(1)
+    private val syncPending = AtomicBoolean()
+    private val gson = Gson()
+
+    @Volatile
+    private var source: ListWrapper<T, I, *>? = null
+
+    private val sourceListener = object : OnItemsChanged<T> {
+
+        override fun onItemsChanged(added: Collection<T>?, removed: Collection<T>?) {
+
+            if (added == null && removed == null) {
+
+                scheduleSync()
+
+            } else {
+
+                scheduleUpdate(added.orEmpty() + removed.orEmpty())
+            }
+        }
+    }
+
+    init {
+
+        if (ngramSize < 2) {
+
+            throw IllegalArgumentException("N-gram size must be at least 2")
+        }
+    }
+
+    fun getSize() = lock.read { documents.size }
+
+    fun getTokensCount() = lock.read { postings.size }
+
+    /*
+        Follows the wrapper: the index is synchronized right away and after every change.
+        Change bursts are coalesced into a single synchronization.
+    */
+    fun bind(wrapper: ListWrapper<T, I, *>) {
+
+        unbind()
+
+        source = wrapper
+
+        wrapper.registerItemsListener(sourceListener)
+
+        scheduleSync()
+    }
+
+    fun unbind() {
+
+        source?.unregisterItemsListener(sourceListener)
+        source = null
+    }
+
+    fun index(item: T) {
+
+        val id = identifierObtainer.obtain(item)
+        val texts = textObtainer.obtain(item).toList()
+        val fingerprint = texts.hashCode()
+
+        lock.write {
+
+            val existing = documents[id]
+
+            if (existing != null && existing.matches(texts, fingerprint)) {
+
+                existing.item = item
+                return
+            }
+
+            existing?.let { unlink(id, it.tokens) }
+
+            val tokens = tokenize(id, texts, fingerprint)
+            val position = existing?.position ?: documents.size
+
+            documents[id] = Document(item, texts, fingerprint, tokens, position)
+
+            link(id, tokens)
+        }
+    }
+
+    fun remove(item: T): Boolean {
+
+        val id = identifierObtainer.obtain(item)
+
+        lock.write {
+
+            val removed = documents.remove(id) ?: return false
+
+            unlink(id, removed.tokens)
+
+            return true
+        }
+    }
+
+    fun clear() {
+
+        lock.write {
+
+            documents.clear()
+            postings.clear()
+            grams.clear()
+        }
+    }
+
+    /*
+        Makes the index reflect the given items. Unchanged items keep their tokens.
+    */
+    fun sync(items: Collection<T>) {
+
+        val start = System.currentTimeMillis()
+        var reindexed = 0
+
+        lock.write {
+
+            val present = HashSet<I>(items.size * 2)
+
+            items.forEachIndexed { position, item ->
+
+                val id = identifierObtainer.obtain(item)
+                val texts = textObtainer.obtain(item).toList()
+                val fingerprint = texts.hashCode()
+                val existing = documents[id]
+
+                present.add(id)
+
+                if (existing != null && existing.matches(texts, fingerprint)) {
+
+                    existing.item = item
+                    existing.position = position
+
+                } else {
+
+                    existing?.let { unlink(id, it.tokens) }
+
+                    val tokens = tokenize(id, texts, fingerprint)
+
+                    documents[id] = Document(item, texts, fingerprint, tokens, position)
+
+                    link(id, tokens)
+
+                    reindexed++
+                }
+            }
+
+            if (present.size != documents.size) {
+
+                val iterator = documents.entries.iterator()
+
+                while (iterator.hasNext()) {
+
+                    val entry = iterator.next()
+
+                    if (!present.contains(entry.key)) {
+
+                        unlink(entry.key, entry.value.tokens)
+                        iterator.remove()
+                    }
+                }
+            }
+
+            restored.clear()
+        }
+
+        if (DEBUG.get()) Console.log(
+
+            "$tag Synced :: Items = ${items.size}, Re-indexed = $reindexed, " +
+                    "Time = ${System.currentTimeMillis() - start} ms"
+        )
+    }
+
+    fun query(text: String?, limit: Int = Int.MAX_VALUE): List<T> {
+
+        val terms = normalize(text ?: "")
+
+        if (terms.isEmpty() || limit <= 0) {
+
+            return emptyList()
+        }
+
+        lock.read {
+
+            var scores: HashMap<I, Int>? = null
+
+            for (term in terms) {
+
+                val matches = match(term)
+                val current = scores
+
+                scores = if (current == null) {
+
+                    matches
+
+                } else {
+
+                    val intersection = HashMap<I, Int>()
+
+                    current.forEach { (id, score) ->
+
+                        matches[id]?.let { intersection[id] = score + it }
+                    }
+
+                    intersection
+                }
+
+                if (scores.isEmpty()) {
+
+                    return emptyList()
+                }
+            }
+
+            val wrapper = source
+
+            val ranked = scores?.mapNotNull { (id, score) ->
+
+                documents[id]?.let { document ->
+
+                    /*
+                        Incremental updates do not move the other documents, the bound list
+                        knows the current position.
+                    */
+                    val position = wrapper?.indexOf(document.item)?.takeIf { it >= 0 }
+
+                    Ranked(document, score, position ?: document.position)
+                }
+
+            } ?: return emptyList()
+
+            return ranked
+                .sortedWith(compareByDescending<Ranked<T>> { it.score }.thenBy { it.position })
+                .take(limit)
+                .map { it.document.item }
+        }
+    }
+
+    override fun search(request: SearchRequest<Any?, Any?>, callback: OnObtain<SearchResult<List<T>>>) {
+
+        aborted.remove(request)
+
+        exec(
+
+            onRejected = { e -> callback.onFailure(e) }
+
+        ) {
+
+            try {
+
+                val limit = (request.params as? Params)?.limit ?: Int.MAX_VALUE
+                val result = query(request.what, limit)
+
+                if (aborted.remove(request)) {
+
+                    if (DEBUG.get()) Console.log("$tag Search aborted :: ${request.what}")
+
+                    return@exec
+                }
+
+                callback.onCompleted(SearchResult(result))
+
+            } catch (e: Throwable) {
+
+                callback.onFailure(e)
+            }
+        }
+    }
+
+    override fun abortSearch(request: SearchRequest<Any?, Any?>) {
+
+        aborted.add(request)
+    }
+
+    /*
+        Stores the tokens of the indexed items, keyed by the item identifier.
+    */
+    fun persist(): Boolean {
+
+        val store = storage ?: return false
+
+        try {
+
+            val snapshot = lock.read {
+
+                val persisted = HashMap<String, PersistedDocument>(documents.size * 2)
+
+                documents.forEach { (id, document) ->
+
+                    persisted[id.toString()] = PersistedDocument(
+
+                        document.fingerprint, document.texts, document.tokens.toList()
+                    )
+                }
+
+                persisted
+            }
+
+            return store.put(storageKey(), gson.toJson(PersistedIndex(snapshot)))
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+
+        return false
+    }
+
+    /*
+        Loads persisted tokens. They are used by the next synchronization for the items
+        whose text did not change and dropped after it.
+    */
+    fun restore(callback: OnObtain<Boolean?>) {
+
+        val store = storage
+
+        if (store == null) {
+
+            callback.onCompleted(false)
+            return
+        }
+
+        store.get(
+
+            storageKey(),
+
+            object : OnObtain<String?> {
+
+                override fun onCompleted(data: String?) {
+
+                    try {
+
+                        val persisted = data?.let {
+
+                            gson.fromJson(it, PersistedIndex::class.java)
+                        }
+
+                        val restoredDocuments = persisted?.documents ?: emptyMap()
+
+                        lock.write {
+
+                            restored.clear()
+                            restored.putAll(restoredDocuments)
+                        }
+
+                        if (DEBUG.get()) Console.log(
+
+                            "$tag Restored :: Documents = ${restoredDocuments.size}"
+                        )
+
+                        callback.onCompleted(restoredDocuments.isNotEmpty())
+
+                    } catch (e: Throwable) {
+
+                        callback.onFailure(e)
+                    }
+                }
+
+                override fun onFailure(error: Throwable) {
+
+                    callback.onFailure(error)
+                }
+            }
+        )
+    }
+
+    override fun terminate(): Boolean {
+
+        unbind()
+
+        clear()
+
+        executor.shutdownNow()
+
+        return true
+    }
+
+    private fun scheduleSync() {
+
+        if (!syncPending.compareAndSet(false, true)) {
+
+            return
+        }
+
+        try {
+
+            executor.execute {
+
+                syncPending.set(false)
+
+                try {
+
+                    source?.let { sync(it.getList()) }
+
+                } catch (e: Throwable) {
+
+                    recordException(e)
+                }
+            }
+
+        } catch (e: Throwable) {
+
+            syncPending.set(false)
+
+            recordException(e)
+        }
+    }
+
+    private fun scheduleUpdate(items: Collection<T>) {
+
+        if (items.isEmpty()) {
+
+            return
+        }
+
+        try {
+
+            executor.execute {
+
+                try {
+
+                    update(items)
+
+                } catch (e: Throwable) {
+
+                    recordException(e)
+                }
+            }
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+    }
+
+    /*
+        The affected items are checked against the bound list, so an update running after a
+        later change (or a full synchronization) can not bring back a removed item. Removed
+        items drop their document only if it still belongs to them, not to the item that
+        replaced them under the same identifier.
+    */
+    private fun update(items: Collection<T>) {
+
+        val wrapper = source
+        val (present, absent) = items.partition { wrapper == null || wrapper.contains(it) }
+
+        absent.forEach { item ->
+
+            val id = identifierObtainer.obtain(item)
+
+            lock.write {
+
+                documents[id]?.let { existing ->
+
+                    if (existing.item == item) {
+
+                        documents.remove(id)
+
+                        unlink(id, existing.tokens)
+                    }
+                }
+            }
+        }
+
+        present.forEach { index(it) }
+
+        if (DEBUG.get()) Console.log(
+
+            "$tag Updated :: Present = ${present.size}, Absent = ${absent.size}"
+        )
+    }
+
+    private fun storageKey() = "search_index.$identifier"
+
+    private fun match(term: String): HashMap<I, Int> {
+
+        val matches = HashMap<I, Int>()
+
+        postings.subMap(term, true, "$term\uFFFF", false).forEach { (token, ids) ->
+
+            val score = if (token == term) SCORE_EXACT else SCORE_PREFIX
+
+            ids.forEach { id ->
+
+                if ((matches[id] ?: 0) < score) {
+
+                    matches[id] = score
+                }
+            }
+        }
+
+        if (term.length < ngramSize) {
+
+            return matches
+        }
+
+        val candidates = gramsOf(term).map { grams[it] ?: return matches }.sortedBy { it.size }
+
+        candidates.firstOrNull()?.forEach { token ->
+
+            if (
+
+                !token.startsWith(term) &&
+                token.contains(term) &&
+                candidates.all { it.contains(token) }
+
+            ) {
+
+                postings[token]?.forEach { id ->
+
+                    if (!matches.containsKey(id)) {
+
+                        matches[id] = SCORE_INFIX
+                    }
+                }
+            }
+        }
+
+        return matches
+    }
+
+    private fun link(id: I, tokens: Array<String>) {
+
+        tokens.forEach { token ->
+
+            postings.getOrPut(token) {
+
+                gramsOf(token).forEach { gram ->
+
+                    grams.getOrPut(gram) { HashSet() }.add(token)
+                }
+
+                HashSet()
+
+            }.add(id)
+        }
+    }
+
+    private fun unlink(id: I, tokens: Array<String>) {
+
+        tokens.forEach { token ->
+
+            val ids = postings[token] ?: return@forEach
+
+            ids.remove(id)
+
+            if (ids.isEmpty()) {
+
+                postings.remove(token)
+
+                gramsOf(token).forEach { gram ->
+
+                    grams[gram]?.let {
+
+                        it.remove(token)
+
+                        if (it.isEmpty()) {
+
+                            grams.remove(gram)
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private fun tokenize(id: I, texts: List<String?>, fingerprint: Int): Array<String> {
+
+        restored[id.toString()]?.let {
+
+            if (it.fingerprint == fingerprint && it.texts == texts) {
+
+                return it.tokens.toTypedArray()
+            }
+        }
+
+        val tokens = LinkedHashSet<String>()
+
+        texts.forEach { text ->
+
+            text?.let { tokens.addAll(normalize(it)) }
+        }
+
+        return tokens.toTypedArray()
+    }
+
+    private fun normalize(text: String): List<String> {
+
+        if (text.isBlank()) {
+
+            return emptyList()
+        }
+
+        val plain = Normalizer.normalize(text, Normalizer.Form.NFD).replace(DIACRITICS, "")
+
+        return plain.lowercase(Locale.ROOT).split(SPLIT).filter { it.isNotEmpty() }.distinct()
+    }
+
+    private fun gramsOf(token: String): List<String> {
+
+        if (token.length < ngramSize) {
+
+            return emptyList()
+        }
+
+        return (0..token.length - ngramSize).map { token.substring(it, it + ngramSize) }
+    }
+
+    /*
+        Optional search request parameters.
+    */
+    data class Params(val limit: Int = Int.MAX_VALUE)
+
+    private class Document<T>(
+
+        var item: T,
+        val texts: List<String?>,
+        val fingerprint: Int,
+        val tokens: Array<String>,
+        var position: Int
+
+    ) {
+
+        fun matches(texts: List<String?>, fingerprint: Int): Boolean {
+
+            return this.fingerprint == fingerprint && this.texts == texts
+        }
+    }
+
+    private class Ranked<T>(val document: Document<T>, val score: Int, val position: Int)
+
+    private data class PersistedIndex(
+
+        @SerializedName("documents") val documents: Map<String, PersistedDocument>? = null
+    )
+
+    private data class PersistedDocument(
+
+        @SerializedName("fingerprint") val fingerprint: Int = 0,
+        @SerializedName("texts") val texts: List<String?>? = null,
+        @SerializedName("tokens") val tokens: List<String> = emptyList()
+    )
+}
@@ -0,0 +1,336 @@
+package com.redelf.commons.sorting
+
+import com.redelf.commons.data.wrapper.list.ListWrapper
+import com.redelf.commons.extensions.exec
+import com.redelf.commons.logging.Console
+import com.redelf.commons.management.DataManagement
+import com.redelf.commons.obtain.ObtainParametrized
+import com.redelf.commons.obtain.OnObtain
+import java.util.Arrays
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.RecursiveAction
+import java.util.concurrent.atomic.AtomicBoolean
+
+/*
+    Stable sorting by a key obtained from each item.
+
+    Keys are obtained once per item and sorted together with the items (decorate, sort,
+    undecorate), so expensive key extraction is never repeated by the comparator. Collections
+    above the parallel threshold are merge sorted on the fork-join pool.
+
+    When only a few items changed use insert / resort: they place the changed items with a
+    binary search into the already sorted data instead of sorting everything again.
+*/
+class ParallelSorting<T, K>(
+
+    private val keyObtainer: ObtainParametrized<K, T>,
+    private val keyComparator: Comparator<in K>,
+    private val parallelThreshold: Int = 8192,
+    private val pool: ForkJoinPool = ForkJoinPool.commonPool()
+
+) : SortingExternal<T> {
+
+    companion object {
+
+        val DEBUG = AtomicBoolean()
+
+        private const val MIN_GRANULARITY = 2048
+
+        /*
+            Changes above this share of the collection are handled with a full sort.
+        */
+        private const val INCREMENTAL_RATIO = 8
+
+        fun <T, K : Comparable<K>> byKey(keyObtainer: ObtainParametrized<K, T>) =
+
+            ParallelSorting(keyObtainer, naturalOrder<K>())
+    }
+
+    private val tag = "Parallel sorting ::"
+
+    override fun sort(
+
+        what: Collection<T>,
+        parameters: SortingParameters,
+        callback: OnObtain<Collection<T>>
+    ) {
+
+        exec(
+
+            onRejected = { e -> callback.onFailure(e) }
+
+        ) {
+
+            try {
+
+                callback.onCompleted(sorted(what, parameters))
+
+            } catch (e: Throwable) {
+
+                callback.onFailure(e)
+            }
+        }
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    fun sorted(what: Collection<T>, parameters: SortingParameters): List<T> {
+
+        val size = what.size
+
+        if (size < 2) {
+
+            return what.toList()
+        }
+
+        val start = System.currentTimeMillis()
+        val keyed = arrayOfNulls<Any?>(size)
+
+        what.forEachIndexed { index, item ->
+
+            keyed[index] = Keyed(keyObtainer.obtain(item), item)
+        }
+
+        val comparator = keyedComparator(parameters) as Comparator<Any?>
+        val parallel = size >= parallelThreshold && pool.parallelism > 1
+
+        if (parallel) {
+
+            val granularity = maxOf(MIN_GRANULARITY, size / (pool.parallelism * 4))
+
+            pool.invoke(MergeSortTask(keyed, arrayOfNulls(size), 0, size, comparator, granularity))
+
+        } else {
+
+            Arrays.sort(keyed, comparator)
+        }
+
+        if (DEBUG.get()) Console.log(
+
+            "$tag Sorted :: Size = $size, Parallel = $parallel, " +
+                    "Time = ${System.currentTimeMillis() - start} ms"
+        )
+
+        return keyed.map { (it as Keyed<K, T>).item }
+    }
+
+    /*
+        Inserts the items into the sorted list keeping it sorted. The keys of the list are
+        obtained once and kept next to it, the binary search only compares them.
+    */
+    fun insert(sorted: MutableList<T>, items: Collection<T>, parameters: SortingParameters) {
+
+        val comparator = comparator(parameters)
+        val keys = ArrayList<K>(sorted.size + items.size)
+
+        sorted.forEach { keys.add(keyObtainer.obtain(it)) }
+
+        items.forEach { item ->
+
+            val key = keyObtainer.obtain(item)
+            val index = upperBound(keys, key, comparator)
+
+            keys.add(index, key)
+            sorted.add(index, item)
+        }
+    }
+
+    /*
+        Returns the sorted list with the changed items moved to their new positions.
+        Items from changed that are not in the list are inserted.
+    */
+    fun resort(
+
+        sorted: List<T>,
+        changed: Collection<T>,
+        parameters: SortingParameters
+
+    ): List<T> {
+
+        if (changed.isEmpty()) {
+
+            return sorted
+        }
+
+        if (!isIncremental(sorted.size, changed.size)) {
+
+            return sorted(LinkedHashSet(sorted).apply { addAll(changed) }, parameters)
+        }
+
+        val toMove = changed.toHashSet()
+        val result = ArrayList<T>(sorted.size + changed.size)
+
+        sorted.forEach {
+
+            if (!toMove.contains(it)) {
+
+                result.add(it)
+            }
+        }
+
+        insert(result, toMove, parameters)
+
+        return result
+    }
+
+    /*
+        Same as resort but applied to the ListWrapper batch, so the wrapper publishes
+        the new order with a single change notification.
+    */
+    @Suppress("UNCHECKED_CAST")
+    fun <I, M : DataManagement<*>> resort(
+
+        batch: ListWrapper<T, I, M>.Batch,
+        changed: Collection<T>,
+        parameters: SortingParameters
+    ) {
+
+        if (changed.isEmpty()) {
+
+            return
+        }
+
+        if (!isIncremental(batch.getSize(), changed.size)) {
+
+            val all = LinkedHashSet<T>(batch.getSize() + changed.size)
+
+            (0 until batch.getSize()).forEach { index -> batch.get(index)?.let { all.add(it) } }
+
+            all.addAll(changed)
+
+            batch.clear()
+            batch.addAll(sorted(all, parameters))
+
+            return
+        }
+
+        val comparator = comparator(parameters)
+
+        batch.removeAll(changed)
+
+        val keys = ArrayList<K>(batch.getSize() + changed.size)
+
+        (0 until batch.getSize()).forEach { index ->
+
+            keys.add(keyObtainer.obtain(batch.get(index) as T))
+        }
+
+        changed.forEach { item ->
+
+            val key = keyObtainer.obtain(item)
+            val index = upperBound(keys, key, comparator)
+
+            keys.add(index, key)
+            batch.addAll(index, listOf(item))
+        }
+    }
+
+    private fun isIncremental(size: Int, changed: Int) = changed * INCREMENTAL_RATIO <= size
+
+    private fun comparator(parameters: SortingParameters): Comparator<in K> {
+
+        return if (parameters.direction == SortingDirection.DESCENDING) {
+
+            Comparator { a, b -> keyComparator.compare(b, a) }
+
+        } else {
+
+            keyComparator
+        }
+    }
+
+    private fun keyedComparator(parameters: SortingParameters): Comparator<Keyed<K, T>> {
+
+        val comparator = comparator(parameters)
+
+        return Comparator { a, b -> comparator.compare(a.key, b.key) }
+    }
+
+    /*
+        First position whose key is greater than the given one, equal keys keep the
+        insertion order.
+    */
+    private fun upperBound(keys: List<K>, key: K, comparator: Comparator<in K>): Int {
+
+        var low = 0
+        var high = keys.size
+
+        while (low < high) {
+
+            val middle = (low + high) ushr 1
+
+            if (comparator.compare(keys[middle], key) <= 0) {
+
+                low = middle + 1
+
+            } else {
+
+                high = middle
+            }
+        }
+
+        return low
+    }
+
+    private class Keyed<K, T>(val key: K, val item: T)
+
+    private class MergeSortTask(
+
+        private val items: Array<Any?>,
+        private val buffer: Array<Any?>,
+        private val from: Int,
+        private val to: Int,
+        private val comparator: Comparator<Any?>,
+        private val granularity: Int
+
+    ) : RecursiveAction() {
+
+        override fun compute() {
+
+            if (to - from <= granularity) {
+
+                Arrays.sort(items, from, to, comparator)
+
+                return
+            }
+
+            val middle = (from + to) ushr 1
+
+            invokeAll(
+
+                MergeSortTask(items, buffer, from, middle, comparator, granularity),
+                MergeSortTask(items, buffer, middle, to, comparator, granularity)
+            )
+
+            merge(middle)
+        }
+
+        private fun merge(middle: Int) {
+
+            if (comparator.compare(items[middle - 1], items[middle]) <= 0) {
+
+                return
+            }
+
+            var left = from
+            var right = middle
+            var position = from
+
+            while (left < middle && right < to) {
+
+                buffer[position++] = if (comparator.compare(items[right], items[left]) < 0) {
+
+                    items[right++]
+
+                } else {
+
+                    items[left++]
+                }
+            }
+
+            while (left < middle) buffer[position++] = items[left++]
+            while (right < to) buffer[position++] = items[right++]
+
+            System.arraycopy(buffer, from, items, from, to - from)
+        }
+    }
+}
@@ -26,14 +26,20 @@ import com.redelf.commons.modification.Add
 import com.redelf.commons.net.connectivity.ConnectionState
 import com.redelf.commons.net.connectivity.ConnectivityStateChanges
 import com.redelf.commons.net.connectivity.DefaultConnectivityHandler
+import com.redelf.commons.net.retry.RetryPolicy
+import com.redelf.commons.net.retry.RetryScheduler
 import com.redelf.commons.obtain.Obtain
 import com.redelf.commons.obtain.OnObtain
 import com.redelf.commons.stateful.State
+import com.redelf.commons.transmission.outbox.OutboxJournal
 import com.redelf.commons.versioning.Versionable
 import java.security.GeneralSecurityException
 import java.util.LinkedList
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
 import java.util.concurrent.RejectedExecutionException
 import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 
 abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataManagement<T>>) :
 
@@ -67,6 +73,38 @@ abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataM
 
     protected open val minSendIntervalInSeconds = 0
 
+    /*
+        Number of lanes sent at the same time and the maximal number of items
+        passed to the sending strategy at once.
+    */
+    protected open val sendingConcurrency = 1
+    protected open val sendingBatchSize = 50
+
+    private val sendingExecutorDelegate = lazy { TaskExecutor.instantiate(sendingConcurrency) }
+    private val sendingExecutor by sendingExecutorDelegate
+
+    /*
+        Lanes are sent concurrently, the sending callbacks are invoked one at a time.
+    */
+    private val sendingCallbacksLock = Any()
+
+    private val outbox by lazy { createOutbox() }
+
+    /*
+        Failed sending runs are retried with backoff instead of right away.
+    */
+    protected open val retryPolicy = RetryPolicy(
+
+        maxAttempts = Int.MAX_VALUE,
+        baseDelay = 5_000L,
+        maxDelay = 15 * 60_000L
+    )
+
+    protected open val retryScheduler: RetryScheduler = RetryScheduler.DEFAULT
+
+    private val failedRuns = AtomicInteger()
+    private val retryScheduled = AtomicBoolean()
+
     protected abstract val sendingDefaultStrategy: TransmissionManagerSendingStrategy<D>
     protected abstract var currentSendingStrategy: TransmissionManagerSendingStrategy<D>
 
@@ -105,6 +143,8 @@ abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataM
 
             if (connectionHandler.isNetworkAvailable(takeContext())) {
 
+                failedRuns.set(0)
+
                 send(executedFrom = "onConnectivityStateChanged")
             }
         }
@@ -163,7 +203,14 @@ abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataM
 
                             managedData = data
 
+                            val replayed = restoreOutbox()
+
                             onInit(true)
+
+                            if (replayed) {
+
+                                send(executedFrom = "restoreOutbox")
+                            }
                         }
 
                         override fun onFailure(error: Throwable) {
@@ -369,6 +416,18 @@ abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataM
 
     protected open fun dataEmpty(): Boolean = managedData?.isEmpty() == true
 
+    /*
+        Items with the same ordering key are sent one after another in the scheduling order.
+        Items without the key (null) can be sent in any order.
+    */
+    protected open fun getOrderingKey(data: D): Any? = null
+
+    /*
+        When the outbox journal is provided the scheduled data is stored in it, one record per
+        change, instead of persisting the whole managed data object after each change.
+    */
+    protected open fun createOutbox(): OutboxJournal<D>? = null
+
     protected open fun onAtLeastOneSuccess() {
 
         Console.log("$logTag We have at least one success")
@@ -408,83 +467,267 @@ abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataM
 
         setSending(true)
 
-        var persistingRequired = false
+        val sent: MutableSet<D> = ConcurrentHashMap.newKeySet()
+
+        try {
 
-        if (dataEmpty()) {
+            if (dataEmpty()) {
 
-            Console.log("$logTag No data to be sent yet")
+                Console.log("$logTag No data to be sent yet")
 
-            setSending(false)
+                return
+            }
 
-            return
-        }
+            val hasFailed = AtomicBoolean()
+            val atLeastOneSuccess = AtomicBoolean()
+            val lanes = buildLanes(takeScheduled())
 
-        val hasFailed = AtomicBoolean()
-        val toRemove = mutableListOf<D>()
-        val atLeastOneSuccess = AtomicBoolean()
-        val iterator = managedData?.getIterator()
+            if (lanes.size == 1 || sendingConcurrency <= 1) {
 
-        while (iterator?.hasNext() == true) {
+                lanes.forEach { sendLane(it, sent, hasFailed) }
 
-            val item = iterator.next()
+            } else {
+
+                val latch = CountDownLatch(lanes.size)
 
-            item?.let { data ->
+                lanes.forEach { lane ->
 
-                Console.log("$logTag Data decrypted")
+                    try {
 
-                onSendingStarted(data)
+                        sendingExecutor.execute {
 
-                val success = executeSending(data)
+                            try {
 
-                if (success) {
+                                sendLane(lane, sent, hasFailed)
+
+                            } catch (e: Throwable) {
+
+                                recordException(e)
+
+                                hasFailed.set(true)
 
-                    lastSendingTime = System.currentTimeMillis()
+                            } finally {
 
-                    toRemove.add(data)
+                                latch.countDown()
+                            }
+                        }
 
-                    if (!persistingRequired) {
+                    } catch (e: RejectedExecutionException) {
 
-                        persistingRequired = true
+                        recordException(e)
+
+                        hasFailed.set(true)
+
+                        latch.countDown()
                     }
+                }
 
-                    Console.info("$logTag Data has been sent")
+                try {
+
+                    latch.await()
+
+                } catch (e: InterruptedException) {
+
+                    recordException(e)
+                }
+            }
+
+            if (sent.isNotEmpty()) {
+
+                atLeastOneSuccess.set(true)
+
+                lastSendingTime = System.currentTimeMillis()
+
+                removeSent(sent)
+            }
+
+            if (atLeastOneSuccess.get()) {
+
+                onAtLeastOneSuccess()
+            }
+
+            if (hasFailed.get()) {
 
-                    if (!atLeastOneSuccess.get()) {
+                scheduleRetry()
 
-                        atLeastOneSuccess.get()
+            } else {
+
+                failedRuns.set(0)
+            }
+
+            onSent(!hasFailed.get())
+
+        } finally {
+
+            setSending(false)
+        }
+
+        if (sent.isNotEmpty()) {
+
+            val journal = outbox
+
+            if (journal == null) {
+
+                persist()
+
+            } else {
+
+                val journaled = sent.count { journal.contains(it) }
+                val dequeued = journal.dequeue(sent)
+
+                onPersisted(dequeued == journaled)
+            }
+        }
+    }
+
+    /*
+        Items with the same ordering key form one ordered lane: they are sent in the scheduling
+        order and the lane stops at the first failed batch so no item overtakes a failed one.
+        Items without the ordering key are split into independent lanes of one batch each.
+    */
+    private fun buildLanes(items: List<D>): List<SendingLane<D>> {
+
+        val lanes = mutableListOf<SendingLane<D>>()
+        val ordered = LinkedHashMap<Any, SendingLane<D>>()
+        var unordered: SendingLane<D>? = null
+
+        items.forEach { item ->
+
+            val key = getOrderingKey(item)
+
+            if (key == null) {
+
+                val lane = unordered?.takeIf { it.items.size < sendingBatchSize }
+                    ?: SendingLane<D>(ordered = false).also {
+
+                        unordered = it
+                        lanes.add(it)
                     }
 
+                lane.items.add(item)
+
+            } else {
+
+                ordered.getOrPut(key) {
+
+                    SendingLane<D>(ordered = true).also { lanes.add(it) }
+
+                }.items.add(item)
+            }
+        }
+
+        return lanes
+    }
+
+    private fun sendLane(lane: SendingLane<D>, sent: MutableSet<D>, hasFailed: AtomicBoolean) {
+
+        for (batch in lane.items.chunked(sendingBatchSize.coerceAtLeast(1))) {
+
+            batch.forEach { onSendingStarted(it) }
+
+            val results = executeSending(batch)
+            var batchFailed = false
+
+            batch.forEachIndexed { index, data ->
+
+                val success = results.getOrNull(index) == true
+
+                if (success) {
+
+                    sent.add(data)
+
+                    Console.info("$logTag Data has been sent")
+
                 } else {
 
                     Console.error("$logTag Data has not been sent")
 
-                    if (!hasFailed.get()) {
-
-                        hasFailed.set(true)
-                    }
+                    batchFailed = true
                 }
 
-                toRemove.forEach {
+                onSent(data, success)
+            }
+
+            if (batchFailed) {
 
-                    managedData?.remove(it)
+                hasFailed.set(true)
+
+                if (lane.ordered) {
+
+                    return
                 }
+            }
+        }
+    }
 
-                onSent(data, success)
+    private fun scheduleRetry() {
+
+        val attempt = failedRuns.getAndIncrement()
+
+        if (!retryScheduled.compareAndSet(false, true)) {
+
+            return
+        }
+
+        val scheduled = retryScheduler.schedule(
+
+            "transmission.${javaClass.simpleName}", attempt, retryPolicy
+
+        ) {
+
+            retryScheduled.set(false)
+
+            try {
+
+                send(executedFrom = "retry")
+
+            } catch (e: Throwable) {
+
+                recordException(e)
             }
         }
 
-        if (atLeastOneSuccess.get()) {
+        if (!scheduled) {
+
+            retryScheduled.set(false)
 
-            onAtLeastOneSuccess()
+            Console.error("$logTag No more sending retries :: Attempts = %d", attempt)
         }
+    }
 
-        onSent(!hasFailed.get())
+    private fun takeScheduled(): List<D> {
 
-        setSending(false)
+        val items = mutableListOf<D>()
+        val iterator = managedData?.getIterator()
 
-        if (persistingRequired) {
+        while (iterator?.hasNext() == true) {
 
-            persist()
+            iterator.next()?.let { items.add(it) }
+        }
+
+        return items
+    }
+
+    /*
+        Removes all sent items in a single pass over the managed data.
+    */
+    private fun removeSent(sent: Set<D>) {
+
+        val iterator = managedData?.getIterator() ?: return
+
+        try {
+
+            while (iterator.hasNext()) {
+
+                if (sent.contains(iterator.next())) {
+
+                    iterator.remove()
+                }
+            }
+
+        } catch (e: UnsupportedOperationException) {
+
+            sent.forEach { managedData?.remove(it) }
         }
     }
 
@@ -502,7 +745,16 @@ abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataM
 
                 add(data)
 
-                persist()
+                val journal = outbox
+
+                if (journal == null) {
+
+                    persist()
+
+                } else {
+
+                    onPersisted(journal.enqueue(data))
+                }
 
                 Console.log("$logTag Data has been persisted: %s", data)
             }
@@ -535,8 +787,38 @@ abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataM
         return currentSendingStrategy.executeSending(data)
     }
 
+    private fun executeSending(data: List<D>): List<Boolean> {
+
+        if (data.size == 1) {
+
+            return listOf(executeSending(data.first()))
+        }
+
+        Console.log("$logTag Executing sending of the batch :: Size = %d", data.size)
+
+        return currentSendingStrategy.executeSending(data)
+    }
+
     private fun persist() {
 
+        outbox?.let { journal ->
+
+            try {
+
+                journal.sync(takeScheduled())
+
+                onPersisted(true)
+
+            } catch (e: Throwable) {
+
+                recordException(e)
+
+                onPersisted(false)
+            }
+
+            return
+        }
+
         try {
 
             managedData?.let { data ->
@@ -586,6 +868,44 @@ abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataM
         }
     }
 
+    /*
+        Replays the journal after a crash or restart. The journal is the source of truth,
+        the managed data is only migrated into it when there is no journal yet.
+        Returns true when replayed items are waiting to be sent.
+    */
+    private fun restoreOutbox(): Boolean {
+
+        val journal = outbox ?: return false
+
+        try {
+
+            val replayed = journal.replay()
+
+            if (journal.isFresh()) {
+
+                journal.sync(takeScheduled())
+
+                Console.log("$logTag Outbox :: Migrated :: Count = %d", journal.getSize())
+
+                return false
+            }
+
+            managedData?.clear()
+
+            replayed.forEach { managedData?.add(it) }
+
+            Console.log("$logTag Outbox :: Replayed :: Count = %d", replayed.size)
+
+            return replayed.isNotEmpty()
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+
+        return false
+    }
+
     private fun onInit(success: Boolean) {
 
         if (success) {
@@ -638,7 +958,10 @@ abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataM
             }
         }
 
-        sendingCallbacks.doOnAll(operation, "onSent")
+        synchronized(sendingCallbacksLock) {
+
+            sendingCallbacks.doOnAll(operation, "onSent")
+        }
     }
 
     private fun onSendingStarted(data: D) {
@@ -651,7 +974,10 @@ abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataM
             }
         }
 
-        sendingCallbacks.doOnAll(operation, "onSendingStarted")
+        synchronized(sendingCallbacksLock) {
+
+            sendingCallbacks.doOnAll(operation, "onSendingStarted")
+        }
     }
 
     private fun onPersisted(success: Boolean) {
@@ -672,9 +998,16 @@ abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataM
 
             if (success) {
 
-                Console.log("$logTag On data persisted: We are about to start sending data")
+                if (failedRuns.get() > 0) {
+
+                    Console.log("$logTag On data persisted: Sending will be retried later")
 
-                executeSending("onPersisted")
+                } else {
+
+                    Console.log("$logTag On data persisted: We are about to start sending data")
+
+                    executeSending("onPersisted")
+                }
 
 
             } else {
@@ -705,6 +1038,13 @@ abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataM
 
         clear()
 
+        if (sendingExecutorDelegate.isInitialized()) {
+
+            sendingExecutor.shutdown()
+        }
+
+        outbox?.close()
+
         return dataEmpty()
     }
 
@@ -788,4 +1128,9 @@ abstract class TransmissionManager<T, D>(protected val dataManager: Obtain<DataM
 
         return BaseApplication.takeContext()
     }
-}
\ No newline at end of file
+
+    private class SendingLane<D>(val ordered: Boolean) {
+
+        val items = mutableListOf<D>()
+    }
+}
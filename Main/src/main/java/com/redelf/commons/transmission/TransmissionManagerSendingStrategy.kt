@@ -7,4 +7,10 @@ interface TransmissionManagerSendingStrategy<T> {
     fun isNotReady() = !isReady()
 
     fun executeSending(data: T): Boolean
-}
\ No newline at end of file
+
+    /*
+        Sends the batch and returns the result for each item, in the batch order.
+        Override to send the whole batch with a single request.
+    */
+    fun executeSending(data: List<T>): List<Boolean> = data.map { executeSending(it) }
+}
@@ -0,0 +1,558 @@
+package com.redelf.commons.transmission.outbox
+
+import com.google.gson.Gson
+import com.redelf.commons.extensions.recordException
+import com.redelf.commons.logging.Console
+import com.redelf.commons.persistance.base.Encryption
+import com.redelf.commons.persistance.encryption.CompressedEncryption
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.lang.reflect.Type
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+
+/*
+    Append-only outbox storage.
+
+    Every enqueue and dequeue is a single record appended to the active segment file, so the
+    cost of a write does not depend on the number of queued items. Segments roll over when they
+    grow above the segment size. When most of the journal is made of dead records (dequeued
+    items) the live items are written into a snapshot in the background. The snapshot replaces
+    all segments up to its index; it becomes effective only once it is completely written.
+
+    Record layout: type (byte), item id (long), payload length (int), payload (bytes).
+    A record cut short by a crash is ignored on replay, so is everything after a record whose
+    length does not fit into the rest of the file.
+
+    The payloads are encrypted with the application secret by default.
+*/
+class OutboxJournal<D>(
+
+    private val directory: File,
+    private val type: Type,
+    private val encryption: Encryption<String> = CompressedEncryption(),
+    private val maxSegmentBytes: Long = 1024L * 1024L,
+    private val compactionThreshold: Int = 1000
+
+) {
+
+    companion object {
+
+        val DEBUG = AtomicBoolean()
+
+        private const val RECORD_ENQUEUE: Byte = 1
+        private const val RECORD_DEQUEUE: Byte = 2
+        private const val SEGMENT_PREFIX = "segment_"
+        private const val SNAPSHOT_PREFIX = "snapshot_"
+        private const val SEGMENT_SUFFIX = ".log"
+        private const val ENCRYPTION_KEY = "outbox"
+        private const val RECORD_HEADER_BYTES = 13
+    }
+
+    private val lock = Any()
+    private val compactionLock = Any()
+    private val gson = Gson()
+    private val tag = "Outbox journal :: ${directory.name} ::"
+    private val pending = LinkedHashMap<Long, D>()
+    private val identifiers = HashMap<D, Long>()
+    private val compacting = AtomicBoolean()
+    private val compactionExecutor: ExecutorService = Executors.newFixedThreadPool(1)
+
+    private var nextId = 1L
+    private var deadRecords = 0
+    private var activeIndex = 1L
+    private var fresh = true
+    private var activeBytes = 0L
+    private var output: DataOutputStream? = null
+
+    /*
+        Reads all segments and returns the items that were enqueued and not dequeued yet,
+        in the enqueue order. Must be called before the first enqueue.
+    */
+    fun replay(): List<D> {
+
+        synchronized(lock) {
+
+            if (!directory.exists() && !directory.mkdirs()) {
+
+                Console.error("$tag Could not create the journal directory")
+            }
+
+            pending.clear()
+            identifiers.clear()
+
+            var records = 0
+            val snapshot = files(SNAPSHOT_PREFIX).lastOrNull()
+            val base = snapshot?.let { index(it, SNAPSHOT_PREFIX) } ?: 0L
+
+            activeIndex = base
+
+            snapshot?.let { records += readSegment(it) }
+
+            files(SNAPSHOT_PREFIX).dropLast(1).forEach { it.delete() }
+
+            files(SEGMENT_PREFIX).forEach { segment ->
+
+                val index = index(segment, SEGMENT_PREFIX)
+
+                if (index <= base) {
+
+                    segment.delete()
+
+                } else {
+
+                    records += readSegment(segment)
+
+                    activeIndex = maxOf(activeIndex, index)
+                }
+            }
+
+            deadRecords = records - pending.size
+            fresh = snapshot == null && records == 0
+            activeIndex++
+
+            if (DEBUG.get()) Console.log(
+
+                "$tag Replayed :: Records = $records, Pending = ${pending.size}"
+            )
+
+            return pending.values.toList()
+        }
+    }
+
+    /*
+        True when the replay found no journal, e.g. the first start after the migration.
+    */
+    fun isFresh() = synchronized(lock) { fresh }
+
+    fun getSize() = synchronized(lock) { pending.size }
+
+    fun getItems() = synchronized(lock) { pending.values.toList() }
+
+    fun contains(item: D) = synchronized(lock) { identifiers.containsKey(item) }
+
+    /*
+        Returns true when the item is in the journal, also when it was already there.
+    */
+    fun enqueue(item: D): Boolean {
+
+        synchronized(lock) {
+
+            if (identifiers.containsKey(item)) {
+
+                return true
+            }
+
+            val id = nextId++
+            val payload = encode(item) ?: return false
+
+            if (!append(RECORD_ENQUEUE, id, payload)) {
+
+                return false
+            }
+
+            pending[id] = item
+            identifiers[item] = id
+
+            return true
+        }
+    }
+
+    fun dequeue(item: D): Boolean {
+
+        return dequeue(listOf(item)) > 0
+    }
+
+    /*
+        Returns the number of dequeued items.
+    */
+    fun dequeue(items: Collection<D>): Int {
+
+        var count = 0
+
+        synchronized(lock) {
+
+            items.forEach { item ->
+
+                val id = identifiers[item] ?: return@forEach
+
+                if (append(RECORD_DEQUEUE, id, ByteArray(0))) {
+
+                    identifiers.remove(item)
+                    pending.remove(id)
+
+                    deadRecords += 2
+                    count++
+                }
+            }
+
+            output?.flush()
+        }
+
+        if (count > 0) {
+
+            scheduleCompaction()
+        }
+
+        return count
+    }
+
+    /*
+        Makes the journal match the given items by appending only the differences.
+    */
+    fun sync(items: Collection<D>) {
+
+        val current = items.toHashSet()
+        val removed = synchronized(lock) { identifiers.keys.filterNot { current.contains(it) } }
+
+        dequeue(removed)
+
+        items.forEach { enqueue(it) }
+    }
+
+    fun clear(): Boolean {
+
+        synchronized(lock) {
+
+            closeOutput()
+
+            pending.clear()
+            identifiers.clear()
+            deadRecords = 0
+            activeBytes = 0
+
+            var success = true
+
+            (files(SNAPSHOT_PREFIX) + files(SEGMENT_PREFIX)).forEach {
+
+                if (!it.delete()) {
+
+                    success = false
+                }
+            }
+
+            return success
+        }
+    }
+
+    fun close() {
+
+        synchronized(lock) {
+
+            closeOutput()
+        }
+
+        compactionExecutor.shutdown()
+    }
+
+    /*
+        Writes the live items into a snapshot. Writers are blocked only while the active
+        segment is rolled over and while the replaced files are deleted.
+    */
+    fun compact(): Boolean {
+
+        synchronized(compactionLock) {
+
+            return doCompact()
+        }
+    }
+
+    private fun doCompact(): Boolean {
+
+        val live: Map<Long, D>
+        val obsolete: List<File>
+        val target: File
+
+        synchronized(lock) {
+
+            closeOutput()
+
+            obsolete = files(SNAPSHOT_PREFIX) + files(SEGMENT_PREFIX)
+
+            if (obsolete.isEmpty()) {
+
+                return true
+            }
+
+            live = LinkedHashMap(pending)
+            target = File(directory, "$SNAPSHOT_PREFIX$activeIndex$SEGMENT_SUFFIX")
+
+            activeIndex++
+            activeBytes = 0
+        }
+
+        val temporary = File(directory, "${target.name}.tmp")
+
+        try {
+
+            DataOutputStream(BufferedOutputStream(FileOutputStream(temporary))).use { stream ->
+
+                live.forEach { (id, item) ->
+
+                    encode(item)?.let { writeRecord(stream, RECORD_ENQUEUE, id, it) }
+                }
+
+                stream.flush()
+            }
+
+        } catch (e: IOException) {
+
+            recordException(e)
+
+            temporary.delete()
+
+            return false
+        }
+
+        synchronized(lock) {
+
+            if (!temporary.renameTo(target)) {
+
+                Console.error("$tag Compaction :: Could not create ${target.name}")
+
+                temporary.delete()
+
+                return false
+            }
+
+            /*
+                The snapshot is in place, replaced files are skipped by replay even if
+                the process dies before they are deleted.
+            */
+            obsolete.forEach { it.delete() }
+
+            deadRecords = 0
+        }
+
+        if (DEBUG.get()) Console.log(
+
+            "$tag Compacted :: Segments = ${obsolete.size}, Live = ${live.size}"
+        )
+
+        return true
+    }
+
+    private fun scheduleCompaction() {
+
+        val required = synchronized(lock) {
+
+            deadRecords >= compactionThreshold && deadRecords > pending.size
+        }
+
+        if (!required || !compacting.compareAndSet(false, true)) {
+
+            return
+        }
+
+        try {
+
+            compactionExecutor.execute {
+
+                try {
+
+                    compact()
+
+                } catch (e: Throwable) {
+
+                    recordException(e)
+
+                } finally {
+
+                    compacting.set(false)
+                }
+            }
+
+        } catch (e: Throwable) {
+
+            compacting.set(false)
+
+            recordException(e)
+        }
+    }
+
+    private fun append(type: Byte, id: Long, payload: ByteArray): Boolean {
+
+        try {
+
+            if (activeBytes >= maxSegmentBytes) {
+
+                closeOutput()
+
+                activeIndex++
+                activeBytes = 0
+            }
+
+            val stream = output ?: DataOutputStream(
+
+                BufferedOutputStream(FileOutputStream(segmentFile(activeIndex), true))
+
+            ).also {
+
+                output = it
+                activeBytes = segmentFile(activeIndex).length()
+            }
+
+            writeRecord(stream, type, id, payload)
+
+            if (type == RECORD_ENQUEUE) {
+
+                stream.flush()
+            }
+
+            activeBytes += RECORD_HEADER_BYTES + payload.size
+
+            return true
+
+        } catch (e: IOException) {
+
+            recordException(e)
+
+            closeOutput()
+        }
+
+        return false
+    }
+
+    private fun writeRecord(stream: DataOutputStream, type: Byte, id: Long, payload: ByteArray) {
+
+        stream.writeByte(type.toInt())
+        stream.writeLong(id)
+        stream.writeInt(payload.size)
+        stream.write(payload)
+    }
+
+    private fun readSegment(segment: File): Int {
+
+        var records = 0
+        var remaining = segment.length()
+
+        try {
+
+            DataInputStream(BufferedInputStream(FileInputStream(segment))).use { stream ->
+
+                while (true) {
+
+                    val type = stream.readByte()
+                    val id = stream.readLong()
+                    val length = stream.readInt()
+
+                    remaining -= RECORD_HEADER_BYTES
+
+                    if (length < 0 || length > remaining) {
+
+                        Console.error(
+
+                            "$tag Segment read :: ${segment.name} :: " +
+                                    "Invalid record length = $length, Remaining = $remaining"
+                        )
+
+                        break
+                    }
+
+                    val payload = ByteArray(length)
+
+                    stream.readFully(payload)
+
+                    remaining -= length
+                    records++
+
+                    nextId = maxOf(nextId, id + 1)
+
+                    if (type == RECORD_ENQUEUE) {
+
+                        decode(payload)?.let {
+
+                            pending.remove(id)?.let { previous -> identifiers.remove(previous) }
+
+                            pending[id] = it
+                            identifiers[it] = id
+                        }
+
+                    } else {
+
+                        pending.remove(id)?.let { identifiers.remove(it) }
+                    }
+                }
+            }
+
+        } catch (e: EOFException) {
+
+            if (DEBUG.get()) Console.log("$tag Segment read :: ${segment.name}, Records = $records")
+
+        } catch (e: Throwable) {
+
+            Console.error("$tag Segment read :: ${segment.name} :: ERROR: ${e.message}")
+        }
+
+        return records
+    }
+
+    private fun encode(item: D): ByteArray? {
+
+        try {
+
+            return encryption.encrypt(ENCRYPTION_KEY, gson.toJson(item, type))?.toByteArray()
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+
+        return null
+    }
+
+    private fun decode(payload: ByteArray): D? {
+
+        try {
+
+            val json = encryption.decrypt(ENCRYPTION_KEY, String(payload)) ?: return null
+
+            return gson.fromJson<D>(json, type)
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+
+        return null
+    }
+
+    private fun closeOutput() {
+
+        try {
+
+            output?.flush()
+            output?.close()
+
+        } catch (e: IOException) {
+
+            recordException(e)
+        }
+
+        output = null
+    }
+
+    private fun files(prefix: String): List<File> {
+
+        return directory.listFiles { file ->
+
+            file.name.startsWith(prefix) && file.name.endsWith(SEGMENT_SUFFIX)
+
+        }?.sortedBy { index(it, prefix) } ?: emptyList()
+    }
+
+    private fun segmentFile(index: Long) = File(directory, "$SEGMENT_PREFIX$index$SEGMENT_SUFFIX")
+
+    private fun index(file: File, prefix: String): Long {
+
+        return file.name.removePrefix(prefix).removeSuffix(SEGMENT_SUFFIX).toLongOrNull() ?: 0
+    }
+}
@@ -42,6 +42,15 @@ abstract class ExoPlayer(private val ctx: Context) : PlayerAbstraction<EPlayer>(
 
         private var exo: EPlayer? = null
         private var monitor: PlayerConnectivityMonitor? = null
+
+        @OptIn(UnstableApi::class)
+        private val dataSourceFactory by lazy { ExoPlayerDataSourceFactory() }
+
+        @OptIn(UnstableApi::class)
+        private val prefetcher by lazy {
+
+            ExoPlayerPrefetcher(BaseApplication.takeContext(), dataSourceFactory)
+        }
     }
 
     private var currentDuration: Long = 0
@@ -243,6 +252,8 @@ abstract class ExoPlayer(private val ctx: Context) : PlayerAbstraction<EPlayer>(
                                     applyVolume()
 
                                     what.onStarted()
+
+                                    prefetchNext()
                                 }
 
                                 Player.STATE_ENDED -> {
@@ -745,6 +756,13 @@ abstract class ExoPlayer(private val ctx: Context) : PlayerAbstraction<EPlayer>(
         return getMediaList() ?: emptyList()
     }
 
+    /*
+        How many of the next items and how many of their first seconds are cached ahead.
+    */
+    protected open fun getPrefetchCount() = 2
+
+    protected open fun getPrefetchSeconds() = 30
+
     protected abstract fun obtainCurrentProgress(from: Media): Float
 
     protected abstract fun obtainPlayable(): Pair<Media, Float>?
@@ -822,6 +840,27 @@ abstract class ExoPlayer(private val ctx: Context) : PlayerAbstraction<EPlayer>(
         return false
     }
 
+    @OptIn(UnstableApi::class)
+    private fun prefetchNext() {
+
+        val count = getPrefetchCount()
+
+        if (count <= 0 || !canNext()) {
+
+            return
+        }
+
+        val items = getPlayableItems()
+        val current = items.indexOf(getMedia())
+
+        if (current < 0) {
+
+            return
+        }
+
+        prefetcher.prefetch(items.drop(current + 1).take(count), getPrefetchSeconds())
+    }
+
     @OptIn(UnstableApi::class)
     private fun instantiateMediaPlayer(): EPlayer {
 
@@ -847,13 +886,11 @@ abstract class ExoPlayer(private val ctx: Context) : PlayerAbstraction<EPlayer>(
             )
             .build()
 
-        val httpDataSourceFactory = ExoPlayerDataSourceFactory()
-
         val exoPlayer = ExoPlayer.Builder(ctx)
             .setAudioAttributes(audioAttributes, false)
             .setHandleAudioBecomingNoisy(true)
             .setLoadControl(loadControl)
-            .setMediaSourceFactory(DefaultMediaSourceFactory(httpDataSourceFactory))
+            .setMediaSourceFactory(DefaultMediaSourceFactory(dataSourceFactory))
             .setWakeMode(C.WAKE_MODE_NETWORK)
             .build()
 
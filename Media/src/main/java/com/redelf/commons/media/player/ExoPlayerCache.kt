@@ -0,0 +1,109 @@
+package com.redelf.commons.media.player
+
+import android.content.Context
+import androidx.media3.common.util.UnstableApi
+import androidx.media3.database.StandaloneDatabaseProvider
+import androidx.media3.datasource.cache.LeastRecentlyUsedCacheEvictor
+import androidx.media3.datasource.cache.SimpleCache
+import com.redelf.commons.extensions.recordException
+import com.redelf.commons.logging.Console
+import java.io.File
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+
+/*
+    The disk cache of the played media.
+
+    SimpleCache allows only one instance per directory, so every player and the prefetcher
+    share this one. The least recently used content is evicted above the maximum size, the
+    size has to be set before the cache is used for the first time.
+*/
+@UnstableApi
+object ExoPlayerCache {
+
+    val DEBUG = AtomicBoolean()
+
+    private const val TAG = "Exo :: Player Cache ::"
+    private const val DIRECTORY = "media"
+
+    private val maxBytes = AtomicLong(256L * 1024L * 1024L)
+
+    @Volatile
+    private var cache: SimpleCache? = null
+
+    fun setMaxBytes(value: Long) {
+
+        if (cache != null) {
+
+            Console.warning("$TAG Max bytes :: Already created, applies on the next start")
+        }
+
+        maxBytes.set(value.coerceAtLeast(1L))
+    }
+
+    fun getMaxBytes() = maxBytes.get()
+
+    /*
+        Returns null when the cache can't be created, the data source then reads from network only.
+    */
+    fun obtain(ctx: Context): SimpleCache? {
+
+        cache?.let {
+
+            return it
+        }
+
+        synchronized(this) {
+
+            cache?.let {
+
+                return it
+            }
+
+            try {
+
+                val app = ctx.applicationContext
+                val directory = File(app.cacheDir, DIRECTORY)
+                val evictor = LeastRecentlyUsedCacheEvictor(maxBytes.get())
+                val created = SimpleCache(directory, evictor, StandaloneDatabaseProvider(app))
+
+                cache = created
+
+                if (DEBUG.get()) Console.log(
+
+                    "$TAG Created :: Max bytes = ${maxBytes.get()}, Used = ${created.cacheSpace}"
+                )
+
+                return created
+
+            } catch (e: Throwable) {
+
+                recordException(e)
+            }
+
+            return null
+        }
+    }
+
+    fun getUsedBytes() = cache?.cacheSpace ?: 0L
+
+    fun isCached(key: String, length: Long): Boolean {
+
+        return cache?.isCached(key, 0, length) == true
+    }
+
+    @Synchronized
+    fun release() {
+
+        try {
+
+            cache?.release()
+
+        } catch (e: Throwable) {
+
+            recordException(e)
+        }
+
+        cache = null
+    }
+}
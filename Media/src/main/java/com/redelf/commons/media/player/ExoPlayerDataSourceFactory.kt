@@ -5,6 +5,7 @@ import androidx.media3.common.util.UnstableApi
 import androidx.media3.datasource.DataSource
 import androidx.media3.datasource.DataSpec
 import androidx.media3.datasource.TransferListener
+import androidx.media3.datasource.cache.CacheDataSource
 import androidx.media3.datasource.okhttp.OkHttpDataSource
 import com.redelf.commons.application.BaseApplication
 import com.redelf.commons.execution.doze.DozeModeIOException
@@ -17,15 +18,50 @@ import okhttp3.logging.HttpLoggingInterceptor
 import java.io.IOException
 import java.util.concurrent.TimeUnit
 
+/*
+    Reads the media through the shared disk cache (ExoPlayerCache), the network is used only
+    for the ranges not cached yet. With cached = false (or when the cache is not available)
+    it reads from the network only.
+*/
 @UnstableApi
-class ExoPlayerDataSourceFactory : DataSource.Factory {
+class ExoPlayerDataSourceFactory(private val cached: Boolean = true) : DataSource.Factory {
 
     private val tag = "Exo :: Player Data Source ::"
 
     private val client by lazy { createDozeAwareOkHttpClient(BaseApplication.takeContext()) }
 
+    private val upstreamFactory by lazy {
+
+        OkHttpDataSource.Factory(client)
+            .setDefaultRequestProperties(createDefaultHeaders())
+            .setTransferListener(createTransferListener())
+    }
+
     override fun createDataSource(): DataSource {
 
+        return createCacheDataSourceFactory()?.createDataSource() ?: createUpstreamDataSource()
+    }
+
+    /*
+        Null when caching is off or the cache is not available.
+    */
+    fun createCacheDataSourceFactory(): CacheDataSource.Factory? {
+
+        if (!cached) {
+
+            return null
+        }
+
+        val cache = ExoPlayerCache.obtain(BaseApplication.takeContext()) ?: return null
+
+        return CacheDataSource.Factory()
+            .setCache(cache)
+            .setUpstreamDataSourceFactory(upstreamFactory)
+            .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR)
+    }
+
+    private fun createUpstreamDataSource(): DataSource {
+
         //        val cTimeout = 15_000
         //        val rTimeout = 30_000
         //        val cacheParameters = mapOf("User-Agent" to "ExoPlayer")
@@ -49,10 +85,7 @@ class ExoPlayerDataSourceFactory : DataSource.Factory {
         //            .setDefaultRequestProperties(cacheParameters)
         //            .createDataSource()
 
-        return OkHttpDataSource.Factory(client)
-            .setDefaultRequestProperties(createDefaultHeaders())
-            .setTransferListener(createTransferListener())
-            .createDataSource()
+        return upstreamFactory.createDataSource()
     }
 
     private fun createDefaultHeaders(): Map<String, String> {
@@ -0,0 +1,207 @@
+package com.redelf.commons.media.player
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.net.Uri
+import androidx.media3.common.util.UnstableApi
+import androidx.media3.datasource.DataSpec
+import androidx.media3.datasource.cache.CacheWriter
+import com.redelf.commons.extensions.recordException
+import com.redelf.commons.logging.Console
+import com.redelf.commons.media.Media
+import com.redelf.commons.net.connectivity.ConnectivityStateEngine
+import java.io.InterruptedIOException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+
+/*
+    Warms the disk cache with the beginning of the items that are going to be played next.
+
+    The length to cache is estimated from the seconds and the expected bitrate, the items are
+    cached one by one on a single background thread. Prefetching runs on unmetered networks
+    only, a new request cancels the items that are no longer wanted.
+
+    Progressive streams are cached, for adaptive streams (HLS, DASH) only the manifest is.
+*/
+@UnstableApi
+class ExoPlayerPrefetcher(
+
+    private val ctx: Context,
+    private val dataSourceFactory: ExoPlayerDataSourceFactory,
+    private val bytesPerSecond: Long = 32L * 1024L
+
+) {
+
+    companion object {
+
+        val DEBUG = AtomicBoolean()
+
+        private const val TAG = "Exo :: Prefetcher ::"
+    }
+
+    private val executor: ExecutorService by lazy {
+
+        Executors.newSingleThreadExecutor()
+    }
+
+    private val writers = ConcurrentHashMap<String, CacheWriter>()
+    private val wanted: MutableSet<String> = ConcurrentHashMap.newKeySet()
+
+    private val requested = AtomicLong()
+    private val completed = AtomicLong()
+    private val cancelled = AtomicLong()
+    private val skipped = AtomicLong()
+    private val bytes = AtomicLong()
+
+    /*
+        Replaces the previous request with the given items.
+    */
+    fun prefetch(items: List<Media>, seconds: Int) {
+
+        val urls = items.mapNotNull { it.getStreamUrl() }.filter { it.isNotBlank() }.distinct()
+
+        wanted.clear()
+        wanted.addAll(urls)
+
+        writers.forEach { (url, writer) ->
+
+            if (!wanted.contains(url)) {
+
+                writer.cancel()
+            }
+        }
+
+        if (urls.isEmpty()) {
+
+            return
+        }
+
+        if (isMetered()) {
+
+            skipped.addAndGet(urls.size.toLong())
+
+            if (DEBUG.get()) Console.log("$TAG Skipped :: Metered network")
+
+            return
+        }
+
+        val length = seconds.coerceAtLeast(1) * bytesPerSecond
+
+        urls.forEach { url ->
+
+            requested.incrementAndGet()
+
+            try {
+
+                executor.execute { cache(url, length) }
+
+            } catch (e: Throwable) {
+
+                recordException(e)
+            }
+        }
+    }
+
+    fun cancel() {
+
+        wanted.clear()
+
+        writers.values.forEach { it.cancel() }
+    }
+
+    fun getStats() = Stats(
+
+        requested = requested.get(),
+        completed = completed.get(),
+        cancelled = cancelled.get(),
+        skipped = skipped.get(),
+        bytes = bytes.get()
+    )
+
+    private fun cache(url: String, length: Long) {
+
+        if (!wanted.contains(url) || isMetered()) {
+
+            cancelled.incrementAndGet()
+
+            return
+        }
+
+        if (ExoPlayerCache.isCached(url, length)) {
+
+            return
+        }
+
+        val factory = dataSourceFactory.createCacheDataSourceFactory() ?: return
+        val dataSpec = DataSpec.Builder()
+            .setUri(Uri.parse(url))
+            .setPosition(0)
+            .setLength(length)
+            .build()
+
+        val writer = CacheWriter(factory.createDataSource(), dataSpec, null) { _, cached, added ->
+
+            bytes.addAndGet(added)
+
+            if (DEBUG.get()) Console.log("$TAG Progress :: Cached = $cached / $length")
+        }
+
+        /*
+            Registered first, then checked again: a request replacing this one either sees the
+            writer and cancels it, or has already changed the wanted items.
+        */
+        writers[url] = writer
+
+        try {
+
+            if (!wanted.contains(url)) {
+
+                cancelled.incrementAndGet()
+
+                return
+            }
+
+            writer.cache()
+
+            completed.incrementAndGet()
+
+            if (DEBUG.get()) Console.log("$TAG Cached :: $url")
+
+        } catch (e: InterruptedIOException) {
+
+            cancelled.incrementAndGet()
+
+        } catch (e: Throwable) {
+
+            Console.warning("$TAG Failed :: Url = $url, Error = ${e.message}")
+
+        } finally {
+
+            writers.remove(url, writer)
+        }
+    }
+
+    private fun isMetered(): Boolean {
+
+        ConnectivityStateEngine.isMetered()?.let {
+
+            return it
+        }
+
+        val manager = ctx.getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager?
+
+        return manager?.isActiveNetworkMetered ?: true
+    }
+
+    data class Stats(
+
+        val requested: Long,
+        val completed: Long,
+        val cancelled: Long,
+        val skipped: Long,
+        val bytes: Long
+    )
+}